@@ -0,0 +1,77 @@
+package primitives;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * benchmark for the vector and point operations - prints the time and the memory allocated by an operation.<br>
+ * the benchmark isn't a unit test - run the class
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class VectorBenchmark {
+
+    /**
+     * amount of vectors the operations run on
+     */
+    private static final int VECTORS = 1024;
+    /**
+     * operations in a measured round
+     */
+    private static final int OPERATIONS = 5_000_000;
+    /**
+     * rounds run before the measured round, so the operations are compiled
+     */
+    private static final int WARMUP_ROUNDS = 5;
+
+    /**
+     * results of the operations, so they aren't removed by the compiler - a static field may be read by any code
+     */
+    private static double _sink;
+
+    /**
+     * runs an operation and prints its time and the memory it allocates
+     * @param name name of the operation
+     * @param operation the operation, receiving the index of the operation and returning a value of its result
+     */
+    private static void measure(String name, IntToDoubleFunction operation) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        for (int round = 0; round < WARMUP_ROUNDS; round++)
+            for (int i = 0; i < OPERATIONS; i++)
+                _sink += operation.applyAsDouble(i);
+
+        long bytes = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS; i++)
+            _sink += operation.applyAsDouble(i);
+        double time = (double) (System.nanoTime() - start) / OPERATIONS;
+        bytes = threads.getThreadAllocatedBytes(thread) - bytes;
+        System.out.printf("%-16s %8.2f ns/op %8.1f bytes/op%n", name, time, (double) bytes / OPERATIONS);
+    }
+
+    /**
+     * runs the vector and point operations on random vectors and prints their times and allocations
+     * @param args not used
+     */
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        Vector[] vectors = new Vector[VECTORS];
+        Point3D[] points = new Point3D[VECTORS];
+        for (int i = 0; i < VECTORS; i++) {
+            vectors[i] = new Vector(random.nextDouble() + 1, random.nextDouble() + 1, random.nextDouble() + 1);
+            points[i] = new Point3D(random.nextDouble(), random.nextDouble(), random.nextDouble());
+        }
+        int mask = VECTORS - 1;
+
+        measure("add", i -> vectors[i & mask].add(vectors[(i + 1) & mask]).lengthSquared());
+        measure("subtract", i -> points[i & mask].subtract(points[(i + 1) & mask]).lengthSquared());
+        measure("scale", i -> vectors[i & mask].scale(2).lengthSquared());
+        measure("dotProduct", i -> vectors[i & mask].dotProduct(vectors[(i + 1) & mask]));
+        measure("crossProduct", i -> vectors[i & mask].crossProduct(vectors[(i + 3) & mask]).lengthSquared());
+        measure("normalized", i -> vectors[i & mask].normalized().lengthSquared());
+        measure("point add", i -> points[i & mask].add(vectors[i & mask]).distanceSquared(points[0]));
+        measure("distance", i -> points[i & mask].distance(points[(i + 1) & mask]));
+    }
+}
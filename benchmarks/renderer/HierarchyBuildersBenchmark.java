@@ -0,0 +1,382 @@
+package renderer;
+
+import elements.AmbientLight;
+import elements.Camera;
+import elements.PointLight;
+import geometries.*;
+import primitives.*;
+import scene.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * benchmark for the virtual boxes hierarchy build methods and the acceleration structures - compares build time
+ * and render (trace) time of a scene with many small spheres.<br>
+ * the benchmarks aren't unit tests - run the class with the names of the benchmarks to run, or without arguments
+ * to run all of them. the images are written as "benchmark *.jpg"
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class HierarchyBuildersBenchmark {
+
+    /**
+     * amount of spheres in the benchmark scene
+     */
+    private static final int SPHERES = 5000;
+    /**
+     * amount of spheres and triangles in the dense cloud scene
+     */
+    private static final int CLOUD_GEOMETRIES = 20000;
+    /**
+     * amount of renders with and without the leaf kernel in the batched leaves benchmark
+     */
+    private static final int BATCH_LEAVES_RENDERS = 5;
+
+    /**
+     * Benchmark interface is a benchmark that can be run by name
+     */
+    private interface Benchmark {
+        /**
+         * runs the benchmark and prints its results
+         * @throws IOException if the benchmark's files can't be written
+         */
+        void run() throws IOException;
+    }
+
+    /**
+     * runs the benchmarks
+     * @param args names of the benchmarks to run, all of them if there are none
+     * @throws IOException if a benchmark's files can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        Map<String, Benchmark> benchmarks = new LinkedHashMap<>();
+        benchmarks.put("buildMethods", HierarchyBuildersBenchmark::buildMethods);
+        benchmarks.put("accelerationStructures", HierarchyBuildersBenchmark::accelerationStructures);
+        benchmarks.put("packetSizes", HierarchyBuildersBenchmark::packetSizes);
+        benchmarks.put("tileCulling", HierarchyBuildersBenchmark::tileCulling);
+        benchmarks.put("wideHierarchy", HierarchyBuildersBenchmark::wideHierarchy);
+        benchmarks.put("quantizedHierarchy", HierarchyBuildersBenchmark::quantizedHierarchy);
+        benchmarks.put("lazyHierarchy", HierarchyBuildersBenchmark::lazyHierarchy);
+        benchmarks.put("clipInfinitePlanes", HierarchyBuildersBenchmark::clipInfinitePlanes);
+        benchmarks.put("hierarchyCache", HierarchyBuildersBenchmark::hierarchyCache);
+        benchmarks.put("frame", HierarchyBuildersBenchmark::frame);
+        benchmarks.put("batchLeaves", HierarchyBuildersBenchmark::batchLeaves);
+
+        for (String name : args.length == 0 ? benchmarks.keySet().toArray(new String[0]) : args) {
+            Benchmark benchmark = benchmarks.get(name);
+            if (benchmark == null)
+                throw new IllegalArgumentException("Unknown benchmark " + name + ", benchmarks: "
+                        + benchmarks.keySet());
+            benchmark.run();
+        }
+    }
+
+    /**
+     * creates the benchmark scene - a field of small spheres over a floor
+     * @return the scene
+     */
+    private static Scene createScene() {
+        Scene scene = new Scene("Benchmark scene");
+        scene.setCamera(new Camera(new Point3D(0, 0, -1000), new Vector(0, 0, 1), new Vector(0, -1, 0)));
+        scene.setDistance(1000);
+        scene.setBackground(Color.BLACK);
+        scene.setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+
+        List<Intersectable> geometries = new ArrayList<>();
+        geometries.add(new Polygon(new Material(0.5, 0.5, 60), new Color(70, 50, 50),
+                new Point3D(-300, 100, -100), new Point3D(-300, 100, 2000),
+                new Point3D(300, 100, 2000), new Point3D(300, 100, -100)));
+        Random random = new Random(1);
+        for (int i = 0; i < SPHERES; i++)
+            geometries.add(new Sphere(new Color(20 + random.nextInt(100), 20 + random.nextInt(100), 50),
+                    new Material(0.5, 0.5, 30), 1 + random.nextDouble() * 2,
+                    new Point3D(random.nextGaussian() * 60, random.nextGaussian() * 40,
+                            400 + random.nextGaussian() * 200)));
+        scene.addGeometries(geometries);
+        scene.addLights(new PointLight(new Color(500, 300, 300), new Point3D(-100, -200, 0), 1, 4E-5, 2E-7));
+        return scene;
+    }
+
+    /**
+     * renders an image, writes it and measures the rendering
+     * @param render the render
+     * @return time of the rendering in ms
+     */
+    private static double trace(Render render) {
+        long start = System.nanoTime();
+        render.renderImage();
+        double traceTime = (System.nanoTime() - start) / 1e6;
+        render.writeToImage();
+        return traceTime;
+    }
+
+    /**
+     * calculates an average of a render's traversal counter per ray of a kind
+     * @param render the render
+     * @param type kind of the rays
+     * @param count the counter's value
+     * @return average per ray
+     */
+    private static double perRay(Render render, AccelerationStructure.RayType type, long count) {
+        double rays = render.getTraversalStatistics().getRays(type);
+        return count / rays;
+    }
+
+    /**
+     * builds and renders the benchmark scene with every build method and prints the times
+     */
+    private static void buildMethods() {
+        for (Geometries.BuildMethod method : Geometries.BuildMethod.values()) {
+            Scene scene = createScene();
+            scene.setBuildMethod(method);
+            ImageWriter imageWriter = new ImageWriter("benchmark " + method, 200, 200, 200, 200);
+            double traceTime = trace(new Render(imageWriter, scene).setMultithreading(0));
+            System.out.printf("%-24s build: %10.1f ms   trace: %10.1f ms   boxes: %d%n", method,
+                    scene.getBuildTime(), traceTime, scene.getGeometries().getHierarchy().getBoxesCount());
+        }
+    }
+
+    /**
+     * builds and renders the benchmark scene with every acceleration structure (except none) and prints the times
+     */
+    private static void accelerationStructures() {
+        for (AccelerationStructure.Type type : AccelerationStructure.Type.values()) {
+            if (type == AccelerationStructure.Type.NONE)
+                continue;
+            Scene scene = createScene();
+            ImageWriter imageWriter = new ImageWriter("benchmark " + type, 200, 200, 200, 200);
+            double traceTime = trace(new Render(imageWriter, scene, 1, type).setMultithreading(0));
+            System.out.printf("%-24s build: %10.1f ms   trace: %10.1f ms%n", type, scene.getBuildTime(), traceTime);
+        }
+    }
+
+    /**
+     * renders the benchmark scene with every primary rays packet size and prints the times
+     */
+    private static void packetSizes() {
+        Scene scene = createScene();
+        for (int packetSize : new int[]{1, 4, 8, 16}) {
+            ImageWriter imageWriter = new ImageWriter("benchmark packet " + packetSize, 200, 200, 400, 400);
+            double traceTime = trace(new Render(imageWriter, scene).setMultithreading(0).setPacketSize(packetSize));
+            System.out.printf("packet size %-12d trace: %10.1f ms%n", packetSize, traceTime);
+        }
+    }
+
+    /**
+     * renders the benchmark scene with and without tile culling and prints the times
+     */
+    private static void tileCulling() {
+        Scene scene = createScene();
+        for (boolean tileCulling : new boolean[]{false, true}) {
+            ImageWriter imageWriter = new ImageWriter("benchmark tiles " + tileCulling, 200, 200, 400, 400);
+            double traceTime = trace(new Render(imageWriter, scene).setMultithreading(0).setTileCulling(tileCulling));
+            System.out.printf("tile culling %-11b trace: %10.1f ms%n", tileCulling, traceTime);
+        }
+    }
+
+    /**
+     * renders the benchmark scene with the binary virtual boxes hierarchy and with wide hierarchies collapsed from
+     * it, and prints the times and the boxes visited by a primary ray
+     */
+    private static void wideHierarchy() {
+        for (int width : new int[]{2, 4, 8}) {
+            Scene scene = createScene();
+            AccelerationStructure.Type type = AccelerationStructure.Type.VIRTUAL_BOXES_HIERARCHY;
+            if (width > 2) {
+                scene.setHierarchyWidth(width);
+                type = AccelerationStructure.Type.WIDE_VIRTUAL_BOXES_HIERARCHY;
+            }
+            ImageWriter imageWriter = new ImageWriter("benchmark width " + width, 200, 200, 400, 400);
+            Render render = new Render(imageWriter, scene, 1, type).setMultithreading(0);
+            double traceTime = trace(render);
+            System.out.printf("width %-18d trace: %10.1f ms   boxes per primary ray: %.2f%n", width, traceTime,
+                    perRay(render, AccelerationStructure.RayType.PRIMARY,
+                            render.getTraversalStatistics().getBoxes(AccelerationStructure.RayType.PRIMARY)));
+        }
+    }
+
+    /**
+     * renders the benchmark scene with the virtual boxes hierarchy and with quantized hierarchies of 8 and 16 bit
+     * edges, and prints the times, the boxes visited by a primary ray and the memory of the boxes
+     */
+    private static void quantizedHierarchy() {
+        for (int bits : new int[]{64, 16, 8}) {
+            Scene scene = createScene();
+            AccelerationStructure.Type type = AccelerationStructure.Type.VIRTUAL_BOXES_HIERARCHY;
+            if (bits < 64) {
+                scene.setQuantizationBits(bits);
+                type = AccelerationStructure.Type.QUANTIZED_VIRTUAL_BOXES_HIERARCHY;
+            }
+            ImageWriter imageWriter = new ImageWriter("benchmark bits " + bits, 200, 200, 400, 400);
+            Render render = new Render(imageWriter, scene, 1, type).setMultithreading(0);
+            // the compiled hierarchy keeps 6 doubles and 2 ints for a box
+            long memory = bits < 64 ? 0 : 56L * scene.getGeometries().getHierarchy().getBoxesCount();
+            double traceTime = trace(render);
+            System.out.printf("bits %-19d trace: %10.1f ms   boxes per primary ray: %.2f%n", bits, traceTime,
+                    perRay(render, AccelerationStructure.RayType.PRIMARY,
+                            render.getTraversalStatistics().getBoxes(AccelerationStructure.RayType.PRIMARY)));
+            System.out.print(bits < 64 ? render.getStatistics().lines().findFirst().orElse("") + "\n"
+                    : String.format("memory: %d bytes (56.0 bytes per box)%n", memory));
+        }
+    }
+
+    /**
+     * prepares the benchmark scene with a built and with a lazy virtual boxes hierarchy, and prints the time to the
+     * first pixel (preparing the hierarchy and tracing one ray) and the time of rendering a zoomed view, which sees
+     * a quarter of the scene's width
+     */
+    private static void lazyHierarchy() {
+        AccelerationStructure.Type[] types = {AccelerationStructure.Type.VIRTUAL_BOXES_HIERARCHY,
+                AccelerationStructure.Type.LAZY_VIRTUAL_BOXES_HIERARCHY};
+        for (AccelerationStructure.Type type : types) {
+            Scene scene = createScene();
+            long start = System.nanoTime();
+            AccelerationStructure structure = scene.buildAccelerationStructure(type);
+            structure.findClosestIntersection(scene.getCamera().constructRayThroughPixel(400, 400, 200, 200,
+                    scene.getDistance(), 50, 50));
+            double firstPixelTime = (System.nanoTime() - start) / 1e6;
+
+            ImageWriter imageWriter = new ImageWriter("benchmark zoomed " + type, 50, 50, 400, 400);
+            Render render = new Render(imageWriter, scene, 1, type).setMultithreading(0);
+            double traceTime = trace(render);
+            System.out.printf("%-32s first pixel: %8.1f ms   zoomed trace: %10.1f ms%n", type, firstPixelTime,
+                    traceTime);
+            System.out.print(render.getStatistics().lines().findFirst().orElse("") + "\n");
+        }
+    }
+
+    /**
+     * renders the benchmark scene with a wall (an infinite plane) across the spheres, with the wall tested by every
+     * ray and with the wall cut to the spheres' bounds, and prints the times and the geometries a shadow ray tests
+     */
+    private static void clipInfinitePlanes() {
+        for (boolean clip : new boolean[]{false, true}) {
+            Scene scene = createScene();
+            scene.addGeometries(new Plane(new Material(0.5, 0.5, 30), new Color(30, 30, 60),
+                    new Point3D(0, 0, 600), new Vector(0, 0, -1)));
+            scene.setClipInfinitePlanes(clip);
+            ImageWriter imageWriter = new ImageWriter("benchmark clip " + clip, 200, 200, 400, 400);
+            Render render = new Render(imageWriter, scene).setMultithreading(0);
+            double traceTime = trace(render);
+            System.out.printf("clip planes %-12b trace: %10.1f ms   tests per shadow ray: %.2f%n", clip, traceTime,
+                    perRay(render, AccelerationStructure.RayType.SHADOW,
+                            render.getTraversalStatistics().getTests(AccelerationStructure.RayType.SHADOW)));
+        }
+    }
+
+    /**
+     * builds the hierarchy of the benchmark scene through an empty hierarchy cache and then through the filled
+     * cache, like two runs of a program, and prints the startup times
+     * @throws IOException if the cache directory can't be created
+     */
+    private static void hierarchyCache() throws IOException {
+        Path cache = Files.createTempDirectory("hierarchy");
+        for (String run : new String[]{"build and save", "load"}) {
+            Scene scene = createScene();
+            scene.setHierarchyCache(cache);
+            scene.buildVirtualBoxesHierarchy();
+            System.out.printf("hierarchy cache %-14s %10.1f ms   boxes: %d%n", run, scene.getBuildTime(),
+                    scene.getGeometries().getHierarchy().getBoxesCount());
+        }
+        for (File file : cache.toFile().listFiles())
+            file.delete();
+        cache.toFile().delete();
+    }
+
+    /**
+     * renders the benchmark scene twice and prints the time of the second (warm) render and the garbage
+     * collections during it
+     */
+    private static void frame() {
+        Scene scene = createScene();
+        ImageWriter imageWriter = new ImageWriter("benchmark frame", 200, 200, 400, 400);
+        Render render = new Render(imageWriter, scene).setMultithreading(0);
+        render.renderImage();
+
+        long[] collections = collections();
+        long start = System.nanoTime();
+        render.renderImage();
+        double traceTime = (System.nanoTime() - start) / 1e6;
+        long[] after = collections();
+        render.writeToImage();
+        System.out.printf("frame trace: %10.1f ms   garbage collections: %d (%d ms)%n", traceTime,
+                after[0] - collections[0], after[1] - collections[1]);
+    }
+
+    /**
+     * renders a dense cloud of small spheres and triangles with the elementary boxes tested one by one and by the
+     * leaf kernel, and prints the times of warm renders and the kernel used. the Morton codes build leaves up to 4
+     * geometries in an elementary box, so most of its boxes are batched - the surface area heuristic leaves
+     * almost every box with a single geometry, and is shown for comparison
+     */
+    private static void batchLeaves() {
+        for (Geometries.BuildMethod method : new Geometries.BuildMethod[]{Geometries.BuildMethod.MORTON_CODES,
+                Geometries.BuildMethod.SURFACE_AREA_HEURISTIC}) {
+            Scene scene = createCloudScene();
+            scene.setBuildMethod(method);
+            ImageWriter imageWriter = new ImageWriter("benchmark leaves " + method, 200, 200, 400, 400);
+            Render render = new Render(imageWriter, scene).setMultithreading(0);
+            render.renderImage();
+            VirtualBoxesHierarchy hierarchy = scene.getGeometries().getHierarchy();
+            // the renders with and without the kernel take turns, and the fastest render of each is printed
+            double[] traceTimes = {Double.MAX_VALUE, Double.MAX_VALUE};
+            for (int i = 0; i < 2 * BATCH_LEAVES_RENDERS; i++) {
+                hierarchy.setBatchLeaves(i % 2 == 1);
+                traceTimes[i % 2] = Math.min(traceTimes[i % 2], trace(render));
+            }
+            System.out.printf("%-24s trace: %10.1f ms   batched leaves: %10.1f ms   kernel: %s%n", method,
+                    traceTimes[0], traceTimes[1], VirtualBoxesHierarchy.getLeafKernel());
+        }
+    }
+
+    /**
+     * creates a dense cloud of small spheres and triangles, lit by a point light
+     * @return the scene
+     */
+    private static Scene createCloudScene() {
+        Scene scene = new Scene("Cloud scene");
+        scene.setCamera(new Camera(new Point3D(0, 0, -1000), new Vector(0, 0, 1), new Vector(0, -1, 0)));
+        scene.setDistance(1000);
+        scene.setBackground(Color.BLACK);
+        scene.setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+
+        List<Intersectable> geometries = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < CLOUD_GEOMETRIES; i++) {
+            Point3D center = new Point3D(random.nextGaussian() * 60, random.nextGaussian() * 60,
+                    400 + random.nextGaussian() * 60);
+            Color color = new Color(20 + random.nextInt(100), 20 + random.nextInt(100), 50);
+            if (i % 2 == 0)
+                geometries.add(new Sphere(color, new Material(0.5, 0.5, 30), 0.5 + random.nextDouble(), center));
+            else
+                geometries.add(new Triangle(color, new Material(0.5, 0.5, 30), center,
+                        center.add(new Vector(1 + random.nextDouble() * 2, random.nextDouble(), 0.5)),
+                        center.add(new Vector(random.nextDouble(), 1 + random.nextDouble() * 2, 0.5))));
+        }
+        scene.addGeometries(geometries);
+        scene.addLights(new PointLight(new Color(500, 300, 300), new Point3D(-100, -200, 0), 1, 4E-5, 2E-7));
+        return scene;
+    }
+
+    /**
+     * counts the garbage collections since the program started
+     * @return amount of collections and their time in ms
+     */
+    private static long[] collections() {
+        long[] collections = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections[0] += collector.getCollectionCount();
+            collections[1] += collector.getCollectionTime();
+        }
+        return collections;
+    }
+}
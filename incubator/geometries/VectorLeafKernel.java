@@ -0,0 +1,147 @@
+package geometries;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * class VectorLeafKernel tests a ray against the spheres and triangles of a batched elementary box as many at a time
+ * as the processor's vectors hold (4 with AVX2, 8 with AVX-512), with the same tests as {@link ScalarLeafKernel}.<br>
+ * the class needs the jdk.incubator.vector module, so it is kept in the incubator source folder, which the step1
+ * module compiles with javac --add-modules jdk.incubator.vector (see .idea/compiler.xml). run with
+ * java --add-modules jdk.incubator.vector - without the module {@link LeafKernel#load()} can't load it and uses the
+ * scalar kernel
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class VectorLeafKernel implements LeafKernel {
+
+    //constants
+    /**
+     * the processor's preferred amount of doubles in a vector
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int candidates(LeafPrimitives primitives, int kinds, int first, int end, Ray ray, double tMax,
+                          int[] candidates) {
+        Point3D start = ray.getStartPoint();
+        Vector direction = ray.getVector();
+        double ox = start.getXValue(), oy = start.getYValue(), oz = start.getZValue();
+        double dx = direction.getXValue(), dy = direction.getYValue(), dz = direction.getZValue();
+        boolean spheres = (kinds & LeafPrimitives.SPHERES) != 0, triangles = (kinds & LeafPrimitives.TRIANGLES) != 0;
+        int found = 0;
+        for (int i = first; i < end; i += SPECIES.length()) {
+            VectorMask<Double> inRange = SPECIES.indexInRange(i, end);
+            VectorMask<Double> keep = SPECIES.maskAll(false);
+            if (spheres)
+                keep = keep.or(spheres(primitives, i, inRange, ox, oy, oz, dx, dy, dz, tMax));
+            if (triangles)
+                keep = keep.or(triangles(primitives, i, inRange, ox, oy, oz, dx, dy, dz, tMax));
+            for (long bits = keep.and(inRange).toLong(); bits != 0; bits &= bits - 1)
+                candidates[found++] = i + Long.numberOfTrailingZeros(bits);
+        }
+        return found;
+    }
+
+    /**
+     * tests a ray against a vector of spheres
+     * @param primitives the values of the spheres
+     * @param i place of the first sphere
+     * @param inRange the places that belong to the box
+     * @param ox ray's start point's x value
+     * @param oy ray's start point's y value
+     * @param oz ray's start point's z value
+     * @param dx ray's direction's x value
+     * @param dy ray's direction's y value
+     * @param dz ray's direction's z value
+     * @param tMax distance along the ray an intersection has to be closer than
+     * @return the spheres that are kept
+     */
+    private static VectorMask<Double> spheres(LeafPrimitives primitives, int i, VectorMask<Double> inRange,
+                                              double ox, double oy, double oz, double dx, double dy, double dz,
+                                              double tMax) {
+        // the chord of the sphere on the ray's line, with its half length grown by the margin
+        DoubleVector ux = load(primitives._sphereX, i, inRange).sub(ox);
+        DoubleVector uy = load(primitives._sphereY, i, inRange).sub(oy);
+        DoubleVector uz = load(primitives._sphereZ, i, inRange).sub(oz);
+        DoubleVector r2 = load(primitives._sphereRadius2, i, inRange);
+        DoubleVector tm = ux.mul(dx).add(uy.mul(dy)).add(uz.mul(dz));
+        DoubleVector uu = ux.mul(ux).add(uy.mul(uy)).add(uz.mul(uz));
+        DoubleVector h = r2.sub(uu).add(tm.mul(tm));
+        DoubleVector margin = uu.add(r2).mul(SPHERE_MARGIN);
+        DoubleVector th = h.max(0).add(margin).sqrt();
+        DoubleVector mt = tm.abs().add(1).mul(DISTANCE_MARGIN);
+        return h.compare(VectorOperators.GE, margin.neg())
+                .and(tm.add(th).compare(VectorOperators.GE, mt.neg()))
+                .and(tm.sub(th).compare(VectorOperators.LE, mt.add(tMax)));
+    }
+
+    /**
+     * tests a ray against a vector of triangles, by Moller-Trumbore
+     * @param primitives the values of the triangles
+     * @param i place of the first triangle
+     * @param inRange the places that belong to the box
+     * @param ox ray's start point's x value
+     * @param oy ray's start point's y value
+     * @param oz ray's start point's z value
+     * @param dx ray's direction's x value
+     * @param dy ray's direction's y value
+     * @param dz ray's direction's z value
+     * @param tMax distance along the ray an intersection has to be closer than
+     * @return the triangles that are kept
+     */
+    private static VectorMask<Double> triangles(LeafPrimitives primitives, int i, VectorMask<Double> inRange,
+                                                double ox, double oy, double oz, double dx, double dy, double dz,
+                                                double tMax) {
+        DoubleVector e1x = load(primitives._e1x, i, inRange);
+        DoubleVector e1y = load(primitives._e1y, i, inRange);
+        DoubleVector e1z = load(primitives._e1z, i, inRange);
+        DoubleVector e2x = load(primitives._e2x, i, inRange);
+        DoubleVector e2y = load(primitives._e2y, i, inRange);
+        DoubleVector e2z = load(primitives._e2z, i, inRange);
+        DoubleVector px = e2z.mul(dy).sub(e2y.mul(dz));
+        DoubleVector py = e2x.mul(dz).sub(e2z.mul(dx));
+        DoubleVector pz = e2y.mul(dx).sub(e2x.mul(dy));
+        DoubleVector det = e1x.mul(px).add(e1y.mul(py)).add(e1z.mul(pz));
+        VectorMask<Double> grazing = det.abs().compare(VectorOperators.LE,
+                load(primitives._area, i, inRange).mul(GRAZING));
+
+        DoubleVector inverse = det.broadcast(1).div(det);
+        DoubleVector sx = load(primitives._v0x, i, inRange).neg().add(ox);
+        DoubleVector sy = load(primitives._v0y, i, inRange).neg().add(oy);
+        DoubleVector sz = load(primitives._v0z, i, inRange).neg().add(oz);
+        DoubleVector u = sx.mul(px).add(sy.mul(py)).add(sz.mul(pz)).mul(inverse);
+        DoubleVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+        DoubleVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+        DoubleVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+        DoubleVector v = qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)).mul(inverse);
+        DoubleVector t = e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)).mul(inverse);
+        DoubleVector mt = t.abs().add(1).mul(DISTANCE_MARGIN);
+        return grazing.or(u.compare(VectorOperators.GE, -BARYCENTRIC_MARGIN)
+                .and(v.compare(VectorOperators.GE, -BARYCENTRIC_MARGIN))
+                .and(u.add(v).compare(VectorOperators.LE, 1 + BARYCENTRIC_MARGIN))
+                .and(t.compare(VectorOperators.GE, mt.neg()))
+                .and(t.compare(VectorOperators.LE, mt.add(tMax))));
+    }
+
+    /**
+     * loads a vector of values. the arrays are padded, so the whole vector is read when it fits in the array
+     * @param array the values
+     * @param i place of the first value
+     * @param inRange the places that belong to the box
+     * @return the vector
+     */
+    private static DoubleVector load(double[] array, int i, VectorMask<Double> inRange) {
+        return i + SPECIES.length() <= array.length ? DoubleVector.fromArray(SPECIES, array, i)
+                : DoubleVector.fromArray(SPECIES, array, i, inRange);
+    }
+
+    @Override
+    public String toString() {
+        return "vector, " + SPECIES.length() + " doubles";
+    }
+}
@@ -112,4 +112,50 @@ public class Camera {
         Vector Vij = Pij.subtract(P0);
          return new Ray(P0, Vij);
     }
+
+    /**
+     * This method constructs the frustum from the camera (location) through a rectangle of pixels in the scene's
+     * view plane - the pyramid that holds all rays through these pixels.
+     *
+     * @param nX number of pixels on view plane's width
+     * @param nY number of pixels on view plane's height
+     * @param firstJ first column of the rectangle
+     * @param firstI first row of the rectangle
+     * @param lastJ column after the rectangle
+     * @param lastI row after the rectangle
+     * @param screenDistance distance from camera (location) to view plane
+     * @param screenWidth width of view plane
+     * @param screenHeight height of view plane
+     * @return normals of the frustum's 4 side planes, pointing into the frustum. the planes pass through the camera
+     */
+    public Vector[] constructFrustumThroughPixels(int nX, int nY, int firstJ, int firstI, int lastJ, int lastI,
+                                                  double screenDistance, double screenWidth, double screenHeight) {
+        Point3D Pc = _location.add(_Vto.scale(screenDistance));
+        double Ry = screenHeight / nY;
+        double Rx = screenWidth / nX;
+
+        // directions from the camera to the rectangle's corners, around the rectangle
+        double[] xs = {alignZero((firstJ - nX / 2.0) * Rx), alignZero((lastJ - nX / 2.0) * Rx)};
+        double[] ys = {alignZero((firstI - nY / 2.0) * Ry), alignZero((lastI - nY / 2.0) * Ry)};
+        Vector[] corners = new Vector[4];
+        for (int c = 0; c < 4; c++) {
+            Point3D corner = new Point3D(Pc);
+            double x = xs[c == 1 || c == 2 ? 1 : 0], y = ys[c >= 2 ? 1 : 0];
+            if (x != 0)
+                corner = corner.add(_Vright.scale(x));
+            if (y != 0)
+                corner = corner.add(_Vup.scale(-y));
+            corners[c] = corner.subtract(_location);
+        }
+
+        // every side plane holds two neighbouring corners' directions
+        Vector center = corners[0].add(corners[2]);
+        Vector[] normals = new Vector[4];
+        for (int c = 0; c < 4; c++) {
+            normals[c] = corners[c].crossProduct(corners[(c + 1) % 4]);
+            if (normals[c].dotProduct(center) < 0)
+                normals[c] = normals[c].scale(-1);
+        }
+        return normals;
+    }
 }
@@ -0,0 +1,138 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import primitives.Ray;
+
+import java.util.List;
+
+/**
+ * AccelerationStructure interface represents a structure over the scene's geometries that finds the geometries
+ * a ray might intersect without testing all of them. different scene shapes are faster with different structures.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public interface AccelerationStructure {
+
+    /**
+     * types of acceleration structures
+     */
+    enum Type {
+        /**
+         * no acceleration - all geometries are tested for every ray
+         */
+        NONE,
+        /**
+         * virtual boxes hierarchy (bounding volume hierarchy), built by the scene's build method
+         */
+        VIRTUAL_BOXES_HIERARCHY,
+        /**
+         * virtual boxes hierarchy whose boxes have 4 or 8 inner boxes, collapsed from the virtual boxes hierarchy
+         */
+        WIDE_VIRTUAL_BOXES_HIERARCHY,
+        /**
+         * virtual boxes hierarchy whose boxes' edges are kept in 8 or 16 bits relative to their parent box,
+         * quantized from the virtual boxes hierarchy. for scenes too big for the virtual boxes hierarchy's memory
+         */
+        QUANTIZED_VIRTUAL_BOXES_HIERARCHY,
+        /**
+         * virtual boxes hierarchy whose boxes are split by the surface area heuristic when a ray first reaches them.
+         * for previews of big scenes, whose first pixels shouldn't wait for the whole hierarchy
+         */
+        LAZY_VIRTUAL_BOXES_HIERARCHY,
+        /**
+         * kd-tree - space is split by axis aligned planes chosen by the surface area heuristic
+         */
+        KD_TREE,
+        /**
+         * uniform grid - space is split into equal cells. fast for geometries that are spread evenly
+         */
+        GRID
+    }
+
+    /**
+     * kinds of rays traced through acceleration structures, to count their work separately
+     */
+    enum RayType {
+        /**
+         * rays from the camera
+         */
+        PRIMARY,
+        /**
+         * rays from a point towards a light source
+         */
+        SHADOW,
+        /**
+         * rays reflected by a geometry
+         */
+        REFLECTION,
+        /**
+         * rays refracted by a geometry
+         */
+        REFRACTION
+    }
+
+    /**
+     * finds all intersections of a ray with the geometries
+     * @param ray the ray
+     * @return list of intersections, null if there are none
+     */
+    List<GeoPoint> findIntersections(Ray ray);
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point.
+     * intersections at the ray's start point itself are ignored.
+     * @param ray the ray
+     * @return closest intersection, null if there is none
+     */
+    GeoPoint findClosestIntersection(Ray ray);
+
+    /**
+     * finds the closest intersection of a ray with the geometries, like {@link #findClosestIntersection(Ray)}.
+     * structures that count their work count it by the kind of the ray
+     * @param ray the ray
+     * @param type kind of the ray
+     * @return closest intersection, null if there is none
+     */
+    default GeoPoint findClosestIntersection(Ray ray, RayType type) {
+        return findClosestIntersection(ray);
+    }
+
+    /**
+     * finds the closest intersections of a packet of rays, like {@link #findClosestIntersection(Ray)} for every ray.
+     * structures that can trace coherent rays together (rays of neighbouring pixels) override it, by default
+     * every ray is traced alone.
+     * @param rays the rays
+     * @return for every ray - its closest intersection, null if there is none
+     */
+    default GeoPoint[] findClosestIntersections(Ray[] rays) {
+        GeoPoint[] closest = new GeoPoint[rays.length];
+        for (int i = 0; i < rays.length; i++)
+            closest[i] = findClosestIntersection(rays[i]);
+        return closest;
+    }
+
+    /**
+     * getter for the counters of the work of tracing rays through the structure
+     * @return traversal statistics, null if the structure doesn't count its work
+     */
+    default TraversalStatistics getTraversalStatistics() {
+        return null;
+    }
+
+    /**
+     * creates a report of the structure's quality
+     * @return the report, empty if the structure has none
+     */
+    default String getStatistics() {
+        return "";
+    }
+
+    /**
+     * calculates how much light passes along a ray up to a given distance, by multiplying the transparency factors
+     * of all the geometries the ray intersects before that distance
+     * @param ray the ray, from a point towards a light source
+     * @param maxDistance distance from the ray's start point to the light source
+     * @param minK transparency factor under which the light is considered blocked
+     * @return transparency factor, 0 if the light is blocked
+     */
+    double findTransparency(Ray ray, double maxDistance, double minK);
+}
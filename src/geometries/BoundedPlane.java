@@ -0,0 +1,154 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BoundedPlane class represents the part of an infinite plane inside a box - the scene's bounds.
+ * a plane has no virtual box, so it is tested by every ray. a bounded plane has the virtual box of the polygon
+ * the box cuts from the plane, and goes into the virtual boxes hierarchy like any finite geometry.<br>
+ * intersections are the plane's intersections inside the box, with the plane as their geometry, so they are
+ * colored like the plane's intersections. the plane isn't seen outside the box.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class BoundedPlane extends Intersectable {
+
+    //constants
+    /**
+     * part of the box's size the polygon's box is grown by, so it contains the plane's intersections despite
+     * rounding errors
+     */
+    private static final double BOUNDS_EPSILON = 1e-9;
+
+    //fields
+    /**
+     * the infinite plane
+     */
+    private final Plane _plane;
+    /**
+     * edges of the box of the polygon cut from the plane: low x, high x, low y, high y, low z, high z
+     */
+    private final double[] _bounds;
+
+    //constructors
+    /**
+     * constructor for BoundedPlane
+     * @param plane the infinite plane
+     * @param bounds edges of the box of the plane's part
+     */
+    private BoundedPlane(Plane plane, double[] bounds) {
+        _plane = plane;
+        _bounds = bounds;
+    }
+
+    /**
+     * cuts the part of a plane inside a box
+     * @param plane the plane
+     * @param bounds edges of the box: low x, high x, low y, high y, low z, high z
+     * @return the plane's part, null if the plane doesn't cross the box
+     */
+    public static BoundedPlane clip(Plane plane, double[] bounds) {
+        Point3D point = plane.getPoint();
+        Vector normal = plane.getNormal();
+        double[] p = {point.getXValue(), point.getYValue(), point.getZValue()};
+        double[] n = {normal.getXValue(), normal.getYValue(),
+                normal.getZValue()};
+
+        // the polygon's corners are where the plane crosses the box's edges
+        double[] polygon = {Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+                Double.MAX_VALUE, -Double.MAX_VALUE};
+        boolean crosses = false;
+        for (int axis = 0; axis < 3; axis++) {
+            int u = (axis + 1) % 3, v = (axis + 2) % 3;
+            for (int corner = 0; corner < 4; corner++) {
+                // an edge along the axis, at a corner of the other two axes
+                double[] a = new double[3], b = new double[3];
+                a[axis] = bounds[2 * axis];
+                b[axis] = bounds[2 * axis + 1];
+                a[u] = b[u] = bounds[2 * u + (corner & 1)];
+                a[v] = b[v] = bounds[2 * v + (corner >> 1)];
+                double da = distance(a, p, n), db = distance(b, p, n);
+                if (da * db > 0)
+                    continue;
+                crosses = true;
+                double t = da == db ? 0 : da / (da - db);
+                for (int i = 0; i < 3; i++) {
+                    double coordinate = a[i] + (b[i] - a[i]) * t;
+                    polygon[2 * i] = Math.min(polygon[2 * i], coordinate);
+                    polygon[2 * i + 1] = Math.max(polygon[2 * i + 1], coordinate);
+                    if (da == db) {
+                        // the edge is on the plane
+                        polygon[2 * i] = Math.min(polygon[2 * i], b[i]);
+                        polygon[2 * i + 1] = Math.max(polygon[2 * i + 1], b[i]);
+                    }
+                }
+            }
+        }
+        if (!crosses)
+            return null;
+
+        double size = 0;
+        for (int axis = 0; axis < 3; axis++)
+            size = Math.max(size, bounds[2 * axis + 1] - bounds[2 * axis]);
+        double epsilon = BOUNDS_EPSILON * size;
+        for (int axis = 0; axis < 3; axis++) {
+            // the polygon is inside the box, rounding errors aside
+            polygon[2 * axis] = Math.max(polygon[2 * axis], bounds[2 * axis]) - epsilon;
+            polygon[2 * axis + 1] = Math.min(polygon[2 * axis + 1], bounds[2 * axis + 1]) + epsilon;
+        }
+        return new BoundedPlane(plane, polygon);
+    }
+
+    /**
+     * calculates the signed distance of a point from a plane
+     * @param point coordinates of the point
+     * @param p coordinates of a point on the plane
+     * @param n coordinates of the plane's normal
+     * @return signed distance, positive on the normal's side
+     */
+    private static double distance(double[] point, double[] p, double[] n) {
+        return (point[0] - p[0]) * n[0] + (point[1] - p[1]) * n[1] + (point[2] - p[2]) * n[2];
+    }
+
+    //getters
+    /**
+     * getter for the infinite plane
+     * @return the plane
+     */
+    public Plane getPlane() {
+        return _plane;
+    }
+
+    //functions
+    @Override
+    List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = _plane.findIntersections(ray);
+        if (intersections == null)
+            return null;
+        List<GeoPoint> inside = new ArrayList<>(intersections.size());
+        for (GeoPoint gp : intersections) {
+            double[] coordinates = {gp.point.getXValue(), gp.point.getYValue(), gp.point.getZValue()};
+            boolean in = true;
+            for (int axis = 0; axis < 3 && in; axis++)
+                in = coordinates[axis] >= _bounds[2 * axis] && coordinates[axis] <= _bounds[2 * axis + 1];
+            if (in)
+                inside.add(gp);
+        }
+        return inside.isEmpty() ? null : inside;
+    }
+
+    @Override
+    protected void createVirtualBox() {
+        _virtualBox = new VirtualBox(new Coordinate(_bounds[0]), new Coordinate(_bounds[1]),
+                new Coordinate(_bounds[2]), new Coordinate(_bounds[3]),
+                new Coordinate(_bounds[4]), new Coordinate(_bounds[5]));
+    }
+
+    //basic overrides
+    @Override
+    public String toString() {
+        return "Bounded plane: " + _plane;
+    }
+}
@@ -4,25 +4,129 @@ import primitives.Coordinate;
 import primitives.Point3D;
 import primitives.Ray;
 
-import javax.naming.OperationNotSupportedException;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
+import static geometries.SahSplit.mergeBounds;
+import static geometries.SahSplit.resetBounds;
 import static primitives.Util.isZero;
 
 /**
  * Geometries class represents a collection of geometries in 3D Cartesian coordinate system
  * @author Eliana Rabinowitz and Elisheva Nafha
  */
-public class Geometries extends Intersectable {
+public class Geometries extends Intersectable implements AccelerationStructure {
+
+    /**
+     * methods for splitting virtual boxes while building the virtual boxes hierarchy
+     */
+    public enum BuildMethod {
+        /**
+         * split every box in the middle of the axis that splits the geometries most equally,
+         * until every box holds a single geometry
+         */
+        MIDDLE_SPLIT,
+        /**
+         * binned surface area heuristic - split every box where the expected traversal cost is the lowest,
+         * and stop when splitting costs more than testing the box's geometries
+         */
+        SURFACE_AREA_HEURISTIC,
+        /**
+         * linear hierarchy - sort the geometries by the Morton codes of their centers and split every box at the
+         * highest bit that differs between its codes. builds very fast, but the boxes are not as good
+         */
+        MORTON_CODES,
+        /**
+         * surface area heuristic with spatial splits - a box whose inner boxes overlap may be split by a plane
+         * instead, and a geometry crossed by the plane is held by both inner boxes (with its part on each side).
+         * better for long and thin geometries, at the cost of duplicated references, limited by a budget
+         */
+        SPATIAL_SPLITS
+    }
+
+    //constants
+    /**
+     * number of bins per axis used by the surface area heuristic
+     */
+    static final int SAH_BINS = 16;
+    /**
+     * relative cost of traversing a virtual box, used by the surface area heuristic
+     */
+    static final double SAH_TRAVERSAL_COST = 1;
+    /**
+     * relative cost of intersecting a geometry, used by the surface area heuristic
+     */
+    static final double SAH_INTERSECTION_COST = 1;
+    /**
+     * max amount of geometries in a box that can't be split by the surface area heuristic
+     * (all geometries have the same center)
+     */
+    static final int SAH_MAX_LEAF_SIZE = 4;
+    /**
+     * min amount of geometries in a box for its inner boxes to be built in parallel
+     */
+    private static final int PARALLEL_BUILD_THRESHOLD = 1024;
+    /**
+     * min amount of geometries for their bounds to be calculated in parallel
+     */
+    private static final int PARALLEL_BOUNDS_THRESHOLD = 4096;
+    /**
+     * max amount of geometries in an elementary box of a Morton codes hierarchy
+     */
+    private static final int MORTON_MAX_LEAF_SIZE = 4;
+    /**
+     * max growth of the expected traversal cost of a refitted hierarchy, relative to its cost when it was built.
+     * a hierarchy that grows more has to be rebuilt
+     */
+    private static final double REFIT_MAX_COST_GROWTH = 1.2;
+    /**
+     * amount of inner boxes of a box in a wide virtual boxes hierarchy
+     */
+    public static final int DEFAULT_HIERARCHY_WIDTH = 4;
+    /**
+     * amount of bits of an edge of a box in a quantized virtual boxes hierarchy
+     */
+    public static final int DEFAULT_QUANTIZATION_BITS = 8;
+    /**
+     * most duplicated references in a hierarchy built with spatial splits, relative to the amount of geometries
+     */
+    public static final double DEFAULT_SPATIAL_SPLITS_BUDGET = 0.3;
 
     //fields
     /**
      * a list of the geometries included in the geometries object
      */
     private List<Intersectable> _geometries;
+    /**
+     * compiled virtual boxes hierarchy, null if the hierarchy wasn't built or the geometries changed since
+     */
+    private VirtualBoxesHierarchy _hierarchy;
+    /**
+     * whether the virtual box fits the geometries. the box is calculated only when it is needed, so adding
+     * geometries one by one doesn't scan the whole collection every time
+     */
+    private boolean _boundsValid;
+    /**
+     * most duplicated references in a hierarchy built with spatial splits, relative to the amount of geometries
+     */
+    private double _spatialSplitsBudget = DEFAULT_SPATIAL_SPLITS_BUDGET;
+    /**
+     * whether infinite planes are cut to the finite geometries' bounds when the acceleration structure is built
+     */
+    private boolean _clipInfinitePlanes;
 
     //constructors
     /**
@@ -39,7 +143,6 @@ public class Geometries extends Intersectable {
     public Geometries(Intersectable... geometries) {
         this._geometries = new ArrayList<>();
         Collections.addAll(_geometries, geometries);
-        createVirtualBox();
     }
 
     /**
@@ -48,7 +151,6 @@ public class Geometries extends Intersectable {
      */
     public Geometries(List<Intersectable> geometries) {
         this._geometries = new ArrayList<>(geometries);
-        createVirtualBox();
     }
 
     //functions
@@ -58,8 +160,9 @@ public class Geometries extends Intersectable {
      * @param geometries new geometries
      */
     public void add(Intersectable... geometries) {
+        int first = _geometries.size();
         Collections.addAll(_geometries, geometries);
-        createVirtualBox();
+        added(first);
     }
 
     /**
@@ -67,8 +170,20 @@ public class Geometries extends Intersectable {
      * @param geometries list of new geometries
      */
     public void add(List<Intersectable> geometries) {
+        int first = _geometries.size();
         _geometries.addAll(geometries);
-        createVirtualBox();
+        added(first);
+    }
+
+    /**
+     * add a stream of geometries to the geometries collection, for loading big scenes.
+     * the geometries are only collected, their virtual boxes are bounded when the box or the hierarchy is built
+     * @param geometries stream of new geometries
+     */
+    public void add(Stream<? extends Intersectable> geometries) {
+        int first = _geometries.size();
+        geometries.forEachOrdered(_geometries::add);
+        added(first);
     }
 
     /**
@@ -76,72 +191,381 @@ public class Geometries extends Intersectable {
      * @param geometry geometry to remove
      */
     public void remove(Intersectable geometry) {
-        if (_geometries.contains(geometry)) {
-            _geometries.remove(geometry);
-            createVirtualBox();
+        if (_geometries.remove(geometry)) {
+            _hierarchy = null;
+            // the geometry might have been on the box's edge, so the box is calculated again when it is needed
+            _boundsValid = false;
         }
     }
 
-    //bounding values hierarchy functions
+    /**
+     * updates the collection after geometries were added to the end of the geometries list.
+     * if the virtual box was already calculated it grows to contain the new geometries, instead of being
+     * calculated again. sub function of add
+     * @param first index of the first added geometry
+     */
+    private void added(int first) {
+        _hierarchy = null;
+        if (!_boundsValid)
+            return;
+        if (_virtualBox == null) {
+            // there were no finite geometries - the infinite ones will be collected with the new geometries
+            _boundsValid = false;
+            return;
+        }
+        for (int i = first; i < _geometries.size(); i++) {
+            Intersectable geometry = _geometries.get(i);
+            VirtualBox box = geometry.getVirtualBox();
+            if (box == null) {
+                _virtualBox.addInfiniteGeometry((Geometry) geometry);
+                continue;
+            }
+            _virtualBox.addInfiniteGeometries(box.get_infiniteGeometries());
+            if (box.get_lowX().get() < _virtualBox.get_lowX().get())
+                _virtualBox.set_lowX(box.get_lowX());
+            if (box.get_lowY().get() < _virtualBox.get_lowY().get())
+                _virtualBox.set_lowY(box.get_lowY());
+            if (box.get_lowZ().get() < _virtualBox.get_lowZ().get())
+                _virtualBox.set_lowZ(box.get_lowZ());
+            if (box.get_highX().get() > _virtualBox.get_highX().get())
+                _virtualBox.set_highX(box.get_highX());
+            if (box.get_highY().get() > _virtualBox.get_highY().get())
+                _virtualBox.set_highY(box.get_highY());
+            if (box.get_highZ().get() > _virtualBox.get_highZ().get())
+                _virtualBox.set_highZ(box.get_highZ());
+        }
+    }
 
     /**
-     * returns only the geometries that might intersect with the ray
-     * @param ray ray to find geometries for
-     * @return geometries that might intersect the ray
+     * getter for the geometries in the collection (inner boxes, after the hierarchy was built)
+     * @return list of geometries
      */
-    public Geometries getIntersectionBoxes(Ray ray) {
-        // get a list of intersected boxes
-        Geometries intersectionBoxes = new Geometries(getIntersectionBoxesList(ray));
-        // add all unboxed geometries (infinite geometries)
-        intersectionBoxes.add( _virtualBox.get_infiniteGeometries());
-        return intersectionBoxes;
+    List<Intersectable> getChildren() {
+        return _geometries;
     }
 
     /**
-     * returns only the geometries that might intersect with the ray. sub function of getIntersectionBoxes
-     * @param ray ray to find geometries for
-     * @return a list of geometries that might intersect the ray
+     * collects all the single geometries in the collection - the geometries of all inner boxes, and the infinite
+     * geometries the root box keeps after the hierarchy was built
+     * @return list of single geometries
      */
-    private List<Intersectable> getIntersectionBoxesList(Ray ray) {
+    List<Intersectable> getAllGeometries() {
+        List<Intersectable> all = flatten(_geometries);
+        if (getVirtualBox() != null) {
+            Set<Intersectable> found = Collections.newSetFromMap(new IdentityHashMap<>());
+            found.addAll(all);
+            for (Intersectable geometry : getVirtualBox().get_infiniteGeometries())
+                if (found.add(geometry))
+                    all.add(geometry);
+        }
+        return all;
+    }
 
-        List<Intersectable> intersectionBoxes = new ArrayList<>();
-        // if ray intersects the virtual box, check intersections with inner boxes
-        if (getVirtualBox().hasIntersection(ray)) {
+    /**
+     * getter for the most duplicated references in a hierarchy built with spatial splits
+     * @return budget of duplicated references, relative to the amount of geometries
+     */
+    public double getSpatialSplitsBudget() {
+        return _spatialSplitsBudget;
+    }
 
-            // if there is only one geometry in the box (elementary box), return its box
-            if (_geometries.size() == 1) {
-                intersectionBoxes = _geometries;
-            }
+    /**
+     * setter for the most duplicated references in a hierarchy built with spatial splits. every duplicated
+     * reference takes a place in the compiled hierarchy's geometries, so the budget limits its memory
+     * @param spatialSplitsBudget budget of duplicated references, relative to the amount of geometries
+     */
+    public void setSpatialSplitsBudget(double spatialSplitsBudget) {
+        if (spatialSplitsBudget < 0)
+            throw new IllegalArgumentException("Spatial splits budget must be 0 or higher");
+        if (spatialSplitsBudget != _spatialSplitsBudget)
+            _hierarchy = null;
+        _spatialSplitsBudget = spatialSplitsBudget;
+    }
 
-            // else, find all elementary boxes in the hierarchy
-            else {
-                intersectionBoxes.addAll(((Geometries) _geometries.get(0)).getIntersectionBoxesList(ray));
-                intersectionBoxes.addAll(((Geometries) _geometries.get(1)).getIntersectionBoxesList(ray));
-            }
+    /**
+     * getter for whether infinite planes are cut to the finite geometries' bounds
+     * @return true if infinite planes are cut
+     */
+    public boolean isClipInfinitePlanes() {
+        return _clipInfinitePlanes;
+    }
+
+    /**
+     * setter for whether infinite planes are cut to the finite geometries' bounds when the acceleration structure
+     * is built. a cut plane goes into the hierarchy instead of being tested by every ray, but it isn't seen outside
+     * the bounds - for planes that only matter near the finite geometries, like walls behind them
+     * @param clipInfinitePlanes true to cut infinite planes
+     */
+    public void setClipInfinitePlanes(boolean clipInfinitePlanes) {
+        if (clipInfinitePlanes != _clipInfinitePlanes)
+            _hierarchy = null;
+        _clipInfinitePlanes = clipInfinitePlanes;
+    }
+
+    /**
+     * getter for the compiled virtual boxes hierarchy
+     * @return compiled hierarchy, null if the hierarchy wasn't built
+     */
+    public VirtualBoxesHierarchy getHierarchy() {
+        return _hierarchy;
+    }
+
+    //bounding values hierarchy functions
+
+    /**
+     * finds all intersections with the geometries that might intersect the ray, using the compiled virtual boxes
+     * hierarchy. if the hierarchy wasn't built, all geometries are checked.
+     * @param ray ray to find intersections with
+     * @return list of intersections, null if there are none
+     */
+    public List<GeoPoint> findIntersectionsInHierarchy(Ray ray) {
+        if (_hierarchy == null)
+            return findIntersections(ray);
+        return _hierarchy.findIntersections(ray);
+    }
+
+    /**
+     * finds the closest intersection to the ray's start point, using the compiled virtual boxes hierarchy.
+     * if the hierarchy wasn't built, all geometries are checked. intersections at the ray's start point are ignored.
+     * @param ray ray to find intersection with
+     * @return closest intersection, null if there is none
+     */
+    public GeoPoint findClosestIntersection(Ray ray) {
+        if (_hierarchy == null) {
+            HitRecord hit = new HitRecord();
+            findNearestIntersection(ray, 0, hit.t, hit);
+            return hit.toGeoPoint();
         }
-        return intersectionBoxes;
+        return _hierarchy.findClosestIntersection(ray);
     }
 
     /**
-     * create a virtual boxes hierarchy
+     * calculates how much light passes along a ray up to a given distance, using the compiled virtual boxes
+     * hierarchy. if the hierarchy wasn't built, all geometries are checked.
+     * @param ray ray from a point towards a light source
+     * @param maxDistance distance from the ray's start point to the light source
+     * @param minK transparency factor under which the light is considered blocked
+     * @return transparency factor, 0 if the light is blocked
+     */
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        if (_hierarchy == null) {
+            double ktr = VirtualBoxesHierarchy.reduceTransparency(findIntersections(ray), ray.getStartPoint(),
+                    maxDistance, 1.0);
+            return ktr < minK ? 0.0 : ktr;
+        }
+        return _hierarchy.findTransparency(ray, maxDistance, minK);
+    }
+
+    /**
+     * creates an acceleration structure over the geometries. the virtual boxes hierarchy is built by the surface
+     * area heuristic if it wasn't built before, and a wide or quantized hierarchy is made from it. a lazy hierarchy
+     * is split while rays are traced through it
+     * @param type type of the structure
+     * @return the acceleration structure
+     */
+    public AccelerationStructure createAccelerationStructure(AccelerationStructure.Type type) {
+        switch (type) {
+            case NONE:
+                // a collection without a hierarchy tests all of its geometries
+                return new Geometries(getAllGeometries());
+            case VIRTUAL_BOXES_HIERARCHY:
+                if (_hierarchy == null)
+                    buildVirtualBoxesHierarchy(BuildMethod.SURFACE_AREA_HEURISTIC);
+                return _hierarchy;
+            case WIDE_VIRTUAL_BOXES_HIERARCHY:
+                if (_hierarchy == null)
+                    buildVirtualBoxesHierarchy(BuildMethod.SURFACE_AREA_HEURISTIC);
+                return new WideVirtualBoxesHierarchy(_hierarchy, DEFAULT_HIERARCHY_WIDTH);
+            case QUANTIZED_VIRTUAL_BOXES_HIERARCHY:
+                if (_hierarchy == null)
+                    buildVirtualBoxesHierarchy(BuildMethod.SURFACE_AREA_HEURISTIC);
+                return new QuantizedVirtualBoxesHierarchy(_hierarchy, DEFAULT_QUANTIZATION_BITS);
+            case LAZY_VIRTUAL_BOXES_HIERARCHY:
+                clipInfinitePlanes(false);
+                return new LazyVirtualBoxesHierarchy(getAllGeometries());
+            case KD_TREE:
+                clipInfinitePlanes(false);
+                return new KdTree(this);
+            case GRID:
+                clipInfinitePlanes(false);
+                return new UniformGrid(this);
+            default:
+                throw new IllegalArgumentException("Unknown acceleration structure type");
+        }
+    }
+
+    /**
+     * checks whether the box is elementary - holds geometries and not inner boxes
+     * @return true if the box is elementary
+     */
+    boolean isLeaf() {
+        return _geometries.size() <= 1 || !(_geometries.get(0) instanceof Geometries);
+    }
+
+    /**
+     * forgets the virtual boxes hierarchy - the compiled hierarchy and the inner boxes of the collection - so their
+     * memory is freed. the collection keeps its geometries without inner boxes, and the hierarchy has to be built
+     * again before it is used. for scenes whose rays are traced through a structure made from the hierarchy
+     */
+    public void releaseVirtualBoxesHierarchy() {
+        flatten();
+        _hierarchy = null;
+    }
+
+    /**
+     * create a virtual boxes hierarchy by splitting boxes in the middle
      */
     public void buildVirtualBoxesHierarchy() {
+        buildVirtualBoxesHierarchy(BuildMethod.MIDDLE_SPLIT);
+    }
+
+    /**
+     * create a virtual boxes hierarchy
+     * @param method the method used to split the virtual boxes
+     */
+    public void buildVirtualBoxesHierarchy(BuildMethod method) {
+        buildVirtualBoxesHierarchy(method, false);
+    }
+
+    /**
+     * create a virtual boxes hierarchy. a parallel build creates exactly the same hierarchy as a serial build.
+     * @param method the method used to split the virtual boxes
+     * @param parallel whether to build big inner boxes in parallel
+     */
+    public void buildVirtualBoxesHierarchy(BuildMethod method, boolean parallel) {
+        flatten();
+        clipInfinitePlanes(parallel);
+        // the root box keeps the infinite geometries, so it is calculated before the geometries are split
+        if (parallel && !_boundsValid && _geometries.size() >= PARALLEL_BOUNDS_THRESHOLD) {
+            createVirtualBoxParallel();
+            _boundsValid = true;
+        }
+        getVirtualBox();
+        if (method == BuildMethod.SPATIAL_SPLITS && getVirtualBox() != null) {
+            // a geometry may be held by several boxes, so the boxes are only kept compiled and the collection
+            // keeps its geometries without inner boxes
+            List<Intersectable> finite = new ArrayList<>();
+            for (Intersectable geometry : _geometries)
+                if (geometry.getVirtualBox() != null)
+                    finite.add(geometry);
+            _hierarchy = new SpatialSplitsBuilder(finite, _spatialSplitsBudget)
+                    .build(getVirtualBox().get_infiniteGeometries());
+            return;
+        }
+        if (method == BuildMethod.MORTON_CODES)
+            buildMortonHierarchy(parallel);
+        else if (parallel)
+            ForkJoinPool.commonPool().invoke(new BuildTask(this, method));
+        else
+            recursiveBuildVirtualBoxesHierarchy(method, false);
+        _hierarchy = new VirtualBoxesHierarchy(this);
+    }
+
+    /**
+     * create a virtual boxes hierarchy, through a cache of compiled hierarchies on the disk. if the cache directory
+     * has a hierarchy built by the same method over geometries with the same virtual boxes, it is loaded instead of
+     * being built, and the collection keeps its geometries without inner boxes. otherwise the hierarchy is built and
+     * written to the cache. a cache that can't be read or written only costs a build.
+     * @param method the method used to split the virtual boxes
+     * @param parallel whether to build big inner boxes in parallel
+     * @param cacheDirectory directory of the cache files
+     */
+    public void buildVirtualBoxesHierarchy(BuildMethod method, boolean parallel, Path cacheDirectory) {
         flatten();
-        recursiveBuildVirtualBoxesHierarchy();
+        clipInfinitePlanes(parallel);
+        List<Intersectable> geometries = new ArrayList<>(_geometries);
+        byte[] key = VirtualBoxesHierarchy.cacheKey(geometries, method, _spatialSplitsBudget);
+        Path file = cacheDirectory.resolve(VirtualBoxesHierarchy.cacheFileName(key));
+        try {
+            _hierarchy = VirtualBoxesHierarchy.load(file, geometries, key);
+        } catch (IOException e) {
+            // a cache that can't be read is built again
+            _hierarchy = null;
+        }
+        if (_hierarchy != null) {
+            // the root box keeps the infinite geometries, like after a build
+            getVirtualBox();
+            return;
+        }
+        buildVirtualBoxesHierarchy(method, parallel);
+        try {
+            _hierarchy.save(file, geometries, key);
+        } catch (IOException e) {
+            // a cache that can't be written only costs a build next time
+        }
     }
 
     /**
      * create a virtual boxes hierarchy recursively. sub function of buildVirtualBoxesHierarchy
+     * @param method the method used to split the virtual boxes
+     * @param parallel whether the function runs in a fork/join task and may build inner boxes in parallel
      */
-    private void recursiveBuildVirtualBoxesHierarchy() {
+    private void recursiveBuildVirtualBoxesHierarchy(BuildMethod method, boolean parallel) {
         // if virtual box is elementary
         if (_geometries.size() <= 1)
             return;
-        splitVirtualBox();
+        int size = _geometries.size();
+        if (method == BuildMethod.SURFACE_AREA_HEURISTIC) {
+            if (!splitVirtualBoxSAH(parallel))
+                return;
+        }
+        else
+            splitVirtualBox();
+        Geometries low = (Geometries) _geometries.get(0);
+        Geometries high = (Geometries) _geometries.get(1);
+        // build hierarchies for low and high boxes in parallel
+        if (parallel && size >= PARALLEL_BUILD_THRESHOLD) {
+            ForkJoinTask.invokeAll(new BuildTask(low, method), new BuildTask(high, method));
+            return;
+        }
         // build hierarchy for low box
-        ((Geometries)_geometries.get(0)).recursiveBuildVirtualBoxesHierarchy();
+        low.recursiveBuildVirtualBoxesHierarchy(method, parallel);
         // build hierarchy for high box
-        ((Geometries)_geometries.get(1)).recursiveBuildVirtualBoxesHierarchy();
+        high.recursiveBuildVirtualBoxesHierarchy(method, parallel);
+    }
+
+    /**
+     * refits the virtual boxes hierarchy after geometries in it moved, instead of building it again.
+     * the boxes keep their geometries and their edges are recalculated bottom-up. the refit fails if the hierarchy
+     * wasn't built or changed since, or if the refitted boxes grew so much that the hierarchy should be rebuilt.
+     * @return true if the hierarchy was refitted and can be used, false if it has to be built again
+     */
+    public boolean refitVirtualBoxesHierarchy() {
+        if (_hierarchy == null)
+            return false;
+        refitVirtualBoxes();
+        return _hierarchy.refit() <= REFIT_MAX_COST_GROWTH;
+    }
+
+    /**
+     * recalculates the edges of the virtual boxes of the box and its inner boxes from the geometries' current
+     * virtual boxes. the boxes themselves are kept, with the infinite geometries they are responsible for.
+     * sub function of refitVirtualBoxesHierarchy
+     */
+    private void refitVirtualBoxes() {
+        if (getVirtualBox() == null)
+            return;
+        double[] bounds;
+        if (isLeaf())
+            bounds = computeBounds(_geometries, false, false);
+        else {
+            Geometries low = (Geometries) _geometries.get(0);
+            Geometries high = (Geometries) _geometries.get(1);
+            low.refitVirtualBoxes();
+            high.refitVirtualBoxes();
+            bounds = new double[6];
+            resetBounds(bounds);
+            if (low.getVirtualBox() != null)
+                growBounds(bounds, low.getVirtualBox());
+            if (high.getVirtualBox() != null)
+                growBounds(bounds, high.getVirtualBox());
+        }
+        _virtualBox.set_lowX(new Coordinate(bounds[0]));
+        _virtualBox.set_highX(new Coordinate(bounds[1]));
+        _virtualBox.set_lowY(new Coordinate(bounds[2]));
+        _virtualBox.set_highY(new Coordinate(bounds[3]));
+        _virtualBox.set_lowZ(new Coordinate(bounds[4]));
+        _virtualBox.set_highZ(new Coordinate(bounds[5]));
     }
 
     /**
@@ -172,6 +596,179 @@ public class Geometries extends Intersectable {
             Collections.addAll(_geometries, geometriesZ.get(0), geometriesZ.get(1));
     }
 
+    /**
+     * create a linear virtual boxes hierarchy from the Morton codes of the geometries' centers.
+     * the geometries are sorted by their codes, and every range of codes is split after the last code that shares
+     * the range's highest differing bit with the first code. sub function of buildVirtualBoxesHierarchy
+     * @param parallel whether to sort the codes and build big inner boxes in parallel
+     */
+    private void buildMortonHierarchy(boolean parallel) {
+        // only finite geometries take part in the hierarchy, infinite ones are kept by the root box
+        List<Intersectable> finite = new ArrayList<>();
+        for (Intersectable geometry : _geometries)
+            if (geometry.getVirtualBox() != null)
+                finite.add(geometry);
+        int n = finite.size();
+        if (n <= MORTON_MAX_LEAF_SIZE) {
+            _geometries = finite;
+            return;
+        }
+
+        // calculate the codes of the geometries' centers relative to the centers' bounds
+        double[] bounds = computeBounds(finite, true, parallel);
+        double[] scale = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = bounds[2 * axis + 1] - bounds[2 * axis];
+            scale[axis] = isZero(extent) ? 0 : 1 / extent;
+        }
+        boolean shortCodes = n <= MortonCodes.SHORT_CODES_LIMIT;
+        long[] codes = new long[n];
+        int[] indices = new int[n];
+        IntStream range = IntStream.range(0, n);
+        (parallel ? range.parallel() : range).forEach(i -> {
+            VirtualBox box = finite.get(i).getVirtualBox();
+            double x = (box.getCenter(0) - bounds[0]) * scale[0];
+            double y = (box.getCenter(1) - bounds[2]) * scale[1];
+            double z = (box.getCenter(2) - bounds[4]) * scale[2];
+            codes[i] = shortCodes ? MortonCodes.encode30(x, y, z) : MortonCodes.encode63(x, y, z);
+            indices[i] = i;
+        });
+        MortonCodes.sort(codes, indices, shortCodes ? 30 : 63, parallel);
+
+        Intersectable[] sorted = new Intersectable[n];
+        for (int i = 0; i < n; i++)
+            sorted[i] = finite.get(indices[i]);
+
+        int split = MortonCodes.findSplit(codes, 0, n - 1);
+        MortonTask low = new MortonTask(codes, sorted, 0, split, parallel);
+        MortonTask high = new MortonTask(codes, sorted, split + 1, n - 1, parallel);
+        if (parallel)
+            ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(low, high);
+                }
+            });
+        else {
+            low.compute();
+            high.compute();
+        }
+        _geometries = new ArrayList<>();
+        Collections.addAll(_geometries, low._box, high._box);
+    }
+
+    /**
+     * splits the virtual box into two inner virtual boxes using a binned surface area heuristic.
+     * the geometries' centers are sorted into bins along each axis, and the split between bins with the lowest
+     * expected cost (children's surface areas weighted by their amount of geometries) is chosen.
+     * the box is left elementary if no split is cheaper than intersecting all of its geometries.
+     * @param parallel whether the bounds of big boxes' geometries may be calculated in parallel
+     * @return true if the box was split, false if it was left elementary
+     */
+    private boolean splitVirtualBoxSAH(boolean parallel) {
+        // only finite geometries take part in the hierarchy, infinite ones are kept by the root box
+        List<Intersectable> finite = new ArrayList<>();
+        for (Intersectable geometry : _geometries)
+            if (geometry.getVirtualBox() != null)
+                finite.add(geometry);
+        int n = finite.size();
+        if (n <= 1) {
+            _geometries = finite;
+            return false;
+        }
+
+        double[] bounds = new double[6 * n];
+        for (int i = 0; i < n; i++) {
+            VirtualBox box = finite.get(i).getVirtualBox();
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[6 * i + 2 * axis] = box.get_low(axis);
+                bounds[6 * i + 2 * axis + 1] = box.get_high(axis);
+            }
+        }
+
+        double leafCost = n * SAH_INTERSECTION_COST;
+        double boxArea = getVirtualBox().getSurfaceArea();
+        // a flat box gives no area information, so only the amounts of geometries are compared
+        double areaFactor = isZero(boxArea) ? 0 : 1 / boxArea;
+        SahSplit split = new SahSplit(bounds, 0, n, computeBounds(finite, true, parallel), areaFactor);
+
+        List<Intersectable> left = new ArrayList<>();
+        List<Intersectable> right = new ArrayList<>();
+        if (split.getAxis() == -1) {
+            // all geometries have the same center, split the list only if the box is too big
+            if (n <= SAH_MAX_LEAF_SIZE) {
+                _geometries = finite;
+                return false;
+            }
+            left.addAll(finite.subList(0, n / 2));
+            right.addAll(finite.subList(n / 2, n));
+        }
+        else {
+            if (split.getCost() >= leafCost) {
+                _geometries = finite;
+                return false;
+            }
+            for (int i = 0; i < n; i++)
+                (split.isLow(bounds, i) ? left : right).add(finite.get(i));
+        }
+
+        _geometries = new ArrayList<>();
+        Collections.addAll(_geometries, new Geometries(left), new Geometries(right));
+        return true;
+    }
+
+    /**
+     * calculates the bounds (lowX, highX, lowY, highY, lowZ, highZ) of the finite geometries in a list.
+     * big lists are calculated in parallel, if parallel calculation is allowed.
+     * @param geometries list of geometries
+     * @param centers whether to bound the geometries' centers instead of their virtual boxes
+     * @param parallel whether a big list may be calculated in parallel
+     * @return the bounds, an empty box if there are no finite geometries
+     */
+    private static double[] computeBounds(List<Intersectable> geometries, boolean centers, boolean parallel) {
+        if (parallel)
+            return new BoundsTask(geometries, 0, geometries.size(), centers).invoke();
+        return computeBounds(geometries, 0, geometries.size(), centers);
+    }
+
+    /**
+     * calculates the bounds (lowX, highX, lowY, highY, lowZ, highZ) of the finite geometries in a range of a list,
+     * in the calling thread
+     * @param geometries list of geometries
+     * @param from first geometry to bound
+     * @param to geometry after the last geometry to bound
+     * @param centers whether to bound the geometries' centers instead of their virtual boxes
+     * @return the bounds, an empty box if there are no finite geometries in the range
+     */
+    private static double[] computeBounds(List<Intersectable> geometries, int from, int to, boolean centers) {
+        double[] bounds = new double[6];
+        resetBounds(bounds);
+        for (int i = from; i < to; i++) {
+            VirtualBox box = geometries.get(i).getVirtualBox();
+            if (box == null)
+                continue;
+            for (int axis = 0; axis < 3; axis++) {
+                double low = centers ? box.getCenter(axis) : box.get_low(axis);
+                double high = centers ? low : box.get_high(axis);
+                bounds[2 * axis] = Math.min(bounds[2 * axis], low);
+                bounds[2 * axis + 1] = Math.max(bounds[2 * axis + 1], high);
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * grows bounds (lowX, highX, lowY, highY, lowZ, highZ) to contain a virtual box
+     * @param bounds bounds to grow
+     * @param box box to contain
+     */
+    private static void growBounds(double[] bounds, VirtualBox box) {
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[2 * axis] = Math.min(bounds[2 * axis], box.get_low(axis));
+            bounds[2 * axis + 1] = Math.max(bounds[2 * axis + 1], box.get_high(axis));
+        }
+    }
+
     /**
      * splits the virtual box into two inner virtual boxes by splitting the geometries list.
      * @param axis the direction of the split
@@ -179,8 +776,8 @@ public class Geometries extends Intersectable {
      * @return a list that holds the 'lower' box as first element and the 'higher' box as the second element
      */
     private List<Geometries> split(char axis, double mid){
-        Geometries left = new Geometries();
-        Geometries right = new Geometries();
+        List<Intersectable> left = new ArrayList<>();
+        List<Intersectable> right = new ArrayList<>();
         double high, low;
 
         for (Intersectable geometry:_geometries) {
@@ -209,29 +806,30 @@ public class Geometries extends Intersectable {
         // in case the split created an empty box, separate one geometry to another box.
         // the geometry chosen is the one that fills the whole box in the chosen axis direction.
         Intersectable toMove;
-        if (left._geometries.isEmpty()) {
+        if (left.isEmpty()) {
             if (axis == 'x')
-                toMove = right._geometries.stream().min(Comparator.comparingDouble(x -> x._virtualBox.get_lowX().get())).get();
+                toMove = right.stream().min(Comparator.comparingDouble(x -> x._virtualBox.get_lowX().get())).get();
             else if (axis == 'y')
-                toMove = right._geometries.stream().min(Comparator.comparingDouble(x -> x._virtualBox.get_lowY().get())).get();
+                toMove = right.stream().min(Comparator.comparingDouble(x -> x._virtualBox.get_lowY().get())).get();
             else
-                toMove = right._geometries.stream().min(Comparator.comparingDouble(x -> x._virtualBox.get_lowZ().get())).get();
+                toMove = right.stream().min(Comparator.comparingDouble(x -> x._virtualBox.get_lowZ().get())).get();
             left.add(toMove);
             right.remove(toMove);
         }
-        else if (right._geometries.isEmpty()) {
+        else if (right.isEmpty()) {
             if (axis == 'x')
-                toMove = left._geometries.stream().max(Comparator.comparingDouble(x -> x._virtualBox.get_highX().get())).get();
+                toMove = left.stream().max(Comparator.comparingDouble(x -> x._virtualBox.get_highX().get())).get();
             else if (axis == 'y')
-                toMove = left._geometries.stream().max(Comparator.comparingDouble(x -> x._virtualBox.get_highY().get())).get();
+                toMove = left.stream().max(Comparator.comparingDouble(x -> x._virtualBox.get_highY().get())).get();
             else
-                toMove = left._geometries.stream().max(Comparator.comparingDouble(x -> x._virtualBox.get_highZ().get())).get();
+                toMove = left.stream().max(Comparator.comparingDouble(x -> x._virtualBox.get_highZ().get())).get();
             right.add(toMove);
             left.remove(toMove);
         }
 
+        // the boxes are created once, with all of their geometries
         List<Geometries> geometries = new ArrayList<>();
-        Collections.addAll(geometries, left, right);
+        Collections.addAll(geometries, new Geometries(left), new Geometries(right));
         return geometries;
     }
 
@@ -253,6 +851,40 @@ public class Geometries extends Intersectable {
 
     }
 
+    /**
+     * cuts the infinite planes to the finite geometries' bounds, if they should be cut. planes cut before are
+     * restored first, so they are cut to the current bounds. sub function of the acceleration structures' builds
+     * @param parallel whether the bounds of many geometries may be calculated in parallel
+     */
+    private void clipInfinitePlanes(boolean parallel) {
+        List<Intersectable> geometries = getAllGeometries();
+        boolean changed = false;
+        for (int i = 0; i < geometries.size(); i++)
+            if (geometries.get(i) instanceof BoundedPlane) {
+                geometries.set(i, ((BoundedPlane) geometries.get(i)).getPlane());
+                changed = true;
+            }
+        if (_clipInfinitePlanes) {
+            double[] bounds = computeBounds(geometries, false, parallel);
+            // without finite geometries there are no bounds to cut to
+            if (bounds[0] <= bounds[1])
+                for (int i = 0; i < geometries.size(); i++) {
+                    if (!(geometries.get(i) instanceof Plane))
+                        continue;
+                    BoundedPlane plane = BoundedPlane.clip((Plane) geometries.get(i), bounds);
+                    if (plane != null) {
+                        geometries.set(i, plane);
+                        changed = true;
+                    }
+                }
+        }
+        if (changed) {
+            _geometries = geometries;
+            _hierarchy = null;
+            _boundsValid = false;
+        }
+    }
+
     /**
      * flattens geometries to a list of single geometries
      */
@@ -279,6 +911,15 @@ public class Geometries extends Intersectable {
 
     // overrides
 
+    @Override
+    public VirtualBox getVirtualBox() {
+        if (!_boundsValid) {
+            createVirtualBox();
+            _boundsValid = true;
+        }
+        return _virtualBox;
+    }
+
     @Override
     public List<GeoPoint> findIntersections(Ray ray) {
         List<GeoPoint> intersections = new ArrayList<>();
@@ -294,6 +935,18 @@ public class Geometries extends Intersectable {
         return intersections;
     }
 
+    @Override
+    boolean findNearestIntersection(Ray ray, double tMin, double tMax, HitRecord hit) {
+        boolean found = false;
+        for (Intersectable geometry : _geometries) {
+            if (geometry.findNearestIntersection(ray, tMin, tMax, hit)) {
+                tMax = hit.t;
+                found = true;
+            }
+        }
+        return found;
+    }
+
     @Override
     protected void createVirtualBox() {
         VirtualBox virtualBox = new VirtualBox(new Coordinate(Double.MAX_VALUE),new Coordinate(-Double.MAX_VALUE),
@@ -335,6 +988,28 @@ public class Geometries extends Intersectable {
         _virtualBox = hasFinite ? virtualBox : null;
     }
 
+    /**
+     * create virtual box around a big collection, calculating the bounds in parallel, like createVirtualBox.
+     * sub function of a parallel buildVirtualBoxesHierarchy
+     */
+    private void createVirtualBoxParallel() {
+        double[] bounds = computeBounds(_geometries, false, true);
+        if (bounds[0] > bounds[1]) {
+            _virtualBox = null;
+            return;
+        }
+        VirtualBox virtualBox = new VirtualBox(new Coordinate(bounds[0]), new Coordinate(bounds[1]),
+                new Coordinate(bounds[2]), new Coordinate(bounds[3]),
+                new Coordinate(bounds[4]), new Coordinate(bounds[5]));
+        for (Intersectable geometry : _geometries) {
+            if (geometry.getVirtualBox() != null)
+                virtualBox.addInfiniteGeometries(geometry.getVirtualBox().get_infiniteGeometries());
+            else
+                virtualBox.addInfiniteGeometry((Geometry) geometry);
+        }
+        _virtualBox = virtualBox;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
@@ -347,4 +1022,142 @@ public class Geometries extends Intersectable {
         return true;
     }
 
+    /**
+     * BuildTask class builds the virtual boxes hierarchy of a box as a fork/join task
+     */
+    private static class BuildTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        /**
+         * the box to build a hierarchy for
+         */
+        private final Geometries _box;
+        /**
+         * the method used to split the virtual boxes
+         */
+        private final BuildMethod _method;
+
+        /**
+         * constructor for BuildTask
+         * @param box the box to build a hierarchy for
+         * @param method the method used to split the virtual boxes
+         */
+        BuildTask(Geometries box, BuildMethod method) {
+            _box = box;
+            _method = method;
+        }
+
+        @Override
+        protected void compute() {
+            _box.recursiveBuildVirtualBoxesHierarchy(_method, true);
+        }
+    }
+
+    /**
+     * BoundsTask class calculates the bounds of a range of geometries as a fork/join task
+     */
+    private static class BoundsTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+        /**
+         * list of geometries
+         */
+        private final List<Intersectable> _geometries;
+        /**
+         * range of geometries in the list to bound
+         */
+        private final int _from, _to;
+        /**
+         * whether to bound the geometries' centers instead of their virtual boxes
+         */
+        private final boolean _centers;
+
+        /**
+         * constructor for BoundsTask
+         * @param geometries list of geometries
+         * @param from first geometry to bound
+         * @param to geometry after the last geometry to bound
+         * @param centers whether to bound the geometries' centers instead of their virtual boxes
+         */
+        BoundsTask(List<Intersectable> geometries, int from, int to, boolean centers) {
+            _geometries = geometries;
+            _from = from;
+            _to = to;
+            _centers = centers;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (_to - _from > PARALLEL_BOUNDS_THRESHOLD) {
+                int mid = (_from + _to) >>> 1;
+                BoundsTask low = new BoundsTask(_geometries, _from, mid, _centers);
+                low.fork();
+                double[] bounds = new BoundsTask(_geometries, mid, _to, _centers).compute();
+                mergeBounds(bounds, low.join());
+                return bounds;
+            }
+            return computeBounds(_geometries, _from, _to, _centers);
+        }
+    }
+
+    /**
+     * MortonTask class builds the box of a range of geometries sorted by Morton codes, as a fork/join task
+     */
+    private static class MortonTask extends RecursiveTask<Geometries> {
+        private static final long serialVersionUID = 1L;
+        /**
+         * sorted Morton codes
+         */
+        private final long[] _codes;
+        /**
+         * geometries, sorted by their codes
+         */
+        private final Intersectable[] _sorted;
+        /**
+         * first and last index of the range of geometries
+         */
+        private final int _first, _last;
+        /**
+         * whether to build big inner boxes in parallel
+         */
+        private final boolean _parallel;
+        /**
+         * the built box
+         */
+        private Geometries _box;
+
+        /**
+         * constructor for MortonTask
+         * @param codes sorted Morton codes
+         * @param sorted geometries, sorted by their codes
+         * @param first first index of the range of geometries
+         * @param last last index of the range of geometries
+         * @param parallel whether to build big inner boxes in parallel
+         */
+        MortonTask(long[] codes, Intersectable[] sorted, int first, int last, boolean parallel) {
+            _codes = codes;
+            _sorted = sorted;
+            _first = first;
+            _last = last;
+            _parallel = parallel;
+        }
+
+        @Override
+        protected Geometries compute() {
+            // elementary box
+            if (_last - _first < MORTON_MAX_LEAF_SIZE) {
+                _box = new Geometries(Arrays.asList(_sorted).subList(_first, _last + 1));
+                return _box;
+            }
+            int split = MortonCodes.findSplit(_codes, _first, _last);
+            MortonTask low = new MortonTask(_codes, _sorted, _first, split, _parallel);
+            MortonTask high = new MortonTask(_codes, _sorted, split + 1, _last, _parallel);
+            if (_parallel && _last - _first >= PARALLEL_BUILD_THRESHOLD)
+                invokeAll(low, high);
+            else {
+                low.compute();
+                high.compute();
+            }
+            _box = new Geometries(low._box, high._box);
+            return _box;
+        }
+    }
 }
@@ -0,0 +1,245 @@
+package geometries;
+
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Instance class represents a copy of a shared collection of geometries, placed in the scene by a transformation
+ * (rotation, uniform scaling and translation).<br>
+ * the shared geometries are kept once, with their own virtual boxes hierarchy (bottom level), and every instance
+ * only holds its transformation. the scene's hierarchy (top level) is built over the instances' virtual boxes,
+ * and rays that reach an instance are transformed into the shared geometries' space.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class Instance extends Intersectable {
+
+    //fields
+    /**
+     * the shared geometries
+     */
+    private final Geometries _object;
+    /**
+     * linear part of the transformation from the geometries' space to the scene, 3x3 by rows
+     */
+    private final double[] _matrix = new double[9];
+    /**
+     * linear part of the transformation from the scene to the geometries' space, 3x3 by rows
+     */
+    private final double[] _inverse = new double[9];
+    /**
+     * translation of the transformation from the geometries' space to the scene
+     */
+    private final double[] _translation = new double[3];
+
+    //constructors
+    /**
+     * Instance constructor that only moves the shared geometries
+     * @param object the shared geometries
+     * @param position point in the scene to place the geometries' origin at
+     * @throws IllegalArgumentException if the geometries include infinite geometries
+     */
+    public Instance(Geometries object, Point3D position) {
+        this(object, new Vector(0, 0, 1), 0, 1, position);
+    }
+
+    /**
+     * Instance constructor. the shared geometries are rotated around their origin, then scaled and then moved
+     * @param object the shared geometries
+     * @param axis axis to rotate the geometries around
+     * @param angle rotation angle in degrees, counterclockwise when looking against the axis
+     * @param scale scaling factor
+     * @param position point in the scene to place the geometries' origin at
+     * @throws IllegalArgumentException if the geometries include infinite geometries or the scale isn't positive
+     */
+    public Instance(Geometries object, Vector axis, double angle, double scale, Point3D position) {
+        if (object.getVirtualBox() == null || !object.getVirtualBox().get_infiniteGeometries().isEmpty())
+            throw new IllegalArgumentException("An instance can only hold finite geometries");
+        if (scale <= 0)
+            throw new IllegalArgumentException("An instance's scale must be positive");
+        _object = object;
+        // the bottom level hierarchy is built once for all instances of the geometries
+        if (_object.getHierarchy() == null)
+            _object.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+
+        // rotation matrix around the axis (Rodrigues' formula)
+        Vector u = axis.normalized();
+        double x = u.getXValue(), y = u.getYValue(), z = u.getZValue();
+        double radians = Math.toRadians(angle);
+        double c = Math.cos(radians), s = Math.sin(radians), t = 1 - c;
+        double[] rotation = {
+                t * x * x + c, t * x * y - s * z, t * x * z + s * y,
+                t * x * y + s * z, t * y * y + c, t * y * z - s * x,
+                t * x * z - s * y, t * y * z + s * x, t * z * z + c};
+        // the inverse of a rotation is its transpose
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                _matrix[3 * row + col] = scale * rotation[3 * row + col];
+                _inverse[3 * row + col] = rotation[3 * col + row] / scale;
+            }
+        }
+        _translation[0] = position.getXValue();
+        _translation[1] = position.getYValue();
+        _translation[2] = position.getZValue();
+        createVirtualBox();
+    }
+
+    //getters
+    /**
+     * getter for the shared geometries
+     * @return shared geometries
+     */
+    public Geometries getObject() {
+        return _object;
+    }
+
+    //functions
+    /**
+     * moves the instance. a virtual boxes hierarchy holding the instance has to be refitted or built again
+     * after the instance moves, the shared geometries' hierarchy stays as is
+     * @param offset vector to move the instance by
+     */
+    public void move(Vector offset) {
+        _translation[0] += offset.getXValue();
+        _translation[1] += offset.getYValue();
+        _translation[2] += offset.getZValue();
+        createVirtualBox();
+    }
+
+    /**
+     * transforms a point from the scene to the shared geometries' space
+     * @param point point in the scene
+     * @return point in the geometries' space
+     */
+    Point3D toObject(Point3D point) {
+        double x = point.getXValue() - _translation[0];
+        double y = point.getYValue() - _translation[1];
+        double z = point.getZValue() - _translation[2];
+        return new Point3D(_inverse[0] * x + _inverse[1] * y + _inverse[2] * z,
+                _inverse[3] * x + _inverse[4] * y + _inverse[5] * z,
+                _inverse[6] * x + _inverse[7] * y + _inverse[8] * z);
+    }
+
+    /**
+     * transforms a point from the shared geometries' space to the scene
+     * @param point point in the geometries' space
+     * @return point in the scene
+     */
+    Point3D toScene(Point3D point) {
+        double x = point.getXValue(), y = point.getYValue(), z = point.getZValue();
+        return new Point3D(_matrix[0] * x + _matrix[1] * y + _matrix[2] * z + _translation[0],
+                _matrix[3] * x + _matrix[4] * y + _matrix[5] * z + _translation[1],
+                _matrix[6] * x + _matrix[7] * y + _matrix[8] * z + _translation[2]);
+    }
+
+    /**
+     * transforms a normal from the shared geometries' space to the scene, by the transpose of the inverse matrix
+     * @param normal normal in the geometries' space
+     * @return normalized normal in the scene
+     */
+    Vector toSceneNormal(Vector normal) {
+        double x = normal.getXValue();
+        double y = normal.getYValue();
+        double z = normal.getZValue();
+        return new Vector(_inverse[0] * x + _inverse[3] * y + _inverse[6] * z,
+                _inverse[1] * x + _inverse[4] * y + _inverse[7] * z,
+                _inverse[2] * x + _inverse[5] * y + _inverse[8] * z).normalize();
+    }
+
+    // overrides
+
+    @Override
+    List<GeoPoint> findIntersections(Ray ray) {
+        // transform the ray into the shared geometries' space
+        Point3D start = ray.getStartPoint();
+        Point3D end = start.add(ray.getVector());
+        Point3D objectStart = toObject(start);
+        Ray objectRay = new Ray(objectStart, toObject(end).subtract(objectStart));
+
+        List<GeoPoint> intersections = _object.findIntersectionsInHierarchy(objectRay);
+        if (intersections == null)
+            return null;
+        // transform the intersections back to the scene
+        List<GeoPoint> result = new ArrayList<>(intersections.size());
+        for (GeoPoint gp : intersections)
+            result.add(new GeoPoint(new InstancedGeometry(this, gp.geometry), toScene(gp.point)));
+        return result;
+    }
+
+    @Override
+    protected void createVirtualBox() {
+        // bound the transformed corners of the shared geometries' box
+        VirtualBox box = _object.getVirtualBox();
+        double[] bounds = {Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+                Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int corner = 0; corner < 8; corner++) {
+            Point3D point = toScene(new Point3D(
+                    (corner & 1) == 0 ? box.get_low(0) : box.get_high(0),
+                    (corner & 2) == 0 ? box.get_low(1) : box.get_high(1),
+                    (corner & 4) == 0 ? box.get_low(2) : box.get_high(2)));
+            double[] coordinates = {point.getXValue(), point.getYValue(), point.getZValue()};
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[2 * axis] = Math.min(bounds[2 * axis], coordinates[axis]);
+                bounds[2 * axis + 1] = Math.max(bounds[2 * axis + 1], coordinates[axis]);
+            }
+        }
+        _virtualBox = new VirtualBox(new Coordinate(bounds[0]), new Coordinate(bounds[1]),
+                new Coordinate(bounds[2]), new Coordinate(bounds[3]),
+                new Coordinate(bounds[4]), new Coordinate(bounds[5]));
+    }
+
+    /**
+     * InstancedGeometry class represents a shared geometry as it is placed in the scene by an instance.
+     * it is created for intersections with instances, so their normals are calculated in the scene.
+     */
+    private static class InstancedGeometry extends Geometry {
+        /**
+         * the instance placing the geometry
+         */
+        private final Instance _instance;
+        /**
+         * the shared geometry
+         */
+        private final Geometry _geometry;
+
+        /**
+         * constructor for InstancedGeometry
+         * @param instance the instance placing the geometry
+         * @param geometry the shared geometry
+         */
+        InstancedGeometry(Instance instance, Geometry geometry) {
+            super(geometry.getEmission(), geometry.getMaterial());
+            _instance = instance;
+            _geometry = geometry;
+        }
+
+        @Override
+        public Vector getNormal(Point3D point3D) {
+            return _instance.toSceneNormal(_geometry.getNormal(_instance.toObject(point3D)));
+        }
+
+        @Override
+        List<GeoPoint> findIntersections(Ray ray) {
+            return null;
+        }
+
+        @Override
+        protected void createVirtualBox() {
+            _virtualBox = null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof InstancedGeometry)) return false;
+            return _instance == ((InstancedGeometry) obj)._instance &&
+                    _geometry.equals(((InstancedGeometry) obj)._geometry);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(_instance) + _geometry.hashCode();
+        }
+    }
+}
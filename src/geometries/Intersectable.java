@@ -36,6 +36,36 @@ public abstract class Intersectable {
      */
     abstract List<GeoPoint> findIntersections(Ray ray);
 
+    /**
+     * Finds the nearest intersection between the intersectable and a given ray whose distance along the ray is
+     * inside (tMin, tMax), and writes it to a hit record. the distance t is in units of the length of the ray's
+     * direction - rays are normalized, so it is the distance from the ray's start point.<br>
+     * this implementation adapts the list of {@link #findIntersections(Ray)}; geometries override it to find the
+     * nearest intersection without the list and the points beyond tMax
+     * @param ray the ray that intersects the intersectable
+     * @param tMin the distance an intersection has to be farther than
+     * @param tMax the distance an intersection has to be closer than
+     * @param hit the hit record to write the intersection to
+     * @return true if an intersection was found and written to the hit record, false if the record is unchanged
+     */
+    boolean findNearestIntersection(Ray ray, double tMin, double tMax, HitRecord hit) {
+        List<GeoPoint> intersections = findIntersections(ray);
+        if (intersections == null)
+            return false;
+        Point3D start = ray.getStartPoint();
+        double length = ray.getVector().length();
+        boolean found = false;
+        for (GeoPoint gp : intersections) {
+            double t = gp.point.distance(start) / length;
+            if (t > tMin && t < tMax) {
+                hit.set(t, gp.point, gp.geometry);
+                tMax = t;
+                found = true;
+            }
+        }
+        return found;
+    }
+
     /**
      * class GeoPoint represents a point with the geometry it is part of
      */
@@ -63,5 +93,52 @@ public abstract class Intersectable {
             return geometry.equals(oth.geometry) && point.equals(oth.point);
         }
     }
+
+    /**
+     * class HitRecord holds the nearest intersection of a ray found so far - its distance along the ray, its
+     * point and the geometry it is part of. a hit record is reused by the intersections of a ray with many
+     * geometries, so they don't create lists and points for intersections that aren't the nearest
+     */
+    public static class HitRecord {
+        /**
+         * distance of the intersection along the ray, in units of the length of the ray's direction
+         */
+        public double t = Double.POSITIVE_INFINITY;
+        /**
+         * the intersection point, null if no intersection was found
+         */
+        public Point3D point;
+        /**
+         * the geometry the point is part of, null if no intersection was found
+         */
+        public Geometry geometry;
+
+        /**
+         * resets the record to no intersection, so it can be reused for another ray
+         */
+        public void reset() {
+            set(Double.POSITIVE_INFINITY, null, null);
+        }
+
+        /**
+         * sets the intersection
+         * @param t distance of the intersection along the ray
+         * @param point the intersection point
+         * @param geometry the geometry the point is part of
+         */
+        public void set(double t, Point3D point, Geometry geometry) {
+            this.t = t;
+            this.point = point;
+            this.geometry = geometry;
+        }
+
+        /**
+         * creates a GeoPoint of the intersection
+         * @return the GeoPoint, null if no intersection was found
+         */
+        public GeoPoint toGeoPoint() {
+            return geometry == null ? null : new GeoPoint(geometry, point);
+        }
+    }
 }
 
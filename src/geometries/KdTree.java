@@ -0,0 +1,543 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import primitives.Point3D;
+import primitives.Ray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static primitives.Util.isZero;
+
+/**
+ * KdTree class is an acceleration structure that splits space (and not the geometries, like the virtual boxes
+ * hierarchy) by axis aligned planes. every plane is chosen by a binned surface area heuristic, and a geometry
+ * crossed by a plane is held by both sides. the ray visits the cells it passes through front to back, so the
+ * search for the closest intersection stops in the first cell that holds an intersection.<br>
+ * the tree is kept in arrays, in depth first order - the first inner cell of a cell is always the cell right
+ * after it.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class KdTree implements AccelerationStructure {
+
+    //constants
+    /**
+     * number of candidate planes per axis, evaluated by the surface area heuristic
+     */
+    private static final int BINS = 32;
+    /**
+     * relative cost of traversing a cell, used by the surface area heuristic
+     */
+    private static final double TRAVERSAL_COST = 1;
+    /**
+     * relative cost of intersecting a geometry, used by the surface area heuristic
+     */
+    private static final double INTERSECTION_COST = 1;
+    /**
+     * axis value of an elementary cell
+     */
+    private static final int LEAF = 3;
+
+    //fields
+    /**
+     * edges of the box around all finite geometries: lowX, highX, lowY, highY, lowZ, highZ
+     */
+    private final double[] _bounds;
+    /**
+     * for an inner cell - axis of its splitting plane, for an elementary cell - LEAF
+     */
+    private final int[] _axes;
+    /**
+     * for an inner cell - position of its splitting plane on its axis
+     */
+    private final double[] _splits;
+    /**
+     * for an inner cell - index of its second inner cell, for an elementary cell - index of its first item
+     */
+    private final int[] _offsets;
+    /**
+     * for an elementary cell - amount of its items
+     */
+    private final int[] _counts;
+    /**
+     * indices of the geometries held by the elementary cells
+     */
+    private final int[] _items;
+    /**
+     * finite geometries
+     */
+    private final Intersectable[] _geometries;
+    /**
+     * infinite geometries, tested for every ray
+     */
+    private final Intersectable[] _infiniteGeometries;
+    /**
+     * traversal state for every rendering thread
+     */
+    private final ThreadLocal<TraversalState> _state;
+
+    //build state, only used while the tree is built
+    /**
+     * virtual boxes of the finite geometries, 6 values per geometry
+     */
+    private double[] _boxes;
+    /**
+     * amount of cells and items built so far
+     */
+    private int _size, _itemsSize;
+    /**
+     * cells and items arrays while the tree is built
+     */
+    private int[] _buildAxes, _buildOffsets, _buildCounts, _buildItems;
+    /**
+     * splitting planes while the tree is built
+     */
+    private double[] _buildSplits;
+
+    //constructors
+    /**
+     * builds a kd-tree over geometries
+     * @param geometries the geometries
+     */
+    public KdTree(Geometries geometries) {
+        List<Intersectable> finite = new ArrayList<>();
+        List<Intersectable> infinite = new ArrayList<>();
+        for (Intersectable geometry : geometries.getAllGeometries())
+            (geometry.getVirtualBox() == null ? infinite : finite).add(geometry);
+        _geometries = finite.toArray(new Intersectable[0]);
+        _infiniteGeometries = infinite.toArray(new Intersectable[0]);
+
+        int n = _geometries.length;
+        _boxes = new double[6 * n];
+        _bounds = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            _bounds[2 * axis] = Double.MAX_VALUE;
+            _bounds[2 * axis + 1] = -Double.MAX_VALUE;
+        }
+        int[] items = new int[n];
+        for (int i = 0; i < n; i++) {
+            VirtualBox box = _geometries[i].getVirtualBox();
+            for (int axis = 0; axis < 3; axis++) {
+                _boxes[6 * i + 2 * axis] = box.get_low(axis);
+                _boxes[6 * i + 2 * axis + 1] = box.get_high(axis);
+                _bounds[2 * axis] = Math.min(_bounds[2 * axis], box.get_low(axis));
+                _bounds[2 * axis + 1] = Math.max(_bounds[2 * axis + 1], box.get_high(axis));
+            }
+            items[i] = i;
+        }
+
+        int capacity = Math.max(16, 2 * n);
+        _buildAxes = new int[capacity];
+        _buildOffsets = new int[capacity];
+        _buildCounts = new int[capacity];
+        _buildSplits = new double[capacity];
+        _buildItems = new int[capacity];
+        int depth = 0;
+        if (n > 0) {
+            // the usual max depth of a kd-tree, 8 + 1.3 * log2(n)
+            int maxDepth = 8 + (int) (1.3 * (31 - Integer.numberOfLeadingZeros(n)));
+            depth = build(items, n, _bounds.clone(), 0, maxDepth);
+        }
+
+        _axes = Arrays.copyOf(_buildAxes, _size);
+        _offsets = Arrays.copyOf(_buildOffsets, _size);
+        _counts = Arrays.copyOf(_buildCounts, _size);
+        _splits = Arrays.copyOf(_buildSplits, _size);
+        _items = Arrays.copyOf(_buildItems, _itemsSize);
+        _boxes = null;
+        _buildAxes = _buildOffsets = _buildCounts = _buildItems = null;
+        _buildSplits = null;
+
+        final int stackSize = depth + 1;
+        _state = ThreadLocal.withInitial(() -> new TraversalState(stackSize, n));
+    }
+
+    /**
+     * builds a cell and its inner cells recursively. sub function of the constructor
+     * @param items indices of the geometries in the cell
+     * @param count amount of geometries in the cell
+     * @param cell edges of the cell
+     * @param depth depth of the cell
+     * @param maxDepth max depth of a cell
+     * @return depth of the cell's subtree
+     */
+    private int build(int[] items, int count, double[] cell, int depth, int maxDepth) {
+        int node = newCell();
+        double cellArea = VirtualBox.surfaceArea(cell[1] - cell[0], cell[3] - cell[2], cell[5] - cell[4]);
+        // a flat cell gives no area information, so only the amounts of geometries are compared
+        double areaFactor = isZero(cellArea) ? 0 : 1 / cellArea;
+        double bestCost = INTERSECTION_COST * count;
+        int bestAxis = -1;
+        double bestSplit = 0;
+
+        if (count > 1 && depth < maxDepth) {
+            int[] lowCounts = new int[BINS];
+            int[] highCounts = new int[BINS];
+            for (int axis = 0; axis < 3; axis++) {
+                double low = cell[2 * axis], extent = cell[2 * axis + 1] - low;
+                if (isZero(extent))
+                    continue;
+                Arrays.fill(lowCounts, 0);
+                Arrays.fill(highCounts, 0);
+                for (int i = 0; i < count; i++) {
+                    int b = 6 * items[i] + 2 * axis;
+                    lowCounts[binOf(_boxes[b], low, extent)]++;
+                    highCounts[binOf(_boxes[b + 1], low, extent)]++;
+                }
+                // plane i is between bin i - 1 and bin i. geometries that start before it are on its low side,
+                // and geometries that end after it are on its high side
+                int left = 0, right = count;
+                for (int i = 1; i < BINS; i++) {
+                    left += lowCounts[i - 1];
+                    right -= highCounts[i - 1];
+                    double split = low + extent * i / BINS;
+                    double cost = TRAVERSAL_COST + INTERSECTION_COST * areaFactor *
+                            (sideArea(cell, axis, cell[2 * axis], split) * left +
+                                    sideArea(cell, axis, split, cell[2 * axis + 1]) * right);
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = split;
+                    }
+                }
+            }
+        }
+
+        if (bestAxis != -1) {
+            // sort the geometries to the sides of the plane
+            int[] lowItems = new int[count], highItems = new int[count];
+            int lowCount = 0, highCount = 0;
+            for (int i = 0; i < count; i++) {
+                int b = 6 * items[i] + 2 * bestAxis;
+                double low = _boxes[b], high = _boxes[b + 1];
+                if (low < bestSplit || (low == bestSplit && high == bestSplit))
+                    lowItems[lowCount++] = items[i];
+                if (high > bestSplit)
+                    highItems[highCount++] = items[i];
+            }
+            // a plane that doesn't separate any geometry only adds traversal
+            if (lowCount < count || highCount < count) {
+                _buildAxes[node] = bestAxis;
+                _buildSplits[node] = bestSplit;
+                double[] lowCell = cell.clone(), highCell = cell.clone();
+                lowCell[2 * bestAxis + 1] = bestSplit;
+                highCell[2 * bestAxis] = bestSplit;
+                int lowDepth = build(lowItems, lowCount, lowCell, depth + 1, maxDepth);
+                _buildOffsets[node] = _size;
+                int highDepth = build(highItems, highCount, highCell, depth + 1, maxDepth);
+                return 1 + Math.max(lowDepth, highDepth);
+            }
+        }
+
+        // elementary cell
+        _buildAxes[node] = LEAF;
+        _buildOffsets[node] = _itemsSize;
+        _buildCounts[node] = count;
+        if (_itemsSize + count > _buildItems.length)
+            _buildItems = Arrays.copyOf(_buildItems, Math.max(2 * _buildItems.length, _itemsSize + count));
+        System.arraycopy(items, 0, _buildItems, _itemsSize, count);
+        _itemsSize += count;
+        return 1;
+    }
+
+    /**
+     * adds a cell to the cells arrays while the tree is built
+     * @return index of the new cell
+     */
+    private int newCell() {
+        if (_size == _buildAxes.length) {
+            int capacity = 2 * _size;
+            _buildAxes = Arrays.copyOf(_buildAxes, capacity);
+            _buildOffsets = Arrays.copyOf(_buildOffsets, capacity);
+            _buildCounts = Arrays.copyOf(_buildCounts, capacity);
+            _buildSplits = Arrays.copyOf(_buildSplits, capacity);
+        }
+        return _size++;
+    }
+
+    /**
+     * finds the bin of a value along an axis of a cell
+     * @param value the value
+     * @param low low edge of the cell on the axis
+     * @param extent length of the cell on the axis
+     * @return bin index
+     */
+    private static int binOf(double value, double low, double extent) {
+        int bin = (int) (BINS * (value - low) / extent);
+        return bin < 0 ? 0 : Math.min(bin, BINS - 1);
+    }
+
+    /**
+     * calculates the surface area of one side of a cell split on an axis
+     * @param cell edges of the cell
+     * @param axis axis of the split
+     * @param low low edge of the side on the axis
+     * @param high high edge of the side on the axis
+     * @return surface area of the side
+     */
+    private static double sideArea(double[] cell, int axis, double low, double high) {
+        double dx = axis == 0 ? high - low : cell[1] - cell[0];
+        double dy = axis == 1 ? high - low : cell[3] - cell[2];
+        double dz = axis == 2 ? high - low : cell[5] - cell[4];
+        return VirtualBox.surfaceArea(dx, dy, dz);
+    }
+
+    //getters
+    /**
+     * getter for the amount of cells in the tree
+     * @return amount of cells
+     */
+    public int getCellsCount() {
+        return _axes.length;
+    }
+
+    //functions
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = null;
+        List<GeoPoint> result;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            result = geometry.findIntersections(ray);
+            if (result != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(result);
+            }
+        }
+
+        TraversalState state = _state.get();
+        if (!state.start(ray, Double.POSITIVE_INFINITY))
+            return intersections;
+        int leaf;
+        while ((leaf = nextLeaf(state)) >= 0) {
+            for (int i = _offsets[leaf]; i < _offsets[leaf] + _counts[leaf]; i++) {
+                if (!state.mailbox.mark(_items[i]))
+                    continue;
+                result = _geometries[_items[i]].findIntersections(ray);
+                if (result != null) {
+                    if (intersections == null)
+                        intersections = new ArrayList<>();
+                    intersections.addAll(result);
+                }
+            }
+        }
+        return intersections;
+    }
+
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray) {
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        // cells are entered at distances in units of the ray's direction length, like the distances of the hit
+        // record
+        TraversalState state = _state.get();
+        if (!state.start(ray, Math.min(hit.t, Double.MAX_VALUE)))
+            return hit.toGeoPoint();
+        int leaf;
+        while ((leaf = nextLeaf(state)) >= 0) {
+            for (int i = _offsets[leaf]; i < _offsets[leaf] + _counts[leaf]; i++) {
+                if (!state.mailbox.mark(_items[i]))
+                    continue;
+                if (_geometries[_items[i]].findNearestIntersection(ray, 0, hit.t, hit))
+                    state.maxEntry = hit.t;
+            }
+            // an intersection inside the cell is closer than anything in the cells behind it
+            if (state.maxEntry <= state.exit)
+                break;
+        }
+        return hit.toGeoPoint();
+    }
+
+    @Override
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        Point3D start = ray.getStartPoint();
+        double ktr = 1.0;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            ktr = VirtualBoxesHierarchy.reduceTransparency(geometry.findIntersections(ray), start, maxDistance, ktr);
+            if (ktr < minK)
+                return 0.0;
+        }
+
+        TraversalState state = _state.get();
+        if (!state.start(ray, maxDistance / ray.getVector().length()))
+            return ktr;
+        int leaf;
+        while ((leaf = nextLeaf(state)) >= 0) {
+            for (int i = _offsets[leaf]; i < _offsets[leaf] + _counts[leaf]; i++) {
+                // a geometry held by several cells is counted once
+                if (!state.mailbox.mark(_items[i]))
+                    continue;
+                ktr = VirtualBoxesHierarchy.reduceTransparency(_geometries[_items[i]].findIntersections(ray),
+                        start, maxDistance, ktr);
+                if (ktr < minK)
+                    return 0.0;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * finds the next elementary cell the ray passes through, front to back. cells the ray enters beyond
+     * the state's max entry distance are skipped
+     * @param state traversal state of the ray
+     * @return index of the cell, -1 if there are no more cells. the distances in which the ray enters and
+     * exits the cell are left in the state
+     */
+    private int nextLeaf(TraversalState state) {
+        int node = state.node;
+        double entry = state.entry, exit = state.exit;
+        while (true) {
+            if (node < 0 || entry > state.maxEntry) {
+                // continue with a cell waiting on the stack
+                if (state.top == 0)
+                    return -1;
+                state.top--;
+                node = state.nodes[state.top];
+                entry = state.entries[state.top];
+                exit = state.exits[state.top];
+                continue;
+            }
+            int axis = _axes[node];
+            if (axis == LEAF) {
+                state.node = -1;
+                state.entry = entry;
+                state.exit = exit;
+                return node;
+            }
+
+            // inner cell - visit the side of the ray's start point first
+            double split = _splits[node], origin = state.origin[axis], inverse = state.inverse[axis];
+            boolean lowFirst = origin < split || (origin == split && inverse <= 0);
+            int near = lowFirst ? node + 1 : _offsets[node];
+            int far = lowFirst ? _offsets[node] : node + 1;
+            double t = (split - origin) * inverse;
+            if (Double.isNaN(t)) {
+                // the ray runs inside the plane - visit both sides
+                state.push(far, entry, exit);
+                node = near;
+            }
+            else if (t > exit || t <= 0)
+                node = near;
+            else if (t < entry)
+                node = far;
+            else {
+                state.push(far, t, exit);
+                node = near;
+                exit = t;
+            }
+        }
+    }
+
+    /**
+     * TraversalState class holds the state of a ray traversing the tree. every rendering thread has its own state,
+     * so it is allocated only once.
+     */
+    private class TraversalState {
+        /**
+         * cells waiting to be visited
+         */
+        final int[] nodes;
+        /**
+         * distances in which the ray enters and exits the cells waiting to be visited
+         */
+        final double[] entries, exits;
+        /**
+         * amount of cells waiting to be visited
+         */
+        int top;
+        /**
+         * the cell to visit next, -1 if the next cell is on the stack
+         */
+        int node;
+        /**
+         * distances in which the ray enters and exits the current cell
+         */
+        double entry, exit;
+        /**
+         * cells entered beyond this distance are skipped
+         */
+        double maxEntry;
+        /**
+         * the ray's start point and 1 / the ray's direction, by axes
+         */
+        final double[] origin = new double[3], inverse = new double[3];
+        /**
+         * the ray's signs, by axes - 1 if the direction is negative, 0 otherwise
+         */
+        final int[] signs = new int[3];
+        /**
+         * geometries already tested against the ray
+         */
+        final Mailbox mailbox;
+
+        /**
+         * constructor for TraversalState
+         * @param size max amount of cells waiting to be visited
+         * @param geometries amount of geometries
+         */
+        TraversalState(int size, int geometries) {
+            nodes = new int[size];
+            entries = new double[size];
+            exits = new double[size];
+            mailbox = new Mailbox(geometries);
+        }
+
+        /**
+         * starts the traversal of a ray - clips the ray to the box around all geometries
+         * @param ray the ray
+         * @param maxEntry cells entered beyond this distance are skipped
+         * @return false if the ray misses the tree
+         */
+        boolean start(Ray ray, double maxEntry) {
+            if (_axes.length == 0)
+                return false;
+            Point3D start = ray.getStartPoint();
+            origin[0] = start.getXValue();
+            origin[1] = start.getYValue();
+            origin[2] = start.getZValue();
+            inverse[0] = ray.getInverseXValue();
+            inverse[1] = ray.getInverseYValue();
+            inverse[2] = ray.getInverseZValue();
+            signs[0] = ray.getSignX();
+            signs[1] = ray.getSignY();
+            signs[2] = ray.getSignZ();
+
+            double tmin = 0, tmax = Double.POSITIVE_INFINITY;
+            for (int axis = 0; axis < 3; axis++) {
+                // the near side on an axis is the low side for a positive direction and the high side otherwise
+                double t0 = (_bounds[2 * axis + signs[axis]] - origin[axis]) * inverse[axis];
+                double t1 = (_bounds[2 * axis + 1 - signs[axis]] - origin[axis]) * inverse[axis];
+                // comparisons with NaN (ray parallel to a side and starting on it) are ignored
+                if (t0 > tmin) tmin = t0;
+                if (t1 < tmax) tmax = t1;
+            }
+            if (tmin > tmax || tmin > maxEntry)
+                return false;
+            this.maxEntry = maxEntry;
+            node = 0;
+            entry = tmin;
+            exit = tmax;
+            top = 0;
+            mailbox.nextRay();
+            return true;
+        }
+
+        /**
+         * pushes a cell to be visited later
+         * @param node index of the cell
+         * @param entry distance in which the ray enters the cell
+         * @param exit distance in which the ray exits the cell
+         */
+        void push(int node, double entry, double exit) {
+            nodes[top] = node;
+            entries[top] = entry;
+            exits[top++] = exit;
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static geometries.SahSplit.area;
+import static primitives.Util.isZero;
+
+/**
+ * LazyVirtualBoxesHierarchy class is a virtual boxes hierarchy whose boxes are split only when a ray first reaches
+ * them. creating it only calculates the root box, so the first pixels are rendered almost as soon as the scene is
+ * loaded, and the boxes a camera doesn't see (and their inner boxes) are never split.<br>
+ * a box is split by the binned surface area heuristic, like in a built hierarchy, by the first rendering thread that
+ * reaches it, while other threads reaching it wait for its inner boxes. the geometries of a box are kept in a range
+ * of one array, and splitting the box orders its range so every inner box keeps a part of it.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class LazyVirtualBoxesHierarchy implements AccelerationStructure {
+
+    //constants
+    /**
+     * inner boxes of an elementary box
+     */
+    private static final Box[] ELEMENTARY = new Box[0];
+
+    //fields
+    /**
+     * finite geometries, ordered by the boxes that were split
+     */
+    private final Intersectable[] _geometries;
+    /**
+     * edges of the geometries' virtual boxes (low x, high x, low y, high y, low z, high z), in the order of
+     * the geometries
+     */
+    private final double[] _bounds;
+    /**
+     * infinite geometries, tested for every ray
+     */
+    private final Intersectable[] _infiniteGeometries;
+    /**
+     * root box, null if there are no finite geometries
+     */
+    private final Box _root;
+    /**
+     * amount of boxes that were split
+     */
+    private final LongAdder _splits = new LongAdder();
+    /**
+     * traversal stack for every rendering thread
+     */
+    private final ThreadLocal<TraversalStack> _stack = ThreadLocal.withInitial(TraversalStack::new);
+    /**
+     * counters of the work of tracing rays through the hierarchy
+     */
+    private final TraversalStatistics _statistics = new TraversalStatistics();
+
+    //constructors
+    /**
+     * constructor for LazyVirtualBoxesHierarchy - only the root box is calculated
+     * @param geometries the geometries, without collections
+     */
+    public LazyVirtualBoxesHierarchy(List<Intersectable> geometries) {
+        List<Intersectable> finite = new ArrayList<>();
+        List<Intersectable> infinite = new ArrayList<>();
+        for (Intersectable geometry : geometries) {
+            if (geometry.getVirtualBox() != null)
+                finite.add(geometry);
+            else
+                infinite.add(geometry);
+        }
+        _geometries = finite.toArray(new Intersectable[0]);
+        _infiniteGeometries = infinite.toArray(new Intersectable[0]);
+        _bounds = new double[6 * _geometries.length];
+        for (int i = 0; i < _geometries.length; i++) {
+            VirtualBox box = _geometries[i].getVirtualBox();
+            for (int axis = 0; axis < 3; axis++) {
+                _bounds[6 * i + 2 * axis] = box.get_low(axis);
+                _bounds[6 * i + 2 * axis + 1] = box.get_high(axis);
+            }
+        }
+        _root = _geometries.length == 0 ? null : new Box(bounds(0, _geometries.length), 0, _geometries.length);
+    }
+
+    //getters
+    /**
+     * getter for the amount of boxes in the hierarchy so far - the root box and the inner boxes of the boxes
+     * that were split
+     * @return amount of boxes
+     */
+    public long getBoxesCount() {
+        return _root == null ? 0 : 1 + 2 * _splits.sum();
+    }
+
+    /**
+     * getter for the counters of the work of tracing rays through the hierarchy
+     * @return traversal statistics
+     */
+    @Override
+    public TraversalStatistics getTraversalStatistics() {
+        return _statistics;
+    }
+
+    //functions
+    /**
+     * creates a report of the hierarchy - how much of it was split so far
+     * @return the report
+     */
+    @Override
+    public String getStatistics() {
+        return String.format("boxes: %d (split: %d), geometries: %d, infinite: %d%n", getBoxesCount(),
+                _splits.sum(), _geometries.length, _infiniteGeometries.length);
+    }
+
+    /**
+     * calculates the bounds of the virtual boxes of a range of the geometries
+     * @param first index of the first geometry
+     * @param count amount of geometries
+     * @return the bounds (low x, high x, low y, high y, low z, high z)
+     */
+    private double[] bounds(int first, int count) {
+        double[] bounds = {Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE,
+                Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = first; i < first + count; i++)
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[2 * axis] = Math.min(bounds[2 * axis], _bounds[6 * i + 2 * axis]);
+                bounds[2 * axis + 1] = Math.max(bounds[2 * axis + 1], _bounds[6 * i + 2 * axis + 1]);
+            }
+        return bounds;
+    }
+
+    /**
+     * splits a box into two inner boxes using the binned surface area heuristic, like
+     * {@link Geometries#buildVirtualBoxesHierarchy(Geometries.BuildMethod)}, by ordering its range of the geometries.
+     * only the thread that splits the box uses its range until the box's inner boxes are published
+     * @param box the box
+     * @return the inner boxes, {@link #ELEMENTARY} if the box is left elementary
+     */
+    private Box[] split(Box box) {
+        int first = box.first, n = box.count;
+        if (n <= 1)
+            return ELEMENTARY;
+
+        double boxArea = area(box.bounds);
+        // a flat box gives no area information, so only the amounts of geometries are compared
+        double areaFactor = isZero(boxArea) ? 0 : 1 / boxArea;
+        SahSplit split = new SahSplit(_bounds, first, first + n, areaFactor);
+
+        int middle;
+        if (split.getAxis() == -1) {
+            // all geometries have the same center, split the range only if the box is too big
+            if (n <= Geometries.SAH_MAX_LEAF_SIZE)
+                return ELEMENTARY;
+            middle = first + n / 2;
+        }
+        else {
+            if (split.getCost() >= n * Geometries.SAH_INTERSECTION_COST)
+                return ELEMENTARY;
+            // move the geometries of the low bins to the start of the range
+            middle = first;
+            for (int i = first; i < first + n; i++)
+                if (split.isLow(_bounds, i))
+                    swap(i, middle++);
+        }
+        _splits.increment();
+        return new Box[]{new Box(bounds(first, middle - first), first, middle - first),
+                new Box(bounds(middle, first + n - middle), middle, first + n - middle)};
+    }
+
+    /**
+     * swaps two geometries and their virtual boxes' edges
+     * @param i index of the first geometry
+     * @param j index of the second geometry
+     */
+    private void swap(int i, int j) {
+        Intersectable geometry = _geometries[i];
+        _geometries[i] = _geometries[j];
+        _geometries[j] = geometry;
+        for (int side = 0; side < 6; side++) {
+            double edge = _bounds[6 * i + side];
+            _bounds[6 * i + side] = _bounds[6 * j + side];
+            _bounds[6 * j + side] = edge;
+        }
+    }
+
+    /**
+     * finds all intersections of a ray with the geometries whose boxes are intersected by the ray
+     * @param ray the ray
+     * @return list of intersections, null if there are none
+     */
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = null;
+        List<GeoPoint> result;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            result = geometry.findIntersections(ray);
+            if (result != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(result);
+            }
+        }
+
+        if (_root == null)
+            return intersections;
+
+
+        TraversalStack stack = _stack.get();
+        int top = 0;
+        stack.push(top++, _root, 0);
+        while (top > 0) {
+            Box box = stack.boxes[--top];
+            if (VirtualBoxesHierarchy.entryDistance(box.bounds, 0, ray)
+                    == Double.POSITIVE_INFINITY)
+                continue;
+            Box[] inner = box.inner(this);
+            if (inner != ELEMENTARY) {
+                stack.push(top++, inner[1], 0);
+                stack.push(top++, inner[0], 0);
+                continue;
+            }
+            for (int i = box.first; i < box.first + box.count; i++) {
+                result = _geometries[i].findIntersections(ray);
+                if (result != null) {
+                    if (intersections == null)
+                        intersections = new ArrayList<>();
+                    intersections.addAll(result);
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point.<br>
+     * the boxes are visited front to back, and boxes the ray enters beyond the closest intersection found so far
+     * are skipped (and not split). intersections at the ray's start point itself are ignored.
+     * the ray is counted as a primary ray.
+     * @param ray the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray) {
+        return findClosestIntersection(ray, RayType.PRIMARY);
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point, like
+     * {@link #findClosestIntersection(Ray)}, and counts the work by the kind of the ray
+     * @param ray the ray
+     * @param type kind of the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, RayType type) {
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        if (_root == null) {
+            _statistics.count(type, 1, 0, _infiniteGeometries.length);
+            return hit.toGeoPoint();
+        }
+
+        // see VirtualBoxesHierarchy - the max entry is kept finite, since missed boxes are entered at infinity
+        double maxEntry = Math.min(hit.t, Double.MAX_VALUE);
+
+        TraversalStack stack = _stack.get();
+        int top = 0;
+        Box box = _root;
+        double entry = VirtualBoxesHierarchy.entryDistance(box.bounds, 0, ray);
+        int boxes = 0, tests = _infiniteGeometries.length;
+        while (true) {
+            if (entry <= maxEntry) {
+                boxes++;
+                Box[] inner = box.inner(this);
+                if (inner != ELEMENTARY) {
+                    // visit the nearer inner box now and the farther one later
+                    double lowEntry = VirtualBoxesHierarchy.entryDistance(inner[0].bounds, 0, ray);
+                    double highEntry = VirtualBoxesHierarchy.entryDistance(inner[1].bounds, 0, ray);
+                    if (lowEntry <= highEntry) {
+                        stack.push(top++, inner[1], highEntry);
+                        box = inner[0];
+                        entry = lowEntry;
+                    }
+                    else {
+                        stack.push(top++, inner[0], lowEntry);
+                        box = inner[1];
+                        entry = highEntry;
+                    }
+                    continue;
+                }
+                tests += box.count;
+                for (int i = box.first; i < box.first + box.count; i++) {
+                    if (_geometries[i].findNearestIntersection(ray, 0, hit.t, hit))
+                        maxEntry = hit.t;
+                }
+            }
+            if (top == 0)
+                break;
+            box = stack.boxes[--top];
+            entry = stack.entries[top];
+        }
+        _statistics.count(type, 1, boxes, tests);
+        return hit.toGeoPoint();
+    }
+
+    /**
+     * calculates how much light passes along a ray up to a given distance, by multiplying the transparency factors
+     * of all the geometries the ray intersects before that distance. the boxes are visited in any order, and the
+     * search stops as soon as the light is blocked
+     * @param ray the ray, from a point towards a light source
+     * @param maxDistance distance from the ray's start point to the light source
+     * @param minK transparency factor under which the light is considered blocked
+     * @return transparency factor, 0 if the light is blocked
+     */
+    @Override
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        Point3D start = ray.getStartPoint();
+        double ktr = 1.0;
+        int boxes = 0, tests = 0;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            tests++;
+            ktr = VirtualBoxesHierarchy.reduceTransparency(geometry.findIntersections(ray), start, maxDistance, ktr);
+            if (ktr < minK) {
+                _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                return 0.0;
+            }
+        }
+
+        if (_root == null) {
+            _statistics.count(RayType.SHADOW, 1, boxes, tests);
+            return ktr;
+        }
+
+        Vector direction = ray.getVector();
+        double maxEntry = maxDistance / direction.length();
+
+        TraversalStack stack = _stack.get();
+        int top = 0;
+        stack.push(top++, _root, 0);
+        while (top > 0) {
+            Box box = stack.boxes[--top];
+            if (VirtualBoxesHierarchy.entryDistance(box.bounds, 0, ray) > maxEntry)
+                continue;
+            boxes++;
+            Box[] inner = box.inner(this);
+            if (inner != ELEMENTARY) {
+                stack.push(top++, inner[1], 0);
+                stack.push(top++, inner[0], 0);
+                continue;
+            }
+            for (int i = box.first; i < box.first + box.count; i++) {
+                tests++;
+                ktr = VirtualBoxesHierarchy.reduceTransparency(_geometries[i].findIntersections(ray), start,
+                        maxDistance, ktr);
+                if (ktr < minK) {
+                    _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                    return 0.0;
+                }
+            }
+        }
+        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+        return ktr;
+    }
+
+    /**
+     * Box class is a box of the hierarchy - its edges, its range of the geometries, and its inner boxes once it
+     * was split
+     */
+    private static class Box {
+        /**
+         * edges of the box (low x, high x, low y, high y, low z, high z)
+         */
+        final double[] bounds;
+        /**
+         * index of the box's first geometry
+         */
+        final int first;
+        /**
+         * amount of the box's geometries
+         */
+        final int count;
+        /**
+         * inner boxes, {@link #ELEMENTARY} for an elementary box, null if the box wasn't split yet.
+         * written once, after the box's range of the geometries is ordered for its inner boxes
+         */
+        private volatile Box[] _inner;
+
+        /**
+         * constructor for Box
+         * @param bounds edges of the box
+         * @param first index of the box's first geometry
+         * @param count amount of the box's geometries
+         */
+        Box(double[] bounds, int first, int count) {
+            this.bounds = bounds;
+            this.first = first;
+            this.count = count;
+        }
+
+        /**
+         * getter for the inner boxes, splits the box when it is first reached. a thread that reaches the box while
+         * another thread splits it waits for the split
+         * @param hierarchy the hierarchy, to split the box
+         * @return the inner boxes, {@link #ELEMENTARY} for an elementary box
+         */
+        Box[] inner(LazyVirtualBoxesHierarchy hierarchy) {
+            Box[] inner = _inner;
+            if (inner == null) {
+                synchronized (this) {
+                    inner = _inner;
+                    if (inner == null)
+                        _inner = inner = hierarchy.split(this);
+                }
+            }
+            return inner;
+        }
+    }
+
+    /**
+     * TraversalStack class holds the stack of boxes waiting to be visited by a traversal of the hierarchy.
+     * the depth of the hierarchy isn't known before it is split, so the stack grows when it is full.
+     * every rendering thread has its own stack, so it is allocated only once.
+     */
+    private static class TraversalStack {
+        /**
+         * boxes to visit
+         */
+        Box[] boxes = new Box[64];
+        /**
+         * distances in which the ray enters the boxes to visit
+         */
+        double[] entries = new double[64];
+
+        /**
+         * puts a box on the stack, growing the stack if it is full
+         * @param top place on the stack
+         * @param box the box
+         * @param entry distance in which the ray enters the box
+         */
+        void push(int top, Box box, double entry) {
+            if (top == boxes.length) {
+                boxes = Arrays.copyOf(boxes, 2 * top);
+                entries = Arrays.copyOf(entries, 2 * top);
+            }
+            boxes[top] = box;
+            entries[top] = entry;
+        }
+    }
+}
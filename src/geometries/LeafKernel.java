@@ -0,0 +1,68 @@
+package geometries;
+
+import primitives.Ray;
+
+/**
+ * LeafKernel interface tests a ray against the spheres and triangles of a batched elementary box many at a time,
+ * over their values in {@link LeafPrimitives}.<br>
+ * a kernel only drops the geometries the ray surely misses. the geometries it keeps are tested by the geometries
+ * themselves, so the intersections found don't depend on the kernel - its tests have margins, and a ray almost
+ * parallel to a triangle always keeps it.<br>
+ * the kernel is chosen when the class is loaded: the Vector API kernel (geometries.VectorLeafKernel, in the
+ * incubator source folder, compiled with --add-modules jdk.incubator.vector) when the program runs with
+ * --add-modules jdk.incubator.vector, otherwise the scalar kernel
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+interface LeafKernel {
+
+    //constants
+    /**
+     * margin of the squared distance of a sphere's center from a ray, relative to the squared distance of the center
+     * from the ray's start point plus the squared radius
+     */
+    double SPHERE_MARGIN = 1e-9;
+    /**
+     * margin of the barycentric coordinates of a triangle's intersection
+     */
+    double BARYCENTRIC_MARGIN = 1e-6;
+    /**
+     * margin of the distance of an intersection along the ray, relative to the distance (plus 1)
+     */
+    double DISTANCE_MARGIN = 1e-6;
+    /**
+     * cosine of the angle between a ray and a triangle's normal under which the ray is almost parallel to the
+     * triangle, and the triangle is always kept
+     */
+    double GRAZING = 1e-6;
+    /**
+     * the kernel used by the hierarchies
+     */
+    LeafKernel INSTANCE = load();
+
+    //functions
+    /**
+     * finds the places of a batched elementary box's geometries that a ray may intersect before a given distance
+     * @param primitives the values of the hierarchy's spheres and triangles
+     * @param kinds kind bits of the box, see {@link LeafPrimitives#getKinds(int)}
+     * @param first first place of the box's geometries
+     * @param end place after the box's last geometry
+     * @param ray the ray
+     * @param tMax distance along the ray an intersection has to be closer than, may be infinity
+     * @param candidates array to fill with the places of the geometries that are kept, in their order
+     * @return amount of geometries kept
+     */
+    int candidates(LeafPrimitives primitives, int kinds, int first, int end, Ray ray, double tMax, int[] candidates);
+
+    /**
+     * loads the Vector API kernel, or the scalar kernel if the Vector API kernel wasn't compiled or the
+     * jdk.incubator.vector module isn't enabled
+     * @return the kernel
+     */
+    static LeafKernel load() {
+        try {
+            return (LeafKernel) Class.forName("geometries.VectorLeafKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarLeafKernel();
+        }
+    }
+}
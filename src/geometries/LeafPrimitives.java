@@ -0,0 +1,191 @@
+package geometries;
+
+import primitives.Point3D;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * class LeafPrimitives keeps the spheres and triangles of a hierarchy's elementary boxes as arrays of their values
+ * (one array for every value), by the places of the geometries in the hierarchy, so a {@link LeafKernel} can test a
+ * ray against many of them at a time.<br>
+ * a place that doesn't hold a sphere has NaN sphere values, and a place that doesn't hold a triangle has NaN
+ * triangle values, so the kernel's tests of it fail. only elementary boxes that hold nothing but spheres and
+ * triangles, and enough of them, are batched - the other boxes' geometries are tested one by one
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class LeafPrimitives {
+
+    //constants
+    /**
+     * least amount of geometries in a batched elementary box
+     */
+    static final int MIN_BATCH = 2;
+    /**
+     * kind bit of an elementary box that holds spheres
+     */
+    static final int SPHERES = 1;
+    /**
+     * kind bit of an elementary box that holds triangles
+     */
+    static final int TRIANGLES = 2;
+    /**
+     * places added after the last geometry, with NaN values, so a kernel can read a whole vector of values
+     * from any place
+     */
+    private static final int PADDING = 8;
+
+    //fields
+    /**
+     * spheres' centers and squared radiuses, null if no batched box holds a sphere
+     */
+    final double[] _sphereX, _sphereY, _sphereZ, _sphereRadius2;
+    /**
+     * triangles' first vertices, null if no batched box holds a triangle
+     */
+    final double[] _v0x, _v0y, _v0z;
+    /**
+     * triangles' edges from the first vertex to the second and to the third vertex
+     */
+    final double[] _e1x, _e1y, _e1z, _e2x, _e2y, _e2z;
+    /**
+     * length of the cross product of the triangles' edges (twice the triangles' areas)
+     */
+    final double[] _area;
+    /**
+     * kind bits of every box, 0 if the box isn't batched
+     */
+    private final int[] _kinds;
+    /**
+     * largest amount of geometries in an elementary box
+     */
+    private final int _maxCount;
+
+    //constructors
+    /**
+     * constructor for LeafPrimitives of a hierarchy
+     * @param geometries the hierarchy's finite geometries, ordered by elementary boxes
+     * @param offsets the hierarchy's boxes' offsets
+     * @param counts the hierarchy's boxes' amounts of geometries
+     */
+    LeafPrimitives(Intersectable[] geometries, int[] offsets, int[] counts) {
+        _kinds = new int[counts.length];
+        int kinds = 0, maxCount = 0;
+        for (int node = 0; node < counts.length; node++) {
+            maxCount = Math.max(maxCount, counts[node]);
+            if (counts[node] < MIN_BATCH)
+                continue;
+            for (int i = offsets[node]; i < offsets[node] + counts[node]; i++) {
+                int kind = kindOf(geometries[i]);
+                if (kind == 0) {
+                    _kinds[node] = 0;
+                    break;
+                }
+                _kinds[node] |= kind;
+            }
+            kinds |= _kinds[node];
+        }
+        _maxCount = maxCount;
+
+        int length = geometries.length + PADDING;
+        _sphereX = (kinds & SPHERES) == 0 ? null : nanArray(length);
+        _sphereY = (kinds & SPHERES) == 0 ? null : nanArray(length);
+        _sphereZ = (kinds & SPHERES) == 0 ? null : nanArray(length);
+        _sphereRadius2 = (kinds & SPHERES) == 0 ? null : nanArray(length);
+        _v0x = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _v0y = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _v0z = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _e1x = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _e1y = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _e1z = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _e2x = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _e2y = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _e2z = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+        _area = (kinds & TRIANGLES) == 0 ? null : nanArray(length);
+
+        for (int node = 0; node < counts.length; node++)
+            if (_kinds[node] != 0)
+                for (int i = offsets[node]; i < offsets[node] + counts[node]; i++)
+                    set(i, geometries[i]);
+    }
+
+    //getters
+    /**
+     * getter for the kind bits of a box
+     * @param node index of the box
+     * @return {@link #SPHERES} and {@link #TRIANGLES} bits of the geometries the box holds, 0 if the box isn't
+     * batched
+     */
+    int getKinds(int node) {
+        return _kinds[node];
+    }
+
+    /**
+     * getter for the largest amount of geometries in an elementary box
+     * @return largest amount of geometries in an elementary box
+     */
+    int getMaxCount() {
+        return _maxCount;
+    }
+
+    //setters
+    /**
+     * copies the values of the geometry at a place, after the geometry was placed there or moved. does nothing for
+     * places of boxes that aren't batched
+     * @param i the place
+     * @param geometry the geometry at the place
+     */
+    void set(int i, Intersectable geometry) {
+        if (kindOf(geometry) == SPHERES && _sphereX != null) {
+            Sphere sphere = (Sphere) geometry;
+            Point3D center = sphere.getCenter();
+            _sphereX[i] = center.getXValue();
+            _sphereY[i] = center.getYValue();
+            _sphereZ[i] = center.getZValue();
+            _sphereRadius2[i] = sphere.getRadius() * sphere.getRadius();
+        }
+        else if (kindOf(geometry) == TRIANGLES && _v0x != null) {
+            List<Point3D> vertices = ((Triangle) geometry).get_vertices();
+            Point3D v0 = vertices.get(0), v1 = vertices.get(1), v2 = vertices.get(2);
+            _v0x[i] = v0.getXValue();
+            _v0y[i] = v0.getYValue();
+            _v0z[i] = v0.getZValue();
+            double e1x = v1.getXValue() - _v0x[i], e1y = v1.getYValue() - _v0y[i], e1z = v1.getZValue() - _v0z[i];
+            double e2x = v2.getXValue() - _v0x[i], e2y = v2.getYValue() - _v0y[i], e2z = v2.getZValue() - _v0z[i];
+            _e1x[i] = e1x;
+            _e1y[i] = e1y;
+            _e1z[i] = e1z;
+            _e2x[i] = e2x;
+            _e2y[i] = e2y;
+            _e2z[i] = e2z;
+            double nx = e1y * e2z - e1z * e2y, ny = e1z * e2x - e1x * e2z, nz = e1x * e2y - e1y * e2x;
+            _area[i] = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        }
+    }
+
+    //functions
+    /**
+     * finds the kind of a geometry. subclasses of Sphere and Triangle may intersect rays differently, so only the
+     * classes themselves are batched
+     * @param geometry the geometry
+     * @return {@link #SPHERES} for a sphere, {@link #TRIANGLES} for a triangle, 0 for other geometries
+     */
+    private static int kindOf(Intersectable geometry) {
+        if (geometry.getClass() == Sphere.class)
+            return SPHERES;
+        if (geometry.getClass() == Triangle.class)
+            return TRIANGLES;
+        return 0;
+    }
+
+    /**
+     * creates an array filled with NaN
+     * @param length length of the array
+     * @return the array
+     */
+    private static double[] nanArray(int length) {
+        double[] array = new double[length];
+        Arrays.fill(array, Double.NaN);
+        return array;
+    }
+}
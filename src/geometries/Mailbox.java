@@ -0,0 +1,54 @@
+package geometries;
+
+import java.util.Arrays;
+
+/**
+ * Mailbox class remembers which geometries were already tested against the current ray.
+ * structures that split space (kd-tree, grid) may hold a geometry in several cells, and a ray passing through
+ * them should test it only once. every rendering thread has its own mailbox.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class Mailbox {
+
+    //fields
+    /**
+     * for every geometry - the last ray it was tested against
+     */
+    private final int[] _stamps;
+    /**
+     * current ray
+     */
+    private int _ray;
+
+    //constructors
+    /**
+     * constructor for Mailbox
+     * @param size amount of geometries
+     */
+    Mailbox(int size) {
+        _stamps = new int[size];
+    }
+
+    //functions
+    /**
+     * starts a new ray - all geometries are untested
+     */
+    void nextRay() {
+        if (++_ray == Integer.MAX_VALUE) {
+            Arrays.fill(_stamps, 0);
+            _ray = 1;
+        }
+    }
+
+    /**
+     * marks a geometry as tested against the current ray
+     * @param index index of the geometry
+     * @return true if the geometry wasn't tested against the current ray before
+     */
+    boolean mark(int index) {
+        if (_stamps[index] == _ray)
+            return false;
+        _stamps[index] = _ray;
+        return true;
+    }
+}
@@ -0,0 +1,196 @@
+package geometries;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * MortonCodes class calculates Morton codes (z-order curve codes) of points in a box and sorts them.
+ * a Morton code interleaves the bits of the point's quantized coordinates, so points that are close in space
+ * get close codes, and sorting the codes orders the points along the curve.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class MortonCodes {
+
+    //constants
+    /**
+     * max amount of points for which 30 bit codes (10 bits per axis) are used. more points get 63 bit codes
+     * (21 bits per axis) so they don't end up with the same codes
+     */
+    static final int SHORT_CODES_LIMIT = 1 << 16;
+    /**
+     * amount of bits sorted in each pass of the radix sort
+     */
+    private static final int RADIX_BITS = 8;
+    /**
+     * amount of buckets in each pass of the radix sort
+     */
+    private static final int RADIX = 1 << RADIX_BITS;
+    /**
+     * min amount of codes in each chunk of a parallel radix sort pass
+     */
+    private static final int PARALLEL_SORT_CHUNK = 1 << 14;
+
+    /**
+     * MortonCodes is a utility class and can't be constructed
+     */
+    private MortonCodes() {}
+
+    /**
+     * calculates a 30 bit Morton code of a point in a box
+     * @param x x of the point, relative to the box - from 0 to 1
+     * @param y y of the point, relative to the box - from 0 to 1
+     * @param z z of the point, relative to the box - from 0 to 1
+     * @return Morton code
+     */
+    static long encode30(double x, double y, double z) {
+        return (spread10(quantize(x, 10)) << 2) | (spread10(quantize(y, 10)) << 1) | spread10(quantize(z, 10));
+    }
+
+    /**
+     * calculates a 63 bit Morton code of a point in a box
+     * @param x x of the point, relative to the box - from 0 to 1
+     * @param y y of the point, relative to the box - from 0 to 1
+     * @param z z of the point, relative to the box - from 0 to 1
+     * @return Morton code
+     */
+    static long encode63(double x, double y, double z) {
+        return (spread21(quantize(x, 21)) << 2) | (spread21(quantize(y, 21)) << 1) | spread21(quantize(z, 21));
+    }
+
+    /**
+     * quantizes a relative coordinate to an integer with a given amount of bits
+     * @param value relative coordinate - from 0 to 1
+     * @param bits amount of bits
+     * @return quantized coordinate
+     */
+    private static long quantize(double value, int bits) {
+        long max = (1L << bits) - 1;
+        long quantized = (long) (value * (max + 1));
+        return quantized < 0 ? 0 : Math.min(quantized, max);
+    }
+
+    /**
+     * spreads the 10 low bits of a number so there are two zero bits between every two bits
+     * @param v the number
+     * @return spread number
+     */
+    private static long spread10(long v) {
+        v &= 0x3ffL;
+        v = (v | (v << 16)) & 0x30000ffL;
+        v = (v | (v << 8)) & 0x300f00fL;
+        v = (v | (v << 4)) & 0x30c30c3L;
+        v = (v | (v << 2)) & 0x9249249L;
+        return v;
+    }
+
+    /**
+     * spreads the 21 low bits of a number so there are two zero bits between every two bits
+     * @param v the number
+     * @return spread number
+     */
+    private static long spread21(long v) {
+        v &= 0x1fffffL;
+        v = (v | (v << 32)) & 0x1f00000000ffffL;
+        v = (v | (v << 16)) & 0x1f0000ff0000ffL;
+        v = (v | (v << 8)) & 0x100f00f00f00f00fL;
+        v = (v | (v << 4)) & 0x10c30c30c30c30c3L;
+        v = (v | (v << 2)) & 0x1249249249249249L;
+        return v;
+    }
+
+    /**
+     * sorts codes together with their indices using a stable LSD radix sort. big arrays are sorted in parallel:
+     * every pass counts the buckets of chunks in parallel and then scatters the chunks in parallel.
+     * the result doesn't depend on the amount of threads.
+     * @param codes codes to sort, sorted in place
+     * @param indices indices attached to the codes, reordered with them
+     * @param bits amount of low bits in the codes
+     * @param parallel whether to sort in parallel
+     */
+    static void sort(long[] codes, int[] indices, int bits, boolean parallel) {
+        int n = codes.length;
+        int chunks = parallel ? Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4,
+                n / PARALLEL_SORT_CHUNK)) : 1;
+        int chunkSize = (n + chunks - 1) / chunks;
+        long[] codesBuffer = new long[n];
+        int[] indicesBuffer = new int[n];
+        int[][] counts = new int[chunks][RADIX];
+
+        long[] source = codes, target = codesBuffer;
+        int[] sourceIndices = indices, targetIndices = indicesBuffer;
+        for (int shift = 0; shift < bits; shift += RADIX_BITS) {
+            final int passShift = shift;
+            final long[] from = source, to = target;
+            final int[] fromIndices = sourceIndices, toIndices = targetIndices;
+
+            // count the buckets of every chunk
+            IntStream chunkStream = IntStream.range(0, chunks);
+            (parallel ? chunkStream.parallel() : chunkStream).forEach(c -> {
+                int[] count = counts[c];
+                Arrays.fill(count, 0);
+                for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++)
+                    count[(int) (from[i] >>> passShift) & (RADIX - 1)]++;
+            });
+
+            // turn the counts into the first target position of every bucket in every chunk
+            int position = 0;
+            for (int bucket = 0; bucket < RADIX; bucket++) {
+                for (int c = 0; c < chunks; c++) {
+                    int count = counts[c][bucket];
+                    counts[c][bucket] = position;
+                    position += count;
+                }
+            }
+
+            // scatter every chunk to its positions
+            chunkStream = IntStream.range(0, chunks);
+            (parallel ? chunkStream.parallel() : chunkStream).forEach(c -> {
+                int[] next = counts[c];
+                for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+                    int slot = next[(int) (from[i] >>> passShift) & (RADIX - 1)]++;
+                    to[slot] = from[i];
+                    toIndices[slot] = fromIndices[i];
+                }
+            });
+
+            source = to;
+            target = from;
+            sourceIndices = toIndices;
+            targetIndices = fromIndices;
+        }
+
+        // an odd amount of passes leaves the result in the buffers
+        if (source != codes) {
+            System.arraycopy(source, 0, codes, 0, n);
+            System.arraycopy(sourceIndices, 0, indices, 0, n);
+        }
+    }
+
+    /**
+     * finds where to split a range of sorted codes - after the last code that shares the highest differing bit
+     * with the first code of the range
+     * @param codes sorted codes
+     * @param first first index of the range
+     * @param last last index of the range
+     * @return the last index of the low part of the range
+     */
+    static int findSplit(long[] codes, int first, int last) {
+        long firstCode = codes[first];
+        long lastCode = codes[last];
+        // identical codes - split the range in the middle
+        if (firstCode == lastCode)
+            return (first + last) >>> 1;
+
+        int commonPrefix = Long.numberOfLeadingZeros(firstCode ^ lastCode);
+        // binary search for the last code with a longer common prefix with the first code
+        int split = first;
+        int step = last - first;
+        do {
+            step = (step + 1) >>> 1;
+            int newSplit = split + step;
+            if (newSplit < last && Long.numberOfLeadingZeros(firstCode ^ codes[newSplit]) > commonPrefix)
+                split = newSplit;
+        } while (step > 1);
+        return split;
+    }
+}
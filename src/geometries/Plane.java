@@ -155,9 +155,9 @@ public class Plane extends Geometry {
         //check if intersection point is on the plane or on the ray's negative side
         if (t <= 0)
             return null;
-        double x = ray.getVector().getEndpoint().getX().get();
-        double y = ray.getVector().getEndpoint().getY().get();
-        double z = ray.getVector().getEndpoint().getZ().get();
+        double x = ray.getVector().getXValue();
+        double y = ray.getVector().getYValue();
+        double z = ray.getVector().getZValue();
         if (isZero(x * t) && isZero(y * t) && isZero(z * t))
             return null;
 
@@ -167,6 +167,47 @@ public class Plane extends Geometry {
         return intersection;
     }
 
+    @Override
+    boolean findNearestIntersection(Ray ray, double tMin, double tMax, HitRecord hit) {
+        double t = intersectionDistance(ray);
+        // NaN fails the comparisons
+        if (!(t > tMin && t < tMax))
+            return false;
+        hit.set(t, ray.getPoint(t), this);
+        return true;
+    }
+
+    /**
+     * calculates the distance along a ray to its intersection with the plane, like
+     * {@link #findIntersections(Ray)} without creating the point
+     * @param ray the ray
+     * @return distance of the intersection, NaN if the ray doesn't intersect the plane (or intersects it at its
+     * starting point)
+     */
+    double intersectionDistance(Ray ray) {
+        Vector v = ray.getVector();
+        //check if ray is parallel to plane
+        double nv = v.dotProduct(_normal);
+        if (alignZero(nv) == 0)
+            return Double.NaN;
+
+        //calculate t
+        Point3D p0 = ray.getStartPoint();
+        double x = alignZero(_point.getXValue() - p0.getXValue());
+        double y = alignZero(_point.getYValue() - p0.getYValue());
+        double z = alignZero(_point.getZValue() - p0.getZValue());
+        // the ray starts at the reference point
+        if (x == 0 && y == 0 && z == 0)
+            return Double.NaN;
+        double t = alignZero(_normal.getXValue() * x + _normal.getYValue() * y + _normal.getZValue() * z)
+                / _normal.dotProduct(v);
+
+        //check if intersection point is on the plane or on the ray's negative side
+        if (t <= 0 || isZero(v.getXValue() * t) && isZero(v.getYValue() * t) && isZero(v.getZValue() * t))
+            return Double.NaN;
+        return t;
+    }
+
     @Override
     public void createVirtualBox() {
         //Plane is an infinite geometry and therefore doesn't have edges and can't have a virtual box
@@ -186,6 +186,17 @@ public class Polygon extends Geometry{
         return _vertices;
     }
 
+    /**
+     * moves the polygon. a virtual boxes hierarchy holding the polygon has to be refitted or built again
+     * after the polygon moves
+     * @param offset vector to move the polygon by
+     */
+    public void move(Vector offset) {
+        _vertices.replaceAll(vertex -> vertex.add(offset));
+        _plane = new Plane(_vertices.get(0), _plane.getNormal());
+        createVirtualBox();
+    }
+
     //basic overrides
     @Override
     public String toString(){
@@ -262,6 +273,54 @@ public class Polygon extends Geometry{
         return null;
     }
 
+    @Override
+    boolean findNearestIntersection(Ray ray, double tMin, double tMax, HitRecord hit) {
+        //find intersection with plane, and skip the edges if it isn't in the interval
+        double t = _plane.intersectionDistance(ray);
+        // NaN fails the comparisons
+        if (!(t > tMin && t < tMax))
+            return false;
+
+        Point3D p0 = ray.getStartPoint();
+        Vector v = ray.getVector();
+        double ox = p0.getXValue(), oy = p0.getYValue(), oz = p0.getZValue();
+        int n = _vertices.size();
+
+        // Vi of the first vertex, and Vi and Vi+1 of every edge
+        Point3D first = _vertices.get(0);
+        double fx = first.getXValue() - ox, fy = first.getYValue() - oy, fz = first.getZValue() - oz;
+        double ax = fx, ay = fy, az = fz;
+        boolean positive = false;
+        for (int i = 0; i < n; i++) {
+            double bx = fx, by = fy, bz = fz;
+            if (i < n - 1) {
+                Point3D next = _vertices.get(i + 1);
+                bx = next.getXValue() - ox;
+                by = next.getYValue() - oy;
+                bz = next.getZValue() - oz;
+            }
+            // Ni, and the sign of its dot product with the ray's direction
+            double nx = ay * bz - az * by, ny = az * bx - ax * bz, nz = ax * by - ay * bx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0)
+                return false;
+            double vn = alignZero((v.getXValue() * nx + v.getYValue() * ny + v.getZValue() * nz) / length);
+            if (i == 0) {
+                if (vn == 0)
+                    return false;
+                positive = vn > 0;
+            }
+            else if (positive ? vn <= 0 : vn >= 0)
+                return false;
+            ax = bx;
+            ay = by;
+            az = bz;
+        }
+
+        hit.set(t, ray.getPoint(t), this);
+        return true;
+    }
+
     @Override
     public void createVirtualBox() {
         VirtualBox virtualBox = new VirtualBox();
@@ -269,9 +328,9 @@ public class Polygon extends Geometry{
         List<Double> yVals = new ArrayList<>();
         List<Double> zVals = new ArrayList<>();
         for (Point3D vertex: _vertices) {
-            xVals.add(vertex.getX().get());
-            yVals.add(vertex.getY().get());
-            zVals.add(vertex.getZ().get());
+            xVals.add(vertex.getXValue());
+            yVals.add(vertex.getYValue());
+            zVals.add(vertex.getZValue());
         }
         virtualBox.set_lowX(new Coordinate(Collections.min(xVals)));
         virtualBox.set_lowY(new Coordinate(Collections.min(yVals)));
@@ -0,0 +1,596 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * QuantizedVirtualBoxesHierarchy class is a virtual boxes hierarchy whose boxes take a fraction of the memory of
+ * the compiled hierarchy's boxes, for scenes with millions of geometries.
+ * only the root box keeps its edges as doubles - every other box keeps its edges as 8 or 16 bit numbers relative
+ * to its parent box: a box of edges low and high has its edges at low + (high - low) * q / (2^bits - 1).
+ * low edges are rounded down and high edges up, so a box always contains the box it was quantized from, and rays
+ * may only visit a few more boxes than in the compiled hierarchy, never miss one.<br>
+ * the edges of a box and its amount of geometries are packed into one long (8 bits) or two longs (16 bits), and
+ * its inner box or first geometry into an int - 12 or 20 bytes for a box instead of the compiled hierarchy's 56.
+ * the edges of the visited boxes are restored during the traversal, from the edges of their parent box.<br>
+ * the hierarchy is a snapshot of the compiled hierarchy - it should be quantized again after the compiled
+ * hierarchy is refitted or built again.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class QuantizedVirtualBoxesHierarchy implements AccelerationStructure {
+
+    //fields
+    /**
+     * amount of bits of an edge of a box
+     */
+    private final int _bits;
+    /**
+     * amount of longs of a box
+     */
+    private final int _words;
+    /**
+     * biggest quantized edge - 2^bits - 1
+     */
+    private final int _max;
+    /**
+     * 1 / biggest quantized edge
+     */
+    private final double _scale;
+    /**
+     * root box's edges: low x, high x, low y, high y, low z, high z
+     */
+    private final double[] _root;
+    /**
+     * boxes in depth first order (the first inner box of a box is right after it), words longs per box:
+     * the quantized edges in the order of the root box's edges, bits bits each, then the amount of geometries of
+     * an elementary box (0 for a box that isn't elementary)
+     */
+    private final long[] _boxes;
+    /**
+     * for every box - index of its second inner box, or of its first geometry for an elementary box
+     */
+    private final int[] _links;
+    /**
+     * finite geometries, ordered by elementary boxes
+     */
+    private final Intersectable[] _geometries;
+    /**
+     * infinite geometries, tested for every ray
+     */
+    private final Intersectable[] _infiniteGeometries;
+    /**
+     * numbers of the geometries, if some of them are held by several elementary boxes, otherwise null
+     */
+    private final int[] _ids;
+    /**
+     * mailbox for every rendering thread, null if every geometry is held by one elementary box
+     */
+    private final ThreadLocal<Mailbox> _mailbox;
+    /**
+     * traversal state for every rendering thread
+     */
+    private final ThreadLocal<TraversalState> _state;
+    /**
+     * counters of the work of tracing rays through the hierarchy
+     */
+    private final TraversalStatistics _statistics = new TraversalStatistics();
+
+    //constructors
+    /**
+     * quantizes the boxes of a compiled virtual boxes hierarchy. the compiled hierarchy isn't referenced
+     * afterwards, so its memory is freed when the geometries collection forgets it
+     * @param hierarchy the compiled hierarchy
+     * @param bits amount of bits of an edge of a box, 8 or 16
+     */
+    public QuantizedVirtualBoxesHierarchy(VirtualBoxesHierarchy hierarchy, int bits) {
+        if (bits != 8 && bits != 16)
+            throw new IllegalArgumentException("Bits must be 8 or 16");
+        _bits = bits;
+        _words = bits == 8 ? 1 : 2;
+        _max = (1 << bits) - 1;
+        _scale = 1.0 / _max;
+        _geometries = hierarchy.getGeometries();
+        _infiniteGeometries = hierarchy.getInfiniteGeometries();
+
+        double[] bounds = hierarchy.getBounds();
+        int[] offsets = hierarchy.getOffsets();
+        int[] counts = hierarchy.getCounts();
+        int size = offsets.length;
+        _root = new double[6];
+        if (size > 0)
+            System.arraycopy(bounds, 0, _root, 0, 6);
+        _boxes = new long[_words * size];
+        _links = offsets.clone();
+
+        // boxes are quantized relative to the restored edges of their parent box, not to its exact edges
+        double[] restored = new double[6 * size];
+        if (size > 0) {
+            System.arraycopy(_root, 0, restored, 0, 6);
+            quantize(0, bounds, restored, 0, counts[0]);
+        }
+        for (int node = 0; node < size; node++) {
+            if (counts[node] != 0)
+                continue;
+            quantize(node + 1, bounds, restored, node, counts[node + 1]);
+            quantize(offsets[node], bounds, restored, node, counts[offsets[node]]);
+        }
+
+        int[] ids = hierarchy.getGeometryIds();
+        _ids = ids;
+        if (ids == null)
+            _mailbox = null;
+        else {
+            int unique = 0;
+            for (int id : ids)
+                unique = Math.max(unique, id + 1);
+            final int mailboxSize = unique;
+            _mailbox = ThreadLocal.withInitial(() -> new Mailbox(mailboxSize));
+        }
+        final int stackSize = hierarchy.depth() + 1;
+        _state = ThreadLocal.withInitial(() -> new TraversalState(stackSize));
+    }
+
+    /**
+     * quantizes the edges of a box relative to the restored edges of its parent box, packs them with the box's
+     * amount of geometries, and restores the edges the traversal will see. sub function of the constructor
+     * @param node index of the box
+     * @param bounds the compiled hierarchy's boxes' edges
+     * @param restored restored boxes' edges, the parent's already calculated
+     * @param parent index of the parent box
+     * @param count amount of geometries of the box, 0 if it isn't elementary
+     */
+    private void quantize(int node, double[] bounds, double[] restored, int parent, int count) {
+        if ((long) count >>> (64 * _words - 6 * _bits) != 0)
+            throw new IllegalArgumentException("Elementary box has too many geometries for " + _bits + " bit boxes");
+        int p = 6 * parent, b = 6 * node;
+        for (int side = 0; side < 6; side++) {
+            double low = restored[p + (side & ~1)], high = restored[p + (side | 1)], value = bounds[b + side];
+            int q = quantize(value, low, high, (side & 1) == 1);
+            int bit = side * _bits;
+            _boxes[_words * node + (bit >>> 6)] |= (long) q << (bit & 63);
+            restored[b + side] = restore(q, low, high, _scale);
+        }
+        int bit = 6 * _bits;
+        _boxes[_words * node + (bit >>> 6)] |= (long) count << (bit & 63);
+    }
+
+    /**
+     * quantizes an edge of a box relative to an edge range of its parent box. the result is checked by the same
+     * calculation that restores it, so floating point rounding can't move the edge inwards
+     * @param value the edge
+     * @param low parent's low edge
+     * @param high parent's high edge
+     * @param up whether to round up (a high edge) or down (a low edge)
+     * @return quantized edge, between 0 and 2^bits - 1
+     */
+    private int quantize(double value, double low, double high, boolean up) {
+        double exact = (value - low) / (high - low) * _max;
+        // a flat parent divides by 0 - the loops below find the edge
+        int q = Double.isNaN(exact) ? (up ? _max : 0)
+                : (int) Math.max(0, Math.min(_max, up ? Math.ceil(exact) : Math.floor(exact)));
+        if (up) {
+            while (q < _max && restore(q, low, high, _scale) < value)
+                q++;
+            while (q > 0 && restore(q - 1, low, high, _scale) >= value)
+                q--;
+        }
+        else {
+            while (q > 0 && restore(q, low, high, _scale) > value)
+                q--;
+            while (q < _max && restore(q + 1, low, high, _scale) <= value)
+                q++;
+        }
+        return q;
+    }
+
+    //getters
+    /**
+     * getter for the amount of boxes in the hierarchy
+     * @return amount of boxes
+     */
+    public int getBoxesCount() {
+        return _links.length;
+    }
+
+    /**
+     * getter for the amount of bits of an edge of a box
+     * @return 8 or 16
+     */
+    public int getBits() {
+        return _bits;
+    }
+
+    /**
+     * getter for the memory the boxes take
+     * @return amount of bytes of the boxes' arrays
+     */
+    public long getBoxesMemory() {
+        return 8L * _boxes.length + 4L * _links.length + 8L * _root.length;
+    }
+
+    /**
+     * getter for the counters of the work of tracing rays through the hierarchy
+     * @return traversal statistics
+     */
+    @Override
+    public TraversalStatistics getTraversalStatistics() {
+        return _statistics;
+    }
+
+    //functions
+    /**
+     * restores an edge of a box from its quantized value. low and high edges are restored the same way, and the
+     * ends of the range are restored exactly (0 to low, 2^bits - 1 to high)
+     * @param q quantized edge
+     * @param low parent's low edge
+     * @param high parent's high edge
+     * @param scale 1 / (2^bits - 1)
+     * @return the edge
+     */
+    private static double restore(int q, double low, double high, double scale) {
+        double f = q * scale;
+        return low * (1 - f) + high * f;
+    }
+
+    /**
+     * restores the edges of a box from the edges of its parent box
+     * @param node index of the box
+     * @param parent parent's edges
+     * @param box array to write the box's edges to
+     */
+    private void restore(int node, double[] parent, double[] box) {
+        double scale = _scale;
+        double lowX = parent[0], highX = parent[1], lowY = parent[2], highY = parent[3], lowZ = parent[4],
+                highZ = parent[5];
+        // unrolled for every width, the edges are unpacked by constant shifts
+        if (_words == 1) {
+            long edges = _boxes[node];
+            box[0] = restore((int) edges & 0xFF, lowX, highX, scale);
+            box[1] = restore((int) (edges >>> 8) & 0xFF, lowX, highX, scale);
+            box[2] = restore((int) (edges >>> 16) & 0xFF, lowY, highY, scale);
+            box[3] = restore((int) (edges >>> 24) & 0xFF, lowY, highY, scale);
+            box[4] = restore((int) (edges >>> 32) & 0xFF, lowZ, highZ, scale);
+            box[5] = restore((int) (edges >>> 40) & 0xFF, lowZ, highZ, scale);
+        }
+        else {
+            long edges = _boxes[2 * node], moreEdges = _boxes[2 * node + 1];
+            box[0] = restore((int) edges & 0xFFFF, lowX, highX, scale);
+            box[1] = restore((int) (edges >>> 16) & 0xFFFF, lowX, highX, scale);
+            box[2] = restore((int) (edges >>> 32) & 0xFFFF, lowY, highY, scale);
+            box[3] = restore((int) (edges >>> 48) & 0xFFFF, lowY, highY, scale);
+            box[4] = restore((int) moreEdges & 0xFFFF, lowZ, highZ, scale);
+            box[5] = restore((int) (moreEdges >>> 16) & 0xFFFF, lowZ, highZ, scale);
+        }
+    }
+
+    /**
+     * getter for the amount of geometries of a box
+     * @param node index of the box
+     * @return amount of geometries of an elementary box, 0 for a box that isn't elementary
+     */
+    private int count(int node) {
+        int bit = 6 * _bits;
+        return (int) (_boxes[_words * node + (bit >>> 6)] >>> (bit & 63));
+    }
+
+    /**
+     * creates a report of the hierarchy - amount of boxes and their memory
+     * @return the report
+     */
+    @Override
+    public String getStatistics() {
+        int size = getBoxesCount();
+        if (size == 0)
+            return String.format("no boxes, infinite geometries: %d%n", _infiniteGeometries.length);
+        int elementary = 0;
+        for (int node = 0; node < size; node++)
+            if (count(node) != 0)
+                elementary++;
+        return String.format("boxes: %d (elementary: %d) of %d bit edges, memory: %d bytes (%.1f bytes per box), " +
+                        "geometries: %d, infinite: %d%n", size, elementary, _bits, getBoxesMemory(),
+                (double) getBoxesMemory() / size, _geometries.length, _infiniteGeometries.length);
+    }
+
+    /**
+     * finds all intersections of a ray with the geometries whose boxes are intersected by the ray
+     * @param ray the ray
+     * @return list of intersections, null if there are none
+     */
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = null;
+        List<GeoPoint> result;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            result = geometry.findIntersections(ray);
+            if (result != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(result);
+            }
+        }
+
+        if (_links.length == 0)
+            return intersections;
+
+
+        // a geometry held by several elementary boxes is tested once
+        Mailbox mailbox = _mailbox == null ? null : _mailbox.get();
+        if (mailbox != null)
+            mailbox.nextRay();
+
+        TraversalState state = _state.get();
+        double[] box = state.box, inner = state.inner;
+        int top = 0;
+        int node = 0;
+        System.arraycopy(_root, 0, box, 0, 6);
+        if (VirtualBoxesHierarchy.entryDistance(box, 0, ray) == Double.POSITIVE_INFINITY)
+            return intersections;
+        while (true) {
+            int count = count(node);
+            if (count == 0) {
+                // inner box - the inner boxes the ray enters are visited with their restored edges
+                int high = _links[node];
+                restore(high, box, inner);
+                if (VirtualBoxesHierarchy.entryDistance(inner, 0, ray)
+                        != Double.POSITIVE_INFINITY)
+                    state.push(top++, high, 0, inner);
+                restore(node + 1, box, inner);
+                if (VirtualBoxesHierarchy.entryDistance(inner, 0, ray)
+                        != Double.POSITIVE_INFINITY) {
+                    double[] temp = box;
+                    box = inner;
+                    inner = temp;
+                    node++;
+                    continue;
+                }
+            }
+            else {
+                int first = _links[node];
+                for (int i = first; i < first + count; i++) {
+                    if (mailbox != null && !mailbox.mark(_ids[i]))
+                        continue;
+                    result = _geometries[i].findIntersections(ray);
+                    if (result != null) {
+                        if (intersections == null)
+                            intersections = new ArrayList<>();
+                        intersections.addAll(result);
+                    }
+                }
+            }
+            if (top == 0)
+                break;
+            node = state.pop(--top, box);
+        }
+        return intersections;
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point.<br>
+     * the boxes are visited front to back, and boxes the ray enters beyond the closest intersection found so far
+     * are skipped. intersections at the ray's start point itself are ignored. the ray is counted as a primary ray.
+     * @param ray the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray) {
+        return findClosestIntersection(ray, RayType.PRIMARY);
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point, like
+     * {@link #findClosestIntersection(Ray)}, and counts the work by the kind of the ray
+     * @param ray the ray
+     * @param type kind of the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, RayType type) {
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        if (_links.length == 0) {
+            _statistics.count(type, 1, 0, _infiniteGeometries.length);
+            return hit.toGeoPoint();
+        }
+
+        // see VirtualBoxesHierarchy - the max entry is kept finite, since missed boxes are entered at infinity
+        double maxEntry = Math.min(hit.t, Double.MAX_VALUE);
+
+        TraversalState state = _state.get();
+        double[] box = state.box, low = state.inner, high = state.other;
+        int top = 0;
+        int node = 0;
+        System.arraycopy(_root, 0, box, 0, 6);
+        double entry = VirtualBoxesHierarchy.entryDistance(box, 0, ray);
+        int boxes = 0, tests = _infiniteGeometries.length;
+        while (true) {
+            if (entry <= maxEntry) {
+                boxes++;
+                int count = count(node);
+                if (count == 0) {
+                    // inner box - visit the nearer inner box now and the farther one later
+                    int lowNode = node + 1, highNode = _links[node];
+                    restore(lowNode, box, low);
+                    restore(highNode, box, high);
+                    double lowEntry = VirtualBoxesHierarchy.entryDistance(low, 0, ray);
+                    double highEntry = VirtualBoxesHierarchy.entryDistance(high, 0, ray);
+                    double[] temp = box;
+                    if (lowEntry <= highEntry) {
+                        state.push(top++, highNode, highEntry, high);
+                        box = low;
+                        low = temp;
+                        node = lowNode;
+                        entry = lowEntry;
+                    }
+                    else {
+                        state.push(top++, lowNode, lowEntry, low);
+                        box = high;
+                        high = temp;
+                        node = highNode;
+                        entry = highEntry;
+                    }
+                    continue;
+                }
+                int first = _links[node];
+                tests += count;
+                for (int i = first; i < first + count; i++) {
+                    if (_geometries[i].findNearestIntersection(ray, 0, hit.t, hit))
+                        maxEntry = hit.t;
+                }
+            }
+            if (top == 0)
+                break;
+            entry = state.entries[--top];
+            node = state.pop(top, box);
+        }
+        _statistics.count(type, 1, boxes, tests);
+        return hit.toGeoPoint();
+    }
+
+    /**
+     * calculates how much light passes along a ray up to a given distance, by multiplying the transparency factors
+     * of all the geometries the ray intersects before that distance. the boxes are visited in any order, and the
+     * search stops as soon as the light is blocked
+     * @param ray the ray, from a point towards a light source
+     * @param maxDistance distance from the ray's start point to the light source
+     * @param minK transparency factor under which the light is considered blocked
+     * @return transparency factor, 0 if the light is blocked
+     */
+    @Override
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        Point3D start = ray.getStartPoint();
+        double ktr = 1.0;
+        int boxes = 0, tests = 0;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            tests++;
+            ktr = VirtualBoxesHierarchy.reduceTransparency(geometry.findIntersections(ray), start, maxDistance, ktr);
+            if (ktr < minK) {
+                _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                return 0.0;
+            }
+        }
+
+        if (_links.length == 0) {
+            _statistics.count(RayType.SHADOW, 1, boxes, tests);
+            return ktr;
+        }
+
+        Vector direction = ray.getVector();
+        double maxEntry = maxDistance / direction.length();
+        // a geometry held by several elementary boxes reduces the transparency once
+        Mailbox mailbox = _mailbox == null ? null : _mailbox.get();
+        if (mailbox != null)
+            mailbox.nextRay();
+
+        TraversalState state = _state.get();
+        double[] box = state.box, inner = state.inner;
+        int top = 0;
+        int node = 0;
+        System.arraycopy(_root, 0, box, 0, 6);
+        boolean enter = VirtualBoxesHierarchy.entryDistance(box, 0, ray) <= maxEntry;
+        while (true) {
+            if (enter) {
+                boxes++;
+                int count = count(node);
+                if (count == 0) {
+                    int high = _links[node];
+                    restore(high, box, inner);
+                    if (VirtualBoxesHierarchy.entryDistance(inner, 0, ray) <= maxEntry)
+                        state.push(top++, high, 0, inner);
+                    restore(node + 1, box, inner);
+                    enter = VirtualBoxesHierarchy.entryDistance(inner, 0, ray) <= maxEntry;
+                    double[] temp = box;
+                    box = inner;
+                    inner = temp;
+                    node++;
+                    continue;
+                }
+                int first = _links[node];
+                for (int i = first; i < first + count; i++) {
+                    if (mailbox != null && !mailbox.mark(_ids[i]))
+                        continue;
+                    tests++;
+                    ktr = VirtualBoxesHierarchy.reduceTransparency(_geometries[i].findIntersections(ray), start,
+                            maxDistance, ktr);
+                    if (ktr < minK) {
+                        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                        return 0.0;
+                    }
+                }
+            }
+            if (top == 0)
+                break;
+            node = state.pop(--top, box);
+            enter = true;
+        }
+        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+        return ktr;
+    }
+
+    /**
+     * TraversalState class holds the stack of boxes waiting to be visited by a traversal of the hierarchy with
+     * their restored edges, and the restored edges of the visited box and its inner boxes. every rendering thread
+     * has its own state, so it is allocated only once.
+     */
+    private static class TraversalState {
+        /**
+         * indices of boxes to visit
+         */
+        final int[] nodes;
+        /**
+         * distances in which the ray enters the boxes to visit
+         */
+        final double[] entries;
+        /**
+         * restored edges of the boxes to visit, 6 values per box
+         */
+        final double[] bounds;
+        /**
+         * restored edges of the visited box and of two inner boxes
+         */
+        final double[] box = new double[6], inner = new double[6], other = new double[6];
+
+        /**
+         * constructor for TraversalState
+         * @param size max amount of boxes waiting to be visited
+         */
+        TraversalState(int size) {
+            nodes = new int[size];
+            entries = new double[size];
+            bounds = new double[6 * size];
+        }
+
+        /**
+         * puts a box on the stack
+         * @param top place on the stack
+         * @param node index of the box
+         * @param entry distance in which the ray enters the box
+         * @param box restored edges of the box
+         */
+        void push(int top, int node, double entry, double[] box) {
+            nodes[top] = node;
+            entries[top] = entry;
+            System.arraycopy(box, 0, bounds, 6 * top, 6);
+        }
+
+        /**
+         * takes a box from the stack
+         * @param top place on the stack
+         * @param box array to write the restored edges of the box to
+         * @return index of the box
+         */
+        int pop(int top, double[] box) {
+            System.arraycopy(bounds, 6 * top, box, 0, 6);
+            return nodes[top];
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package geometries;
+
+import static primitives.Util.isZero;
+
+/**
+ * SahSplit class finds the best split of a range of boxes by the binned surface area heuristic. the boxes' centers
+ * are sorted into {@link Geometries#SAH_BINS} bins along each axis, and the split between bins with the lowest
+ * expected cost (inner boxes' surface areas weighted by their amount of boxes) is chosen.<br>
+ * the boxes are given by their edges in one array, 6 values per box (lowX, highX, lowY, highY, lowZ, highZ), so the
+ * built hierarchy, the lazy hierarchy and the spatial splits builder all use the same sweep.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class SahSplit {
+
+    //fields
+    /**
+     * expected cost of the split, {@link Double#MAX_VALUE} if there is no split
+     */
+    private double _cost = Double.MAX_VALUE;
+    /**
+     * axis of the split, -1 if all the centers are the same
+     */
+    private int _axis = -1;
+    /**
+     * last bin of the low inner box
+     */
+    private int _bin = -1;
+    /**
+     * lowest center on the split axis
+     */
+    private double _low;
+    /**
+     * distance between the lowest and highest centers on the split axis
+     */
+    private double _extent;
+    /**
+     * edges of the low inner box
+     */
+    private final double[] _lowBounds = new double[6];
+    /**
+     * edges of the high inner box
+     */
+    private final double[] _highBounds = new double[6];
+
+    //constructors
+    /**
+     * constructor for SahSplit - finds the best split of a range of boxes
+     * @param bounds edges of the boxes, 6 values per box
+     * @param first index of the first box
+     * @param end index after the last box
+     * @param areaFactor 1 / surface area of the split box, 0 for a flat box
+     */
+    SahSplit(double[] bounds, int first, int end, double areaFactor) {
+        this(bounds, first, end, centerBounds(bounds, first, end), areaFactor);
+    }
+
+    /**
+     * constructor for SahSplit - finds the best split of a range of boxes whose centers' bounds are known
+     * @param bounds edges of the boxes, 6 values per box
+     * @param first index of the first box
+     * @param end index after the last box
+     * @param centerBounds bounds of the boxes' centers (lowX, highX, lowY, highY, lowZ, highZ)
+     * @param areaFactor 1 / surface area of the split box, 0 for a flat box
+     */
+    SahSplit(double[] bounds, int first, int end, double[] centerBounds, double areaFactor) {
+        int bins = Geometries.SAH_BINS;
+        int[] counts = new int[bins];
+        double[][] binBounds = new double[bins][6];
+        double[][] leftBounds = new double[bins][6];
+        int[] leftCount = new int[bins];
+        double[] sweep = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            double low = centerBounds[2 * axis], extent = centerBounds[2 * axis + 1] - low;
+            if (isZero(extent))
+                continue;
+
+            // sort the boxes into the bins
+            for (int i = 0; i < bins; i++) {
+                counts[i] = 0;
+                resetBounds(binBounds[i]);
+            }
+            for (int i = first; i < end; i++) {
+                int bin = binOf(center(bounds, i, axis), low, extent);
+                counts[bin]++;
+                mergeBounds(binBounds[bin], bounds, 6 * i);
+            }
+
+            // sweep from the left to find the bounds and amount of boxes left of every split
+            resetBounds(sweep);
+            int count = 0;
+            for (int i = 0; i < bins - 1; i++) {
+                count += counts[i];
+                mergeBounds(sweep, binBounds[i]);
+                leftCount[i] = count;
+                System.arraycopy(sweep, 0, leftBounds[i], 0, 6);
+            }
+
+            // sweep from the right and evaluate the cost of every split
+            resetBounds(sweep);
+            count = 0;
+            for (int i = bins - 1; i > 0; i--) {
+                count += counts[i];
+                mergeBounds(sweep, binBounds[i]);
+                if (count == 0 || leftCount[i - 1] == 0)
+                    continue;
+                double cost = Geometries.SAH_TRAVERSAL_COST + Geometries.SAH_INTERSECTION_COST *
+                        (area(leftBounds[i - 1]) * leftCount[i - 1] + area(sweep) * count) * areaFactor;
+                if (cost < _cost) {
+                    _cost = cost;
+                    _axis = axis;
+                    _bin = i - 1;
+                    _low = low;
+                    _extent = extent;
+                    System.arraycopy(leftBounds[i - 1], 0, _lowBounds, 0, 6);
+                    System.arraycopy(sweep, 0, _highBounds, 0, 6);
+                }
+            }
+        }
+    }
+
+    //getters
+    /**
+     * getter for the expected cost of the split
+     * @return the cost, {@link Double#MAX_VALUE} if there is no split
+     */
+    double getCost() {
+        return _cost;
+    }
+
+    /**
+     * getter for the axis of the split
+     * @return the axis, -1 if all the centers are the same
+     */
+    int getAxis() {
+        return _axis;
+    }
+
+    //functions
+    /**
+     * checks whether a box belongs to the low inner box of the split
+     * @param bounds edges of the boxes, 6 values per box
+     * @param i index of the box
+     * @return true if the box's center is in the split's last low bin or below it
+     */
+    boolean isLow(double[] bounds, int i) {
+        return binOf(center(bounds, i, _axis), _low, _extent) <= _bin;
+    }
+
+    /**
+     * calculates the surface area of the overlap of the inner boxes
+     * @return surface area of the overlap, 0 if they don't overlap or there is no split
+     */
+    double getOverlapArea() {
+        if (_axis == -1)
+            return 0;
+        double[] sides = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            sides[axis] = Math.min(_lowBounds[2 * axis + 1], _highBounds[2 * axis + 1])
+                    - Math.max(_lowBounds[2 * axis], _highBounds[2 * axis]);
+            if (sides[axis] < 0)
+                return 0;
+        }
+        return VirtualBox.surfaceArea(sides[0], sides[1], sides[2]);
+    }
+
+    /**
+     * calculates the center of a box on an axis
+     * @param bounds edges of the boxes, 6 values per box
+     * @param i index of the box
+     * @param axis the axis
+     * @return the center
+     */
+    static double center(double[] bounds, int i, int axis) {
+        return (bounds[6 * i + 2 * axis] + bounds[6 * i + 2 * axis + 1]) / 2;
+    }
+
+    /**
+     * calculates the bounds of the centers of a range of boxes
+     * @param bounds edges of the boxes, 6 values per box
+     * @param first index of the first box
+     * @param end index after the last box
+     * @return bounds of the centers (lowX, highX, lowY, highY, lowZ, highZ)
+     */
+    static double[] centerBounds(double[] bounds, int first, int end) {
+        double[] centers = new double[6];
+        resetBounds(centers);
+        for (int i = first; i < end; i++)
+            for (int axis = 0; axis < 3; axis++) {
+                double center = center(bounds, i, axis);
+                centers[2 * axis] = Math.min(centers[2 * axis], center);
+                centers[2 * axis + 1] = Math.max(centers[2 * axis + 1], center);
+            }
+        return centers;
+    }
+
+    /**
+     * finds the bin of a position along an axis
+     * @param position the position
+     * @param low low edge of the binned range
+     * @param extent size of the binned range
+     * @return bin index
+     */
+    static int binOf(double position, double low, double extent) {
+        int bin = (int) (Geometries.SAH_BINS * (position - low) / extent);
+        return Math.max(0, Math.min(bin, Geometries.SAH_BINS - 1));
+    }
+
+    /**
+     * resets bounds (lowX, highX, lowY, highY, lowZ, highZ) to an empty box
+     * @param bounds bounds to reset
+     */
+    static void resetBounds(double[] bounds) {
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[2 * axis] = Double.MAX_VALUE;
+            bounds[2 * axis + 1] = -Double.MAX_VALUE;
+        }
+    }
+
+    /**
+     * grows bounds (lowX, highX, lowY, highY, lowZ, highZ) to contain other bounds
+     * @param bounds bounds to grow
+     * @param other bounds to contain
+     */
+    static void mergeBounds(double[] bounds, double[] other) {
+        mergeBounds(bounds, other, 0);
+    }
+
+    /**
+     * grows bounds (lowX, highX, lowY, highY, lowZ, highZ) to contain bounds kept in an array of boxes' edges
+     * @param bounds bounds to grow
+     * @param other array that holds the bounds to contain
+     * @param offset index of the bounds to contain in the array
+     */
+    static void mergeBounds(double[] bounds, double[] other, int offset) {
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[2 * axis] = Math.min(bounds[2 * axis], other[offset + 2 * axis]);
+            bounds[2 * axis + 1] = Math.max(bounds[2 * axis + 1], other[offset + 2 * axis + 1]);
+        }
+    }
+
+    /**
+     * calculates the surface area of bounds (lowX, highX, lowY, highY, lowZ, highZ)
+     * @param bounds the bounds
+     * @return surface area, 0 for empty bounds
+     */
+    static double area(double[] bounds) {
+        return VirtualBox.surfaceArea(bounds[1] - bounds[0], bounds[3] - bounds[2], bounds[5] - bounds[4]);
+    }
+}
@@ -0,0 +1,66 @@
+package geometries;
+
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * class ScalarLeafKernel tests a ray against the spheres and triangles of a batched elementary box one at a time,
+ * with the same tests as the Vector API kernel. reading the values from the arrays instead of from the geometries
+ * drops most of the geometries the ray misses without calling them
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class ScalarLeafKernel implements LeafKernel {
+
+    @Override
+    public int candidates(LeafPrimitives primitives, int kinds, int first, int end, Ray ray, double tMax,
+                          int[] candidates) {
+        Point3D start = ray.getStartPoint();
+        Vector direction = ray.getVector();
+        double ox = start.getXValue(), oy = start.getYValue(), oz = start.getZValue();
+        double dx = direction.getXValue(), dy = direction.getYValue(), dz = direction.getZValue();
+        boolean spheres = (kinds & LeafPrimitives.SPHERES) != 0, triangles = (kinds & LeafPrimitives.TRIANGLES) != 0;
+        int found = 0;
+        for (int i = first; i < end; i++) {
+            if (spheres) {
+                // the chord of the sphere on the ray's line, with its half length grown by the margin
+                double ux = primitives._sphereX[i] - ox, uy = primitives._sphereY[i] - oy,
+                        uz = primitives._sphereZ[i] - oz;
+                double tm = ux * dx + uy * dy + uz * dz;
+                double uu = ux * ux + uy * uy + uz * uz, r2 = primitives._sphereRadius2[i];
+                double h = r2 - uu + tm * tm, margin = SPHERE_MARGIN * (uu + r2);
+                double th = Math.sqrt(Math.max(h, 0) + margin), mt = DISTANCE_MARGIN * (1 + Math.abs(tm));
+                if (h >= -margin && tm + th >= -mt && tm - th <= tMax + mt) {
+                    candidates[found++] = i;
+                    continue;
+                }
+            }
+            if (triangles) {
+                // Moller-Trumbore
+                double e1x = primitives._e1x[i], e1y = primitives._e1y[i], e1z = primitives._e1z[i];
+                double e2x = primitives._e2x[i], e2y = primitives._e2y[i], e2z = primitives._e2z[i];
+                double px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+                double det = e1x * px + e1y * py + e1z * pz;
+                if (Math.abs(det) <= GRAZING * primitives._area[i]) {
+                    candidates[found++] = i;
+                    continue;
+                }
+                double inverse = 1 / det;
+                double sx = ox - primitives._v0x[i], sy = oy - primitives._v0y[i], sz = oz - primitives._v0z[i];
+                double u = (sx * px + sy * py + sz * pz) * inverse;
+                double qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+                double v = (dx * qx + dy * qy + dz * qz) * inverse;
+                double t = (e2x * qx + e2y * qy + e2z * qz) * inverse, mt = DISTANCE_MARGIN * (1 + Math.abs(t));
+                if (u >= -BARYCENTRIC_MARGIN && v >= -BARYCENTRIC_MARGIN && u + v <= 1 + BARYCENTRIC_MARGIN
+                        && t >= -mt && t <= tMax + mt)
+                    candidates[found++] = i;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,435 @@
+package geometries;
+
+import primitives.Point3D;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static geometries.SahSplit.area;
+import static geometries.SahSplit.binOf;
+import static geometries.SahSplit.mergeBounds;
+import static geometries.SahSplit.resetBounds;
+import static primitives.Util.isZero;
+
+/**
+ * SpatialSplitsBuilder class builds a compiled virtual boxes hierarchy whose boxes may split geometries
+ * (spatial splits, like the SBVH of Stich, Friedrich and Dietrich). long and thin geometries, like floors, walls and
+ * thin triangles, make big boxes that overlap their neighbours, and a ray goes into both inner boxes almost
+ * everywhere. when the inner boxes found by splitting the geometries (as in the surface area heuristic) overlap,
+ * the builder also tries to split the box itself by a plane - a geometry crossed by the plane is held by both inner
+ * boxes, and every inner box is bounded only by the geometry's part on its side. polygons are clipped by the plane,
+ * so their parts get tight boxes. the split with the lowest expected cost is chosen.<br>
+ * a geometry held by several elementary boxes is a duplicated reference. the amount of duplicated references is
+ * limited by a budget, relative to the amount of geometries.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+final class SpatialSplitsBuilder {
+
+    //constants
+    /**
+     * least overlap of the inner boxes of a split of the geometries, relative to the surface area of the root box,
+     * for which a spatial split is tried
+     */
+    private static final double MIN_OVERLAP = 1e-5;
+    /**
+     * part of a clipped polygon's size its box is grown by, so the box contains the polygon's part despite
+     * rounding errors
+     */
+    private static final double CLIP_EPSILON = 1e-9;
+
+    //fields
+    /**
+     * finite geometries
+     */
+    private final List<Intersectable> _geometries;
+    /**
+     * surface area of the root box
+     */
+    private final double _rootArea;
+    /**
+     * amount of duplicated references that may still be made
+     */
+    private int _budget;
+    /**
+     * compiled boxes' edges
+     */
+    private final List<double[]> _bounds = new ArrayList<>();
+    /**
+     * compiled boxes' offsets
+     */
+    private final List<Integer> _offsets = new ArrayList<>();
+    /**
+     * compiled boxes' amounts of geometries
+     */
+    private final List<Integer> _counts = new ArrayList<>();
+    /**
+     * compiled geometries, ordered by elementary boxes - a geometry may appear in several elementary boxes
+     */
+    private final List<Intersectable> _references = new ArrayList<>();
+
+    //constructors
+    /**
+     * constructor for SpatialSplitsBuilder
+     * @param geometries finite geometries
+     * @param budget most duplicated references, relative to the amount of geometries
+     */
+    SpatialSplitsBuilder(List<Intersectable> geometries, double budget) {
+        _geometries = geometries;
+        _budget = (int) Math.min(Integer.MAX_VALUE, budget * geometries.size());
+        double[] bounds = new double[6];
+        resetBounds(bounds);
+        for (Intersectable geometry : geometries)
+            mergeBounds(bounds, boxOf(geometry));
+        _rootArea = area(bounds);
+    }
+
+    //functions
+    /**
+     * builds the hierarchy
+     * @param infiniteGeometries infinite geometries, tested for every ray
+     * @return compiled hierarchy
+     */
+    VirtualBoxesHierarchy build(List<Intersectable> infiniteGeometries) {
+        List<Reference> references = new ArrayList<>();
+        for (int i = 0; i < _geometries.size(); i++)
+            references.add(new Reference(i, boxOf(_geometries.get(i))));
+        int depth = references.isEmpty() ? 0 : buildBox(references);
+
+        int size = _offsets.size();
+        double[] bounds = new double[6 * size];
+        int[] offsets = new int[size];
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(_bounds.get(i), 0, bounds, 6 * i, 6);
+            offsets[i] = _offsets.get(i);
+            counts[i] = _counts.get(i);
+        }
+        return new VirtualBoxesHierarchy(bounds, offsets, counts, _references.toArray(new Intersectable[0]),
+                infiniteGeometries.toArray(new Intersectable[0]), depth);
+    }
+
+    /**
+     * builds a box and its inner boxes recursively, in depth first order. sub function of build
+     * @param references references to the geometries of the box
+     * @return depth of the box
+     */
+    private int buildBox(List<Reference> references) {
+        double[] box = new double[6];
+        resetBounds(box);
+        for (Reference reference : references)
+            mergeBounds(box, reference.bounds);
+        int index = _offsets.size();
+        _bounds.add(box);
+        _offsets.add(0);
+        _counts.add(0);
+
+        int n = references.size();
+        double boxArea = area(box);
+        // a flat box gives no area information, so only the amounts of geometries are compared
+        double areaFactor = isZero(boxArea) ? 0 : 1 / boxArea;
+        SahSplit objectSplit = n > 1 ? findObjectSplit(references, areaFactor) : null;
+        // a spatial split is tried only where the inner boxes of the split of the geometries overlap
+        Split spatialSplit = null;
+        if (objectSplit != null && _budget > 0 && _rootArea > 0
+                && (objectSplit.getAxis() == -1 || objectSplit.getOverlapArea() / _rootArea > MIN_OVERLAP))
+            spatialSplit = findSpatialSplit(references, box, areaFactor);
+
+        double leafCost = n * Geometries.SAH_INTERSECTION_COST;
+        List<Reference> left = new ArrayList<>();
+        List<Reference> right = new ArrayList<>();
+        if (spatialSplit != null && spatialSplit.cost < objectSplit.getCost() && spatialSplit.cost < leafCost) {
+            int duplicates = splitSpatially(references, spatialSplit, left, right);
+            if (left.isEmpty() || right.isEmpty()) {
+                // rounding put all the references on one side of the plane
+                left.clear();
+                right.clear();
+            }
+            else
+                _budget -= duplicates;
+        }
+        if (left.isEmpty() && objectSplit != null && objectSplit.getAxis() != -1
+                && objectSplit.getCost() < leafCost)
+            splitObjects(references, objectSplit, left, right);
+        else if (left.isEmpty() && n > Geometries.SAH_MAX_LEAF_SIZE) {
+            // all geometries have the same center, split the list only if the box is too big
+            left.addAll(references.subList(0, n / 2));
+            right.addAll(references.subList(n / 2, n));
+        }
+
+        if (left.isEmpty() || right.isEmpty()) {
+            // elementary box - copy its geometries
+            _offsets.set(index, _references.size());
+            _counts.set(index, n);
+            for (Reference reference : references)
+                _references.add(_geometries.get(reference.geometry));
+            return 1;
+        }
+        int lowDepth = buildBox(left);
+        _offsets.set(index, _offsets.size());
+        int highDepth = buildBox(right);
+        return 1 + Math.max(lowDepth, highDepth);
+    }
+
+    /**
+     * finds the best split of the references by the binned surface area heuristic, like
+     * {@link Geometries.BuildMethod#SURFACE_AREA_HEURISTIC} - the references' centers are sorted into bins
+     * @param references references to split
+     * @param areaFactor 1 / surface area of the split box, 0 for a flat box
+     * @return the split - its axis is -1 if all the centers are the same
+     */
+    private SahSplit findObjectSplit(List<Reference> references, double areaFactor) {
+        int n = references.size();
+        double[] bounds = new double[6 * n];
+        for (int i = 0; i < n; i++)
+            System.arraycopy(references.get(i).bounds, 0, bounds, 6 * i, 6);
+        return new SahSplit(bounds, 0, n, areaFactor);
+    }
+
+    /**
+     * finds the best spatial split of a box - the box is divided to equal bins along each axis, every reference
+     * is clipped by the bins it crosses, and the planes between the bins are evaluated by the surface area
+     * heuristic, where a reference crossed by the plane is counted on both sides
+     * @param references references to split
+     * @param box the box
+     * @param areaFactor 1 / surface area of the box, 0 for a flat box
+     * @return the split, null if no split fits in the budget
+     */
+    private Split findSpatialSplit(List<Reference> references, double[] box, double areaFactor) {
+        int bins = Geometries.SAH_BINS;
+        Split best = null;
+        int[] entries = new int[bins];
+        int[] exits = new int[bins];
+        double[][] bounds = new double[bins][6];
+        double[][] leftBounds = new double[bins][6];
+        int[] leftCount = new int[bins];
+        for (int axis = 0; axis < 3; axis++) {
+            double low = box[2 * axis], extent = box[2 * axis + 1] - low;
+            if (isZero(extent))
+                continue;
+            for (int i = 0; i < bins; i++) {
+                entries[i] = exits[i] = 0;
+                resetBounds(bounds[i]);
+            }
+            for (Reference reference : references) {
+                int first = binOf(reference.bounds[2 * axis], low, extent);
+                int last = binOf(reference.bounds[2 * axis + 1], low, extent);
+                entries[first]++;
+                exits[last]++;
+                if (first == last) {
+                    mergeBounds(bounds[first], reference.bounds);
+                    continue;
+                }
+                for (int i = first; i <= last; i++) {
+                    double[] clipped = clip(reference, axis, i == first ? -Double.MAX_VALUE : low + extent * i / bins,
+                            i == last ? Double.MAX_VALUE : low + extent * (i + 1) / bins);
+                    if (clipped != null)
+                        mergeBounds(bounds[i], clipped);
+                }
+            }
+
+            double[] sweep = new double[6];
+            resetBounds(sweep);
+            int count = 0;
+            for (int i = 0; i < bins - 1; i++) {
+                count += entries[i];
+                mergeBounds(sweep, bounds[i]);
+                leftCount[i] = count;
+                System.arraycopy(sweep, 0, leftBounds[i], 0, 6);
+            }
+            resetBounds(sweep);
+            count = 0;
+            for (int i = bins - 1; i > 0; i--) {
+                count += exits[i];
+                mergeBounds(sweep, bounds[i]);
+                int duplicates = leftCount[i - 1] + count - references.size();
+                if (count == 0 || leftCount[i - 1] == 0 || duplicates > _budget)
+                    continue;
+                double cost = Geometries.SAH_TRAVERSAL_COST + Geometries.SAH_INTERSECTION_COST *
+                        (area(leftBounds[i - 1]) * leftCount[i - 1] + area(sweep) * count) * areaFactor;
+                if (best == null || cost < best.cost) {
+                    best = new Split();
+                    best.cost = cost;
+                    best.axis = axis;
+                    best.position = low + extent * i / bins;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * splits references by the bins of their centers
+     * @param references references to split
+     * @param split the split
+     * @param left references whose centers are in the split's last low bin or below it
+     * @param right references whose centers are above the split's last low bin
+     */
+    private void splitObjects(List<Reference> references, SahSplit split, List<Reference> left,
+                              List<Reference> right) {
+        for (Reference reference : references)
+            (split.isLow(reference.bounds, 0) ? left : right).add(reference);
+    }
+
+    /**
+     * splits references by a plane - a reference crossed by the plane is clipped to both sides, and made a
+     * duplicated reference if its geometry is found on both sides
+     * @param references references to split
+     * @param split the split
+     * @param left references below the split's plane
+     * @param right references above the split's plane
+     * @return amount of duplicated references made
+     */
+    private int splitSpatially(List<Reference> references, Split split, List<Reference> left,
+                               List<Reference> right) {
+        int axis = split.axis;
+        int duplicates = 0;
+        for (Reference reference : references) {
+            if (reference.bounds[2 * axis + 1] <= split.position) {
+                left.add(reference);
+                continue;
+            }
+            if (reference.bounds[2 * axis] >= split.position) {
+                right.add(reference);
+                continue;
+            }
+            double[] low = clip(reference, axis, -Double.MAX_VALUE, split.position);
+            double[] high = clip(reference, axis, split.position, Double.MAX_VALUE);
+            if (low != null)
+                left.add(new Reference(reference.geometry, low));
+            if (high != null)
+                right.add(new Reference(reference.geometry, high));
+            if (low != null && high != null)
+                duplicates++;
+        }
+        return duplicates;
+    }
+
+    /**
+     * clips a reference by a slab along an axis. a polygon is clipped by the reference's box and the slab, so the
+     * box is tight around the polygon's part in the slab, other geometries are bounded by the box's part in the slab
+     * @param reference the reference
+     * @param axis axis of the slab
+     * @param low low edge of the slab
+     * @param high high edge of the slab
+     * @return edges of the clipped reference's box, null if the geometry isn't in the slab
+     */
+    private double[] clip(Reference reference, int axis, double low, double high) {
+        double[] box = reference.bounds.clone();
+        box[2 * axis] = Math.max(box[2 * axis], low);
+        box[2 * axis + 1] = Math.min(box[2 * axis + 1], high);
+        if (box[2 * axis] > box[2 * axis + 1])
+            return null;
+        Intersectable geometry = _geometries.get(reference.geometry);
+        if (!(geometry instanceof Polygon))
+            return box;
+
+        // clip the polygon by the 6 planes of the box
+        List<double[]> polygon = new ArrayList<>();
+        for (Point3D vertex : ((Polygon) geometry).get_vertices())
+            polygon.add(new double[]{vertex.getXValue(), vertex.getYValue(), vertex.getZValue()});
+        for (int side = 0; side < 6 && !polygon.isEmpty(); side++)
+            polygon = clip(polygon, side / 2, box[side], side % 2 == 0);
+        if (polygon.isEmpty())
+            return null;
+
+        double[] clipped = new double[6];
+        resetBounds(clipped);
+        for (double[] vertex : polygon)
+            for (int i = 0; i < 3; i++) {
+                clipped[2 * i] = Math.min(clipped[2 * i], vertex[i]);
+                clipped[2 * i + 1] = Math.max(clipped[2 * i + 1], vertex[i]);
+            }
+        for (int i = 0; i < 3; i++) {
+            double epsilon = CLIP_EPSILON * (1 + clipped[2 * i + 1] - clipped[2 * i]);
+            clipped[2 * i] = Math.max(clipped[2 * i] - epsilon, box[2 * i]);
+            clipped[2 * i + 1] = Math.min(clipped[2 * i + 1] + epsilon, box[2 * i + 1]);
+        }
+        return clipped;
+    }
+
+    /**
+     * clips a convex polygon by an axis aligned plane (Sutherland-Hodgman)
+     * @param polygon vertices of the polygon
+     * @param axis axis of the plane
+     * @param position position of the plane on the axis
+     * @param keepAbove whether to keep the part above the plane or below it
+     * @return vertices of the clipped polygon, empty if no part is kept
+     */
+    private static List<double[]> clip(List<double[]> polygon, int axis, double position, boolean keepAbove) {
+        List<double[]> clipped = new ArrayList<>();
+        int n = polygon.size();
+        for (int i = 0; i < n; i++) {
+            double[] current = polygon.get(i), next = polygon.get((i + 1) % n);
+            double a = keepAbove ? current[axis] - position : position - current[axis];
+            double b = keepAbove ? next[axis] - position : position - next[axis];
+            if (a >= 0)
+                clipped.add(current);
+            if ((a < 0 && b > 0) || (a > 0 && b < 0)) {
+                double t = a / (a - b);
+                double[] vertex = new double[3];
+                for (int j = 0; j < 3; j++)
+                    vertex[j] = current[j] + t * (next[j] - current[j]);
+                vertex[axis] = position;
+                clipped.add(vertex);
+            }
+        }
+        return clipped;
+    }
+
+    /**
+     * calculates the edges of a geometry's virtual box
+     * @param geometry finite geometry
+     * @return edges of the box: lowX, highX, lowY, highY, lowZ, highZ
+     */
+    private static double[] boxOf(Intersectable geometry) {
+        VirtualBox box = geometry.getVirtualBox();
+        double[] bounds = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[2 * axis] = box.get_low(axis);
+            bounds[2 * axis + 1] = box.get_high(axis);
+        }
+        return bounds;
+    }
+
+    /**
+     * Reference class is a geometry held by a box, with the edges of its part in the box
+     */
+    private static class Reference {
+        /**
+         * index of the geometry
+         */
+        final int geometry;
+        /**
+         * edges of the geometry's part: lowX, highX, lowY, highY, lowZ, highZ
+         */
+        final double[] bounds;
+
+        /**
+         * constructor for Reference
+         * @param geometry index of the geometry
+         * @param bounds edges of the geometry's part
+         */
+        Reference(int geometry, double[] bounds) {
+            this.geometry = geometry;
+            this.bounds = bounds;
+        }
+    }
+
+    /**
+     * Split class is a candidate spatial split of a box - a split of the geometries is found by {@link SahSplit}
+     */
+    private static class Split {
+        /**
+         * expected cost of the split
+         */
+        double cost = Double.MAX_VALUE;
+        /**
+         * axis of the split plane
+         */
+        int axis;
+        /**
+         * position of the split plane on its axis
+         */
+        double position;
+    }
+}
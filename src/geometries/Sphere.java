@@ -66,6 +66,16 @@ public class Sphere extends RadialGeometry{
         return _center;
     }
 
+    /**
+     * setter for center point of sphere. a virtual boxes hierarchy holding the sphere has to be refitted or
+     * built again after the sphere moves
+     * @param center new center of sphere
+     */
+    public void setCenter(Point3D center) {
+        _center = center;
+        createVirtualBox();
+    }
+
     //basic overrides
     @Override
     public String toString(){
@@ -110,9 +120,9 @@ public class Sphere extends RadialGeometry{
             // if ray intersects the sphere not on the starting point
             if(t1>0)
             {
-                double x = ray.getVector().getEndpoint().getX().get();
-                double y = ray.getVector().getEndpoint().getY().get();
-                double z = ray.getVector().getEndpoint().getZ().get();
+                double x = ray.getVector().getXValue();
+                double y = ray.getVector().getYValue();
+                double z = ray.getVector().getZValue();
                 if (!(isZero(x * t1) && isZero(y * t1) && isZero(z * t1))) {
                     p1 = ray.getPoint(t1);
                     a = new Point3D(p1);
@@ -125,9 +135,9 @@ public class Sphere extends RadialGeometry{
             if((t2>0)&&(t1!=t2))
             {
                 // make sure the vector created is not zero vector
-                double x = ray.getVector().getEndpoint().getX().get();
-                double y = ray.getVector().getEndpoint().getY().get();
-                double z = ray.getVector().getEndpoint().getZ().get();
+                double x = ray.getVector().getXValue();
+                double y = ray.getVector().getYValue();
+                double z = ray.getVector().getZValue();
                 if (!(isZero(x * t2) && isZero(y * t2) && isZero(z * t2))) {
                     p2 = ray.getPoint(t2);
                     a = new Point3D(p2);
@@ -140,14 +150,71 @@ public class Sphere extends RadialGeometry{
             return intersections;
         }
 
+    @Override
+    boolean findNearestIntersection(Ray ray, double tMin, double tMax, HitRecord hit) {
+        Point3D p0 = ray.getStartPoint();
+        Vector v = ray.getVector();
+        double r = getRadius();
+
+        // boundary value - the ray starts at the center of the sphere
+        if (_center.equals(p0)) {
+            if (r <= tMin || r >= tMax)
+                return false;
+            hit.set(r, ray.getPoint(r), this);
+            return true;
+        }
+
+        double ux = alignZero(_center.getXValue() - p0.getXValue());
+        double uy = alignZero(_center.getYValue() - p0.getYValue());
+        double uz = alignZero(_center.getZValue() - p0.getZValue());
+        double tm = v.getXValue() * ux + v.getYValue() * uy + v.getZValue() * uz;
+        double d = Math.sqrt(ux * ux + uy * uy + uz * uz - tm * tm);
+
+        //if no intersections found, return false
+        if (d > r)
+            return false;
+
+        double th = Math.sqrt(r * r - d * d);
+        double t1 = alignZero(tm + th);
+        double t2 = alignZero(tm - th);
+
+        // the nearer intersection, if it is in the interval and not on the starting point
+        if (t2 > tMin && t2 < tMax && t2 > 0 && t1 != t2 && setIntersection(ray, t2, hit))
+            return true;
+        return t1 > tMin && t1 < tMax && t1 > 0 && setIntersection(ray, t1, hit);
+    }
+
+    /**
+     * writes an intersection of a ray with the sphere at a given distance to a hit record, unless the point is
+     * the ray's start point or the ray only touches the sphere there
+     * @param ray the ray
+     * @param t distance of the intersection along the ray
+     * @param hit the hit record
+     * @return true if the intersection was written
+     */
+    private boolean setIntersection(Ray ray, double t, HitRecord hit) {
+        Vector v = ray.getVector();
+        double x = v.getXValue();
+        double y = v.getYValue();
+        double z = v.getZValue();
+        if (isZero(x * t) && isZero(y * t) && isZero(z * t))
+            return false;
+        Point3D p = ray.getPoint(t);
+        if (x * alignZero(p.getXValue() - _center.getXValue()) + y * alignZero(p.getYValue() - _center.getYValue())
+                + z * alignZero(p.getZValue() - _center.getZValue()) == 0)
+            return false;
+        hit.set(t, p, this);
+        return true;
+    }
+
     @Override
     public void createVirtualBox() {
-        _virtualBox = new VirtualBox(new Coordinate(_center.getX().get()-_radius),
-                new Coordinate(_center.getX().get()+_radius),
-                new Coordinate(_center.getY().get()-_radius),
-                new Coordinate(_center.getY().get()+_radius),
-                new Coordinate(_center.getZ().get()-_radius),
-                new Coordinate(_center.getZ().get()+_radius));
+        _virtualBox = new VirtualBox(new Coordinate(_center.getXValue()-_radius),
+                new Coordinate(_center.getXValue()+_radius),
+                new Coordinate(_center.getYValue()-_radius),
+                new Coordinate(_center.getYValue()+_radius),
+                new Coordinate(_center.getZValue()-_radius),
+                new Coordinate(_center.getZValue()+_radius));
     }
 
     @Override
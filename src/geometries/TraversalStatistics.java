@@ -0,0 +1,109 @@
+package geometries;
+
+import geometries.AccelerationStructure.RayType;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TraversalStatistics class counts the work of tracing rays through an acceleration structure - boxes visited and
+ * geometries tested - by the kind of the rays. the counters are striped (LongAdder), so the rendering threads
+ * hardly contend on them and they can be left on while rendering.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class TraversalStatistics {
+
+    //fields
+    /**
+     * amount of rays traced, by kind of ray
+     */
+    private final LongAdder[] _rays = new LongAdder[RayType.values().length];
+    /**
+     * amount of boxes visited, by kind of ray
+     */
+    private final LongAdder[] _boxes = new LongAdder[RayType.values().length];
+    /**
+     * amount of geometries tested for intersections, by kind of ray
+     */
+    private final LongAdder[] _tests = new LongAdder[RayType.values().length];
+
+    //constructors
+    /**
+     * constructor for TraversalStatistics, all counters are 0
+     */
+    public TraversalStatistics() {
+        for (int i = 0; i < _rays.length; i++) {
+            _rays[i] = new LongAdder();
+            _boxes[i] = new LongAdder();
+            _tests[i] = new LongAdder();
+        }
+    }
+
+    //getters
+    /**
+     * getter for the amount of rays traced
+     * @param type kind of rays
+     * @return amount of rays
+     */
+    public long getRays(RayType type) {
+        return _rays[type.ordinal()].sum();
+    }
+
+    /**
+     * getter for the amount of boxes visited
+     * @param type kind of rays
+     * @return amount of boxes
+     */
+    public long getBoxes(RayType type) {
+        return _boxes[type.ordinal()].sum();
+    }
+
+    /**
+     * getter for the amount of geometries tested for intersections
+     * @param type kind of rays
+     * @return amount of tests
+     */
+    public long getTests(RayType type) {
+        return _tests[type.ordinal()].sum();
+    }
+
+    //functions
+    /**
+     * counts the work of tracing rays
+     * @param type kind of the rays
+     * @param rays amount of rays traced
+     * @param boxes amount of boxes visited
+     * @param tests amount of geometries tested for intersections
+     */
+    void count(RayType type, int rays, int boxes, int tests) {
+        int i = type.ordinal();
+        if (rays != 0)
+            _rays[i].add(rays);
+        if (boxes != 0)
+            _boxes[i].add(boxes);
+        if (tests != 0)
+            _tests[i].add(tests);
+    }
+
+    /**
+     * sets all counters to 0
+     */
+    public void reset() {
+        for (int i = 0; i < _rays.length; i++) {
+            _rays[i].reset();
+            _boxes[i].reset();
+            _tests[i].reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(String.format("%-12s %12s %14s %14s%n",
+                "rays", "traced", "boxes / ray", "tests / ray"));
+        for (RayType type : RayType.values()) {
+            long rays = getRays(type);
+            builder.append(String.format("%-12s %12d %14.2f %14.2f%n", type.name().toLowerCase(), rays,
+                    rays == 0 ? 0.0 : (double) getBoxes(type) / rays, rays == 0 ? 0.0 : (double) getTests(type) / rays));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,397 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * UniformGrid class is an acceleration structure that splits the box around the geometries into equal cells.
+ * every cell holds the geometries whose virtual boxes overlap it, and a ray walks through the cells it passes
+ * front to back (3D digital differential analyzer), so the search for the closest intersection stops in the first
+ * cell that holds an intersection. fast for geometries that are spread evenly, like particle fields.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class UniformGrid implements AccelerationStructure {
+
+    //constants
+    /**
+     * average amount of cells per geometry
+     */
+    private static final double CELLS_PER_GEOMETRY = 2;
+    /**
+     * max amount of cells on an axis
+     */
+    private static final int MAX_RESOLUTION = 128;
+
+    //fields
+    /**
+     * edges of the grid: lowX, highX, lowY, highY, lowZ, highZ
+     */
+    private final double[] _bounds = new double[6];
+    /**
+     * amount of cells on every axis
+     */
+    private final int[] _resolution = new int[3];
+    /**
+     * size of a cell on every axis
+     */
+    private final double[] _cellSize = new double[3];
+    /**
+     * for every cell - index of its first item, and one more value for the end of the last cell
+     */
+    private final int[] _cellStarts;
+    /**
+     * indices of the geometries held by the cells, by cells
+     */
+    private final int[] _items;
+    /**
+     * finite geometries
+     */
+    private final Intersectable[] _geometries;
+    /**
+     * infinite geometries, tested for every ray
+     */
+    private final Intersectable[] _infiniteGeometries;
+    /**
+     * traversal state for every rendering thread
+     */
+    private final ThreadLocal<TraversalState> _state;
+
+    //constructors
+    /**
+     * builds a uniform grid over geometries
+     * @param geometries the geometries
+     */
+    public UniformGrid(Geometries geometries) {
+        List<Intersectable> finite = new ArrayList<>();
+        List<Intersectable> infinite = new ArrayList<>();
+        for (Intersectable geometry : geometries.getAllGeometries())
+            (geometry.getVirtualBox() == null ? infinite : finite).add(geometry);
+        _geometries = finite.toArray(new Intersectable[0]);
+        _infiniteGeometries = infinite.toArray(new Intersectable[0]);
+        int n = _geometries.length;
+
+        for (int axis = 0; axis < 3; axis++) {
+            _bounds[2 * axis] = Double.MAX_VALUE;
+            _bounds[2 * axis + 1] = -Double.MAX_VALUE;
+        }
+        for (Intersectable geometry : _geometries) {
+            for (int axis = 0; axis < 3; axis++) {
+                _bounds[2 * axis] = Math.min(_bounds[2 * axis], geometry.getVirtualBox().get_low(axis));
+                _bounds[2 * axis + 1] = Math.max(_bounds[2 * axis + 1], geometry.getVirtualBox().get_high(axis));
+            }
+        }
+
+        // cubic cells, so the grid has about CELLS_PER_GEOMETRY cells per geometry.
+        // flat sides of the grid get a minimal size, so the volume isn't 0
+        double maxExtent = 0;
+        for (int axis = 0; axis < 3; axis++)
+            maxExtent = Math.max(maxExtent, _bounds[2 * axis + 1] - _bounds[2 * axis]);
+        double minExtent = Math.max(maxExtent * 1e-3, 1e-9);
+        double volume = 1;
+        for (int axis = 0; axis < 3; axis++)
+            volume *= Math.max(_bounds[2 * axis + 1] - _bounds[2 * axis], minExtent);
+        double side = Math.cbrt(volume / (CELLS_PER_GEOMETRY * Math.max(n, 1)));
+        int cells = 1;
+        for (int axis = 0; axis < 3; axis++) {
+            double extent = Math.max(_bounds[2 * axis + 1] - _bounds[2 * axis], minExtent);
+            _resolution[axis] = n == 0 ? 1 : (int) Math.max(1, Math.min(MAX_RESOLUTION, Math.round(extent / side)));
+            _cellSize[axis] = extent / _resolution[axis];
+            _bounds[2 * axis + 1] = _bounds[2 * axis] + extent;
+            cells *= _resolution[axis];
+        }
+
+        // count the geometries of every cell, then place them - all cells are kept in two arrays
+        _cellStarts = new int[cells + 1];
+        int[] range = new int[6];
+        for (int i = 0; i < n; i++) {
+            cellRange(_geometries[i].getVirtualBox(), range);
+            for (int z = range[4]; z <= range[5]; z++)
+                for (int y = range[2]; y <= range[3]; y++)
+                    for (int x = range[0]; x <= range[1]; x++)
+                        _cellStarts[cellIndex(x, y, z) + 1]++;
+        }
+        for (int cell = 0; cell < cells; cell++)
+            _cellStarts[cell + 1] += _cellStarts[cell];
+        _items = new int[_cellStarts[cells]];
+        int[] next = new int[cells];
+        for (int i = 0; i < n; i++) {
+            cellRange(_geometries[i].getVirtualBox(), range);
+            for (int z = range[4]; z <= range[5]; z++)
+                for (int y = range[2]; y <= range[3]; y++)
+                    for (int x = range[0]; x <= range[1]; x++) {
+                        int cell = cellIndex(x, y, z);
+                        _items[_cellStarts[cell] + next[cell]++] = i;
+                    }
+        }
+
+        _state = ThreadLocal.withInitial(() -> new TraversalState(n));
+    }
+
+    /**
+     * finds the range of cells a virtual box overlaps
+     * @param box the virtual box
+     * @param range array to fill with the first and last cell on every axis: lowX, highX, lowY, highY, lowZ, highZ
+     */
+    private void cellRange(VirtualBox box, int[] range) {
+        for (int axis = 0; axis < 3; axis++) {
+            range[2 * axis] = cellOf(box.get_low(axis), axis);
+            range[2 * axis + 1] = cellOf(box.get_high(axis), axis);
+        }
+    }
+
+    /**
+     * finds the cell of a value on an axis
+     * @param value the value
+     * @param axis the axis
+     * @return index of the cell on the axis
+     */
+    private int cellOf(double value, int axis) {
+        int cell = (int) ((value - _bounds[2 * axis]) / _cellSize[axis]);
+        return cell < 0 ? 0 : Math.min(cell, _resolution[axis] - 1);
+    }
+
+    /**
+     * calculates the index of a cell in the cells arrays
+     * @param x index of the cell on x axis
+     * @param y index of the cell on y axis
+     * @param z index of the cell on z axis
+     * @return index of the cell
+     */
+    private int cellIndex(int x, int y, int z) {
+        return (z * _resolution[1] + y) * _resolution[0] + x;
+    }
+
+    //getters
+    /**
+     * getter for the amount of cells in the grid
+     * @return amount of cells
+     */
+    public int getCellsCount() {
+        return _cellStarts.length - 1;
+    }
+
+    //functions
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = null;
+        List<GeoPoint> result;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            result = geometry.findIntersections(ray);
+            if (result != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(result);
+            }
+        }
+
+        TraversalState state = _state.get();
+        if (!state.start(ray, Double.POSITIVE_INFINITY))
+            return intersections;
+        do {
+            int cell = state.cell();
+            for (int i = _cellStarts[cell]; i < _cellStarts[cell + 1]; i++) {
+                if (!state.mailbox.mark(_items[i]))
+                    continue;
+                result = _geometries[_items[i]].findIntersections(ray);
+                if (result != null) {
+                    if (intersections == null)
+                        intersections = new ArrayList<>();
+                    intersections.addAll(result);
+                }
+            }
+        } while (state.step());
+        return intersections;
+    }
+
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray) {
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        // cells are entered at distances in units of the ray's direction length, like the distances of the hit
+        // record
+        TraversalState state = _state.get();
+        if (!state.start(ray, Math.min(hit.t, Double.MAX_VALUE)))
+            return hit.toGeoPoint();
+        do {
+            int cell = state.cell();
+            for (int i = _cellStarts[cell]; i < _cellStarts[cell + 1]; i++) {
+                if (!state.mailbox.mark(_items[i]))
+                    continue;
+                if (_geometries[_items[i]].findNearestIntersection(ray, 0, hit.t, hit))
+                    state.maxEntry = hit.t;
+            }
+            // an intersection inside the cell is closer than anything in the cells behind it
+        } while (state.maxEntry > state.exit() && state.step());
+        return hit.toGeoPoint();
+    }
+
+    @Override
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        Point3D start = ray.getStartPoint();
+        double ktr = 1.0;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            ktr = VirtualBoxesHierarchy.reduceTransparency(geometry.findIntersections(ray), start, maxDistance, ktr);
+            if (ktr < minK)
+                return 0.0;
+        }
+
+        TraversalState state = _state.get();
+        if (!state.start(ray, maxDistance / ray.getVector().length()))
+            return ktr;
+        do {
+            int cell = state.cell();
+            for (int i = _cellStarts[cell]; i < _cellStarts[cell + 1]; i++) {
+                // a geometry held by several cells is counted once
+                if (!state.mailbox.mark(_items[i]))
+                    continue;
+                ktr = VirtualBoxesHierarchy.reduceTransparency(_geometries[_items[i]].findIntersections(ray),
+                        start, maxDistance, ktr);
+                if (ktr < minK)
+                    return 0.0;
+            }
+        } while (state.step());
+        return ktr;
+    }
+
+    /**
+     * TraversalState class holds the state of a ray walking through the grid. every rendering thread has its own
+     * state, so it is allocated only once.
+     */
+    private class TraversalState {
+        /**
+         * index of the current cell on every axis
+         */
+        final int[] position = new int[3];
+        /**
+         * direction of the steps on every axis: 1, -1, or 0 if the ray is parallel to the axis
+         */
+        final int[] steps = new int[3];
+        /**
+         * distance in which the ray crosses to the next cell on every axis
+         */
+        final double[] next = new double[3];
+        /**
+         * distance between crossings to the next cell on every axis
+         */
+        final double[] deltas = new double[3];
+        /**
+         * 1 / the ray's direction and the ray's signs (1 if the direction is negative, 0 otherwise), by axes
+         */
+        final double[] inverse = new double[3];
+        final int[] signs = new int[3];
+        /**
+         * cells entered beyond this distance are skipped
+         */
+        double maxEntry;
+        /**
+         * geometries already tested against the ray
+         */
+        final Mailbox mailbox;
+
+        /**
+         * constructor for TraversalState
+         * @param geometries amount of geometries
+         */
+        TraversalState(int geometries) {
+            mailbox = new Mailbox(geometries);
+        }
+
+        /**
+         * starts the walk of a ray - finds the first cell the ray passes through
+         * @param ray the ray
+         * @param maxEntry cells entered beyond this distance are skipped
+         * @return false if the ray misses the grid
+         */
+        boolean start(Ray ray, double maxEntry) {
+            if (_geometries.length == 0)
+                return false;
+            Point3D start = ray.getStartPoint();
+            Vector direction = ray.getVector();
+            double[] origin = {start.getXValue(), start.getYValue(), start.getZValue()};
+            double[] dir = {direction.getXValue(), direction.getYValue(),
+                    direction.getZValue()};
+
+            // clip the ray to the grid
+            double tmin = 0, tmax = Double.POSITIVE_INFINITY;
+            inverse[0] = ray.getInverseXValue();
+            inverse[1] = ray.getInverseYValue();
+            inverse[2] = ray.getInverseZValue();
+            signs[0] = ray.getSignX();
+            signs[1] = ray.getSignY();
+            signs[2] = ray.getSignZ();
+            for (int axis = 0; axis < 3; axis++) {
+                // the near side on an axis is the low side for a positive direction and the high side otherwise
+                double t0 = (_bounds[2 * axis + signs[axis]] - origin[axis]) * inverse[axis];
+                double t1 = (_bounds[2 * axis + 1 - signs[axis]] - origin[axis]) * inverse[axis];
+                // comparisons with NaN (ray parallel to a side and starting on it) are ignored
+                if (t0 > tmin) tmin = t0;
+                if (t1 < tmax) tmax = t1;
+            }
+            if (tmin > tmax || tmin > maxEntry)
+                return false;
+            this.maxEntry = maxEntry;
+
+            for (int axis = 0; axis < 3; axis++) {
+                position[axis] = cellOf(origin[axis] + dir[axis] * tmin, axis);
+                if (dir[axis] > 0) {
+                    steps[axis] = 1;
+                    next[axis] = (_bounds[2 * axis] + (position[axis] + 1) * _cellSize[axis] - origin[axis]) / dir[axis];
+                    deltas[axis] = _cellSize[axis] / dir[axis];
+                }
+                else if (dir[axis] < 0) {
+                    steps[axis] = -1;
+                    next[axis] = (_bounds[2 * axis] + position[axis] * _cellSize[axis] - origin[axis]) / dir[axis];
+                    deltas[axis] = -_cellSize[axis] / dir[axis];
+                }
+                else {
+                    steps[axis] = 0;
+                    next[axis] = Double.POSITIVE_INFINITY;
+                    deltas[axis] = Double.POSITIVE_INFINITY;
+                }
+            }
+            mailbox.nextRay();
+            return true;
+        }
+
+        /**
+         * getter for the current cell
+         * @return index of the cell in the cells arrays
+         */
+        int cell() {
+            return cellIndex(position[0], position[1], position[2]);
+        }
+
+        /**
+         * calculates the distance in which the ray exits the current cell
+         * @return exit distance
+         */
+        double exit() {
+            return Math.min(next[0], Math.min(next[1], next[2]));
+        }
+
+        /**
+         * steps to the next cell the ray passes through
+         * @return false if the ray left the grid or the next cell is entered beyond the max entry distance
+         */
+        boolean step() {
+            int axis = next[0] < next[1] ? (next[0] < next[2] ? 0 : 2) : (next[1] < next[2] ? 1 : 2);
+            if (next[axis] > maxEntry)
+                return false;
+            position[axis] += steps[axis];
+            if (position[axis] < 0 || position[axis] >= _resolution[axis])
+                return false;
+            next[axis] += deltas[axis];
+            return true;
+        }
+    }
+}
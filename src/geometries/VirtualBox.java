@@ -146,56 +146,84 @@ public class VirtualBox {
     }
 
     /**
-     * checks whether a ray intersects the virtual box
+     * getter for the low edge of the box on a given axis
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return low edge value on the axis
+     */
+    public double get_low(int axis) {
+        return axis == 0 ? _lowX.get() : axis == 1 ? _lowY.get() : _lowZ.get();
+    }
+
+    /**
+     * getter for the high edge of the box on a given axis
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return high edge value on the axis
+     */
+    public double get_high(int axis) {
+        return axis == 0 ? _highX.get() : axis == 1 ? _highY.get() : _highZ.get();
+    }
+
+    /**
+     * calculates the center of the box on a given axis
+     * @param axis 0 for x, 1 for y, 2 for z
+     * @return center of the box on the axis
+     */
+    public double getCenter(int axis) {
+        return (get_low(axis) + get_high(axis)) / 2;
+    }
+
+    /**
+     * calculates the surface area of the box
+     * @return surface area of the box
+     */
+    public double getSurfaceArea() {
+        return surfaceArea(_highX.get() - _lowX.get(), _highY.get() - _lowY.get(), _highZ.get() - _lowZ.get());
+    }
+
+    /**
+     * calculates the surface area of a box by its edge lengths
+     * @param dx box's length on x axis
+     * @param dy box's length on y axis
+     * @param dz box's length on z axis
+     * @return surface area of the box, 0 for an empty box
+     */
+    static double surfaceArea(double dx, double dy, double dz) {
+        if (dx < 0 || dy < 0 || dz < 0)
+            return 0;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * checks whether a ray intersects the virtual box.<br>
+     * the slab test multiplies by the ray's cached inverse direction, and takes the near and far edges on every
+     * axis by the ray's signs. comparisons with NaN (ray parallel to a box's side and starting on it) are ignored,
+     * so the test is conservative
      * @param ray the ray o check intersection with
      * @return whether there is an intersection
      */
     public boolean hasIntersection(Ray ray){
-        double Ox = ray.getStartPoint().getX().get();
-        double Oy = ray.getStartPoint().getY().get();
-        double Oz = ray.getStartPoint().getZ().get();
-        double Dx = ray.getVector().getEndpoint().getX().get();
-        double Dy = ray.getVector().getEndpoint().getY().get();
-        double Dz = ray.getVector().getEndpoint().getZ().get();
-
-        double temp;
-
-        double tmin = (_lowX.get() - Ox) / Dx;
-        double tmax = (_highX.get() - Ox) / Dx;
-        if (tmin > tmax){
-            temp = tmin;
-            tmin = tmax;
-            tmax = temp;
-        }
-
-        double tymin = (_lowY.get() - Oy) / Dy;
-        double tymax = (_highY.get() - Oy) / Dy;
-        if (tymin > tymax){
-            temp = tymin;
-            tymin = tymax;
-            tymax = temp;
-        }
-
-        if((tmin > tymax) || (tymin > tmax))
-            return false;
-
-        if (tymin > tmin)
-            tmin = tymin;
-
-        if (tmax < tymax)
-            tmax = tymax;
-
-        double tzmin = (_lowZ.get() - Oz) / Dz;
-        double tzmax = (_highZ.get() - Oz) / Dz;
-        if (tzmin > tzmax){
-            temp = tzmin;
-            tzmin = tzmax;
-            tzmax = temp;
-        }
-
-      if ((tmin > tzmax) || (tzmin > tmax))
-            return false;
-      return true;
+        Point3D start = ray.getStartPoint();
+        double tmin = 0, tmax = Double.POSITIVE_INFINITY, t0, t1;
+
+        double Ox = start.getXValue();
+        t0 = ((ray.getSignX() == 0 ? _lowX : _highX).get() - Ox) * ray.getInverseXValue();
+        t1 = ((ray.getSignX() == 0 ? _highX : _lowX).get() - Ox) * ray.getInverseXValue();
+        if (t0 > tmin) tmin = t0;
+        if (t1 < tmax) tmax = t1;
+
+        double Oy = start.getYValue();
+        t0 = ((ray.getSignY() == 0 ? _lowY : _highY).get() - Oy) * ray.getInverseYValue();
+        t1 = ((ray.getSignY() == 0 ? _highY : _lowY).get() - Oy) * ray.getInverseYValue();
+        if (t0 > tmin) tmin = t0;
+        if (t1 < tmax) tmax = t1;
+
+        double Oz = start.getZValue();
+        t0 = ((ray.getSignZ() == 0 ? _lowZ : _highZ).get() - Oz) * ray.getInverseZValue();
+        t1 = ((ray.getSignZ() == 0 ? _highZ : _lowZ).get() - Oz) * ray.getInverseZValue();
+        if (t0 > tmin) tmin = t0;
+        if (t1 < tmax) tmax = t1;
+
+        return tmin <= tmax;
     }
 
     /**
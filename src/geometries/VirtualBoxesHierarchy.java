@@ -0,0 +1,1365 @@
+package geometries;
+
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+
+import static primitives.Util.alignZero;
+
+/**
+ * VirtualBoxesHierarchy class is a compiled, array based form of a virtual boxes hierarchy built in Geometries.
+ * the boxes are kept as primitive doubles in one array, in depth first order, so the first inner box of a box is
+ * always the box right after it. the geometries are reordered so every elementary box holds a continuous range
+ * of them. the hierarchy is traversed with a small int stack and nothing is allocated per ray.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class VirtualBoxesHierarchy implements AccelerationStructure {
+
+    //constants
+    /**
+     * max amount of rays traced together in a packet
+     */
+    public static final int MAX_PACKET_SIZE = 16;
+    /**
+     * first int of a hierarchy cache file ("VBH1")
+     */
+    private static final int CACHE_MAGIC = 0x56424831;
+    /**
+     * length in bytes of a hierarchy cache key
+     */
+    private static final int CACHE_KEY_LENGTH = 32;
+    /**
+     * length in bytes of a hierarchy cache file's header - magic, key, and amounts of boxes, geometries,
+     * infinite geometries and the depth
+     */
+    private static final int CACHE_HEADER_LENGTH = 4 + CACHE_KEY_LENGTH + 4 * 4;
+
+    //fields
+    /**
+     * boxes' edges, 6 values per box: lowX, highX, lowY, highY, lowZ, highZ
+     */
+    private final double[] _bounds;
+    /**
+     * for an inner box - index of its second inner box, for an elementary box - index of its first geometry
+     */
+    private final int[] _offsets;
+    /**
+     * for an elementary box - amount of its geometries, for an inner box - 0
+     */
+    private final int[] _counts;
+    /**
+     * finite geometries, ordered by elementary boxes. a geometry split by a spatial split is held by several
+     * elementary boxes
+     */
+    private final Intersectable[] _geometries;
+    /**
+     * for every place in the geometries - a number of its geometry, the same for all the places of a geometry.
+     * null if every geometry has one place
+     */
+    private final int[] _ids;
+    /**
+     * a mailbox for every rendering thread, so a ray that collects intersections tests a geometry held by several
+     * elementary boxes only once. null if every geometry has one place
+     */
+    private final ThreadLocal<Mailbox> _mailbox;
+    /**
+     * infinite geometries, tested for every ray
+     */
+    private final Intersectable[] _infiniteGeometries;
+    /**
+     * the values of the spheres and triangles of the elementary boxes, tested by the leaf kernel many at a time
+     */
+    private final LeafPrimitives _leaves;
+    /**
+     * whether elementary boxes of spheres and triangles are tested by the leaf kernel before their geometries
+     */
+    private boolean _batchLeaves = true;
+    /**
+     * a traversal stack for every rendering thread
+     */
+    private final ThreadLocal<TraversalStack> _stack;
+    /**
+     * a packet traversal state for every rendering thread
+     */
+    private final ThreadLocal<PacketState> _packet;
+    /**
+     * expected cost of a ray traversing the hierarchy when it was compiled, see {@link #cost()}
+     */
+    private final double _buildCost;
+    /**
+     * counters of the work of tracing rays through the hierarchy
+     */
+    private final TraversalStatistics _statistics = new TraversalStatistics();
+
+    //constructors
+    /**
+     * compiles a virtual boxes hierarchy
+     * @param root root of a virtual boxes hierarchy that was built in Geometries
+     */
+    public VirtualBoxesHierarchy(Geometries root) {
+        List<double[]> bounds = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        List<Intersectable> geometries = new ArrayList<>();
+        Set<Intersectable> infinite = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Intersectable> infiniteOrdered = new ArrayList<>();
+
+        int depth = 0;
+        if (root.getVirtualBox() != null) {
+            for (Intersectable geometry : root.getVirtualBox().get_infiniteGeometries())
+                if (infinite.add(geometry))
+                    infiniteOrdered.add(geometry);
+            depth = compile(root, bounds, offsets, counts, geometries, infinite, infiniteOrdered);
+        }
+        else {
+            // no finite geometries, all geometries are tested for every ray
+            for (Intersectable geometry : root.getChildren())
+                if (infinite.add(geometry))
+                    infiniteOrdered.add(geometry);
+        }
+
+        int size = offsets.size();
+        _bounds = new double[6 * size];
+        _offsets = new int[size];
+        _counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(bounds.get(i), 0, _bounds, 6 * i, 6);
+            _offsets[i] = offsets.get(i);
+            _counts[i] = counts.get(i);
+        }
+        _geometries = geometries.toArray(new Intersectable[0]);
+        _infiniteGeometries = infiniteOrdered.toArray(new Intersectable[0]);
+        _ids = null;
+        _mailbox = null;
+        _leaves = new LeafPrimitives(_geometries, _offsets, _counts);
+        final int stackSize = depth + 1, leafSize = _leaves.getMaxCount();
+        _stack = ThreadLocal.withInitial(() -> new TraversalStack(stackSize, leafSize));
+        _packet = ThreadLocal.withInitial(() -> new PacketState(stackSize, leafSize));
+        _buildCost = cost();
+    }
+
+    /**
+     * constructor for a hierarchy that was already compiled (loaded from a cache file, or built with spatial splits)
+     * @param bounds boxes' edges
+     * @param offsets boxes' offsets
+     * @param counts boxes' amounts of geometries
+     * @param geometries finite geometries, ordered by elementary boxes - a geometry may be held by several boxes
+     * @param infiniteGeometries infinite geometries
+     * @param depth depth of the hierarchy
+     */
+    VirtualBoxesHierarchy(double[] bounds, int[] offsets, int[] counts, Intersectable[] geometries,
+                                  Intersectable[] infiniteGeometries, int depth) {
+        _bounds = bounds;
+        _offsets = offsets;
+        _counts = counts;
+        _geometries = geometries;
+        _infiniteGeometries = infiniteGeometries;
+
+        // number the geometries, if some of them are held by several elementary boxes
+        Map<Intersectable, Integer> numbers = new IdentityHashMap<>();
+        int[] ids = new int[geometries.length];
+        for (int i = 0; i < geometries.length; i++)
+            ids[i] = numbers.computeIfAbsent(geometries[i], geometry -> numbers.size());
+        final int unique = numbers.size();
+        _ids = unique == geometries.length ? null : ids;
+        _mailbox = _ids == null ? null : ThreadLocal.withInitial(() -> new Mailbox(unique));
+        _leaves = new LeafPrimitives(geometries, offsets, counts);
+        final int stackSize = depth + 1, leafSize = _leaves.getMaxCount();
+        _stack = ThreadLocal.withInitial(() -> new TraversalStack(stackSize, leafSize));
+        _packet = ThreadLocal.withInitial(() -> new PacketState(stackSize, leafSize));
+        _buildCost = cost();
+    }
+
+    /**
+     * compiles a box of the hierarchy and its inner boxes recursively. sub function of the constructor
+     * @param box box to compile
+     * @param bounds compiled boxes' edges
+     * @param offsets compiled boxes' offsets
+     * @param counts compiled boxes' amounts of geometries
+     * @param geometries compiled geometries
+     * @param infinite infinite geometries found so far
+     * @param infiniteOrdered infinite geometries found so far, by order
+     * @return depth of the compiled box
+     */
+    private static int compile(Geometries box, List<double[]> bounds, List<Integer> offsets, List<Integer> counts,
+                               List<Intersectable> geometries,
+                               Set<Intersectable> infinite, List<Intersectable> infiniteOrdered) {
+        // an inner box with an empty inner box is replaced by its other inner box
+        if (!box.isLeaf()) {
+            Geometries low = (Geometries) box.getChildren().get(0);
+            Geometries high = (Geometries) box.getChildren().get(1);
+            if (low.getVirtualBox() == null)
+                return compile(high, bounds, offsets, counts, geometries, infinite, infiniteOrdered);
+            if (high.getVirtualBox() == null)
+                return compile(low, bounds, offsets, counts, geometries, infinite, infiniteOrdered);
+        }
+
+        VirtualBox virtualBox = box.getVirtualBox();
+        int index = offsets.size();
+        bounds.add(new double[]{virtualBox.get_lowX().get(), virtualBox.get_highX().get(),
+                virtualBox.get_lowY().get(), virtualBox.get_highY().get(),
+                virtualBox.get_lowZ().get(), virtualBox.get_highZ().get()});
+        offsets.add(0);
+        counts.add(0);
+
+        // elementary box - copy its finite geometries
+        if (box.isLeaf()) {
+            int first = geometries.size();
+            for (Intersectable geometry : box.getChildren()) {
+                if (geometry.getVirtualBox() != null)
+                    geometries.add(geometry);
+                else if (infinite.add(geometry))
+                    infiniteOrdered.add(geometry);
+            }
+            offsets.set(index, first);
+            counts.set(index, geometries.size() - first);
+            return 1;
+        }
+
+        // inner box - the first inner box follows it, the second one is pointed to by the offset
+        List<Intersectable> children = box.getChildren();
+        int lowDepth = compile((Geometries) children.get(0), bounds, offsets, counts, geometries, infinite, infiniteOrdered);
+        offsets.set(index, offsets.size());
+        int highDepth = compile((Geometries) children.get(1), bounds, offsets, counts, geometries, infinite, infiniteOrdered);
+        return 1 + Math.max(lowDepth, highDepth);
+    }
+
+    /**
+     * calculates the key of a hierarchy in the cache. the hierarchy depends only on the build method (and the budget
+     * of a spatial splits build) and on the virtual boxes of the geometries, by their order, so the key is a SHA-256
+     * hash of them. changing a geometry's material or color keeps the key, moving or adding a geometry changes it.
+     * polygons split by spatial splits are clipped by their vertices, which their boxes don't describe, so their
+     * vertices are hashed too
+     * @param geometries the single geometries the hierarchy is built over, in order
+     * @param method the method the hierarchy is built with
+     * @param spatialSplitsBudget budget of duplicated references of a spatial splits build
+     * @return the key
+     */
+    static byte[] cacheKey(List<Intersectable> geometries, Geometries.BuildMethod method, double spatialSplitsBudget) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+        digest.update(method.name().getBytes(StandardCharsets.UTF_8));
+        boolean spatialSplits = method == Geometries.BuildMethod.SPATIAL_SPLITS;
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        buffer.putInt(geometries.size());
+        if (spatialSplits)
+            buffer.putDouble(spatialSplitsBudget);
+        for (Intersectable geometry : geometries) {
+            if (buffer.remaining() < 1 + 6 * Double.BYTES) {
+                digest.update(buffer.flip());
+                buffer.clear();
+            }
+            VirtualBox box = geometry.getVirtualBox();
+            if (box == null) {
+                buffer.put((byte) 0);
+                continue;
+            }
+            buffer.put((byte) 1);
+            for (int axis = 0; axis < 3; axis++)
+                buffer.putDouble(box.get_low(axis)).putDouble(box.get_high(axis));
+            if (spatialSplits && geometry instanceof Polygon)
+                for (Point3D vertex : ((Polygon) geometry).get_vertices()) {
+                    if (buffer.remaining() < 3 * Double.BYTES) {
+                        digest.update(buffer.flip());
+                        buffer.clear();
+                    }
+                    buffer.putDouble(vertex.getXValue()).putDouble(vertex.getYValue())
+                            .putDouble(vertex.getZValue());
+                }
+        }
+        digest.update(buffer.flip());
+        return digest.digest();
+    }
+
+    /**
+     * getter for the name of a hierarchy's cache file
+     * @param key key of the hierarchy, see {@link #cacheKey(List, Geometries.BuildMethod, double)}
+     * @return file name
+     */
+    static String cacheFileName(byte[] key) {
+        StringBuilder name = new StringBuilder();
+        for (byte b : key)
+            name.append(String.format("%02x", b));
+        return name.append(".vbh").toString();
+    }
+
+    /**
+     * writes the hierarchy to a cache file. the geometries are written as their indices in the list the hierarchy
+     * was built over. the file is written next to its place and moved there, so a render that starts meanwhile
+     * never loads half a file
+     * @param file the cache file
+     * @param geometries the single geometries the hierarchy was built over, in order
+     * @param key key of the hierarchy, see {@link #cacheKey(List, Geometries.BuildMethod, double)}
+     * @throws IOException if the file can't be written
+     */
+    void save(Path file, List<Intersectable> geometries, byte[] key) throws IOException {
+        Map<Intersectable, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < geometries.size(); i++)
+            indices.put(geometries.get(i), i);
+
+        int size = _offsets.length;
+        ByteBuffer buffer = ByteBuffer.allocate(CACHE_HEADER_LENGTH + 6 * Double.BYTES * size
+                + Integer.BYTES * (2 * size + _geometries.length + _infiniteGeometries.length));
+        buffer.putInt(CACHE_MAGIC).put(key);
+        buffer.putInt(size).putInt(_geometries.length).putInt(_infiniteGeometries.length).putInt(depth());
+        buffer.asDoubleBuffer().put(_bounds);
+        buffer.position(buffer.position() + 6 * Double.BYTES * size);
+        for (int i = 0; i < size; i++)
+            buffer.putInt(_offsets[i]).putInt(_counts[i]);
+        for (Intersectable geometry : _geometries)
+            buffer.putInt(indices.get(geometry));
+        for (Intersectable geometry : _infiniteGeometries)
+            buffer.putInt(indices.get(geometry));
+        buffer.flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "hierarchy", ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * loads a hierarchy from a cache file. the file is mapped to memory and its arrays are copied in bulk,
+     * so loading takes about as long as reading the file
+     * @param file the cache file
+     * @param geometries the single geometries to build the hierarchy over, in order
+     * @param key key of the hierarchy, see {@link #cacheKey(List, Geometries.BuildMethod, double)}
+     * @return the hierarchy, null if there is no such file or it doesn't hold a hierarchy with this key
+     * @throws IOException if the file can't be read
+     */
+    static VirtualBoxesHierarchy load(Path file, List<Intersectable> geometries, byte[] key) throws IOException {
+        if (!Files.isRegularFile(file))
+            return null;
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < CACHE_HEADER_LENGTH)
+                return null;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int magic = buffer.getInt();
+        byte[] fileKey = new byte[CACHE_KEY_LENGTH];
+        buffer.get(fileKey);
+        if (magic != CACHE_MAGIC || !MessageDigest.isEqual(fileKey, key))
+            return null;
+        int size = buffer.getInt(), finite = buffer.getInt(), infinite = buffer.getInt(), depth = buffer.getInt();
+        if (size < 0 || finite < 0 || infinite < 0 || depth < 0 || buffer.remaining()
+                != 6L * Double.BYTES * size + (long) Integer.BYTES * (2L * size + finite + infinite))
+            return null;
+
+        double[] bounds = new double[6 * size];
+        buffer.asDoubleBuffer().get(bounds);
+        buffer.position(buffer.position() + 6 * Double.BYTES * size);
+        int[] offsets = new int[size];
+        int[] counts = new int[size];
+        for (int i = 0; i < size; i++) {
+            offsets[i] = buffer.getInt();
+            counts[i] = buffer.getInt();
+        }
+        Intersectable[] finiteGeometries = new Intersectable[finite];
+        Intersectable[] infiniteGeometries = new Intersectable[infinite];
+        for (Intersectable[] array : new Intersectable[][]{finiteGeometries, infiniteGeometries})
+            for (int i = 0; i < array.length; i++) {
+                int index = buffer.getInt();
+                if (index < 0 || index >= geometries.size())
+                    return null;
+                array[i] = geometries.get(index);
+            }
+        return new VirtualBoxesHierarchy(bounds, offsets, counts, finiteGeometries, infiniteGeometries, depth);
+    }
+
+    //getters
+    /**
+     * getter for the amount of boxes in the hierarchy
+     * @return amount of boxes
+     */
+    public int getBoxesCount() {
+        return _offsets.length;
+    }
+
+    /**
+     * getter for the boxes' edges, 6 values per box (the array itself, not a copy)
+     * @return boxes' edges
+     */
+    double[] getBounds() {
+        return _bounds;
+    }
+
+    /**
+     * getter for the boxes' offsets - index of the second inner box, or of the first geometry (the array itself,
+     * not a copy)
+     * @return boxes' offsets
+     */
+    int[] getOffsets() {
+        return _offsets;
+    }
+
+    /**
+     * getter for the boxes' amounts of geometries (the array itself, not a copy)
+     * @return boxes' amounts of geometries
+     */
+    int[] getCounts() {
+        return _counts;
+    }
+
+    /**
+     * getter for the finite geometries, ordered by elementary boxes (the array itself, not a copy)
+     * @return finite geometries
+     */
+    Intersectable[] getGeometries() {
+        return _geometries;
+    }
+
+    /**
+     * getter for the numbers of the geometries - the same for all the places of a geometry held by several
+     * elementary boxes (the array itself, not a copy)
+     * @return numbers of the geometries, null if every geometry has one place
+     */
+    int[] getGeometryIds() {
+        return _ids;
+    }
+
+    /**
+     * getter for the rendering thread's mailbox, for traversals that collect intersections
+     * @return the thread's mailbox, null if every geometry has one place
+     */
+    Mailbox getMailbox() {
+        return _mailbox == null ? null : _mailbox.get();
+    }
+
+    /**
+     * getter for the infinite geometries (the array itself, not a copy)
+     * @return infinite geometries
+     */
+    Intersectable[] getInfiniteGeometries() {
+        return _infiniteGeometries;
+    }
+
+    /**
+     * getter for the name of the leaf kernel the hierarchies use - the Vector API kernel when the
+     * jdk.incubator.vector module is enabled, otherwise the scalar kernel
+     * @return name of the leaf kernel
+     */
+    public static String getLeafKernel() {
+        return LeafKernel.INSTANCE.toString();
+    }
+
+    //setters
+    /**
+     * setter for testing elementary boxes of spheres and triangles by the leaf kernel, which drops the geometries a
+     * ray surely misses before they are tested one by one. the intersections found are the same either way
+     * @param batchLeaves whether to test the elementary boxes by the leaf kernel (the default)
+     */
+    public void setBatchLeaves(boolean batchLeaves) {
+        _batchLeaves = batchLeaves;
+    }
+
+    /**
+     * getter for the counters of the work of tracing rays through the hierarchy
+     * @return traversal statistics
+     */
+    @Override
+    public TraversalStatistics getTraversalStatistics() {
+        return _statistics;
+    }
+
+    //functions
+    /**
+     * refits the hierarchy after its geometries moved - the boxes keep their geometries, and their edges are
+     * recalculated bottom-up from the geometries' current virtual boxes, and the values of the batched spheres and
+     * triangles are copied again. inner boxes are always after their parent box, so one backwards pass over the
+     * boxes is enough.<br>
+     * the hierarchy must not be traversed while it is refitted.
+     * @return expected cost of a ray traversing the refitted hierarchy, relative to its cost when it was compiled.
+     * refitted boxes overlap more as the geometries move, so the cost grows until a rebuild is worth it
+     */
+    public double refit() {
+        for (int node = _offsets.length - 1; node >= 0; node--) {
+            int b = 6 * node;
+            int count = _counts[node];
+            if (count == 0) {
+                // inner box - merge the edges of its inner boxes
+                int low = 6 * (node + 1), high = 6 * _offsets[node];
+                for (int i = 0; i < 6; i += 2) {
+                    _bounds[b + i] = Math.min(_bounds[low + i], _bounds[high + i]);
+                    _bounds[b + i + 1] = Math.max(_bounds[low + i + 1], _bounds[high + i + 1]);
+                }
+                continue;
+            }
+            // elementary box - bound its geometries
+            for (int i = 0; i < 6; i += 2) {
+                _bounds[b + i] = Double.MAX_VALUE;
+                _bounds[b + i + 1] = -Double.MAX_VALUE;
+            }
+            int first = _offsets[node];
+            for (int i = first; i < first + count; i++) {
+                _leaves.set(i, _geometries[i]);
+                VirtualBox box = _geometries[i].getVirtualBox();
+                for (int axis = 0; axis < 3; axis++) {
+                    _bounds[b + 2 * axis] = Math.min(_bounds[b + 2 * axis], box.get_low(axis));
+                    _bounds[b + 2 * axis + 1] = Math.max(_bounds[b + 2 * axis + 1], box.get_high(axis));
+                }
+            }
+        }
+        return _buildCost == 0 ? 1 : cost() / _buildCost;
+    }
+
+    /**
+     * calculates the expected cost of a ray traversing the hierarchy by the surface area heuristic - the
+     * probability of a ray that hits the root box to hit every box is the ratio of their surface areas.
+     * visiting a box costs 1, and so does intersecting a geometry
+     * @return expected cost, 0 for a hierarchy without boxes or with a flat root box
+     */
+    private double cost() {
+        if (_offsets.length == 0)
+            return 0;
+        double rootArea = area(0);
+        if (rootArea == 0)
+            return 0;
+        double cost = 0;
+        for (int node = 0; node < _offsets.length; node++)
+            cost += area(node) * (_counts[node] == 0 ? 1 : _counts[node]);
+        return cost / rootArea;
+    }
+
+    /**
+     * creates a report of the hierarchy's quality - amount of boxes, histogram of the elementary boxes' depths,
+     * distribution of the amount of geometries in elementary boxes, the expected cost of a ray traversing the
+     * hierarchy (see {@link #cost()}) and how much the two inner boxes of every box overlap
+     * @return the report
+     */
+    @Override
+    public String getStatistics() {
+        int size = _offsets.length;
+        if (size == 0)
+            return String.format("no boxes, infinite geometries: %d%n", _infiniteGeometries.length);
+
+        // boxes are kept in depth first order, so every box's depth is known before its inner boxes
+        int[] depths = new int[size];
+        Map<Integer, Integer> leafDepths = new TreeMap<>();
+        Map<Integer, Integer> leafSizes = new TreeMap<>();
+        int inner = 0;
+        double overlap = 0;
+        for (int node = 0; node < size; node++) {
+            if (_counts[node] == 0) {
+                inner++;
+                depths[node + 1] = depths[_offsets[node]] = depths[node] + 1;
+                double area = area(node);
+                if (area > 0)
+                    overlap += overlapArea(node + 1, _offsets[node]) / area;
+            }
+            else {
+                leafDepths.merge(depths[node], 1, Integer::sum);
+                leafSizes.merge(_counts[node], 1, Integer::sum);
+            }
+        }
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("boxes: %d (inner: %d, elementary: %d), geometries: %d, infinite: %d%n",
+                size, inner, size - inner, _geometries.length, _infiniteGeometries.length));
+        builder.append("elementary boxes by depth:");
+        leafDepths.forEach((depth, count) -> builder.append(String.format(" %d:%d", depth, count)));
+        builder.append(String.format("%nelementary boxes by geometries:"));
+        leafSizes.forEach((geometries, count) -> builder.append(String.format(" %d:%d", geometries, count)));
+        builder.append(String.format("%nSAH cost: %.2f (when built: %.2f)%n", cost(), _buildCost));
+        builder.append(String.format("average overlap of inner boxes: %.2f%% of their box's area%n",
+                inner == 0 ? 0.0 : 100 * overlap / inner));
+        return builder.toString();
+    }
+
+    /**
+     * calculates the depth of the hierarchy - the amount of boxes on the longest path from the root box to an
+     * elementary box
+     * @return depth, 0 for a hierarchy without boxes
+     */
+    int depth() {
+        int size = _offsets.length;
+        if (size == 0)
+            return 0;
+        // boxes are kept in depth first order, so every box's depth is known before its inner boxes
+        int[] depths = new int[size];
+        depths[0] = 1;
+        int depth = 1;
+        for (int node = 0; node < size; node++) {
+            if (_counts[node] == 0)
+                depths[node + 1] = depths[_offsets[node]] = depths[node] + 1;
+            depth = Math.max(depth, depths[node]);
+        }
+        return depth;
+    }
+
+    /**
+     * calculates the surface area of the overlap of two boxes of the hierarchy
+     * @param first index of the first box
+     * @param second index of the second box
+     * @return surface area of the overlap, 0 if the boxes don't overlap
+     */
+    private double overlapArea(int first, int second) {
+        int a = 6 * first, b = 6 * second;
+        double[] sides = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            sides[axis] = Math.min(_bounds[a + 2 * axis + 1], _bounds[b + 2 * axis + 1])
+                    - Math.max(_bounds[a + 2 * axis], _bounds[b + 2 * axis]);
+            if (sides[axis] < 0)
+                return 0;
+        }
+        return VirtualBox.surfaceArea(sides[0], sides[1], sides[2]);
+    }
+
+    /**
+     * calculates the surface area of a box of the hierarchy
+     * @param node index of the box
+     * @return surface area of the box
+     */
+    double area(int node) {
+        int b = 6 * node;
+        return VirtualBox.surfaceArea(_bounds[b + 1] - _bounds[b], _bounds[b + 3] - _bounds[b + 2],
+                _bounds[b + 5] - _bounds[b + 4]);
+    }
+
+    /**
+     * finds all intersections of a ray with the geometries whose boxes are intersected by the ray
+     * @param ray the ray
+     * @return list of intersections, null if there are none
+     */
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = null;
+        List<GeoPoint> result;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            result = geometry.findIntersections(ray);
+            if (result != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(result);
+            }
+        }
+
+        if (_offsets.length == 0)
+            return intersections;
+
+
+        // a geometry held by several elementary boxes is tested once
+        Mailbox mailbox = getMailbox();
+        if (mailbox != null)
+            mailbox.nextRay();
+
+        int[] stack = _stack.get().nodes;
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (hasIntersection(node, ray)) {
+                int count = _counts[node];
+                if (count == 0) {
+                    // inner box - visit the first inner box now and the second one later
+                    stack[top++] = _offsets[node];
+                    node++;
+                    continue;
+                }
+                int first = _offsets[node];
+                for (int i = first; i < first + count; i++) {
+                    if (mailbox != null && !mailbox.mark(_ids[i]))
+                        continue;
+                    result = _geometries[i].findIntersections(ray);
+                    if (result != null) {
+                        if (intersections == null)
+                            intersections = new ArrayList<>();
+                        intersections.addAll(result);
+                    }
+                }
+            }
+            if (top == 0)
+                break;
+            node = stack[--top];
+        }
+        return intersections;
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point.<br>
+     * the boxes are visited front to back - the inner box the ray enters first is visited first, and boxes the
+     * ray enters beyond the closest intersection found so far are skipped.
+     * intersections at the ray's start point itself are ignored. the ray is counted as a primary ray.
+     * @param ray the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray) {
+        return findClosestIntersection(ray, RayType.PRIMARY);
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point, like
+     * {@link #findClosestIntersection(Ray)}, and counts the work by the kind of the ray
+     * @param ray the ray
+     * @param type kind of the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, RayType type) {
+        _statistics.count(type, 1, 0, _infiniteGeometries.length);
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        if (_offsets.length != 0)
+            findClosestInBox(0, ray, hit, type);
+        return hit.toGeoPoint();
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries of a box and its inner boxes, if it is closer
+     * than the closest intersection found so far. sub function of findClosestIntersection
+     * @param root index of the box
+     * @param ray the ray
+     * @param hit the closest intersection found so far, updated if a closer one is found
+     * @param type kind of the ray, to count the work by
+     */
+    private void findClosestInBox(int root, Ray ray, HitRecord hit, RayType type) {
+        // boxes are entered at distances in units of the ray's direction length, like the distances of the hit
+        // record. the max entry is kept finite, since missed boxes are entered at infinity
+        double maxEntry = Math.min(hit.t, Double.MAX_VALUE);
+
+        TraversalStack traversalStack = _stack.get();
+        int[] stack = traversalStack.nodes;
+        double[] entries = traversalStack.entries;
+        int top = 0;
+        int node = root;
+        double entry = entryDistance(root, ray);
+        int boxes = 0, tests = 0;
+        while (true) {
+            if (entry <= maxEntry) {
+                boxes++;
+                int count = _counts[node];
+                if (count == 0) {
+                    // inner box - visit the nearer inner box now and the farther one later
+                    int low = node + 1, high = _offsets[node];
+                    double lowEntry = entryDistance(low, ray);
+                    double highEntry = entryDistance(high, ray);
+                    if (lowEntry <= highEntry) {
+                        stack[top] = high;
+                        entries[top++] = highEntry;
+                        node = low;
+                        entry = lowEntry;
+                    }
+                    else {
+                        stack[top] = low;
+                        entries[top++] = lowEntry;
+                        node = high;
+                        entry = highEntry;
+                    }
+                    continue;
+                }
+                tests += count;
+                int[] candidates = traversalStack.candidates;
+                for (int c = 0, found = leafCandidates(node, ray, hit.t, candidates); c < found; c++)
+                    if (_geometries[candidates[c]].findNearestIntersection(ray, 0, hit.t, hit))
+                        maxEntry = hit.t;
+            }
+            if (top == 0)
+                break;
+            node = stack[--top];
+            entry = entries[top];
+        }
+        _statistics.count(type, 0, boxes, tests);
+    }
+
+    /**
+     * finds the closest intersections of a packet of coherent rays (rays of neighbouring pixels) together.
+     * every box is tested once for the whole packet, against all of its rays at once, and only the rays that
+     * enter a box go on to its inner boxes, so a box reached by a single ray is traversed by that ray alone.
+     * the boxes are visited front to back by the nearest entry of the packet's rays.<br>
+     * packets whose rays go in different directions (the signs of their directions differ) are traced ray by ray.
+     * @param rays the rays, at most {@link #MAX_PACKET_SIZE}
+     * @return for every ray - its closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint[] findClosestIntersections(Ray[] rays) {
+        int n = rays.length;
+        if (n > MAX_PACKET_SIZE || n < 2 || _offsets.length == 0 || !coherent(rays))
+            return AccelerationStructure.super.findClosestIntersections(rays);
+
+        PacketState packet = _packet.get();
+        // boxes and tests are counted for every ray of the packet that visits or tests them
+        int boxes = 0, tests = n * _infiniteGeometries.length;
+        for (int i = 0; i < n; i++) {
+            HitRecord hit = packet.hits[i];
+            hit.reset();
+            for (Intersectable geometry : _infiniteGeometries)
+                geometry.findNearestIntersection(rays[i], 0, hit.t, hit);
+            Point3D start = rays[i].getStartPoint();
+            packet.ox[i] = start.getXValue();
+            packet.oy[i] = start.getYValue();
+            packet.oz[i] = start.getZValue();
+            packet.invDx[i] = rays[i].getInverseXValue();
+            packet.invDy[i] = rays[i].getInverseYValue();
+            packet.invDz[i] = rays[i].getInverseZValue();
+            packet.maxEntries[i] = Math.min(hit.t, Double.MAX_VALUE);
+        }
+        packet.signX = rays[0].getSignX();
+        packet.signY = rays[0].getSignY();
+        packet.signZ = rays[0].getSignZ();
+
+        // a mask holds a bit for every ray of the packet that is still active in a box
+        int top = 0;
+        int node = 0;
+        int mask = packetEntries(0, (1 << n) - 1, packet, packet.lowEntries);
+        while (true) {
+            if (Integer.bitCount(mask) == 1) {
+                // the packet diverged - a single ray goes on alone in the box
+                int i = Integer.numberOfTrailingZeros(mask);
+                findClosestInBox(node, rays[i], packet.hits[i], RayType.PRIMARY);
+                packet.maxEntries[i] = Math.min(packet.hits[i].t, Double.MAX_VALUE);
+            }
+            else if (mask != 0) {
+                boxes += Integer.bitCount(mask);
+                int count = _counts[node];
+                if (count == 0) {
+                    // inner box - visit the nearer inner box now and the farther one later
+                    int low = node + 1, high = _offsets[node];
+                    int lowMask = packetEntries(low, mask, packet, packet.lowEntries);
+                    double lowNearest = packet.nearest;
+                    int highMask = packetEntries(high, mask, packet, packet.highEntries);
+                    double highNearest = packet.nearest;
+                    if (highMask != 0 && (lowMask == 0 || highNearest < lowNearest)) {
+                        if (lowMask != 0)
+                            top = push(packet, top, low, lowMask, packet.lowEntries, n);
+                        node = high;
+                        mask = highMask;
+                    }
+                    else {
+                        if (highMask != 0)
+                            top = push(packet, top, high, highMask, packet.highEntries, n);
+                        node = low;
+                        mask = lowMask;
+                    }
+                    continue;
+                }
+                // elementary box - test its geometries with the rays that entered it
+                tests += count * Integer.bitCount(mask);
+                int[] candidates = packet.candidates;
+                for (int rest = mask; rest != 0; rest &= rest - 1) {
+                    int i = Integer.numberOfTrailingZeros(rest);
+                    HitRecord hit = packet.hits[i];
+                    for (int c = 0, found = leafCandidates(node, rays[i], hit.t, candidates); c < found; c++)
+                        if (_geometries[candidates[c]].findNearestIntersection(rays[i], 0, hit.t, hit))
+                            packet.maxEntries[i] = hit.t;
+                }
+            }
+            if (top == 0)
+                break;
+            node = packet.nodes[--top];
+            mask = packet.masks[top];
+            // drop the rays that found intersections before the box since it was pushed
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int i = Integer.numberOfTrailingZeros(rest);
+                if (packet.entries[top * MAX_PACKET_SIZE + i] > packet.maxEntries[i])
+                    mask &= ~(1 << i);
+            }
+        }
+        _statistics.count(RayType.PRIMARY, n, boxes, tests);
+        GeoPoint[] closest = new GeoPoint[n];
+        for (int i = 0; i < n; i++)
+            closest[i] = packet.hits[i].toGeoPoint();
+        return closest;
+    }
+
+    /**
+     * checks whether the rays of a packet go in the same direction - the signs of their directions are the same, so
+     * they have the same near edges in every box
+     * @param rays the rays
+     * @return true if the rays are coherent
+     */
+    private static boolean coherent(Ray[] rays) {
+        int sx = rays[0].getSignX(), sy = rays[0].getSignY(), sz = rays[0].getSignZ();
+        for (Ray ray : rays)
+            if (ray.getSignX() != sx || ray.getSignY() != sy || ray.getSignZ() != sz)
+                return false;
+        return true;
+    }
+
+    /**
+     * calculates the distances along the active rays of a packet at which they enter a box of the hierarchy, and
+     * finds the rays that enter it before their closest intersections. the nearest entry of these rays is
+     * kept in the packet's state
+     * @param node index of the box
+     * @param mask the rays active in the box's parent
+     * @param packet the packet's state
+     * @param entries array to fill with the entry distances of the active rays
+     * @return the rays active in the box
+     */
+    private int packetEntries(int node, int mask, PacketState packet, double[] entries) {
+        // the rays are coherent, so the box's near and far edges are the same for all of them
+        int b = 6 * node;
+        double nearX = _bounds[b + packet.signX], farX = _bounds[b + 1 - packet.signX],
+                nearY = _bounds[b + 2 + packet.signY], farY = _bounds[b + 3 - packet.signY],
+                nearZ = _bounds[b + 4 + packet.signZ], farZ = _bounds[b + 5 - packet.signZ];
+        double t0, t1, tmin, tmax;
+        int active = 0;
+        packet.nearest = Double.POSITIVE_INFINITY;
+        // the same slab test for all active rays, over the packet's arrays
+        for (int rest = mask; rest != 0; rest &= rest - 1) {
+            int i = Integer.numberOfTrailingZeros(rest);
+            tmin = 0;
+            tmax = Double.POSITIVE_INFINITY;
+
+            t0 = (nearX - packet.ox[i]) * packet.invDx[i];
+            t1 = (farX - packet.ox[i]) * packet.invDx[i];
+            if (t0 > tmin) tmin = t0;
+            if (t1 < tmax) tmax = t1;
+
+            t0 = (nearY - packet.oy[i]) * packet.invDy[i];
+            t1 = (farY - packet.oy[i]) * packet.invDy[i];
+            if (t0 > tmin) tmin = t0;
+            if (t1 < tmax) tmax = t1;
+
+            t0 = (nearZ - packet.oz[i]) * packet.invDz[i];
+            t1 = (farZ - packet.oz[i]) * packet.invDz[i];
+            if (t0 > tmin) tmin = t0;
+            if (t1 < tmax) tmax = t1;
+
+            entries[i] = tmin <= tmax ? tmin : Double.POSITIVE_INFINITY;
+            if (entries[i] <= packet.maxEntries[i]) {
+                active |= 1 << i;
+                if (entries[i] < packet.nearest)
+                    packet.nearest = entries[i];
+            }
+        }
+        return active;
+    }
+
+    /**
+     * pushes a box to the packet's stack of boxes waiting to be visited
+     * @param packet the packet's state
+     * @param top size of the stack
+     * @param node index of the box
+     * @param mask the rays active in the box
+     * @param entries entry distances of the rays into the box
+     * @param n amount of rays in the packet
+     * @return new size of the stack
+     */
+    private static int push(PacketState packet, int top, int node, int mask, double[] entries, int n) {
+        packet.nodes[top] = node;
+        packet.masks[top] = mask;
+        System.arraycopy(entries, 0, packet.entries, top * MAX_PACKET_SIZE, n);
+        return top + 1;
+    }
+
+    /**
+     * finds the elementary boxes that might hold geometries inside a frustum - a pyramid from an apex, like the rays
+     * from the camera through a tile of pixels. the hierarchy is culled once for the whole frustum: a box that is
+     * outside one of the frustum's side planes is skipped with all of its inner boxes.
+     * @param apex apex of the frustum, all side planes pass through it
+     * @param normals normals of the frustum's side planes, pointing into the frustum
+     * @return indices of the elementary boxes, ordered by their distance from the apex
+     */
+    public int[] cullFrustum(Point3D apex, Vector... normals) {
+        if (_offsets.length == 0)
+            return new int[0];
+        double ax = apex.getXValue(), ay = apex.getYValue(), az = apex.getZValue();
+        double[] planes = new double[3 * normals.length];
+        for (int p = 0; p < normals.length; p++) {
+            planes[3 * p] = normals[p].getXValue();
+            planes[3 * p + 1] = normals[p].getYValue();
+            planes[3 * p + 2] = normals[p].getZValue();
+        }
+
+        List<Integer> boxes = new ArrayList<>();
+        int[] stack = _stack.get().nodes;
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (insideFrustum(node, ax, ay, az, planes)) {
+                if (_counts[node] == 0) {
+                    stack[top++] = _offsets[node];
+                    node++;
+                    continue;
+                }
+                boxes.add(node);
+            }
+            if (top == 0)
+                break;
+            node = stack[--top];
+        }
+
+        boxes.sort(Comparator.comparingDouble(box -> boxDistance(box, ax, ay, az)));
+        int[] result = new int[boxes.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = boxes.get(i);
+        return result;
+    }
+
+    /**
+     * checks whether a box of the hierarchy might be inside a frustum - it isn't entirely outside any of its planes.
+     * the corner of the box farthest along a plane's normal is tested against the plane
+     * @param node index of the box
+     * @param ax x of the frustum's apex
+     * @param ay y of the frustum's apex
+     * @param az z of the frustum's apex
+     * @param planes normals of the frustum's side planes, 3 values per plane
+     * @return false if the box is outside the frustum
+     */
+    private boolean insideFrustum(int node, double ax, double ay, double az, double[] planes) {
+        int b = 6 * node;
+        for (int p = 0; p < planes.length; p += 3) {
+            double nx = planes[p], ny = planes[p + 1], nz = planes[p + 2];
+            double x = (nx >= 0 ? _bounds[b + 1] : _bounds[b]) - ax;
+            double y = (ny >= 0 ? _bounds[b + 3] : _bounds[b + 2]) - ay;
+            double z = (nz >= 0 ? _bounds[b + 5] : _bounds[b + 4]) - az;
+            if (nx * x + ny * y + nz * z < 0)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * calculates the distance from a point to a box of the hierarchy
+     * @param node index of the box
+     * @param x x of the point
+     * @param y y of the point
+     * @param z z of the point
+     * @return the distance, 0 if the point is inside the box
+     */
+    private double boxDistance(int node, double x, double y, double z) {
+        int b = 6 * node;
+        double dx = Math.max(0, Math.max(_bounds[b] - x, x - _bounds[b + 1]));
+        double dy = Math.max(0, Math.max(_bounds[b + 2] - y, y - _bounds[b + 3]));
+        double dz = Math.max(0, Math.max(_bounds[b + 4] - z, z - _bounds[b + 5]));
+        return Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries of elementary boxes found by
+     * {@link #cullFrustum(Point3D, Vector...)}, for a ray from the frustum's apex inside the frustum.
+     * the boxes are tested by their order, and the search stops at the first box that is farther than
+     * the closest intersection found so far. intersections at the ray's start point itself are ignored.
+     * @param ray the ray, starting at the frustum's apex
+     * @param boxes indices of the elementary boxes, ordered by their distance from the ray's start point
+     * @return closest intersection, null if there is none
+     */
+    public GeoPoint findClosestIntersection(Ray ray, int[] boxes) {
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        Point3D start = ray.getStartPoint();
+        Vector direction = ray.getVector();
+        double ox = start.getXValue(), oy = start.getYValue(), oz = start.getZValue();
+        double length = direction.length();
+        int visited = 0, tests = _infiniteGeometries.length;
+        int[] candidates = _stack.get().candidates;
+        for (int node : boxes) {
+            if (boxDistance(node, ox, oy, oz) >= hit.t * length)
+                break;
+            visited++;
+            if (entryDistance(node, ray) > Math.min(hit.t, Double.MAX_VALUE))
+                continue;
+            tests += _counts[node];
+            for (int c = 0, found = leafCandidates(node, ray, hit.t, candidates); c < found; c++)
+                _geometries[candidates[c]].findNearestIntersection(ray, 0, hit.t, hit);
+        }
+        _statistics.count(RayType.PRIMARY, 1, visited, tests);
+        return hit.toGeoPoint();
+    }
+
+    /**
+     * calculates how much light passes along a ray up to a given distance, by multiplying the transparency factors
+     * of all the geometries the ray intersects before that distance. the traversal stops as soon as the light is
+     * blocked, and boxes the ray enters beyond the distance are skipped. the ray is counted as a shadow ray.
+     * @param ray the ray, from a point towards a light source
+     * @param maxDistance distance from the ray's start point to the light source
+     * @param minK transparency factor under which the light is considered blocked
+     * @return transparency factor, 0 if the light is blocked
+     */
+    @Override
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        Point3D start = ray.getStartPoint();
+        double ktr = 1.0;
+        int boxes = 0, tests = 0;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            tests++;
+            ktr = reduceTransparency(geometry.findIntersections(ray), start, maxDistance, ktr);
+            if (ktr < minK) {
+                _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                return 0.0;
+            }
+        }
+
+        if (_offsets.length == 0) {
+            _statistics.count(RayType.SHADOW, 1, boxes, tests);
+            return ktr;
+        }
+
+        Vector direction = ray.getVector();
+        double maxEntry = maxDistance / direction.length();
+        // a geometry held by several elementary boxes reduces the transparency once
+        Mailbox mailbox = getMailbox();
+        if (mailbox != null)
+            mailbox.nextRay();
+
+        TraversalStack traversalStack = _stack.get();
+        int[] stack = traversalStack.nodes;
+        int[] candidates = traversalStack.candidates;
+        int top = 0;
+        int node = 0;
+        while (true) {
+            if (entryDistance(node, ray) <= maxEntry) {
+                boxes++;
+                int count = _counts[node];
+                if (count == 0) {
+                    stack[top++] = _offsets[node];
+                    node++;
+                    continue;
+                }
+                for (int c = 0, found = leafCandidates(node, ray, maxEntry, candidates); c < found; c++) {
+                    int i = candidates[c];
+                    if (mailbox != null && !mailbox.mark(_ids[i]))
+                        continue;
+                    tests++;
+                    ktr = reduceTransparency(_geometries[i].findIntersections(ray), start, maxDistance, ktr);
+                    if (ktr < minK) {
+                        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                        return 0.0;
+                    }
+                }
+            }
+            if (top == 0)
+                break;
+            node = stack[--top];
+        }
+        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+        return ktr;
+    }
+
+    /**
+     * multiplies a transparency factor by the transparency factors of the geometries of all intersections that are
+     * not farther than a given distance from a start point
+     * @param intersections list of intersections, may be null
+     * @param start the start point
+     * @param maxDistance max distance of an intersection from the start point
+     * @param ktr transparency factor so far
+     * @return the reduced transparency factor
+     */
+    static double reduceTransparency(List<GeoPoint> intersections, Point3D start, double maxDistance, double ktr) {
+        if (intersections == null)
+            return ktr;
+        for (GeoPoint gp : intersections) {
+            if (alignZero(gp.point.distance(start) - maxDistance) <= 0) {
+                ktr *= gp.geometry.getMaterial().getKT();
+                if (ktr == 0)
+                    return 0.0;
+            }
+        }
+        return ktr;
+    }
+
+    /**
+     * finds the places of an elementary box's geometries that have to be tested against a ray. a batched box of
+     * spheres and triangles is tested by the leaf kernel, which drops the geometries the ray surely misses before
+     * the given distance, and all the geometries of other boxes are kept
+     * @param node index of the elementary box
+     * @param ray the ray
+     * @param tMax distance along the ray an intersection has to be closer than, may be infinity
+     * @param candidates array to fill with the places of the geometries to test, in their order
+     * @return amount of geometries to test
+     */
+    private int leafCandidates(int node, Ray ray, double tMax, int[] candidates) {
+        int first = _offsets[node], end = first + _counts[node];
+        int kinds = _leaves.getKinds(node);
+        if (_batchLeaves && kinds != 0)
+            return LeafKernel.INSTANCE.candidates(_leaves, kinds, first, end, ray, tMax, candidates);
+        for (int i = first; i < end; i++)
+            candidates[i - first] = i;
+        return end - first;
+    }
+
+    /**
+     * checks whether a ray intersects a box of the hierarchy
+     * @param node index of the box
+     * @param ray the ray
+     * @return whether there is an intersection
+     */
+    private boolean hasIntersection(int node, Ray ray) {
+        return entryDistance(node, ray) != Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * calculates the distance along a ray at which it enters a box of the hierarchy.<br>
+     * comparisons with NaN (ray parallel to a box's side and starting on it) are ignored, so the test is conservative.
+     * @param node index of the box
+     * @param ray the ray
+     * @return entry distance (0 if the ray starts inside the box), positive infinity if the ray misses the box
+     */
+    double entryDistance(int node, Ray ray) {
+        return entryDistance(_bounds, 6 * node, ray);
+    }
+
+    /**
+     * calculates the distance along a ray at which it enters a box, like {@link #entryDistance(int, Ray)}, for
+     * boxes kept by other structures.<br>
+     * the slab test multiplies by the ray's cached inverse direction, and the near and far edges on every axis are
+     * taken by the ray's signs, so no division or swapping is needed
+     * @param bounds boxes' edges
+     * @param b index of the box's low x edge - its edges are low x, high x, low y, high y, low z, high z
+     * @param ray the ray
+     * @return entry distance (0 if the ray starts inside the box), positive infinity if the ray misses the box
+     */
+    static double entryDistance(double[] bounds, int b, Ray ray) {
+        Point3D start = ray.getStartPoint();
+        double tmin = 0, tmax = Double.POSITIVE_INFINITY, t0, t1;
+
+        double ox = start.getXValue(), invDx = ray.getInverseXValue();
+        int sx = ray.getSignX();
+        t0 = (bounds[b + sx] - ox) * invDx;
+        t1 = (bounds[b + 1 - sx] - ox) * invDx;
+        if (t0 > tmin) tmin = t0;
+        if (t1 < tmax) tmax = t1;
+
+        double oy = start.getYValue(), invDy = ray.getInverseYValue();
+        int sy = ray.getSignY();
+        t0 = (bounds[b + 2 + sy] - oy) * invDy;
+        t1 = (bounds[b + 3 - sy] - oy) * invDy;
+        if (t0 > tmin) tmin = t0;
+        if (t1 < tmax) tmax = t1;
+
+        double oz = start.getZValue(), invDz = ray.getInverseZValue();
+        int sz = ray.getSignZ();
+        t0 = (bounds[b + 4 + sz] - oz) * invDz;
+        t1 = (bounds[b + 5 - sz] - oz) * invDz;
+        if (t0 > tmin) tmin = t0;
+        if (t1 < tmax) tmax = t1;
+
+        return tmin <= tmax ? tmin : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * TraversalStack class holds the stacks of boxes waiting to be visited by a traversal of the hierarchy.
+     * every rendering thread has its own stacks, so they are allocated only once.
+     */
+    private static class TraversalStack {
+        /**
+         * indices of boxes to visit
+         */
+        final int[] nodes;
+        /**
+         * distances in which the ray enters the boxes to visit
+         */
+        final double[] entries;
+        /**
+         * places of the geometries of an elementary box to test
+         */
+        final int[] candidates;
+
+        /**
+         * constructor for TraversalStack
+         * @param size max amount of boxes waiting to be visited
+         * @param leafSize largest amount of geometries in an elementary box
+         */
+        TraversalStack(int size, int leafSize) {
+            nodes = new int[size];
+            entries = new double[size];
+            candidates = new int[leafSize];
+        }
+    }
+
+    /**
+     * PacketState class holds the rays of a packet as arrays (one array for every value of the rays) and the stacks
+     * of boxes waiting to be visited by a packet traversal of the hierarchy.
+     * every rendering thread has its own state, so it is allocated only once.
+     */
+    private static class PacketState {
+        /**
+         * x, y and z of the rays' start points
+         */
+        final double[] ox = new double[MAX_PACKET_SIZE], oy = new double[MAX_PACKET_SIZE],
+                oz = new double[MAX_PACKET_SIZE];
+        /**
+         * 1 / x, y and z of the rays' directions
+         */
+        final double[] invDx = new double[MAX_PACKET_SIZE], invDy = new double[MAX_PACKET_SIZE],
+                invDz = new double[MAX_PACKET_SIZE];
+        /**
+         * signs of the rays' directions, by axes, the same for all the rays of a coherent packet
+         */
+        int signX, signY, signZ;
+        /**
+         * closest intersections of the rays found so far
+         */
+        final HitRecord[] hits = new HitRecord[MAX_PACKET_SIZE];
+        /**
+         * boxes entered by a ray beyond its max entry distance are skipped
+         */
+        final double[] maxEntries = new double[MAX_PACKET_SIZE];
+        /**
+         * entry distances of the rays into the inner boxes of the current box
+         */
+        final double[] lowEntries = new double[MAX_PACKET_SIZE], highEntries = new double[MAX_PACKET_SIZE];
+        /**
+         * nearest entry distance found by the last slab test
+         */
+        double nearest;
+        /**
+         * indices of boxes to visit
+         */
+        final int[] nodes;
+        /**
+         * rays active in the boxes to visit
+         */
+        final int[] masks;
+        /**
+         * entry distances of the rays into the boxes to visit, {@link #MAX_PACKET_SIZE} values per box
+         */
+        final double[] entries;
+        /**
+         * places of the geometries of an elementary box to test with a ray
+         */
+        final int[] candidates;
+
+        /**
+         * constructor for PacketState
+         * @param size max amount of boxes waiting to be visited
+         * @param leafSize largest amount of geometries in an elementary box
+         */
+        PacketState(int size, int leafSize) {
+            nodes = new int[size];
+            candidates = new int[leafSize];
+            masks = new int[size];
+            entries = new double[size * MAX_PACKET_SIZE];
+            for (int i = 0; i < MAX_PACKET_SIZE; i++)
+                hits[i] = new HitRecord();
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package geometries;
+
+import geometries.Intersectable.GeoPoint;
+import geometries.Intersectable.HitRecord;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * WideVirtualBoxesHierarchy class is a virtual boxes hierarchy whose boxes have 4 or 8 inner boxes instead of 2.
+ * it is collapsed from a compiled (binary) virtual boxes hierarchy - every box takes the inner boxes of its
+ * biggest inner boxes until it is full - so a ray visits about half (width 4) or a third (width 8) of the
+ * boxes it visits in the binary hierarchy.<br>
+ * the edges of the inner boxes of a box are kept side by side (all low x values, then all high x values, etc.),
+ * so a visit tests all of them in one branch free loop over continuous arrays that the JIT can unroll and
+ * vectorize. the elementary boxes and their geometries are the binary hierarchy's.<br>
+ * the hierarchy is a snapshot of the binary hierarchy - it should be collapsed again after the binary hierarchy
+ * is refitted or built again.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class WideVirtualBoxesHierarchy implements AccelerationStructure {
+
+    //fields
+    /**
+     * amount of inner boxes of a box
+     */
+    private final int _width;
+    /**
+     * inner boxes' edges, 6 * width values per box: width low x values, width high x values, then low and high
+     * y values and low and high z values. empty places are at positive infinity on every side, so rays miss them
+     */
+    private final double[] _bounds;
+    /**
+     * width values per box: for an inner box that isn't elementary - its index, for an elementary inner box -
+     * index of its first geometry
+     */
+    private final int[] _children;
+    /**
+     * width values per box: for an elementary inner box - amount of its geometries, otherwise 0
+     */
+    private final int[] _counts;
+    /**
+     * finite geometries, ordered by elementary boxes
+     */
+    private final Intersectable[] _geometries;
+    /**
+     * infinite geometries, tested for every ray
+     */
+    private final Intersectable[] _infiniteGeometries;
+    /**
+     * the binary hierarchy, for the numbers of geometries held by several elementary boxes and the mailboxes
+     */
+    private final VirtualBoxesHierarchy _hierarchy;
+    /**
+     * traversal state for every rendering thread
+     */
+    private final ThreadLocal<TraversalState> _state;
+    /**
+     * counters of the work of tracing rays through the hierarchy
+     */
+    private final TraversalStatistics _statistics = new TraversalStatistics();
+
+    //constructors
+    /**
+     * collapses a compiled virtual boxes hierarchy to a wide hierarchy
+     * @param hierarchy the compiled hierarchy
+     * @param width amount of inner boxes of a box, 4 or 8
+     */
+    public WideVirtualBoxesHierarchy(VirtualBoxesHierarchy hierarchy, int width) {
+        if (width != 4 && width != 8)
+            throw new IllegalArgumentException("Width must be 4 or 8");
+        _width = width;
+        _geometries = hierarchy.getGeometries();
+        _infiniteGeometries = hierarchy.getInfiniteGeometries();
+        _hierarchy = hierarchy;
+
+        List<double[]> bounds = new ArrayList<>();
+        List<int[]> children = new ArrayList<>();
+        List<int[]> counts = new ArrayList<>();
+        int depth = 0;
+        if (hierarchy.getBoxesCount() > 0)
+            depth = collapse(hierarchy, 0, bounds, children, counts);
+
+        int size = bounds.size();
+        _bounds = new double[6 * width * size];
+        _children = new int[width * size];
+        _counts = new int[width * size];
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(bounds.get(i), 0, _bounds, 6 * width * i, 6 * width);
+            System.arraycopy(children.get(i), 0, _children, width * i, width);
+            System.arraycopy(counts.get(i), 0, _counts, width * i, width);
+        }
+        // every visited box leaves at most width - 1 inner boxes waiting on the stack
+        final int stackSize = depth * (width - 1) + 1;
+        _state = ThreadLocal.withInitial(() -> new TraversalState(stackSize, width));
+    }
+
+    /**
+     * collapses a box of the binary hierarchy and its inner boxes to a wide box recursively. the box is opened to
+     * its inner boxes, and then the biggest inner box that isn't elementary is opened, until there are width inner
+     * boxes. sub function of the constructor
+     * @param hierarchy the binary hierarchy
+     * @param box index of the binary box
+     * @param bounds compiled wide boxes' edges
+     * @param children compiled wide boxes' inner boxes
+     * @param counts compiled wide boxes' amounts of geometries
+     * @return depth of the wide box
+     */
+    private int collapse(VirtualBoxesHierarchy hierarchy, int box, List<double[]> bounds, List<int[]> children,
+                         List<int[]> counts) {
+        int[] binaryOffsets = hierarchy.getOffsets();
+        int[] binaryCounts = hierarchy.getCounts();
+        double[] binaryBounds = hierarchy.getBounds();
+
+        List<Integer> inner = new ArrayList<>();
+        inner.add(box);
+        while (inner.size() < _width) {
+            int biggest = -1;
+            double biggestArea = -1;
+            for (int i = 0; i < inner.size(); i++) {
+                int b = inner.get(i);
+                if (binaryCounts[b] == 0 && hierarchy.area(b) > biggestArea) {
+                    biggest = i;
+                    biggestArea = hierarchy.area(b);
+                }
+            }
+            if (biggest < 0)
+                break;
+            int opened = inner.remove(biggest);
+            inner.add(opened + 1);
+            inner.add(binaryOffsets[opened]);
+        }
+
+        double[] nodeBounds = new double[6 * _width];
+        Arrays.fill(nodeBounds, Double.POSITIVE_INFINITY);
+        int[] nodeChildren = new int[_width];
+        int[] nodeCounts = new int[_width];
+        bounds.add(nodeBounds);
+        children.add(nodeChildren);
+        counts.add(nodeCounts);
+
+        int depth = 0;
+        for (int i = 0; i < inner.size(); i++) {
+            int b = inner.get(i);
+            for (int side = 0; side < 6; side++)
+                nodeBounds[side * _width + i] = binaryBounds[6 * b + side];
+            if (binaryCounts[b] != 0) {
+                nodeChildren[i] = binaryOffsets[b];
+                nodeCounts[i] = binaryCounts[b];
+                depth = Math.max(depth, 1);
+            }
+            else {
+                nodeChildren[i] = bounds.size();
+                depth = Math.max(depth, collapse(hierarchy, b, bounds, children, counts));
+            }
+        }
+        return 1 + depth;
+    }
+
+    //getters
+    /**
+     * getter for the amount of boxes in the hierarchy (not counting the elementary boxes, which are held by their
+     * parent boxes)
+     * @return amount of boxes
+     */
+    public int getBoxesCount() {
+        return _children.length / _width;
+    }
+
+    /**
+     * getter for the counters of the work of tracing rays through the hierarchy
+     * @return traversal statistics
+     */
+    @Override
+    public TraversalStatistics getTraversalStatistics() {
+        return _statistics;
+    }
+
+    //functions
+    /**
+     * creates a report of the hierarchy - amount of boxes and how full they are
+     * @return the report
+     */
+    @Override
+    public String getStatistics() {
+        int size = getBoxesCount();
+        if (size == 0)
+            return String.format("no boxes, infinite geometries: %d%n", _infiniteGeometries.length);
+        int used = 0, elementary = 0;
+        for (int slot = 0; slot < _children.length; slot++) {
+            if (_bounds[(slot / _width) * 6 * _width + slot % _width] != Double.POSITIVE_INFINITY) {
+                used++;
+                if (_counts[slot] != 0)
+                    elementary++;
+            }
+        }
+        return String.format("boxes: %d of width %d (elementary: %d), average inner boxes: %.2f, " +
+                        "geometries: %d, infinite: %d%n", size, _width, elementary, (double) used / size,
+                _geometries.length, _infiniteGeometries.length);
+    }
+
+    /**
+     * calculates the distances along a ray at which it enters every inner box of a box. the same test as the
+     * binary hierarchy's, on all the inner boxes at once - the edges are picked by the ray's signs once for the
+     * box, and comparisons with NaN (ray parallel to a box's side and starting on it) are ignored, so the test is
+     * conservative
+     * @param node index of the box
+     * @param ray the ray
+     * @param entries for every inner box - entry distance (0 if the ray starts inside the box), positive infinity
+     *                if the ray misses the box
+     */
+    private void entryDistances(int node, Ray ray, double[] entries) {
+        Point3D start = ray.getStartPoint();
+        double ox = start.getXValue(), oy = start.getYValue(), oz = start.getZValue();
+        double invDx = ray.getInverseXValue(), invDy = ray.getInverseYValue(), invDz = ray.getInverseZValue();
+        int w = _width;
+        // the edges of the inner boxes on every axis are kept as a block of low edges and a block of high edges
+        int lowX = 6 * w * node, lowY = lowX + 2 * w, lowZ = lowY + 2 * w;
+        int nearX = lowX + ray.getSignX() * w, farX = lowX + w - ray.getSignX() * w;
+        int nearY = lowY + ray.getSignY() * w, farY = lowY + w - ray.getSignY() * w;
+        int nearZ = lowZ + ray.getSignZ() * w, farZ = lowZ + w - ray.getSignZ() * w;
+        for (int i = 0; i < w; i++) {
+            double near = (_bounds[nearX + i] - ox) * invDx, far = (_bounds[farX + i] - ox) * invDx;
+            double tmin = near > 0 ? near : 0, tmax = far < Double.POSITIVE_INFINITY ? far : Double.POSITIVE_INFINITY;
+
+            near = (_bounds[nearY + i] - oy) * invDy;
+            far = (_bounds[farY + i] - oy) * invDy;
+            tmin = near > tmin ? near : tmin;
+            tmax = far < tmax ? far : tmax;
+
+            near = (_bounds[nearZ + i] - oz) * invDz;
+            far = (_bounds[farZ + i] - oz) * invDz;
+            tmin = near > tmin ? near : tmin;
+            tmax = far < tmax ? far : tmax;
+
+            entries[i] = tmin <= tmax ? tmin : Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /**
+     * pushes the inner boxes of a box that a ray enters before a given distance to the traversal stack, the
+     * nearest last so it is visited first
+     * @param state traversal state, with the inner boxes' entry distances
+     * @param top amount of boxes on the stack
+     * @param node index of the box
+     * @param maxEntry distance beyond which boxes are skipped
+     * @return amount of boxes on the stack
+     */
+    private int push(TraversalState state, int top, int node, double maxEntry) {
+        int[] stack = state.slots;
+        double[] entries = state.entries;
+        int base = top;
+        for (int i = 0; i < _width; i++) {
+            double entry = state.children[i];
+            if (entry > maxEntry)
+                continue;
+            // insertion sort - farther boxes first
+            int j = top++;
+            while (j > base && entries[j - 1] < entry) {
+                stack[j] = stack[j - 1];
+                entries[j] = entries[j - 1];
+                j--;
+            }
+            stack[j] = node * _width + i;
+            entries[j] = entry;
+        }
+        return top;
+    }
+
+    /**
+     * finds all intersections of a ray with the geometries whose boxes are intersected by the ray
+     * @param ray the ray
+     * @return list of intersections, null if there are none
+     */
+    @Override
+    public List<GeoPoint> findIntersections(Ray ray) {
+        List<GeoPoint> intersections = null;
+        List<GeoPoint> result;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            result = geometry.findIntersections(ray);
+            if (result != null) {
+                if (intersections == null)
+                    intersections = new ArrayList<>();
+                intersections.addAll(result);
+            }
+        }
+
+        if (_children.length == 0)
+            return intersections;
+
+
+        // a geometry held by several elementary boxes is tested once
+        int[] ids = _hierarchy.getGeometryIds();
+        Mailbox mailbox = _hierarchy.getMailbox();
+        if (mailbox != null)
+            mailbox.nextRay();
+
+        TraversalState state = _state.get();
+        int top = 0;
+        int node = 0;
+        while (node >= 0) {
+            entryDistances(node, ray, state.children);
+            top = push(state, top, node, Double.MAX_VALUE);
+            node = -1;
+            while (top > 0) {
+                int slot = state.slots[--top];
+                int count = _counts[slot];
+                if (count == 0) {
+                    node = _children[slot];
+                    break;
+                }
+                int first = _children[slot];
+                for (int i = first; i < first + count; i++) {
+                    if (mailbox != null && !mailbox.mark(ids[i]))
+                        continue;
+                    result = _geometries[i].findIntersections(ray);
+                    if (result != null) {
+                        if (intersections == null)
+                            intersections = new ArrayList<>();
+                        intersections.addAll(result);
+                    }
+                }
+            }
+        }
+        return intersections;
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point.<br>
+     * the boxes are visited front to back, and boxes the ray enters beyond the closest intersection found so far
+     * are skipped. intersections at the ray's start point itself are ignored. the ray is counted as a primary ray.
+     * @param ray the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray) {
+        return findClosestIntersection(ray, RayType.PRIMARY);
+    }
+
+    /**
+     * finds the closest intersection of a ray with the geometries to the ray's start point, like
+     * {@link #findClosestIntersection(Ray)}, and counts the work by the kind of the ray
+     * @param ray the ray
+     * @param type kind of the ray
+     * @return closest intersection, null if there is none
+     */
+    @Override
+    public GeoPoint findClosestIntersection(Ray ray, RayType type) {
+        HitRecord hit = new HitRecord();
+        for (Intersectable geometry : _infiniteGeometries)
+            geometry.findNearestIntersection(ray, 0, hit.t, hit);
+
+        if (_children.length == 0) {
+            _statistics.count(type, 1, 0, _infiniteGeometries.length);
+            return hit.toGeoPoint();
+        }
+
+        // see VirtualBoxesHierarchy - the max entry is kept finite, since missed boxes are entered at infinity
+        double maxEntry = Math.min(hit.t, Double.MAX_VALUE);
+
+        TraversalState state = _state.get();
+        int top = 0;
+        int node = 0;
+        int boxes = 0, tests = _infiniteGeometries.length;
+        while (node >= 0) {
+            boxes++;
+            entryDistances(node, ray, state.children);
+            top = push(state, top, node, maxEntry);
+            node = -1;
+            while (top > 0) {
+                top--;
+                if (state.entries[top] > maxEntry)
+                    continue;
+                int slot = state.slots[top];
+                int count = _counts[slot];
+                if (count == 0) {
+                    node = _children[slot];
+                    break;
+                }
+                boxes++;
+                int first = _children[slot];
+                tests += count;
+                for (int i = first; i < first + count; i++) {
+                    if (_geometries[i].findNearestIntersection(ray, 0, hit.t, hit))
+                        maxEntry = hit.t;
+                }
+            }
+        }
+        _statistics.count(type, 1, boxes, tests);
+        return hit.toGeoPoint();
+    }
+
+    /**
+     * calculates how much light passes along a ray up to a given distance, by multiplying the transparency factors
+     * of all the geometries the ray intersects before that distance. the boxes are visited in any order, and the
+     * search stops as soon as the light is blocked
+     * @param ray the ray, from a point towards a light source
+     * @param maxDistance distance from the ray's start point to the light source
+     * @param minK transparency factor under which the light is considered blocked
+     * @return transparency factor, 0 if the light is blocked
+     */
+    @Override
+    public double findTransparency(Ray ray, double maxDistance, double minK) {
+        Point3D start = ray.getStartPoint();
+        double ktr = 1.0;
+        int boxes = 0, tests = 0;
+
+        for (Intersectable geometry : _infiniteGeometries) {
+            tests++;
+            ktr = VirtualBoxesHierarchy.reduceTransparency(geometry.findIntersections(ray), start, maxDistance, ktr);
+            if (ktr < minK) {
+                _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                return 0.0;
+            }
+        }
+
+        if (_children.length == 0) {
+            _statistics.count(RayType.SHADOW, 1, boxes, tests);
+            return ktr;
+        }
+
+        Vector direction = ray.getVector();
+        double maxEntry = maxDistance / direction.length();
+        // a geometry held by several elementary boxes reduces the transparency once
+        int[] ids = _hierarchy.getGeometryIds();
+        Mailbox mailbox = _hierarchy.getMailbox();
+        if (mailbox != null)
+            mailbox.nextRay();
+
+        TraversalState state = _state.get();
+        int[] stack = state.slots;
+        double[] entries = state.children;
+        int top = 0;
+        int node = 0;
+        while (node >= 0) {
+            boxes++;
+            entryDistances(node, ray, entries);
+            for (int i = 0; i < _width; i++)
+                if (entries[i] <= maxEntry)
+                    stack[top++] = node * _width + i;
+            node = -1;
+            while (top > 0) {
+                int slot = stack[--top];
+                int count = _counts[slot];
+                if (count == 0) {
+                    node = _children[slot];
+                    break;
+                }
+                boxes++;
+                int first = _children[slot];
+                for (int i = first; i < first + count; i++) {
+                    if (mailbox != null && !mailbox.mark(ids[i]))
+                        continue;
+                    tests++;
+                    ktr = VirtualBoxesHierarchy.reduceTransparency(_geometries[i].findIntersections(ray), start,
+                            maxDistance, ktr);
+                    if (ktr < minK) {
+                        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+                        return 0.0;
+                    }
+                }
+            }
+        }
+        _statistics.count(RayType.SHADOW, 1, boxes, tests);
+        return ktr;
+    }
+
+    /**
+     * TraversalState class holds the stack of inner boxes waiting to be visited by a traversal of the hierarchy,
+     * and the entry distances of the inner boxes of the visited box. every rendering thread has its own state,
+     * so it is allocated only once.
+     */
+    private static class TraversalState {
+        /**
+         * inner boxes to visit, as box index * width + place in the box
+         */
+        final int[] slots;
+        /**
+         * distances in which the ray enters the inner boxes to visit
+         */
+        final double[] entries;
+        /**
+         * distances in which the ray enters the inner boxes of the visited box
+         */
+        final double[] children;
+
+        /**
+         * constructor for TraversalState
+         * @param size max amount of inner boxes waiting to be visited
+         * @param width amount of inner boxes of a box
+         */
+        TraversalState(int size, int width) {
+            slots = new int[size];
+            entries = new double[size];
+            children = new double[width];
+        }
+    }
+}
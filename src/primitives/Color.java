@@ -11,9 +11,10 @@ package primitives;
 public class Color {
     /**
      * The internal fields tx`o maintain RGB components as double numbers from 0 to
-     * whatever...
+     * whatever... intentionally "package-friendly" so ColorAccumulator reads them
+     * without copies
      */
-    private double _r = 0.0, _g = 0.0, _b = 0.0;
+    double _r = 0.0, _g = 0.0, _b = 0.0;
 
     public final static Color BLACK = new Color();
 
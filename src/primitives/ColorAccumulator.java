@@ -0,0 +1,159 @@
+package primitives;
+
+/**
+ * Class ColorAccumulator is a mutable color that colors are added to in place, so summing the colors of the light
+ * sources and of the sample rays at a point doesn't create a color for every step.<br>
+ * every operation does the same arithmetic as the matching operation of Color, in the same order, so a color
+ * summed in an accumulator is exactly the color Color's operations give. an accumulator is meant to be reused by
+ * one thread.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public final class ColorAccumulator {
+
+    //fields
+    /**
+     * RGB components
+     */
+    private double _r = 0.0, _g = 0.0, _b = 0.0;
+
+    //constructors
+    /**
+     * constructor for a black ColorAccumulator
+     */
+    public ColorAccumulator() {
+    }
+
+    //setters
+    /**
+     * resets the accumulator to black
+     *
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator reset() {
+        _r = 0.0;
+        _g = 0.0;
+        _b = 0.0;
+        return this;
+    }
+
+    /**
+     * sets the accumulator to a color
+     *
+     * @param color the color
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator set(Color color) {
+        _r = color._r;
+        _g = color._g;
+        _b = color._b;
+        return this;
+    }
+
+    //functions
+    /**
+     * adds a color, like {@link Color#add(Color...)}
+     *
+     * @param color the color to add
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator add(Color color) {
+        _r += color._r;
+        _g += color._g;
+        _b += color._b;
+        return this;
+    }
+
+    /**
+     * adds another accumulator's color
+     *
+     * @param color the accumulator to add
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator add(ColorAccumulator color) {
+        _r += color._r;
+        _g += color._g;
+        _b += color._b;
+        return this;
+    }
+
+    /**
+     * adds a scaled color, like adding the color of {@link Color#scale(double)}
+     *
+     * @param color the color to add
+     * @param k scale factor
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator addScaled(Color color, double k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Can't scale a color by a negative number");
+        _r += color._r * k;
+        _g += color._g * k;
+        _b += color._b * k;
+        return this;
+    }
+
+    /**
+     * adds another accumulator's scaled color
+     *
+     * @param color the accumulator to add
+     * @param k scale factor
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator addScaled(ColorAccumulator color, double k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Can't scale a color by a negative number");
+        _r += color._r * k;
+        _g += color._g * k;
+        _b += color._b * k;
+        return this;
+    }
+
+    /**
+     * scales the color by a scalar, like {@link Color#scale(double)}
+     *
+     * @param k scale factor
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator scale(double k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Can't scale a color by a negative number");
+        _r *= k;
+        _g *= k;
+        _b *= k;
+        return this;
+    }
+
+    /**
+     * scales the color by (1 / reduction factor), like {@link Color#reduce(double)}
+     *
+     * @param k reduction factor
+     * @return the accumulator itself for chaining calls
+     */
+    public ColorAccumulator reduce(double k) {
+        if (k < 1)
+            throw new IllegalArgumentException("Can't scale a color by a by a number lower than 1");
+        _r /= k;
+        _g /= k;
+        _b /= k;
+        return this;
+    }
+
+    /**
+     * creates a color with the accumulated components
+     *
+     * @return the new color
+     */
+    public Color toColor() {
+        return new Color(_r, _g, _b);
+    }
+
+    /**
+     * returns the accumulated color as java.awt.Color, like {@link Color#getColor()}
+     *
+     * @return java.awt.Color object based on the accumulated RGB components
+     */
+    public java.awt.Color getColor() {
+        int r = (int)_r, g = (int)_g, b = (int)_b;
+        return new java.awt.Color(r > 255 ? 255 : r, g > 255 ? 255 : g, b > 255 ? 255 : b);
+    }
+}
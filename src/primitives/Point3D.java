@@ -1,5 +1,7 @@
 package primitives;
 
+import static primitives.Util.*;
+
 /**
  * Class Point3D is the basic class representing a 3-Dimensional point of Euclidean geometry in Cartesian
  * 3-Dimensional coordinate system.
@@ -10,17 +12,17 @@ public class Point3D {
 
     //fields
     /**
-     * Coordinate x
+     * x value, aligned to zero like a coordinate
      */
-    private Coordinate _x;
+    private final double _x;
     /**
-     * Coordinate y
+     * y value, aligned to zero like a coordinate
      */
-    private Coordinate _y;
+    private final double _y;
     /**
-     * Coordinate z
+     * z value, aligned to zero like a coordinate
      */
-    private Coordinate _z;
+    private final double _z;
 
     /**
      * Zero point, static and constant
@@ -36,9 +38,9 @@ public class Point3D {
      * @param z coordinate _z value
      */
     public Point3D(Coordinate x, Coordinate y, Coordinate z) {
-        _x = new Coordinate(x);
-        _y = new Coordinate(y);
-        _z = new Coordinate(z);
+        _x = x._coord;
+        _y = y._coord;
+        _z = z._coord;
     }
 
     /**
@@ -49,9 +51,9 @@ public class Point3D {
      * @param z coordinate _z value
      */
     public Point3D(double x, double y, double z) {
-        _x = new Coordinate(x);
-        _y = new Coordinate(y);
-        _z = new Coordinate(z);
+        _x = alignZero(x);
+        _y = alignZero(y);
+        _z = alignZero(z);
     }
 
     /**
@@ -67,11 +69,38 @@ public class Point3D {
 
     //getters
     /**
-     * Point3D x value getter
+     * Point3D x value getter, creates a coordinate - use {@link #getXValue()} on hot paths
      *
      * @return x value
      */
     public Coordinate getX() {
+        return new Coordinate(_x);
+    }
+
+    /**
+     * Point3D y value getter, creates a coordinate - use {@link #getYValue()} on hot paths
+     *
+     * @return y value
+     */
+    public Coordinate getY() {
+        return new Coordinate(_y);
+    }
+
+    /**
+     * Point3D z value getter, creates a coordinate - use {@link #getZValue()} on hot paths
+     *
+     * @return z value
+     */
+    public Coordinate getZ() {
+        return new Coordinate(_z);
+    }
+
+    /**
+     * Point3D x value getter
+     *
+     * @return x value
+     */
+    public double getXValue() {
         return _x;
     }
 
@@ -80,7 +109,7 @@ public class Point3D {
      *
      * @return y value
      */
-    public Coordinate getY() {
+    public double getYValue() {
         return _y;
     }
 
@@ -89,7 +118,7 @@ public class Point3D {
      *
      * @return z value
      */
-    public Coordinate getZ() {
+    public double getZValue() {
         return _z;
     }
 
@@ -101,9 +130,7 @@ public class Point3D {
      * @return vector from this point to p
      */ //what about zero vector?
     public Vector subtract(Point3D p){
-        //create Point3D from subtraction
-        Point3D endpoint = new Point3D(_x.get() - p._x.get(), _y.get() - p._y.get(), _z.get() - p._z.get());
-        return new Vector(endpoint);
+        return new Vector(_x - p._x, _y - p._y, _z - p._z);
     }
 
     /**
@@ -114,7 +141,7 @@ public class Point3D {
      */
     public Point3D add(Vector v){
         //create Point3D from addition
-        return new Point3D(_x.get() + v.getEndpoint().getX().get(), _y.get() + v.getEndpoint().getY().get(), _z.get() + v.getEndpoint().getZ().get());
+        return new Point3D(_x + v.getXValue(), _y + v.getYValue(), _z + v.getZValue());
     }
 
     /**
@@ -124,9 +151,10 @@ public class Point3D {
      * @return squared distance between this point and p
      */
     public double distanceSquared(Point3D p){
-        return ((_x.get() - p._x.get()) * (_x.get() - p._x.get())) +
-                ((_y.get() - p._y.get()) * (_y.get() - p._y.get())) +
-                ((_z.get() - p._z.get()) * (_z.get() - p._z.get()));
+        double x = _x - p._x;
+        double y = _y - p._y;
+        double z = _z - p._z;
+        return x * x + y * y + z * z;
     }
 
     /**
@@ -146,11 +174,11 @@ public class Point3D {
         if (obj == null) return false;
         if (!(obj instanceof Point3D)) return false;
         Point3D oth = (Point3D)obj;
-        return _x.equals(oth._x) && _y.equals(oth._y) && _z.equals(oth._z);
+        return isZero(_x - oth._x) && isZero(_y - oth._y) && isZero(_z - oth._z);
     }
 
     @Override
     public String toString() {
-        return "(" + _x.toString() + "," + _y.toString() + "," + _z.toString() + ")";
+        return "(" + _x + "," + _y + "," + _z + ")";
     }
 }
@@ -20,6 +20,17 @@ public class Ray {
      */
     private Vector _vector;
 
+    /**
+     * 1 / the values of the ray's vector, by axes. a value is infinity if the vector's value is 0
+     */
+    private double _inverseX, _inverseY, _inverseZ;
+
+    /**
+     * signs of the ray's vector, by axes - 1 if the vector's value is negative, 0 otherwise.
+     * a box's near edge on an axis is its (low, high) edge at this index
+     */
+    private int _signX, _signY, _signZ;
+
     //constructors
     /**
      * Ray constructor receiving a start point and a direction vector
@@ -28,10 +39,12 @@ public class Ray {
      * @param vector ray's direction vector
      */
     public Ray(Point3D point, Vector vector) {
-        if (vector.length() != 1)
+        // the squared length is 1 for a normalized vector as well, and normalizing a vector of length 1 changes nothing
+        if (vector.lengthSquared() != 1)
             vector.normalize();
         _startpoint = point;
         _vector = vector;
+        setInverse();
     }
 
     /**
@@ -42,9 +55,22 @@ public class Ray {
      * @param normal normal to the geometry 'head' is located on at 'head'
      */
     public Ray(Point3D head, Vector direction, Vector normal){
-        Vector delta = normal.scale(direction.dotProduct(normal) > 0 ? DELTA : - DELTA);
-        _startpoint = head.add(delta);
+        double delta = direction.dotProduct(normal) > 0 ? DELTA : - DELTA;
+        _startpoint = new Point3D(head.getXValue() + normal.getXValue() * delta,
+                head.getYValue() + normal.getYValue() * delta, head.getZValue() + normal.getZValue() * delta);
         _vector = direction;
+        setInverse();
+    }
+
+    /**
+     * Ray constructor receiving a start point and another ray<br>
+     * constructs a ray in the other ray's direction, that is already normalized, that starts at the point
+     * @param point ray's start point
+     * @param other ray in the new ray's direction
+     */
+    public Ray(Point3D point, Ray other) {
+        _startpoint = point;
+        copyDirection(other);
     }
 
     /**
@@ -54,7 +80,33 @@ public class Ray {
      */
     public Ray(Ray other) {
         _startpoint = other._startpoint;
+        copyDirection(other);
+    }
+
+    /**
+     * calculates the inverse and the signs of the ray's vector
+     */
+    private void setInverse() {
+        _inverseX = 1 / _vector.getXValue();
+        _inverseY = 1 / _vector.getYValue();
+        _inverseZ = 1 / _vector.getZValue();
+        _signX = _inverseX < 0 ? 1 : 0;
+        _signY = _inverseY < 0 ? 1 : 0;
+        _signZ = _inverseZ < 0 ? 1 : 0;
+    }
+
+    /**
+     * copies the vector of another ray, with its inverse and signs
+     * @param other the other ray
+     */
+    private void copyDirection(Ray other) {
         _vector = other._vector;
+        _inverseX = other._inverseX;
+        _inverseY = other._inverseY;
+        _inverseZ = other._inverseZ;
+        _signX = other._signX;
+        _signY = other._signY;
+        _signZ = other._signZ;
     }
 
     //getters
@@ -76,6 +128,60 @@ public class Ray {
         return _vector;
     }
 
+    /**
+     * 1 / x value of the ray's direction vector getter
+     *
+     * @return 1 / x value of the direction vector, infinity if it is 0
+     */
+    public double getInverseXValue() {
+        return _inverseX;
+    }
+
+    /**
+     * 1 / y value of the ray's direction vector getter
+     *
+     * @return 1 / y value of the direction vector, infinity if it is 0
+     */
+    public double getInverseYValue() {
+        return _inverseY;
+    }
+
+    /**
+     * 1 / z value of the ray's direction vector getter
+     *
+     * @return 1 / z value of the direction vector, infinity if it is 0
+     */
+    public double getInverseZValue() {
+        return _inverseZ;
+    }
+
+    /**
+     * sign of x value of the ray's direction vector getter
+     *
+     * @return 1 if x value of the direction vector is negative, 0 otherwise
+     */
+    public int getSignX() {
+        return _signX;
+    }
+
+    /**
+     * sign of y value of the ray's direction vector getter
+     *
+     * @return 1 if y value of the direction vector is negative, 0 otherwise
+     */
+    public int getSignY() {
+        return _signY;
+    }
+
+    /**
+     * sign of z value of the ray's direction vector getter
+     *
+     * @return 1 if z value of the direction vector is negative, 0 otherwise
+     */
+    public int getSignZ() {
+        return _signZ;
+    }
+
     //methods
     /**
      * get a point on the ray at distance t from the start point
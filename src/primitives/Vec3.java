@@ -0,0 +1,281 @@
+package primitives;
+
+/**
+ * Class Vec3 is a mutable 3-Dimensional vector (or point) for calculations that would otherwise create a chain of
+ * temporary vectors and points. every operation changes this vector and returns it, so operations can be chained.<br>
+ * unlike Vector, a Vec3 may be the zero vector, and its values aren't aligned to zero. a Vec3 is meant to be reused
+ * by one thread - it should not be shared between threads or kept as a result.
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public final class Vec3 {
+
+    //fields
+    /**
+     * x value
+     */
+    private double _x;
+    /**
+     * y value
+     */
+    private double _y;
+    /**
+     * z value
+     */
+    private double _z;
+
+    //constructors
+    /**
+     * constructor for the zero Vec3
+     */
+    public Vec3() {
+    }
+
+    /**
+     * Vec3 constructor receiving 3 values
+     *
+     * @param x x value
+     * @param y y value
+     * @param z z value
+     */
+    public Vec3(double x, double y, double z) {
+        _x = x;
+        _y = y;
+        _z = z;
+    }
+
+    //getters
+    /**
+     * x value getter
+     *
+     * @return x value
+     */
+    public double getXValue() {
+        return _x;
+    }
+
+    /**
+     * y value getter
+     *
+     * @return y value
+     */
+    public double getYValue() {
+        return _y;
+    }
+
+    /**
+     * z value getter
+     *
+     * @return z value
+     */
+    public double getZValue() {
+        return _z;
+    }
+
+    //setters
+    /**
+     * sets the values
+     *
+     * @param x x value
+     * @param y y value
+     * @param z z value
+     * @return this vector
+     */
+    public Vec3 set(double x, double y, double z) {
+        _x = x;
+        _y = y;
+        _z = z;
+        return this;
+    }
+
+    /**
+     * sets the values of a vector
+     *
+     * @param v the vector
+     * @return this vector
+     */
+    public Vec3 set(Vector v) {
+        return set(v.getXValue(), v.getYValue(), v.getZValue());
+    }
+
+    /**
+     * sets the values of a point
+     *
+     * @param p the point
+     * @return this vector
+     */
+    public Vec3 set(Point3D p) {
+        return set(p.getXValue(), p.getYValue(), p.getZValue());
+    }
+
+    /**
+     * sets the values of another Vec3
+     *
+     * @param v the other Vec3
+     * @return this vector
+     */
+    public Vec3 set(Vec3 v) {
+        return set(v._x, v._y, v._z);
+    }
+
+    /**
+     * sets the vector between two points
+     *
+     * @param to end point
+     * @param from start point
+     * @return this vector, to - from
+     */
+    public Vec3 setSubtract(Point3D to, Point3D from) {
+        return set(to.getXValue() - from.getXValue(), to.getYValue() - from.getYValue(),
+                to.getZValue() - from.getZValue());
+    }
+
+    /**
+     * sets the cross product of two vectors. the vectors may be this vector
+     *
+     * @param a first vector
+     * @param b second vector
+     * @return this vector, a x b
+     */
+    public Vec3 setCrossProduct(Vec3 a, Vec3 b) {
+        return set(a._y * b._z - a._z * b._y, a._z * b._x - a._x * b._z, a._x * b._y - a._y * b._x);
+    }
+
+    //methods
+    /**
+     * adds a vector to this vector
+     *
+     * @param v the vector
+     * @return this vector
+     */
+    public Vec3 add(Vec3 v) {
+        return set(_x + v._x, _y + v._y, _z + v._z);
+    }
+
+    /**
+     * adds a vector to this vector
+     *
+     * @param v the vector
+     * @return this vector
+     */
+    public Vec3 add(Vector v) {
+        return set(_x + v.getXValue(), _y + v.getYValue(), _z + v.getZValue());
+    }
+
+    /**
+     * adds a scaled vector to this vector
+     *
+     * @param v the vector
+     * @param a the scaler
+     * @return this vector, this + a * v
+     */
+    public Vec3 addScaled(Vec3 v, double a) {
+        return set(_x + v._x * a, _y + v._y * a, _z + v._z * a);
+    }
+
+    /**
+     * adds a scaled vector to this vector
+     *
+     * @param v the vector
+     * @param a the scaler
+     * @return this vector, this + a * v
+     */
+    public Vec3 addScaled(Vector v, double a) {
+        return set(_x + v.getXValue() * a, _y + v.getYValue() * a, _z + v.getZValue() * a);
+    }
+
+    /**
+     * scales this vector
+     *
+     * @param a the scaler
+     * @return this vector
+     */
+    public Vec3 scale(double a) {
+        return set(_x * a, _y * a, _z * a);
+    }
+
+    /**
+     * calculates dot product with another vector
+     *
+     * @param v the other vector
+     * @return dot product result
+     */
+    public double dotProduct(Vec3 v) {
+        return _x * v._x + _y * v._y + _z * v._z;
+    }
+
+    /**
+     * calculates dot product with a vector
+     *
+     * @param v the vector
+     * @return dot product result
+     */
+    public double dotProduct(Vector v) {
+        return _x * v.getXValue() + _y * v.getYValue() + _z * v.getZValue();
+    }
+
+    /**
+     * calculates vector's squared length
+     *
+     * @return vector's squared length
+     */
+    public double lengthSquared() {
+        return dotProduct(this);
+    }
+
+    /**
+     * calculates vector's length
+     *
+     * @return vector's length
+     */
+    public double length() {
+        return Math.sqrt(lengthSquared());
+    }
+
+    /**
+     * calculates squared distance between the points of two Vec3s
+     *
+     * @param v the other Vec3
+     * @return squared distance
+     */
+    public double distanceSquared(Vec3 v) {
+        double x = _x - v._x;
+        double y = _y - v._y;
+        double z = _z - v._z;
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * normalizes this vector
+     *
+     * @return this vector after normalization
+     */
+    public Vec3 normalize() {
+        return scale(1 / length());
+    }
+
+    /**
+     * creates a vector with this vector's values
+     *
+     * @throws IllegalArgumentException in case this is the zero vector
+     *
+     * @return the new vector
+     */
+    public Vector toVector() {
+        return new Vector(_x, _y, _z);
+    }
+
+    /**
+     * creates a point with this vector's values
+     *
+     * @return the new point
+     */
+    public Point3D toPoint3D() {
+        return new Point3D(_x, _y, _z);
+    }
+
+    //basic overrides
+    @Override
+    public String toString() {
+        return "(" + _x + "," + _y + "," + _z + ")";
+    }
+}
@@ -1,5 +1,7 @@
 package primitives;
 
+import static primitives.Util.*;
+
 /**
  * Class Vector is the basic class representing a vector of Euclidean geometry in Cartesian
  * 3-Dimensional coordinate system.
@@ -10,9 +12,17 @@ public class Vector {
 
     //fields
     /**
-     * Vector's endpoint
+     * x value of the vector's endpoint
+     */
+    private double _x;
+    /**
+     * y value of the vector's endpoint
      */
-    private Point3D _endpoint;
+    private double _y;
+    /**
+     * z value of the vector's endpoint
+     */
+    private double _z;
 
     //constructors
     /**
@@ -25,10 +35,7 @@ public class Vector {
      * @param z vector's endpoint's z coordinate
      */
     public Vector(Coordinate x, Coordinate y, Coordinate z) throws IllegalArgumentException {
-        Point3D point = new Point3D(x, y, z);
-        if (point.equals(Point3D.ZERO))
-            throw new IllegalArgumentException("Cannot initialize vector to be zero vector");
-        _endpoint = point;
+        this(x._coord, y._coord, z._coord);
     }
 
     /**
@@ -41,10 +48,11 @@ public class Vector {
      * @param z vector's endpoint's z coordinate
      */
     public Vector(double x, double y, double z) throws IllegalArgumentException {
-        Point3D point = new Point3D(x, y, z);
-        if (point.equals(Point3D.ZERO))
+        _x = alignZero(x);
+        _y = alignZero(y);
+        _z = alignZero(z);
+        if (_x == 0 && _y == 0 && _z == 0)
             throw new IllegalArgumentException("Cannot initialize vector to be zero vector");
-        _endpoint = point;
     }
 
     /**
@@ -55,9 +63,7 @@ public class Vector {
      * @param endpoint vector's endpoint value
      */
     public Vector(Point3D endpoint) throws IllegalArgumentException {
-        if (endpoint.equals(Point3D.ZERO))
-            throw new IllegalArgumentException("Cannot initialize vector to be zero vector");
-        _endpoint = endpoint;
+        this(endpoint.getXValue(), endpoint.getYValue(), endpoint.getZValue());
     }
 
     /**
@@ -66,17 +72,47 @@ public class Vector {
      * @param other new Vector
      */
     public Vector(Vector other) {
-        _endpoint = other._endpoint;
+        _x = other._x;
+        _y = other._y;
+        _z = other._z;
     }
 
     //getters
     /**
-     * Vector's endpoint value getter
+     * Vector's endpoint value getter, creates a point - use {@link #getXValue()} and the other value getters on
+     * hot paths
      *
      * @return endpoint value
      */
     public Point3D getEndpoint() {
-        return _endpoint;
+        return new Point3D(_x, _y, _z);
+    }
+
+    /**
+     * x value of the vector's endpoint getter
+     *
+     * @return x value
+     */
+    public double getXValue() {
+        return _x;
+    }
+
+    /**
+     * y value of the vector's endpoint getter
+     *
+     * @return y value
+     */
+    public double getYValue() {
+        return _y;
+    }
+
+    /**
+     * z value of the vector's endpoint getter
+     *
+     * @return z value
+     */
+    public double getZValue() {
+        return _z;
     }
 
     //methods
@@ -88,7 +124,7 @@ public class Vector {
      * @return the vector created from the subtraction of the second vector from this vector
      */
     public Vector subtract(Vector v){
-        return _endpoint.subtract(v._endpoint);
+        return new Vector(_x - v._x, _y - v._y, _z - v._z);
     }
 
     /**
@@ -98,8 +134,7 @@ public class Vector {
      * @return the vector created from the sum of the two vectors
      */ //what about zero vector?
     public Vector add(Vector v){
-        Point3D point = _endpoint.add(v);
-        return new Vector(point);
+        return new Vector(_x + v._x, _y + v._y, _z + v._z);
     }
 
     /**
@@ -109,7 +144,7 @@ public class Vector {
      * @return the scaled vector
      */
     public Vector scale(double a){
-        return new Vector(_endpoint.getX().get() * a, _endpoint.getY().get() * a, _endpoint.getZ().get() * a);
+        return new Vector(_x * a, _y * a, _z * a);
     }
 
     /**
@@ -119,10 +154,7 @@ public class Vector {
      * @return dot product result
      */
     public double dotProduct(Vector v){
-        double x = v._endpoint.getX().get() * _endpoint.getX().get();
-        double y = v._endpoint.getY().get() * _endpoint.getY().get();
-        double z = v._endpoint.getZ().get() * _endpoint.getZ().get();
-        return x + y + z;
+        return v._x * _x + v._y * _y + v._z * _z;
     }
 
     /**
@@ -132,9 +164,9 @@ public class Vector {
      * @return cross product result
      */
     public Vector crossProduct(Vector v){
-        double x  = (_endpoint.getY().get() * v._endpoint.getZ().get()) - (_endpoint.getZ().get() * v._endpoint.getY().get());
-        double y  = (_endpoint.getZ().get() * v._endpoint.getX().get()) - (_endpoint.getX().get() * v._endpoint.getZ().get());
-        double z  = (_endpoint.getX().get() * v._endpoint.getY().get()) - (_endpoint.getY().get() * v._endpoint.getX().get());
+        double x  = (_y * v._z) - (_z * v._y);
+        double y  = (_z * v._x) - (_x * v._z);
+        double z  = (_x * v._y) - (_y * v._x);
         return new Vector(x, y, z);
     }
 
@@ -163,10 +195,9 @@ public class Vector {
      */
     public Vector normalize(){
         double length = length();
-        double x = _endpoint.getX().get() / length;
-        double y = _endpoint.getY().get() / length;
-        double z = _endpoint.getZ().get() / length;
-        _endpoint = new Point3D(x, y, z);
+        _x = alignZero(_x / length);
+        _y = alignZero(_y / length);
+        _z = alignZero(_z / length);
         return this;
     }
 
@@ -188,11 +219,11 @@ public class Vector {
         if (obj == null) return false;
         if (!(obj instanceof Vector)) return false;
         Vector oth = (Vector)obj;
-        return _endpoint.equals(oth._endpoint);
+        return isZero(_x - oth._x) && isZero(_y - oth._y) && isZero(_z - oth._z);
     }
 
     @Override
     public String toString() {
-        return _endpoint.toString();
+        return "(" + _x + "," + _y + "," + _z + ")";
     }
 }
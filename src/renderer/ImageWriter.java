@@ -89,6 +89,13 @@ public class ImageWriter {
      * @return the amount of horizontal pixels
      */
     public int getNx() { return _nX; }
+    /**
+     * pixel color getter
+     * @param xIndex X axis index of the pixel
+     * @param yIndex Y axis index of the pixel
+     * @return the color of the pixel as an RGB value
+     */
+    int getRGB(int xIndex, int yIndex) { return _image.getRGB(xIndex, yIndex); }
 
     // ***************** Operations ******************** //
 
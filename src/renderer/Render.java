@@ -38,6 +38,14 @@ public class Render {
      * radius of the circle used for the rays beams generation
      */
     private static final double SAMPLE_RAYS_CIRCLE_RADIUS = 10;
+    /**
+     * size (in pixels) of the square tiles the hierarchy is culled for, when tile culling is used
+     */
+    private static final int TILE_SIZE = 32;
+    /**
+     * the x axis, added to a beam's base vector to find a vector that isn't parallel to it
+     */
+    private static final Vector X_AXIS = new Vector(1, 0, 0);
 
     //multithreading stuff
     /**
@@ -52,6 +60,14 @@ public class Render {
      * determines whether to use debug print at the multithreading process
      */
     private boolean _print = false;
+    /**
+     * amount of primary rays traced together as a packet (a block of pixels), 1 to trace every ray alone
+     */
+    private int _packetSize = 1;
+    /**
+     * determines whether to cull the virtual boxes hierarchy once for every tile of pixels
+     */
+    private boolean _tileCulling = false;
     //fields
     /**
      * the render's image writer
@@ -65,6 +81,14 @@ public class Render {
      * amount of sample rays to use for image improvements
      */
     private int _numSampleRays;
+    /**
+     * acceleration structure over the scene's geometries
+     */
+    private AccelerationStructure _accelerationStructure;
+    /**
+     * scratch vectors of the shading calculations for every rendering thread
+     */
+    private final ThreadLocal<ShadingScratch> _scratch = ThreadLocal.withInitial(ShadingScratch::new);
 
     /**
      * Render constructor
@@ -84,10 +108,23 @@ public class Render {
      * @param numSampleRays number of sample rays to generate for beams of rays
      */
     public Render(ImageWriter imageWriter, Scene scene, int numSampleRays) {
+        this(imageWriter, scene, numSampleRays, AccelerationStructure.Type.VIRTUAL_BOXES_HIERARCHY);
+    }
+
+    /**
+     * Render constructor
+     *
+     * @param imageWriter render's image writer
+     * @param scene scene to render
+     * @param numSampleRays number of sample rays to generate for beams of rays
+     * @param accelerationStructure type of acceleration structure to find intersections with
+     */
+    public Render(ImageWriter imageWriter, Scene scene, int numSampleRays,
+                  AccelerationStructure.Type accelerationStructure) {
         _imageWriter = imageWriter;
         _scene = scene;
         _numSampleRays = numSampleRays;
-        _scene.buildVirtualBoxesHierarchy(); // comment this line to run without bvh (one more line needs to be commented)
+        _accelerationStructure = _scene.buildAccelerationStructure(accelerationStructure);
     }
 
 
@@ -95,6 +132,10 @@ public class Render {
      * renders the image
      */
     public void renderImage() {
+        // the traversal statistics describe the last rendering
+        TraversalStatistics statistics = _accelerationStructure.getTraversalStatistics();
+        if (statistics != null)
+            statistics.reset();
 
         // calculation parameters
         Camera camera = _scene.getCamera();
@@ -106,10 +147,64 @@ public class Render {
         double width = _imageWriter.getWidth();
         double distance = _scene.getDistance();
 
-        final Pixel thePixel = new Pixel(nY, nX);
+        // tiles are culled only in the virtual boxes hierarchy
+        boolean tileCulling = _tileCulling && _accelerationStructure instanceof VirtualBoxesHierarchy;
+        // threads are given blocks of pixels: tiles, packets (2x2, 4x2 or 4x4) or single pixels
+        int blockCols = tileCulling ? TILE_SIZE : _packetSize >= 8 ? 4 : _packetSize >= 4 ? 2 : 1;
+        int blockRows = tileCulling ? TILE_SIZE : _packetSize / blockCols;
+        final Pixel thePixel = new Pixel((nY + blockRows - 1) / blockRows, (nX + blockCols - 1) / blockCols);
         // Generate threads
         Thread[] threads = new Thread[_threads];
         for (int i = _threads - 1; i >= 0; --i) {
+            if (tileCulling) {
+                VirtualBoxesHierarchy hierarchy = (VirtualBoxesHierarchy) _accelerationStructure;
+                threads[i] = new Thread(() -> {
+                    Pixel tile = new Pixel();
+                    while (thePixel.nextPixel(tile)) {
+                        int firstRow = tile.row * TILE_SIZE, firstCol = tile.col * TILE_SIZE;
+                        int lastRow = Math.min(nY, firstRow + TILE_SIZE), lastCol = Math.min(nX, firstCol + TILE_SIZE);
+                        // cull the hierarchy once for all pixels of the tile
+                        int[] boxes = hierarchy.cullFrustum(camera.getLocation(), camera.constructFrustumThroughPixels(
+                                nX, nY, firstCol, firstRow, lastCol, lastRow, distance, width, height));
+                        for (int row = firstRow; row < lastRow; row++) {
+                            for (int col = firstCol; col < lastCol; col++) {
+                                Ray ray = camera.constructRayThroughPixel(nX, nY, col, row, distance, width, height);
+                                GeoPoint closestPoint = skipBeforeViewPlane(
+                                        hierarchy.findClosestIntersection(ray, boxes), ray);
+                                if (closestPoint == null)
+                                    _imageWriter.writePixel(col, row, background);
+                                else
+                                    _imageWriter.writePixel(col, row, calcColor(closestPoint, ray));
+                            }
+                        }
+                    }
+                });
+                continue;
+            }
+            if (_packetSize > 1) {
+                threads[i] = new Thread(() -> {
+                    Pixel block = new Pixel();
+                    while (thePixel.nextPixel(block)) {
+                        int firstRow = block.row * blockRows, firstCol = block.col * blockCols;
+                        int rows = Math.min(blockRows, nY - firstRow), cols = Math.min(blockCols, nX - firstCol);
+                        Ray[] rays = new Ray[rows * cols];
+                        for (int row = 0; row < rows; row++)
+                            for (int col = 0; col < cols; col++)
+                                rays[row * cols + col] = camera.constructRayThroughPixel(nX, nY, firstCol + col,
+                                        firstRow + row, distance, width, height);
+                        // find closest intersections of the whole block
+                        GeoPoint[] closestPoints = getClosestPoints(rays);
+                        for (int j = 0; j < rays.length; j++) {
+                            int row = firstRow + j / cols, col = firstCol + j % cols;
+                            if (closestPoints[j] == null)
+                                _imageWriter.writePixel(col, row, background);
+                            else
+                                _imageWriter.writePixel(col, row, calcColor(closestPoints[j], rays[j]));
+                        }
+                    }
+                });
+                continue;
+            }
             threads[i] = new Thread(() -> {
                 Pixel pixel = new Pixel();
                 while (thePixel.nextPixel(pixel)) {
@@ -120,7 +215,7 @@ public class Render {
                     if (closestPoint == null)
                         _imageWriter.writePixel(pixel.col, pixel.row, background);
                     else
-                        _imageWriter.writePixel(pixel.col, pixel.row, calcColor(closestPoint, ray).getColor());
+                        _imageWriter.writePixel(pixel.col, pixel.row, calcColor(closestPoint, ray));
                 }
             });
         }
@@ -133,6 +228,25 @@ public class Render {
         if (_print) System.out.printf("\r100%%\n");
     }
 
+    /**
+     * getter for the counters of the work of tracing the rays of the last rendering through the acceleration
+     * structure
+     * @return traversal statistics, null if the structure doesn't count its work
+     */
+    public TraversalStatistics getTraversalStatistics() {
+        return _accelerationStructure.getTraversalStatistics();
+    }
+
+    /**
+     * returns statistics of the acceleration structure used for rendering - its quality, and the work of tracing
+     * the rays of the last rendering through it by kind of ray
+     * @return the statistics, empty if the structure doesn't keep statistics
+     */
+    public String getStatistics() {
+        TraversalStatistics statistics = getTraversalStatistics();
+        return _accelerationStructure.getStatistics() + (statistics == null ? "" : statistics);
+    }
+
     /**
      * gather all images data to write the image
      */
@@ -145,28 +259,11 @@ public class Render {
      * to the ray's start point
      *
      * @param ray ray to find intersections with
+     * @param type kind of the ray, for the traversal statistics
      * @return closest intersection to ray's start point
      */
-    private GeoPoint findClosestIntersection(Ray ray){
-        //to run without bvh, comment the next line and uncomment the line under it.
-        List<GeoPoint> intersectionPoints = _scene.getGeometries().getIntersectionBoxes(ray).findIntersections(ray);
-        //List<GeoPoint> intersectionPoints = _scene.getGeometries().findIntersections(ray);
-        GeoPoint closestPoint = null;
-        double distance = Double.MAX_VALUE;
-        double tempDistance;
-
-        if (intersectionPoints == null)
-            return null;
-
-        for (GeoPoint gp : intersectionPoints) {
-            tempDistance = gp.point.distance(ray.getStartPoint());
-            if ((tempDistance < distance) && (tempDistance != 0)){
-                closestPoint = gp;
-                distance = tempDistance;
-            }
-        }
-
-        return closestPoint;
+    private GeoPoint findClosestIntersection(Ray ray, AccelerationStructure.RayType type){
+        return _accelerationStructure.findClosestIntersection(ray, type);
     }
 
     /**
@@ -176,9 +273,29 @@ public class Render {
      * @return closest intersection point on the ray
      */
     public GeoPoint getClosestPoint(Ray ray) { // make private after testing
+        return skipBeforeViewPlane(findClosestIntersection(ray, AccelerationStructure.RayType.PRIMARY), ray);
+    }
 
-        GeoPoint closestPoint = findClosestIntersection(ray);
+    /**
+     * get the closest intersection points on a packet of rays from the camera to the view plane, traced together.
+     * @param rays the rays to find intersections with
+     * @return for every ray - closest intersection point behind the view plane, null if none is found
+     */
+    private GeoPoint[] getClosestPoints(Ray[] rays) {
+        GeoPoint[] closestPoints = _accelerationStructure.findClosestIntersections(rays);
+        for (int i = 0; i < rays.length; i++)
+            closestPoints[i] = skipBeforeViewPlane(closestPoints[i], rays[i]);
+        return closestPoints;
+    }
 
+    /**
+     * makes sure the closest intersection point on a ray from the camera is not before the view plane.
+     * if it is, the closest point behind the view plane is found.
+     * @param closestPoint closest intersection point on the ray, may be null
+     * @param ray the ray from the camera
+     * @return closest intersection point behind the view plane, null if none is found
+     */
+    private GeoPoint skipBeforeViewPlane(GeoPoint closestPoint, Ray ray) {
         //if there are no points, return null
         if (closestPoint == null)
             return null;
@@ -189,30 +306,34 @@ public class Render {
         double d = _scene.getDistance();
 
         // calculate distance to the intersection with the view plane to avoid intersections before view plane
-        Plane viewPlane = new Plane(new Point3D(p0.add(camera.getVto().scale(d))),
-                camera.getVto());
-        GeoPoint screenIntersection = viewPlane.findIntersections(ray).get(0);
-        double screenDistance = p0.distance(screenIntersection.point);
+        ShadingScratch scratch = _scratch.get();
+        Vector vTo = camera.getVto();
+        Vec3 screenIntersection = scratch.view.setSubtract(p0, ray.getStartPoint()).addScaled(vTo, d);
+        double t = screenIntersection.dotProduct(vTo) / ray.getVector().dotProduct(vTo);
+        screenIntersection.set(ray.getStartPoint()).addScaled(ray.getVector(), t);
+        double screenDistance = Math.sqrt(screenIntersection.distanceSquared(scratch.center.set(p0)));
 
         // make sure intersection is not before view plane
         while ((closestPoint != null) && (ray.getStartPoint().distance(closestPoint.point) < screenDistance))
-            closestPoint = findClosestIntersection(new Ray(closestPoint.point, ray.getVector()));
+            closestPoint = findClosestIntersection(new Ray(closestPoint.point, ray),
+                    AccelerationStructure.RayType.PRIMARY);
 
         return closestPoint;
     }
 
     /**
      * recursive auxiliary function that calculates the color of a point considering light sources, emission,
-     * shadowing, reflection and refraction.
+     * shadowing, reflection and refraction, into a color accumulator.
      * @param geopoint point to calculate color for
      * @param inRay view point ray
      * @param level recursion level
      * @param k reduction factor
-     * @return color of point
+     * @param color accumulator to set to the color of point
      */
-    private Color calcColor(GeoPoint geopoint, Ray inRay, int level, double k) {
-        Color color = geopoint.geometry.getEmission();
-        Vector v = geopoint.point.subtract(_scene.getCamera().getLocation()).normalize();
+    private void calcColor(GeoPoint geopoint, Ray inRay, int level, double k, ColorAccumulator color) {
+        ShadingScratch scratch = _scratch.get();
+        color.set(geopoint.geometry.getEmission());
+        Vec3 v = scratch.view.setSubtract(geopoint.point, _scene.getCamera().getLocation()).normalize();
         Vector n = geopoint.geometry.getNormal(geopoint.point);
         Material material =geopoint.geometry.getMaterial();
         int nShininess = material.getNShininess();
@@ -220,41 +341,43 @@ public class Render {
         double ks = material.getKS();
         for (LightSource lightSource : _scene.getLights()) {
             Vector l = lightSource.getL(geopoint.point);
-            if (sign(n.dotProduct(l)) ==  sign(n.dotProduct(v))) {
+            if (sign(n.dotProduct(l)) ==  sign(v.dotProduct(n))) {
                 double ktr = transparency(lightSource, l, n, geopoint);
                 if (ktr * k > MIN_CALC_COLOR_K) {
-                    Color lightIntensity = lightSource.getIntensity(geopoint.point).scale(ktr);
-                    color = color.add(calcDiffusive(kd, l, n, lightIntensity),
-                            calcSpecular(ks, l, n, v, nShininess, lightIntensity));
+                    ColorAccumulator lightIntensity = scratch.light.set(lightSource.getIntensity(geopoint.point))
+                            .scale(ktr);
+                    color.addScaled(lightIntensity, calcDiffusive(kd, l, n))
+                            .addScaled(lightIntensity, calcSpecular(ks, l, n, v, nShininess, scratch.reflected));
                 }
             }
         }
 
-        if (level == 1) return Color.BLACK;
+        if (level == 1) {
+            color.reset();
+            return;
+        }
 
         double kr = geopoint.geometry.getMaterial().getKR(), kkr = k * kr;
         if (kkr > MIN_CALC_COLOR_K) {
-            Ray reflectedRay = getReflectedRay(n, geopoint.point, inRay);
-            GeoPoint reflectedPoint = findClosestIntersection(reflectedRay);
+            Ray reflectedRay = getReflectedRay(n, geopoint.point, inRay, scratch.reflected);
+            GeoPoint reflectedPoint = findClosestIntersection(reflectedRay, AccelerationStructure.RayType.REFLECTION);
             if (reflectedPoint != null)
-                color = color.add(calcSampleRays(reflectedRay, SAMPLE_RAYS_CIRCLE_RADIUS, geopoint.geometry.getMaterial().getKGS(),
-                        level - 1, kkr).scale(kr));
+                color.addScaled(calcSampleRays(reflectedRay, SAMPLE_RAYS_CIRCLE_RADIUS, geopoint.geometry.getMaterial().getKGS(),
+                        level - 1, kkr, AccelerationStructure.RayType.REFLECTION), kr);
         }
 
         double kt = geopoint.geometry.getMaterial().getKT(), kkt = k * kt;
         if (kkt > MIN_CALC_COLOR_K) {
             Ray refractedRay = getRefractedRay(n, geopoint.point, inRay);
-            GeoPoint refractedPoint = findClosestIntersection(refractedRay);
+            GeoPoint refractedPoint = findClosestIntersection(refractedRay, AccelerationStructure.RayType.REFRACTION);
             if (refractedPoint != null) {
                 if(geopoint.geometry.getMaterial().getKGS()==0){
 
                 }
-                color = color.add(calcSampleRays(refractedRay, SAMPLE_RAYS_CIRCLE_RADIUS, geopoint.geometry.getMaterial().getKDG(),
-                        level - 1, kkt).scale(kt));
+                color.addScaled(calcSampleRays(refractedRay, SAMPLE_RAYS_CIRCLE_RADIUS, geopoint.geometry.getMaterial().getKDG(),
+                        level - 1, kkt, AccelerationStructure.RayType.REFRACTION), kt);
             }
         }
-
-        return color;
     }
 
     /**
@@ -264,8 +387,10 @@ public class Render {
      * @param inRay view point ray
      * @return color of point
      */
-    private Color calcColor(GeoPoint geopoint, Ray inRay) {
-        return calcColor(geopoint, inRay, MAX_CALC_COLOR_LEVEL, 1.0).add(_scene.getAmbientLight().getIntensity());
+    private java.awt.Color calcColor(GeoPoint geopoint, Ray inRay) {
+        ColorAccumulator color = _scratch.get().colors[MAX_CALC_COLOR_LEVEL];
+        calcColor(geopoint, inRay, MAX_CALC_COLOR_LEVEL, 1.0, color);
+        return color.add(_scene.getAmbientLight().getIntensity()).getColor();
     }
 
     /**
@@ -276,23 +401,26 @@ public class Render {
      * @param distance distance between point and sample rays' virtual circle
      * @param recursionLevel recursion level
      * @param k reduction factor (kkt / kkr)
-     * @return average effect of transparency / reflectivity using a beam of rays
+     * @param type kind of the rays (reflection / refraction), for the traversal statistics
+     * @return average effect of transparency / reflectivity using a beam of rays, in the accumulator of the
+     * recursion level - valid until the next beam of that level
      */
-    private Color calcSampleRays(Ray base, double radius, double distance,
-                                 int recursionLevel,double k){
+    private ColorAccumulator calcSampleRays(Ray base, double radius, double distance,
+                                            int recursionLevel,double k, AccelerationStructure.RayType type){
 
         // get all sample rays
-        List<Ray> sampleRays = getSampleRays(base,radius,distance);
-        Color total = new Color(0,0,0);
+        ShadingScratch scratch = _scratch.get();
+        List<Ray> sampleRays = getSampleRays(base, radius, distance, scratch);
+        ColorAccumulator total = scratch.samples[recursionLevel].reset();
 
         // sum effect of all rays
         GeoPoint closestIntersection;
-        Color tempColor = new Color(0, 0, 0);
+        ColorAccumulator tempColor = scratch.colors[recursionLevel].reset();
         for (Ray ray:sampleRays) {
-            closestIntersection = findClosestIntersection(ray);
+            closestIntersection = findClosestIntersection(ray, type);
             if (closestIntersection != null)
-                tempColor = calcColor(closestIntersection, ray, recursionLevel, k);
-            total = total.add(tempColor);
+                calcColor(closestIntersection, ray, recursionLevel, k, tempColor);
+            total.add(tempColor);
         }
 
         // reduce effect to average effect and return it
@@ -321,13 +449,12 @@ public class Render {
      * @param kd diffusion factor
      * @param l vector from light source to point
      * @param n normal to geometry from point
-     * @param lightIntensity intensity of light from the light source at the point
-     * @return diffusive light of light source on point
+     * @return factor of the intensity of light from the light source at the point that is diffused
      */
-    private Color calcDiffusive(double kd, Vector l, Vector n, Color lightIntensity){
+    private double calcDiffusive(double kd, Vector l, Vector n){
         if (l.dotProduct(n) == 0)
-            return Color.BLACK;
-        return lightIntensity.scale(kd * Math.abs(l.dotProduct(n)));
+            return 0;
+        return kd * Math.abs(l.dotProduct(n));
     }
 
     /**
@@ -337,16 +464,16 @@ public class Render {
      * @param n normal to geometry from point
      * @param v vector from camera to point
      * @param nShininess the shininess factor
-     * @param lightIntensity intensity of light from the light source at the point
-     * @return specular light of light source on point
+     * @param r scratch vector for the reflected light's direction
+     * @return factor of the intensity of light from the light source at the point that is reflected to the camera
      */
-    private Color calcSpecular(double ks, Vector l, Vector n, Vector v, int nShininess, Color lightIntensity){
+    private double calcSpecular(double ks, Vector l, Vector n, Vec3 v, int nShininess, Vec3 r){
         double dp = l.dotProduct(n);
-        if ((dp == 0) || (isZero(dp * n.getEndpoint().getX().get()) &&
-                isZero(dp * n.getEndpoint().getY().get()) && isZero(dp * n.getEndpoint().getZ().get())))
-            return Color.BLACK;
-        Vector r = l.subtract(n.scale(2 * l.dotProduct(n))).normalize();
-        return lightIntensity.scale(ks * Math.pow(Math.max(0, -v.dotProduct(r)), nShininess));
+        if ((dp == 0) || (isZero(dp * n.getXValue()) &&
+                isZero(dp * n.getYValue()) && isZero(dp * n.getZValue())))
+            return 0;
+        r.set(l).addScaled(n, -2 * dp).normalize();
+        return ks * Math.pow(Math.max(0, -v.dotProduct(r)), nShininess);
     }
 
     /**
@@ -377,19 +504,8 @@ public class Render {
     private double transparency(LightSource light, Vector l, Vector n, GeoPoint geopoint) {
         Vector lightDirection = l.scale(-1); // from point to light source
         Ray lightRay = new Ray(geopoint.point, lightDirection, n);
-        List<GeoPoint> intersections = _scene.getGeometries().findIntersections(lightRay);
-        if (intersections==null)
-            return 1.0;
-        double lightDistance = light.getDistance(geopoint.point);
-        double ktr = 1.0;
-        for (GeoPoint gp : intersections) {
-            if (alignZero(gp.point.distance(geopoint.point) - lightDistance) <= 0) {
-                ktr *= gp.geometry.getMaterial().getKT();
-                if (ktr < MIN_CALC_COLOR_K)
-                    return 0.0;
-            }
-        }
-        return ktr;
+        double lightDistance = light.getDistance(lightRay.getStartPoint());
+        return _accelerationStructure.findTransparency(lightRay, lightDistance, MIN_CALC_COLOR_K);
     }
 
     /**
@@ -397,11 +513,12 @@ public class Render {
      * @param n normal to geometry form point
      * @param point point on the geometry
      * @param ray ray from camera to point
+     * @param r scratch vector for the reflected direction
      * @return reflected ray
      */
-    private Ray getReflectedRay(Vector n, Point3D point, Ray ray){
-        Vector r = ray.getVector().subtract(n.scale(2*(ray.getVector().dotProduct(n)))).normalize();
-        return new Ray(point, r, n);
+    private Ray getReflectedRay(Vector n, Point3D point, Ray ray, Vec3 r){
+        r.set(ray.getVector()).addScaled(n, -2 * ray.getVector().dotProduct(n)).normalize();
+        return new Ray(point, r.toVector(), n);
     }
 
     /**
@@ -420,9 +537,10 @@ public class Render {
      * @param base base ray
      * @param radius radius of the circle the rays are generated through
      * @param distance distance of the circle from the ray's start
+     * @param scratch scratch vectors of the calculation
      * @return a list of rays
      */
-    private List<Ray> getSampleRays(Ray base,  double radius, double distance){
+    private List<Ray> getSampleRays(Ray base,  double radius, double distance, ShadingScratch scratch){
 
         List<Ray> sampleRays = new ArrayList<>();
 
@@ -434,16 +552,18 @@ public class Render {
 
         // --- name parameters ---
         Point3D p0 = base.getStartPoint();
-        Vector v = base.getVector();
-        Point3D p = base.getStartPoint().add(base.getVector().scale(distance));
+        Vec3 v = scratch.direction.set(base.getVector());
+        Vec3 p = scratch.center.set(p0).addScaled(v, distance);
 
         // --- create relative "Vup" and "Vright" vectors on the plane that the circle is on ---
 
         //generate a non parallel vector to base vector
-        Vector helpVector = v.add(new Vector(1,0,0));
-
-        Vector relativeVup = v.crossProduct(helpVector).normalize();
-        Vector relativeVright = v.crossProduct(relativeVup);
+        Vec3 relativeVup = scratch.up.setCrossProduct(v, scratch.sample.set(v).add(X_AXIS));
+        if (isZero(relativeVup.lengthSquared()))
+            // the base vector is on the x axis
+            relativeVup.setCrossProduct(v, scratch.sample.set(0, 1, 0));
+        relativeVup.normalize();
+        Vec3 relativeVright = scratch.right.setCrossProduct(v, relativeVup);
 
         // --- create random rays ---
         // the rays are generated randomly within a square surrounding the circle. only rays that are generated in the
@@ -453,9 +573,7 @@ public class Render {
         int numRaysCurrent = 1; // total number of iterations (including base ray)
         int numSampleRaysCurrent = 1; // number of rays in the list (including base ray)
         double x, y;
-        Ray tempRay;
-        Point3D tempPoint;
-        Vector tempVector;
+        Vec3 tempPoint = scratch.sample;
 
         // generate rays until numRays is reached or max number of trials reached
         while ((numSampleRaysCurrent < _numSampleRays) && (numRaysCurrent < MAX_GENERATED_RAYS_FACTOR * _numSampleRays)){
@@ -463,12 +581,13 @@ public class Render {
             x = Math.random() * radius * 2;
             y = Math.random() * radius * 2;
             // convert the relative coordinates to real coordinates (similarly to constructRayThroughPixel from camera)
-            tempPoint = p.add(relativeVright.scale(x - radius)).add(relativeVup.scale(y - radius));
+            tempPoint.set(p).addScaled(relativeVright, x - radius).addScaled(relativeVup, y - radius);
             // check that the point is in the circle
             if (tempPoint.distanceSquared(p) < radius * radius) {
-                tempVector = tempPoint.subtract(p0);
-                tempRay = new Ray(p0, tempVector);
-                sampleRays.add(tempRay);
+                // only the rays in the circle are created
+                Vector tempVector = new Vector(tempPoint.getXValue() - p0.getXValue(),
+                        tempPoint.getYValue() - p0.getYValue(), tempPoint.getZValue() - p0.getZValue());
+                sampleRays.add(new Ray(p0, tempVector));
                 numSampleRaysCurrent++;
             }
             numRaysCurrent++;
@@ -478,6 +597,64 @@ public class Render {
         return sampleRays;
     }
 
+    /**
+     * ShadingScratch class holds the scratch vectors and color accumulators of the shading calculations, so
+     * calculating the color of a point doesn't create temporary vectors, points and colors. every rendering thread
+     * has its own scratch.<br>
+     * a scratch vector is used only between calls of the recursive color calculation, so one set is enough for
+     * all recursion levels. colors are kept across the calls, so there are accumulators for every level.
+     */
+    private static class ShadingScratch {
+        /**
+         * vector from the camera to the shaded point, or the intersection of a ray from the camera with the view
+         * plane
+         */
+        final Vec3 view = new Vec3();
+        /**
+         * direction of the reflected light or of the reflected ray
+         */
+        final Vec3 reflected = new Vec3();
+        /**
+         * direction of the base ray of a beam
+         */
+        final Vec3 direction = new Vec3();
+        /**
+         * center of the circle of a beam, or the camera's location
+         */
+        final Vec3 center = new Vec3();
+        /**
+         * relative up and right vectors on the circle of a beam
+         */
+        final Vec3 up = new Vec3(), right = new Vec3();
+        /**
+         * point of a sample ray on the circle of a beam
+         */
+        final Vec3 sample = new Vec3();
+        /**
+         * intensity of the light from a light source at the shaded point
+         */
+        final ColorAccumulator light = new ColorAccumulator();
+        /**
+         * color of the point calculated at every recursion level
+         */
+        final ColorAccumulator[] colors = accumulators();
+        /**
+         * sum of the colors of the sample rays of a beam traced at every recursion level
+         */
+        final ColorAccumulator[] samples = accumulators();
+
+        /**
+         * creates a color accumulator for every recursion level
+         * @return the accumulators, by recursion level
+         */
+        private static ColorAccumulator[] accumulators() {
+            ColorAccumulator[] accumulators = new ColorAccumulator[MAX_CALC_COLOR_LEVEL + 1];
+            for (int level = 0; level <= MAX_CALC_COLOR_LEVEL; level++)
+                accumulators[level] = new ColorAccumulator();
+            return accumulators;
+        }
+    }
+
 
 
     // multithreading stuff
@@ -542,6 +719,8 @@ public class Render {
             ++row;
             if (row < _maxRows) {
                 col = 0;
+                target.row = this.row;
+                target.col = this.col;
                 if (_counter == _nextCounter) {
                     ++_percents;
                     _nextCounter = _pixels * (_percents + 1) / 100;
@@ -569,6 +748,33 @@ public class Render {
         }
     }
 
+    /**
+     * Set tile culling of primary rays <br>
+     * - the image is split into tiles of 32x32 pixels, the virtual boxes hierarchy is culled once for the frustum
+     * of every tile and the tile's rays are traced only through the boxes left. packets aren't used with tiles
+     *
+     * @param tileCulling whether to cull the hierarchy for every tile
+     * @return the Render object itself
+     */
+    public Render setTileCulling(boolean tileCulling) {
+        _tileCulling = tileCulling;
+        return this;
+    }
+
+    /**
+     * Set packet tracing of primary rays <br>
+     * - rays of a block of packetSize pixels are traced together, 1 traces every ray alone
+     *
+     * @param packetSize amount of rays in a packet: 1, 4, 8 or 16
+     * @return the Render object itself
+     */
+    public Render setPacketSize(int packetSize) {
+        if (packetSize != 1 && packetSize != 4 && packetSize != 8 && packetSize != 16)
+            throw new IllegalArgumentException("Packet size must be 1, 4, 8 or 16");
+        _packetSize = packetSize;
+        return this;
+    }
+
     /**
      * Set multithreading <br>
      * - if the parameter is 0 - number of coress less 2 is taken
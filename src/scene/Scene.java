@@ -4,8 +4,10 @@ import primitives.*;
 import elements.*;
 import geometries.*;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Scene class represents a scene made of a collection of geometries in 3D Cartesian coordinate system,
@@ -43,6 +45,35 @@ public class Scene {
      * light sources in scene
      */
     private List<LightSource> _lights;
+    /**
+     * method used to split the virtual boxes when building the virtual boxes hierarchy
+     */
+    private Geometries.BuildMethod _buildMethod = Geometries.BuildMethod.SURFACE_AREA_HEURISTIC;
+    /**
+     * whether to build the virtual boxes hierarchy in parallel
+     */
+    private boolean _parallelBuild = true;
+    /**
+     * amount of inner boxes of a box in a wide virtual boxes hierarchy
+     */
+    private int _hierarchyWidth = Geometries.DEFAULT_HIERARCHY_WIDTH;
+    /**
+     * amount of bits of an edge of a box in a quantized virtual boxes hierarchy
+     */
+    private int _quantizationBits = Geometries.DEFAULT_QUANTIZATION_BITS;
+    /**
+     * directory of the cache of compiled virtual boxes hierarchies, null to always build the hierarchy
+     */
+    private Path _hierarchyCache;
+    /**
+     * time in milliseconds the last build or refit of the virtual boxes hierarchy took
+     */
+    private double _buildTime;
+
+    /**
+     * method the virtual boxes hierarchy was last built with, null if it wasn't built
+     */
+    private Geometries.BuildMethod _builtMethod;
 
     /**
      * Scene constructor
@@ -111,6 +142,54 @@ public class Scene {
         return _lights;
     }
 
+    /**
+     * getter for the method used to build the virtual boxes hierarchy
+     * @return build method
+     */
+    public Geometries.BuildMethod getBuildMethod() {
+        return _buildMethod;
+    }
+
+    /**
+     * getter for whether the virtual boxes hierarchy is built in parallel
+     * @return whether the hierarchy is built in parallel
+     */
+    public boolean isParallelBuild() {
+        return _parallelBuild;
+    }
+
+    /**
+     * getter for the amount of inner boxes of a box in a wide virtual boxes hierarchy
+     * @return width of the wide hierarchy
+     */
+    public int getHierarchyWidth() {
+        return _hierarchyWidth;
+    }
+
+    /**
+     * getter for the amount of bits of an edge of a box in a quantized virtual boxes hierarchy
+     * @return bits of an edge
+     */
+    public int getQuantizationBits() {
+        return _quantizationBits;
+    }
+
+    /**
+     * getter for the directory of the cache of compiled virtual boxes hierarchies
+     * @return cache directory, null if the hierarchy is always built
+     */
+    public Path getHierarchyCache() {
+        return _hierarchyCache;
+    }
+
+    /**
+     * getter for the time the last build or refit of the virtual boxes hierarchy took
+     * @return build time in milliseconds
+     */
+    public double getBuildTime() {
+        return _buildTime;
+    }
+
     //setters
     /**
      * setter for scene's background color
@@ -144,6 +223,69 @@ public class Scene {
         _distance = distance;
     }
 
+    /**
+     * setter for the method used to build the virtual boxes hierarchy
+     * @param buildMethod build method
+     */
+    public void setBuildMethod(Geometries.BuildMethod buildMethod) {
+        _buildMethod = buildMethod;
+    }
+
+    /**
+     * setter for the most duplicated references in a virtual boxes hierarchy built with spatial splits
+     * @param spatialSplitsBudget budget of duplicated references, relative to the amount of geometries
+     */
+    public void setSpatialSplitsBudget(double spatialSplitsBudget) {
+        _geometries.setSpatialSplitsBudget(spatialSplitsBudget);
+    }
+
+    /**
+     * setter for whether infinite planes are cut to the bounds of the scene's finite geometries, so they go into
+     * the acceleration structure. cut planes aren't seen outside the bounds
+     * @param clipInfinitePlanes true to cut infinite planes
+     */
+    public void setClipInfinitePlanes(boolean clipInfinitePlanes) {
+        _geometries.setClipInfinitePlanes(clipInfinitePlanes);
+    }
+
+    /**
+     * setter for whether to build the virtual boxes hierarchy in parallel
+     * @param parallelBuild whether to build the hierarchy in parallel
+     */
+    public void setParallelBuild(boolean parallelBuild) {
+        _parallelBuild = parallelBuild;
+    }
+
+    /**
+     * setter for the amount of inner boxes of a box in a wide virtual boxes hierarchy
+     * @param hierarchyWidth width of the wide hierarchy, 4 or 8
+     */
+    public void setHierarchyWidth(int hierarchyWidth) {
+        if (hierarchyWidth != 4 && hierarchyWidth != 8)
+            throw new IllegalArgumentException("Width must be 4 or 8");
+        _hierarchyWidth = hierarchyWidth;
+    }
+
+    /**
+     * setter for the amount of bits of an edge of a box in a quantized virtual boxes hierarchy. 8 bit boxes take
+     * less memory, 16 bit boxes are tighter so rays visit less of them
+     * @param quantizationBits bits of an edge, 8 or 16
+     */
+    public void setQuantizationBits(int quantizationBits) {
+        if (quantizationBits != 8 && quantizationBits != 16)
+            throw new IllegalArgumentException("Bits must be 8 or 16");
+        _quantizationBits = quantizationBits;
+    }
+
+    /**
+     * setter for the directory of the cache of compiled virtual boxes hierarchies. scenes rendered many times
+     * (with different cameras and lights) load their hierarchy from the cache instead of building it
+     * @param hierarchyCache cache directory, null to always build the hierarchy
+     */
+    public void setHierarchyCache(Path hierarchyCache) {
+        _hierarchyCache = hierarchyCache;
+    }
+
     //functions
     /**
      * add a geometries to the scene's geometries
@@ -161,6 +303,15 @@ public class Scene {
         _geometries.add(geometries);
     }
 
+    /**
+     * add a stream of geometries to the scene's geometries, for loading big scenes.
+     * the geometries' bounds are only calculated when the virtual boxes hierarchy is built
+     * @param geometries stream of new geometries
+     */
+    public void addGeometries(Stream<? extends Intersectable> geometries){
+        _geometries.add(geometries);
+    }
+
     /**
      * adds lights to scene's list of light sources
      * @param lights lights to add
@@ -172,9 +323,67 @@ public class Scene {
     }
 
     /**
-     * build a virtual boxes hierarchy in geometries
+     * build a virtual boxes hierarchy in geometries, using the scene's build method, and measure the build time.
+     * if the scene has a hierarchy cache, the hierarchy is loaded from it when possible
      */
     public void buildVirtualBoxesHierarchy() {
-        _geometries.buildVirtualBoxesHierarchy();
+        long start = System.nanoTime();
+        if (_hierarchyCache == null)
+            _geometries.buildVirtualBoxesHierarchy(_buildMethod, _parallelBuild);
+        else
+            _geometries.buildVirtualBoxesHierarchy(_buildMethod, _parallelBuild, _hierarchyCache);
+        _builtMethod = _buildMethod;
+        _buildTime = (System.nanoTime() - start) / 1e6;
+    }
+
+    /**
+     * prepare the virtual boxes hierarchy for rendering after geometries moved (the next frame of an animation).
+     * the hierarchy is refitted to the geometries' new places, and built again only if it wasn't built yet,
+     * the geometries or the build method changed, or refitting made it too slow to traverse
+     */
+    public void updateVirtualBoxesHierarchy() {
+        long start = System.nanoTime();
+        if (_builtMethod == _buildMethod && _geometries.refitVirtualBoxesHierarchy())
+            _buildTime = (System.nanoTime() - start) / 1e6;
+        else
+            buildVirtualBoxesHierarchy();
+    }
+
+    /**
+     * prepare an acceleration structure over the scene's geometries for rendering, and measure the build time.
+     * the virtual boxes hierarchy is updated by the scene's build method, and a wide hierarchy is collapsed from it
+     * by the scene's hierarchy width. a quantized hierarchy is quantized from a new virtual boxes hierarchy, which
+     * is then released to free its memory. other structures are built again
+     * @param type type of the structure
+     * @return the acceleration structure
+     */
+    public AccelerationStructure buildAccelerationStructure(AccelerationStructure.Type type) {
+        if (type == AccelerationStructure.Type.VIRTUAL_BOXES_HIERARCHY) {
+            updateVirtualBoxesHierarchy();
+            return _geometries.getHierarchy();
+        }
+        if (type == AccelerationStructure.Type.WIDE_VIRTUAL_BOXES_HIERARCHY) {
+            updateVirtualBoxesHierarchy();
+            long start = System.nanoTime();
+            AccelerationStructure structure = new WideVirtualBoxesHierarchy(_geometries.getHierarchy(),
+                    _hierarchyWidth);
+            _buildTime += (System.nanoTime() - start) / 1e6;
+            return structure;
+        }
+        if (type == AccelerationStructure.Type.QUANTIZED_VIRTUAL_BOXES_HIERARCHY) {
+            // the released hierarchy can't be refitted, so it is built every time
+            buildVirtualBoxesHierarchy();
+            long start = System.nanoTime();
+            AccelerationStructure structure = new QuantizedVirtualBoxesHierarchy(_geometries.getHierarchy(),
+                    _quantizationBits);
+            _geometries.releaseVirtualBoxesHierarchy();
+            _builtMethod = null;
+            _buildTime += (System.nanoTime() - start) / 1e6;
+            return structure;
+        }
+        long start = System.nanoTime();
+        AccelerationStructure structure = _geometries.createAccelerationStructure(type);
+        _buildTime = (System.nanoTime() - start) / 1e6;
+        return structure;
     }
 }
@@ -78,4 +78,44 @@ public class CameraTest {
 
     }
 
+    /**
+     * checks whether a direction from the camera is inside a frustum
+     * @param normals normals of the frustum's side planes
+     * @param direction the direction
+     * @return true if the direction isn't outside any of the planes
+     */
+    private boolean inside(Vector[] normals, Vector direction) {
+        for (Vector normal : normals)
+            if (normal.dotProduct(direction) < 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Test method for
+     * {@link elements.Camera#constructFrustumThroughPixels(int, int, int, int, int, int, double, double, double)}.
+     */
+    @Test
+    public void constructFrustumThroughPixels() {
+        Camera camera = new Camera(Point3D.ZERO, new Vector(0, 0, 1), new Vector(0, -1, 0));
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: 4X4 tile of the upper left 2X2 pixels holds their rays only
+        Vector[] normals = camera.constructFrustumThroughPixels(4, 4, 0, 0, 2, 2, 10, 8, 8);
+        assertEquals("Bad frustum", 4, normals.length);
+        for (int i = 0; i < 2; i++)
+            for (int j = 0; j < 2; j++)
+                assertTrue("Ray of the tile is outside the frustum", inside(normals,
+                        camera.constructRayThroughPixel(4, 4, j, i, 10, 8, 8).getVector()));
+        assertFalse("Ray out of the tile is inside the frustum", inside(normals,
+                camera.constructRayThroughPixel(4, 4, 3, 3, 10, 8, 8).getVector()));
+        assertFalse("Ray out of the tile is inside the frustum", inside(normals,
+                camera.constructRayThroughPixel(4, 4, 2, 0, 10, 8, 8).getVector()));
+
+        // =============== Boundary Values Tests ==================
+        // TC11: Frustum of the whole view plane - its edges are inside, beyond them is outside
+        normals = camera.constructFrustumThroughPixels(4, 4, 0, 0, 4, 4, 10, 8, 8);
+        assertTrue("Edge of the view plane is outside the frustum", inside(normals, new Vector(4, 4, 10)));
+        assertFalse("Direction beyond the view plane is inside the frustum", inside(normals, new Vector(5, 0, 10)));
+    }
 }
@@ -0,0 +1,77 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing BoundedPlane
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class BoundedPlaneTest {
+
+    /**
+     * a box from (-1,-1,-1) to (1,1,1)
+     */
+    private final double[] box = {-1, 1, -1, 1, -1, 1};
+
+    /**
+     * Test method for {@link BoundedPlane#clip(Plane, double[])}.
+     */
+    @Test
+    public void clip() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: A slanted plane is cut to the box
+        BoundedPlane plane = BoundedPlane.clip(new Plane(new Point3D(0,0,0), new Vector(1,1,0)), box);
+        VirtualBox virtualBox = plane.getVirtualBox();
+        assertEquals("Wrong low x", -1, virtualBox.get_low(0), 0.00001);
+        assertEquals("Wrong high z", 1, virtualBox.get_high(2), 0.00001);
+
+        //TC02: A plane that doesn't cross the box
+        assertNull("Plane doesn't cross the box", BoundedPlane.clip(new Plane(new Point3D(0,0,5),
+                new Vector(0,0,1)), box));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: A plane parallel to the box's sides has a flat box
+        virtualBox = BoundedPlane.clip(new Plane(new Point3D(0,0,0.5), new Vector(0,0,1)), box).getVirtualBox();
+        assertEquals("Flat box", 0, virtualBox.get_high(2) - virtualBox.get_low(2), 0.00001);
+        assertEquals("Wrong flat box", 2, virtualBox.get_high(0) - virtualBox.get_low(0), 0.00001);
+
+        //TC04: A plane on the box's side
+        assertNotNull("Plane on the box's side", BoundedPlane.clip(new Plane(new Point3D(0,0,1),
+                new Vector(0,0,1)), box));
+    }
+
+    /**
+     * Test method for {@link BoundedPlane#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        Plane infinite = new Plane(new Point3D(0,0,0), new Vector(0,0,1));
+        BoundedPlane plane = BoundedPlane.clip(infinite, box);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: The ray crosses the plane inside the box
+        assertEquals("Ray crosses the plane inside the box",
+                new Intersectable.GeoPoint(infinite, new Point3D(0.5,0.5,0)),
+                plane.findIntersections(new Ray(new Point3D(0.5,0.5,-1), new Vector(0,0,1))).get(0));
+
+        //TC02: The ray crosses the plane outside the box
+        assertNull("Ray crosses the plane outside the box",
+                plane.findIntersections(new Ray(new Point3D(5,0,-1), new Vector(0,0,1))));
+
+        //TC03: The ray doesn't cross the plane
+        assertNull("Ray doesn't cross the plane",
+                plane.findIntersections(new Ray(new Point3D(0,0,-1), new Vector(0,0,-1))));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The ray crosses the plane on the box's edge
+        assertNotNull("Ray crosses the plane on the box's edge",
+                plane.findIntersections(new Ray(new Point3D(1,0,-1), new Vector(0,0,1))));
+    }
+}
@@ -4,6 +4,10 @@ import org.junit.Test;
 import primitives.*;
 
 import java.awt.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -80,4 +84,142 @@ public class GeometriesTest {
         result = geometries.findIntersections(ray);
         assertEquals("One geometry intersects with ray", result.size(),4);
     }
+
+    /**
+     * Test method for {@link Geometries#getVirtualBox()} after geometries are added and removed.
+     */
+    @Test
+    public void getVirtualBox() {
+        Sphere sphere = new Sphere(1, new Point3D(0,0,0));
+        Sphere far = new Sphere(1, new Point3D(10,0,0));
+        Plane plane = new Plane(new Point3D(0,0,5), new Vector(0,0,1));
+        Geometries geometries = new Geometries(sphere);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: The box grows with added geometries
+        assertEquals("Box of one geometry", 1, geometries.getVirtualBox().get_highX().get(), 0.00001);
+        geometries.add(far, plane);
+        assertEquals("Box grows with added geometry", 11, geometries.getVirtualBox().get_highX().get(), 0.00001);
+        assertEquals("Box keeps added infinite geometry", List.of(plane),
+                geometries.getVirtualBox().get_infiniteGeometries());
+
+        //TC02: The box shrinks after an edge geometry is removed
+        geometries.remove(far);
+        assertEquals("Box shrinks after remove", 1, geometries.getVirtualBox().get_highX().get(), 0.00001);
+
+        //TC03: Geometries added as a stream
+        geometries = new Geometries();
+        geometries.add(java.util.stream.IntStream.range(0, 100)
+                .mapToObj(i -> new Sphere(1, new Point3D(i,0,0))));
+        assertEquals("Box of streamed geometries", 100, geometries.getVirtualBox().get_highX().get(), 0.00001);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: Only infinite geometries, then a finite one
+        geometries = new Geometries(plane);
+        assertNull("Only infinite geometries", geometries.getVirtualBox());
+        geometries.add(sphere);
+        assertEquals("Box keeps earlier infinite geometry", List.of(plane),
+                geometries.getVirtualBox().get_infiniteGeometries());
+    }
+
+    /**
+     * Test method for {@link Geometries#buildVirtualBoxesHierarchy(Geometries.BuildMethod, boolean, Path)}.
+     */
+    @Test
+    public void buildVirtualBoxesHierarchyCache() throws IOException {
+        Path cache = Files.createTempDirectory("hierarchy");
+        cache.toFile().deleteOnExit();
+        Ray ray = new Ray(new Point3D(-20,0,0), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: The first build writes the hierarchy to the cache
+        Geometries built = createCacheGeometries();
+        built.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC, false, cache);
+        File[] files = cache.toFile().listFiles();
+        assertEquals("Hierarchy isn't written to the cache", 1, files.length);
+        files[0].deleteOnExit();
+
+        //TC02: The same geometries load the same hierarchy
+        Geometries loaded = createCacheGeometries();
+        loaded.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC, false, cache);
+        assertEquals("Loaded hierarchy is different", built.getHierarchy().getStatistics(),
+                loaded.getHierarchy().getStatistics());
+        assertEquals("Loaded hierarchy finds different intersections",
+                built.getHierarchy().findIntersections(ray).size(), loaded.getHierarchy().findIntersections(ray).size());
+        assertEquals("Loaded hierarchy finds wrong closest intersection", -11,
+                loaded.findClosestIntersection(ray).point.getX().get(), 0.00001);
+        assertEquals("Loaded hierarchy is written again", 1, cache.toFile().listFiles().length);
+
+        //TC03: Moved geometries are built again
+        loaded = createCacheGeometries();
+        loaded.add(new Sphere(1, new Point3D(0,30,0)));
+        loaded.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC, false, cache);
+        files = cache.toFile().listFiles();
+        for (File file : files)
+            file.deleteOnExit();
+        assertEquals("Changed geometries use the cached hierarchy", 2, files.length);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: A corrupted cache file is built again
+        for (File file : files)
+            Files.write(file.toPath(), new byte[]{1, 2, 3});
+        loaded = createCacheGeometries();
+        loaded.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC, false, cache);
+        assertEquals("Corrupted cache isn't built again", built.getHierarchy().getStatistics(),
+                loaded.getHierarchy().getStatistics());
+    }
+
+    /**
+     * Test method for {@link Geometries#setClipInfinitePlanes(boolean)}.
+     */
+    @Test
+    public void setClipInfinitePlanes() {
+        Geometries geometries = createCacheGeometries();
+        Plane wall = new Plane(new Point3D(0,0.5,0), new Vector(0,1,0));
+        geometries.add(wall);
+        Ray down = new Ray(new Point3D(-10,2,0), new Vector(0,-1,0));
+        Ray outside = new Ray(new Point3D(-30,2,0), new Vector(0,-1,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: A plane crossing the finite geometries' bounds goes into the hierarchy
+        geometries.setClipInfinitePlanes(true);
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        assertEquals("Plane crossing the bounds isn't cut", 1, geometries.getHierarchy().getInfiniteGeometries().length);
+        assertEquals("Cut plane isn't intersected inside the bounds", 3,
+                geometries.findIntersectionsInHierarchy(down).size());
+
+        //TC02: The cut plane isn't seen outside the bounds
+        assertNull("Cut plane is intersected outside the bounds", geometries.findIntersectionsInHierarchy(outside));
+
+        //TC03: Planes are restored when they aren't cut anymore
+        geometries.setClipInfinitePlanes(false);
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        assertEquals("Plane isn't restored", 2, geometries.getHierarchy().getInfiniteGeometries().length);
+        assertEquals("Restored plane isn't intersected outside the bounds", 1,
+                geometries.findIntersectionsInHierarchy(outside).size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: Without finite geometries the planes stay infinite
+        Geometries planes = new Geometries(wall);
+        planes.setClipInfinitePlanes(true);
+        planes.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        assertEquals("Plane without bounds is cut", 1, planes.getHierarchy().getInfiniteGeometries().length);
+    }
+
+    /**
+     * creates geometries for the hierarchy cache test - a row of spheres and a plane
+     * @return the geometries
+     */
+    private Geometries createCacheGeometries() {
+        Geometries geometries = new Geometries(new Plane(new Point3D(0,0,-5), new Vector(0,0,1)));
+        for (int i = 0; i < 10; i++)
+            geometries.add(new Sphere(1, new Point3D(-10 + 3 * i,0,0)));
+        return geometries;
+    }
 }
@@ -0,0 +1,93 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing Instance
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class InstanceTest {
+
+    /**
+     * Test method for {@link Instance#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        Geometries object = new Geometries(new Sphere(1, new Point3D(1,0,0)));
+        List<Intersectable.GeoPoint> result;
+        Point3D p1, p2;
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Moved instance
+        Instance instance = new Instance(object, new Point3D(9,0,0));
+        result = instance.findIntersections(new Ray(new Point3D(0,0,0), new Vector(1,0,0)));
+        assertEquals("Wrong number of points", 2, result.size());
+        p1 = new Point3D(9,0,0);
+        p2 = new Point3D(11,0,0);
+        assertTrue("Moved instance", List.of(p1, p2).equals(points(result)) || List.of(p2, p1).equals(points(result)));
+
+        //TC02: Rotated and scaled instance - a sphere with radius 2 around (0,2,0)
+        instance = new Instance(object, new Vector(0,0,1), 90, 2, Point3D.ZERO);
+        result = instance.findIntersections(new Ray(new Point3D(0,-5,0), new Vector(0,1,0)));
+        assertEquals("Wrong number of points", 2, result.size());
+        p1 = new Point3D(0,0,0);
+        p2 = new Point3D(0,4,0);
+        assertTrue("Rotated instance", List.of(p1, p2).equals(points(result)) || List.of(p2, p1).equals(points(result)));
+        Intersectable.GeoPoint gp = result.get(0).point.equals(p1) ? result.get(0) : result.get(1);
+        assertEquals("Normal of rotated instance", new Vector(0,-1,0), gp.geometry.getNormal(gp.point));
+
+        //TC03: Ray misses the instance
+        assertNull("Ray misses the instance",
+                instance.findIntersections(new Ray(new Point3D(5,-5,0), new Vector(0,1,0))));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: Instance of infinite geometries
+        assertThrows("Instance of infinite geometries", IllegalArgumentException.class,
+                () -> new Instance(new Geometries(new Plane(new Point3D(0,0,0), new Vector(0,0,1))),
+                        new Point3D(1,0,0)));
+
+        //TC05: Intersections with the same geometry of an instance have equal geometries with equal hash codes
+        result = instance.findIntersections(new Ray(new Point3D(0,-5,0), new Vector(0,1,0)));
+        assertEquals("Geometries of the same instance are not equal", result.get(0).geometry, result.get(1).geometry);
+        assertEquals("Equal geometries have different hash codes",
+                result.get(0).geometry.hashCode(), result.get(1).geometry.hashCode());
+    }
+
+    /**
+     * Test method for {@link Instance#move(Vector)}.
+     */
+    @Test
+    public void move() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: The instance's box moves with it, the shared geometries stay
+        Sphere sphere = new Sphere(1, new Point3D(0,0,0));
+        Instance instance = new Instance(new Geometries(sphere), new Point3D(0,0,5));
+        instance.move(new Vector(3,0,0));
+        assertEquals("Moved instance's box",
+                new VirtualBox(new Coordinate(2), new Coordinate(4), new Coordinate(-1), new Coordinate(1),
+                        new Coordinate(4), new Coordinate(6)),
+                instance.getVirtualBox());
+        assertEquals("Shared geometry doesn't move", new Point3D(0,0,0), sphere.getCenter());
+    }
+
+    /**
+     * helper function that returns the points of intersections
+     * @param intersections list of intersections
+     * @return list of the intersections' points
+     */
+    private List<Point3D> points(List<Intersectable.GeoPoint> intersections) {
+        List<Point3D> points = new ArrayList<>();
+        for (Intersectable.GeoPoint gp : intersections)
+            points.add(gp.point);
+        return points;
+    }
+}
@@ -0,0 +1,190 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing LazyVirtualBoxesHierarchy
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class LazyVirtualBoxesHierarchyTest {
+
+    /**
+     * creates a row of small spheres along x axis, so the hierarchy has many boxes
+     * @param geometries geometries to add the spheres to
+     * @return the geometries
+     */
+    private List<Intersectable> row(Intersectable... geometries) {
+        List<Intersectable> list = new ArrayList<>(List.of(geometries));
+        for (int i = 0; i < 20; i++)
+            list.add(new Sphere(0.5, new Point3D(10 + 5 * i, 0, -5)));
+        return list;
+    }
+
+    /**
+     * Test method for {@link LazyVirtualBoxesHierarchy#LazyVirtualBoxesHierarchy(List)}.
+     */
+    @Test
+    public void testConstructor() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Only the root box is made before a ray reaches the hierarchy
+        LazyVirtualBoxesHierarchy hierarchy = new LazyVirtualBoxesHierarchy(row());
+        assertEquals("Boxes were split before a ray reached them", 1, hierarchy.getBoxesCount());
+
+        //TC02: A ray splits only the boxes it reaches
+        hierarchy.findClosestIntersection(new Ray(new Point3D(10,0,-10), new Vector(0,0,1)));
+        long boxes = hierarchy.getBoxesCount();
+        assertTrue("Ray didn't split the boxes it reached", boxes > 1);
+        hierarchy.findClosestIntersection(new Ray(new Point3D(10,0,-10), new Vector(0,0,1)));
+        assertEquals("Boxes were split again", boxes, hierarchy.getBoxesCount());
+        assertTrue("Ray split boxes it didn't reach", boxes < 2 * 20 - 1);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: No finite geometries
+        assertEquals("No finite geometries", 0, new LazyVirtualBoxesHierarchy(
+                List.of(new Plane(new Point3D(1,0,0), new Vector(1,0,0)))).getBoxesCount());
+    }
+
+    /**
+     * Test method for {@link LazyVirtualBoxesHierarchy#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        List<Intersectable.GeoPoint> result;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray", new LazyVirtualBoxesHierarchy(row()).findIntersections(ray));
+
+        //TC02: Some geometries in different boxes intersect the ray
+        LazyVirtualBoxesHierarchy hierarchy = new LazyVirtualBoxesHierarchy(row(new Sphere(1, new Point3D(20,0,1)),
+                new Sphere(1, new Point3D(80,0,1))));
+        result = hierarchy.findIntersections(ray);
+        assertEquals("Some geometries intersect with ray", 4, result.size());
+
+        //TC03: Finite and infinite geometries intersect the ray
+        hierarchy = new LazyVirtualBoxesHierarchy(row(new Sphere(1, new Point3D(20,0,1)),
+                new Plane(new Point3D(1,0,0), new Vector(1,0,0))));
+        result = hierarchy.findIntersections(ray);
+        assertEquals("Finite and infinite geometries intersect with ray", 3, result.size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: Only infinite geometries
+        hierarchy = new LazyVirtualBoxesHierarchy(List.of(new Plane(new Point3D(1,0,0), new Vector(1,0,0))));
+        assertEquals("Only infinite geometries", 1, hierarchy.findIntersections(ray).size());
+    }
+
+    /**
+     * Test method for {@link LazyVirtualBoxesHierarchy#findClosestIntersection(Ray)}.
+     */
+    @Test
+    public void findClosestIntersection() {
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Sphere close = new Sphere(1, new Point3D(30,0,1));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray",
+                new LazyVirtualBoxesHierarchy(row()).findClosestIntersection(ray));
+
+        //TC02: The closest geometry is found before the farther boxes
+        LazyVirtualBoxesHierarchy hierarchy = new LazyVirtualBoxesHierarchy(row(
+                new Sphere(1, new Point3D(90,0,1)), close, new Sphere(1, new Point3D(-30,0,1))));
+        assertEquals("Closest geometry is found", new Point3D(29,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+
+        //TC03: The ray goes against the axis
+        ray = new Ray(new Point3D(100,0,1), new Vector(-1,0,0));
+        assertEquals("Ray goes against the axis", new Point3D(91,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+
+        //TC04: Random rays traced by several threads at once find the same intersections as in a built hierarchy
+        Geometries geometries = new Geometries();
+        Random random = new Random(1);
+        for (int i = 0; i < 2000; i++)
+            geometries.add(new Sphere(0.5 + random.nextDouble(), new Point3D(random.nextDouble() * 100 - 50,
+                    random.nextDouble() * 100 - 50, random.nextDouble() * 100 - 50)));
+        Ray[] rays = new Ray[2000];
+        for (int i = 0; i < rays.length; i++)
+            rays[i] = new Ray(new Point3D(0,0,-100), new Vector(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5, 1));
+        LazyVirtualBoxesHierarchy lazy = new LazyVirtualBoxesHierarchy(geometries.getAllGeometries());
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        Point3D[] expected = new Point3D[rays.length], actual = new Point3D[rays.length];
+        for (int i = 0; i < rays.length; i++) {
+            Intersectable.GeoPoint gp = geometries.getHierarchy().findClosestIntersection(rays[i]);
+            expected[i] = gp == null ? null : gp.point;
+        }
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread(() -> IntStream.range(0, rays.length).filter(i -> i % threads.length == thread)
+                    .forEach(i -> {
+                        Intersectable.GeoPoint gp = lazy.findClosestIntersection(rays[i]);
+                        actual[i] = gp == null ? null : gp.point;
+                    }));
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        assertArrayEquals("Different closest intersections", expected, actual);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC05: The ray starts on a geometry
+        ray = new Ray(new Point3D(29,0,1), new Vector(1,0,0));
+        hierarchy = new LazyVirtualBoxesHierarchy(row(close));
+        assertEquals("Ray starts on a geometry", new Point3D(31,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+    }
+
+    /**
+     * Test method for {@link LazyVirtualBoxesHierarchy#findTransparency(Ray, double, double)}.
+     */
+    @Test
+    public void findTransparency() {
+        LazyVirtualBoxesHierarchy hierarchy;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Material glass = new Material(0, 0, 0, 0.5, 0);
+        Material wall = new Material(0, 0, 0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry blocks the ray
+        hierarchy = new LazyVirtualBoxesHierarchy(row());
+        assertEquals("No geometry blocks the ray", 1.0, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC02: A transparent geometry is intersected twice before the light
+        hierarchy = new LazyVirtualBoxesHierarchy(row(new Sphere(Color.BLACK, glass, 10, new Point3D(30,0,1))));
+        assertEquals("Transparent geometry", 0.25, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC03: An opaque geometry blocks the ray
+        hierarchy = new LazyVirtualBoxesHierarchy(row(new Sphere(Color.BLACK, glass, 1, new Point3D(30,0,1)),
+                new Sphere(Color.BLACK, wall, 1, new Point3D(60,0,1))));
+        assertEquals("Opaque geometry", 0.0, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The opaque geometry is beyond the light
+        assertEquals("Opaque geometry beyond the light", 0.25,
+                hierarchy.findTransparency(ray, 50, 0.001), 0.00001);
+    }
+}
@@ -0,0 +1,182 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.Point3D;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing LeafKernel, ScalarLeafKernel and LeafPrimitives.
+ * run with --add-modules jdk.incubator.vector (and the incubator folder compiled) to test the Vector API kernel
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class LeafKernelTest {
+
+    /**
+     * creates a batched elementary box of random spheres and triangles, with the spheres and triangles mixed
+     * @param random the random numbers
+     * @param count amount of geometries
+     * @return the geometries
+     */
+    private static Intersectable[] createGeometries(Random random, int count) {
+        Intersectable[] geometries = new Intersectable[count];
+        for (int i = 0; i < count; i++) {
+            Point3D center = new Point3D(random.nextDouble() * 10, random.nextDouble() * 10, random.nextDouble() * 10);
+            if (random.nextBoolean())
+                geometries[i] = new Sphere(0.2 + random.nextDouble(), center);
+            else
+                geometries[i] = new Triangle(center,
+                        center.add(new Vector(0.5 + random.nextDouble() * 2, random.nextDouble(), 0.1)),
+                        center.add(new Vector(random.nextDouble(), 0.1, 0.5 + random.nextDouble() * 2)));
+        }
+        return geometries;
+    }
+
+    /**
+     * creates a random ray that starts around the geometries
+     * @param random the random numbers
+     * @return the ray
+     */
+    private static Ray createRay(Random random) {
+        return new Ray(new Point3D(random.nextDouble() * 20 - 5, random.nextDouble() * 20 - 5, -5),
+                new Vector(random.nextDouble() - 0.5, random.nextDouble() - 0.5, 0.5 + random.nextDouble()));
+    }
+
+    /**
+     * finds the places of a kernel's candidates
+     * @param kernel the kernel
+     * @param primitives the values of the geometries
+     * @param first first place of the box's geometries
+     * @param end place after the box's last geometry
+     * @param ray the ray
+     * @param tMax distance along the ray an intersection has to be closer than
+     * @return the candidates
+     */
+    private static int[] candidates(LeafKernel kernel, LeafPrimitives primitives, int first, int end, Ray ray,
+                                    double tMax) {
+        int[] candidates = new int[end - first];
+        int found = kernel.candidates(primitives, primitives.getKinds(0), first, end, ray, tMax, candidates);
+        return Arrays.copyOf(candidates, found);
+    }
+
+    /**
+     * checks that a kernel keeps every geometry whose own findIntersections finds an intersection before a distance
+     * @param kernel the kernel
+     * @param geometries the geometries
+     * @param primitives the values of the geometries
+     * @param ray the ray
+     * @param tMax distance along the ray an intersection has to be closer than
+     */
+    private static void assertKeepsHits(LeafKernel kernel, Intersectable[] geometries, LeafPrimitives primitives,
+                                        Ray ray, double tMax) {
+        int[] candidates = candidates(kernel, primitives, 0, geometries.length, ray, tMax);
+        for (int i = 0; i < geometries.length; i++) {
+            List<Intersectable.GeoPoint> intersections = geometries[i].findIntersections(ray);
+            if (intersections == null)
+                continue;
+            for (Intersectable.GeoPoint intersection : intersections)
+                if (intersection.point.distance(ray.getStartPoint()) < tMax)
+                    assertTrue(kernel + " kernel dropped a hit", Arrays.binarySearch(candidates, i) >= 0);
+        }
+    }
+
+    /**
+     * Test method for {@link ScalarLeafKernel#candidates(LeafPrimitives, int, int, int, Ray, double, int[])}.
+     */
+    @Test
+    public void scalarCandidates() {
+        Random random = new Random(5);
+        Intersectable[] geometries = createGeometries(random, 40);
+        LeafPrimitives primitives = new LeafPrimitives(geometries, new int[]{0}, new int[]{geometries.length});
+        LeafKernel kernel = new ScalarLeafKernel();
+
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: every geometry the ray intersects is kept
+        for (int i = 0; i < 2000; i++)
+            assertKeepsHits(kernel, geometries, primitives, createRay(random), Double.POSITIVE_INFINITY);
+
+        //TC02: every geometry the ray intersects before the distance is kept, and the ones after it are dropped
+        for (int i = 0; i < 2000; i++)
+            assertKeepsHits(kernel, geometries, primitives, createRay(random), 8);
+        Ray ray = new Ray(new Point3D(0, 0, 0), new Vector(0, 0, 1));
+        Intersectable[] far = {new Sphere(1, new Point3D(0, 0, 5)), new Sphere(1, new Point3D(0, 0, 20))};
+        LeafPrimitives farPrimitives = new LeafPrimitives(far, new int[]{0}, new int[]{far.length});
+        assertArrayEquals("far sphere dropped", new int[]{0}, candidates(kernel, farPrimitives, 0, 2, ray, 10));
+
+        //TC03: only the places of the range are kept
+        for (int i = 0; i < 200; i++)
+            for (int candidate : candidates(kernel, primitives, 7, 19, createRay(random), Double.POSITIVE_INFINITY))
+                assertTrue("candidate out of range", candidate >= 7 && candidate < 19);
+
+        // =============== Boundary Values Tests ==================
+        //TC04: a ray in the plane of a triangle keeps it
+        Intersectable[] flat = {new Triangle(new Point3D(5, 0, 0), new Point3D(5, 1, 0), new Point3D(5, 0, 1)),
+                new Sphere(1, new Point3D(0, 0, -5))};
+        LeafPrimitives flatPrimitives = new LeafPrimitives(flat, new int[]{0}, new int[]{flat.length});
+        ray = new Ray(new Point3D(5, 0.2, -5), new Vector(0, 0, 1));
+        assertArrayEquals("grazing triangle", new int[]{0},
+                candidates(kernel, flatPrimitives, 0, 2, ray, Double.POSITIVE_INFINITY));
+
+        //TC05: a ray tangent to a sphere keeps it
+        ray = new Ray(new Point3D(-5, 1, -5), new Vector(1, 0, 0));
+        assertArrayEquals("tangent sphere", new int[]{1},
+                candidates(kernel, flatPrimitives, 0, 2, ray, Double.POSITIVE_INFINITY));
+    }
+
+    /**
+     * Test method for {@link LeafKernel#INSTANCE} - the kernel the hierarchies use (the Vector API kernel when it is
+     * compiled and enabled) keeps the same geometries as the scalar kernel.
+     */
+    @Test
+    public void instanceCandidates() {
+        Random random = new Random(9);
+        LeafKernel scalar = new ScalarLeafKernel();
+        // every amount of geometries up to a few vectors, so the last vector is full and partial
+        for (int count = LeafPrimitives.MIN_BATCH; count <= 20; count++) {
+            Intersectable[] geometries = createGeometries(random, count);
+            LeafPrimitives primitives = new LeafPrimitives(geometries, new int[]{0}, new int[]{count});
+            for (int i = 0; i < 300; i++) {
+                Ray ray = createRay(random);
+                double tMax = i % 2 == 0 ? Double.POSITIVE_INFINITY : 2 + random.nextDouble() * 10;
+                int first = i % 3 == 0 ? 0 : random.nextInt(count);
+                assertArrayEquals(LeafKernel.INSTANCE + " kernel candidates",
+                        candidates(scalar, primitives, first, count, ray, tMax),
+                        candidates(LeafKernel.INSTANCE, primitives, first, count, ray, tMax));
+                assertKeepsHits(LeafKernel.INSTANCE, geometries, primitives, ray, tMax);
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link LeafPrimitives#getKinds(int)}.
+     */
+    @Test
+    public void getKinds() {
+        Sphere sphere = new Sphere(1, new Point3D(0, 0, 0));
+        Triangle triangle = new Triangle(new Point3D(0, 0, 0), new Point3D(1, 0, 0), new Point3D(0, 1, 0));
+        Polygon polygon = new Polygon(new Point3D(0, 0, 0), new Point3D(1, 0, 0), new Point3D(1, 1, 0),
+                new Point3D(0, 1, 0));
+        Intersectable[] geometries = {sphere, sphere, sphere, triangle, polygon, sphere, sphere};
+        LeafPrimitives primitives = new LeafPrimitives(geometries, new int[]{0, 2, 4, 6}, new int[]{2, 2, 2, 1});
+
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: a box of spheres
+        assertEquals("spheres", LeafPrimitives.SPHERES, primitives.getKinds(0));
+        //TC02: a box of spheres and triangles
+        assertEquals("spheres and triangles", LeafPrimitives.SPHERES | LeafPrimitives.TRIANGLES,
+                primitives.getKinds(1));
+        //TC03: a box with another geometry isn't batched
+        assertEquals("polygon", 0, primitives.getKinds(2));
+
+        // =============== Boundary Values Tests ==================
+        //TC04: a box with less than MIN_BATCH geometries isn't batched
+        assertEquals("single sphere", 0, primitives.getKinds(3));
+        assertEquals("largest box", 2, primitives.getMaxCount());
+    }
+}
@@ -0,0 +1,82 @@
+package geometries;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing MortonCodes
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class MortonCodesTest {
+
+    /**
+     * Test method for {@link MortonCodes#encode30(double, double, double)}
+     * and {@link MortonCodes#encode63(double, double, double)}.
+     */
+    @Test
+    public void encode() {
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: the bits of the axes are interleaved x, y, z from the highest bit
+        assertEquals("x bit", 0b100L << 27, MortonCodes.encode30(0.5, 0, 0));
+        assertEquals("y bit", 0b010L << 27, MortonCodes.encode30(0, 0.5, 0));
+        assertEquals("z bit", 0b001L << 27, MortonCodes.encode30(0, 0, 0.5));
+        assertEquals("x bit", 0b100L << 60, MortonCodes.encode63(0.5, 0, 0));
+
+        // =============== Boundary Values Tests ==================
+        //TC02: the corners of the box
+        assertEquals("low corner", 0, MortonCodes.encode30(0, 0, 0));
+        assertEquals("high corner", (1L << 30) - 1, MortonCodes.encode30(1, 1, 1));
+        assertEquals("high corner", (1L << 63) - 1, MortonCodes.encode63(1, 1, 1));
+    }
+
+    /**
+     * Test method for {@link MortonCodes#sort(long[], int[], int, boolean)}.
+     */
+    @Test
+    public void sort() {
+        Random random = new Random(7);
+        for (int bits : new int[]{30, 63}) {
+            for (boolean parallel : new boolean[]{false, true}) {
+                int n = 100000;
+                long[] codes = new long[n];
+                int[] indices = new int[n];
+                for (int i = 0; i < n; i++) {
+                    codes[i] = random.nextLong() >>> (64 - bits);
+                    indices[i] = i;
+                }
+                long[] original = codes.clone();
+                long[] expected = codes.clone();
+                Arrays.sort(expected);
+                MortonCodes.sort(codes, indices, bits, parallel);
+                assertArrayEquals("sorted codes", expected, codes);
+                for (int i = 0; i < n; i++) {
+                    assertEquals("indices follow their codes", original[indices[i]], codes[i]);
+                    // the sort is stable
+                    if (i > 0 && codes[i] == codes[i - 1])
+                        assertTrue("stable sort", indices[i] > indices[i - 1]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test method for {@link MortonCodes#findSplit(long[], int, int)}.
+     */
+    @Test
+    public void findSplit() {
+        // ============ Equivalence Partitions Tests ==============
+        //TC01: split at the highest differing bit
+        long[] codes = {0b0001, 0b0010, 0b0011, 0b1000, 0b1100};
+        assertEquals("highest bit split", 2, MortonCodes.findSplit(codes, 0, 4));
+        assertEquals("inner split", 0, MortonCodes.findSplit(codes, 0, 2));
+
+        // =============== Boundary Values Tests ==================
+        //TC02: identical codes are split in the middle
+        codes = new long[]{5, 5, 5, 5, 5};
+        assertEquals("identical codes", 2, MortonCodes.findSplit(codes, 0, 4));
+    }
+}
@@ -147,4 +147,34 @@ public class PolygonTest {
         assertNull("findIntersections() doesn't work where ray begins on the polygon", result);
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link Polygon#findNearestIntersection(Ray, double, double, Intersectable.HitRecord)}.
+     */
+    @Test
+    public void findNearestIntersection() {
+        Polygon p = new Polygon(new Point3D(-1,-5,0), new Point3D(-1,-5,5), new Point3D(-1, 5, 5), new Point3D(-1,5,0));
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+        Ray r = new Ray(new Point3D(0,0,2), new Vector(-1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: ray intersects with polygon
+        assertTrue("findNearestIntersection() doesn't work where ray intersects polygon",
+                p.findNearestIntersection(r, 0, Double.POSITIVE_INFINITY, hit));
+        assertEquals("findNearestIntersection() wrong distance", 1, hit.t, 0.00001);
+        assertEquals("findNearestIntersection() wrong point", new Point3D(-1,0,2), hit.point);
+
+        //TC02: ray passes against polygon's edge
+        hit.reset();
+        assertFalse("findNearestIntersection() doesn't work where ray passes against polygon's edge",
+                p.findNearestIntersection(new Ray(new Point3D(0,0,-5), new Vector(-1,0,0)), 0,
+                        Double.POSITIVE_INFINITY, hit));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: ray intersects with polygon exactly at tMax
+        assertFalse("findNearestIntersection() doesn't work where the intersection is at tMax",
+                p.findNearestIntersection(r, 0, 1, hit));
+        assertNull("findNearestIntersection() changed the hit record", hit.toGeoPoint());
+    }
+}
@@ -0,0 +1,194 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing QuantizedVirtualBoxesHierarchy
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class QuantizedVirtualBoxesHierarchyTest {
+
+    /**
+     * creates a row of small spheres along x axis, so the hierarchy has many boxes
+     * @param geometries geometries to add the spheres to
+     * @return the geometries
+     */
+    private Geometries row(Geometries geometries) {
+        for (int i = 0; i < 20; i++)
+            geometries.add(new Sphere(0.5, new Point3D(10 + 5 * i, 0, -5)));
+        return geometries;
+    }
+
+    /**
+     * builds a virtual boxes hierarchy over geometries and quantizes it
+     * @param geometries the geometries
+     * @param bits amount of bits of an edge of a box
+     * @return the quantized hierarchy
+     */
+    private QuantizedVirtualBoxesHierarchy quantized(Geometries geometries, int bits) {
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        return new QuantizedVirtualBoxesHierarchy(geometries.getHierarchy(), bits);
+    }
+
+    /**
+     * Test method for {@link QuantizedVirtualBoxesHierarchy#QuantizedVirtualBoxesHierarchy(VirtualBoxesHierarchy, int)}.
+     */
+    @Test
+    public void testConstructor() {
+        Geometries geometries = row(new Geometries());
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Quantized boxes take less memory than the compiled boxes
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        int boxes = geometries.getHierarchy().getBoxesCount();
+        QuantizedVirtualBoxesHierarchy eight = new QuantizedVirtualBoxesHierarchy(geometries.getHierarchy(), 8);
+        QuantizedVirtualBoxesHierarchy sixteen = new QuantizedVirtualBoxesHierarchy(geometries.getHierarchy(), 16);
+        assertEquals("Wrong amount of boxes", boxes, eight.getBoxesCount());
+        assertTrue("Quantized boxes don't take less memory",
+                eight.getBoxesMemory() < sixteen.getBoxesMemory() && sixteen.getBoxesMemory() < 56L * boxes);
+
+        //TC02: Wrong bits
+        assertThrows("Bits must be 8 or 16", IllegalArgumentException.class,
+                () -> new QuantizedVirtualBoxesHierarchy(geometries.getHierarchy(), 12));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: A single elementary box
+        assertEquals("Single elementary box", 1,
+                quantized(new Geometries(new Sphere(1, new Point3D(0,0,0))), 8).getBoxesCount());
+    }
+
+    /**
+     * Test method for {@link QuantizedVirtualBoxesHierarchy#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        List<Intersectable.GeoPoint> result;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray", quantized(row(new Geometries()), 8).findIntersections(ray));
+
+        //TC02: Some geometries in different boxes intersect the ray
+        QuantizedVirtualBoxesHierarchy hierarchy = quantized(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Sphere(1, new Point3D(80,0,1)))), 16);
+        result = hierarchy.findIntersections(ray);
+        assertEquals("Some geometries intersect with ray", 4, result.size());
+
+        //TC03: Finite and infinite geometries intersect the ray
+        hierarchy = quantized(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Plane(new Point3D(1,0,0), new Vector(1,0,0)))), 8);
+        result = hierarchy.findIntersections(ray);
+        assertEquals("Finite and infinite geometries intersect with ray", 3, result.size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: Only infinite geometries
+        hierarchy = quantized(new Geometries(new Plane(new Point3D(1,0,0), new Vector(1,0,0))), 8);
+        assertEquals("Only infinite geometries", 1, hierarchy.findIntersections(ray).size());
+
+        //TC05: A flat geometry, whose box has no width
+        hierarchy = quantized(row(new Geometries(new Triangle(new Point3D(30,-1,0), new Point3D(30,1,0),
+                new Point3D(30,0,2)))), 8);
+        assertEquals("Flat geometry", 1, hierarchy.findIntersections(ray).size());
+    }
+
+    /**
+     * Test method for {@link QuantizedVirtualBoxesHierarchy#findClosestIntersection(Ray)}.
+     */
+    @Test
+    public void findClosestIntersection() {
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Sphere close = new Sphere(1, new Point3D(30,0,1));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray",
+                quantized(row(new Geometries()), 8).findClosestIntersection(ray));
+
+        //TC02: The closest geometry is found before the farther boxes
+        QuantizedVirtualBoxesHierarchy hierarchy = quantized(row(new Geometries(new Sphere(1, new Point3D(90,0,1)),
+                close, new Sphere(1, new Point3D(-30,0,1)))), 8);
+        assertEquals("Closest geometry is found", new Point3D(29,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+
+        //TC03: The ray goes against the axis
+        ray = new Ray(new Point3D(100,0,1), new Vector(-1,0,0));
+        assertEquals("Ray goes against the axis", new Point3D(91,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+
+        //TC04: Random rays find the same intersections as in the compiled hierarchy, also in a big scene whose
+        // small boxes are deep under the root box
+        Geometries geometries = new Geometries();
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++)
+            geometries.add(new Sphere(0.5 + random.nextDouble(), new Point3D(random.nextDouble() * 40 - 20,
+                    random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20)));
+        for (int i = 0; i < 2000; i++)
+            geometries.add(new Sphere(0.01, new Point3D(random.nextDouble() * 2000 - 1000,
+                    random.nextDouble() * 2000 - 1000, random.nextDouble() * 2000 + 100)));
+        for (int bits : new int[]{8, 16}) {
+            hierarchy = quantized(geometries, bits);
+            for (int i = 0; i < 500; i++) {
+                ray = new Ray(new Point3D(0,0,-50), new Vector(random.nextDouble() - 0.5,
+                        random.nextDouble() - 0.5, 1));
+                Intersectable.GeoPoint expected = geometries.getHierarchy().findClosestIntersection(ray);
+                Intersectable.GeoPoint actual = hierarchy.findClosestIntersection(ray);
+                if (expected == null)
+                    assertNull("Different closest intersection", actual);
+                else
+                    assertEquals("Different closest intersection", expected.point, actual.point);
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        //TC05: The ray starts on a geometry
+        ray = new Ray(new Point3D(29,0,1), new Vector(1,0,0));
+        hierarchy = quantized(row(new Geometries(close)), 16);
+        assertEquals("Ray starts on a geometry", new Point3D(31,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+    }
+
+    /**
+     * Test method for {@link QuantizedVirtualBoxesHierarchy#findTransparency(Ray, double, double)}.
+     */
+    @Test
+    public void findTransparency() {
+        QuantizedVirtualBoxesHierarchy hierarchy;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Material glass = new Material(0, 0, 0, 0.5, 0);
+        Material wall = new Material(0, 0, 0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry blocks the ray
+        hierarchy = quantized(row(new Geometries()), 8);
+        assertEquals("No geometry blocks the ray", 1.0, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC02: A transparent geometry is intersected twice before the light
+        hierarchy = quantized(row(new Geometries(new Sphere(Color.BLACK, glass, 10, new Point3D(30,0,1)))), 8);
+        assertEquals("Transparent geometry", 0.25, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC03: An opaque geometry blocks the ray
+        hierarchy = quantized(row(new Geometries(new Sphere(Color.BLACK, glass, 1, new Point3D(30,0,1)),
+                new Sphere(Color.BLACK, wall, 1, new Point3D(60,0,1)))), 16);
+        assertEquals("Opaque geometry", 0.0, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The opaque geometry is beyond the light
+        assertEquals("Opaque geometry beyond the light", 0.25,
+                hierarchy.findTransparency(ray, 50, 0.001), 0.00001);
+    }
+}
@@ -0,0 +1,94 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing SpatialSplitsBuilder
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class SpatialSplitsBuilderTest {
+
+    /**
+     * creates a room of long thin polygons (floor, walls, beams) with small spheres in it
+     * @return the geometries
+     */
+    private Geometries room() {
+        Material glass = new Material(0, 0, 0, 0.5, 0);
+        Geometries geometries = new Geometries(
+                new Polygon(new Point3D(-50,-10,-50), new Point3D(50,-10,-50), new Point3D(50,-10,50),
+                        new Point3D(-50,-10,50)),
+                new Polygon(new Point3D(-50,-10,50), new Point3D(50,-10,50), new Point3D(50,40,50),
+                        new Point3D(-50,40,50)),
+                new Plane(new Point3D(0,-20,0), new Vector(0,1,0)));
+        for (int i = 0; i < 10; i++)
+            geometries.add(new Triangle(Color.BLACK, glass, new Point3D(-50,4 * i,-50 + 10 * i),
+                    new Point3D(50,4 * i + 1,50 - 10 * i), new Point3D(50,4 * i - 1,50 - 10 * i)));
+        Random random = new Random(2);
+        for (int i = 0; i < 100; i++)
+            geometries.add(new Sphere(Color.BLACK, glass, 0.5 + random.nextDouble(), new Point3D(
+                    random.nextDouble() * 90 - 45, random.nextDouble() * 40 - 5, random.nextDouble() * 90 - 45)));
+        return geometries;
+    }
+
+    /**
+     * Test method for {@link SpatialSplitsBuilder#build(List)}.
+     */
+    @Test
+    public void build() {
+        Geometries sah = room();
+        sah.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        Geometries spatial = room();
+        spatial.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SPATIAL_SPLITS);
+        VirtualBoxesHierarchy hierarchy = spatial.getHierarchy();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Long polygons are split - there are duplicated references within the budget
+        int references = hierarchy.getGeometries().length;
+        assertTrue("Geometries aren't split", references > 112);
+        assertTrue("Budget is exceeded", references <= 112 + 0.3 * 112);
+        assertNotNull("Geometries aren't numbered", hierarchy.getGeometryIds());
+
+        //TC02: Random rays find the same intersections as without spatial splits
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            Ray ray = new Ray(new Point3D(random.nextDouble() * 60 - 30, random.nextDouble() * 30,
+                    random.nextDouble() * 60 - 30), new Vector(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            Intersectable.GeoPoint expected = sah.getHierarchy().findClosestIntersection(ray);
+            Intersectable.GeoPoint actual = hierarchy.findClosestIntersection(ray);
+            if (expected == null)
+                assertNull("Different closest intersection", actual);
+            else
+                assertEquals("Different closest intersection", expected.point, actual.point);
+            List<Intersectable.GeoPoint> all = sah.getHierarchy().findIntersections(ray);
+            List<Intersectable.GeoPoint> found = hierarchy.findIntersections(ray);
+            assertEquals("Split geometries are intersected more than once", all == null ? 0 : all.size(),
+                    found == null ? 0 : found.size());
+            assertEquals("Split geometries reduce transparency more than once",
+                    sah.getHierarchy().findTransparency(ray, 100, 0.0001),
+                    hierarchy.findTransparency(ray, 100, 0.0001), 0.00001);
+        }
+
+        //TC03: The collection keeps its geometries without inner boxes
+        assertEquals("Geometries are changed", 113, spatial.getAllGeometries().size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: No budget - no duplicated references
+        spatial = room();
+        spatial.setSpatialSplitsBudget(0);
+        spatial.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SPATIAL_SPLITS);
+        assertEquals("Geometries are split without budget", 112, spatial.getHierarchy().getGeometries().length);
+        assertNull("Geometries are numbered without budget", spatial.getHierarchy().getGeometryIds());
+
+        //TC05: Negative budget
+        assertThrows("Negative budget", IllegalArgumentException.class, () -> room().setSpatialSplitsBudget(-1));
+    }
+}
@@ -126,5 +126,39 @@ public class SphereTest {
         // TC16: Ray's line is outside, ray is orthogonal to ray start to sphere's center line
     }
 
+    /**
+     * Test method for {@link Sphere#findNearestIntersection(Ray, double, double, Intersectable.HitRecord)}.
+     */
+    @Test
+    public void findNearestIntersection() {
+        Sphere sphere = new Sphere(1d, new Point3D(1, 0, 0));
+        Intersectable.HitRecord hit = new Intersectable.HitRecord();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: Ray crosses the sphere - the nearer point is written with its distance
+        Ray ray = new Ray(new Point3D(3, 0, 0), new Vector(-1, 0, 0));
+        assertTrue("Ray crosses sphere", sphere.findNearestIntersection(ray, 0, Double.POSITIVE_INFINITY, hit));
+        assertEquals("Wrong distance", 1, hit.t, 0.00001);
+        assertEquals("Wrong point", new Point3D(2, 0, 0), hit.point);
+        assertSame("Wrong geometry", sphere, hit.geometry);
+
+        // TC02: Ray crosses the sphere after tMax - the record is unchanged
+        hit.reset();
+        assertFalse("Intersection beyond tMax", sphere.findNearestIntersection(ray, 0, 0.5, hit));
+        assertNull("Record changed", hit.toGeoPoint());
+
+        // =============== Boundary Values Tests ==================
+
+        // TC03: The nearer point is before tMin - the farther point is written
+        assertTrue("Ray crosses sphere", sphere.findNearestIntersection(ray, 1, Double.POSITIVE_INFINITY, hit));
+        assertEquals("Wrong point", new Point3D(0, 0, 0), hit.point);
+
+        // TC04: Ray is tangent to the sphere (0 points)
+        hit.reset();
+        assertFalse("Ray tangent to sphere", sphere.findNearestIntersection(
+                new Ray(new Point3D(2, 1, 0), new Vector(-1, 0, 0)), 0, Double.POSITIVE_INFINITY, hit));
+    }
+
 
 }
\ No newline at end of file
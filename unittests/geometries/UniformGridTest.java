@@ -0,0 +1,146 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing UniformGrid
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class UniformGridTest {
+
+    /**
+     * creates a row of small spheres along x axis, so the structure has many cells
+     * @param geometries geometries to add the spheres to
+     * @return the geometries
+     */
+    private Geometries row(Geometries geometries) {
+        for (int i = 0; i < 20; i++)
+            geometries.add(new Sphere(0.5, new Point3D(10 + 5 * i, 0, -5)));
+        return geometries;
+    }
+
+    /**
+     * Test method for {@link UniformGrid#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        List<Intersectable.GeoPoint> result;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray", new UniformGrid(row(new Geometries())).findIntersections(ray));
+
+        //TC02: Some geometries in different cells intersect the ray
+        UniformGrid structure = new UniformGrid(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Sphere(1, new Point3D(80,0,1)))));
+        result = structure.findIntersections(ray);
+        assertEquals("Some geometries intersect with ray", 4, result.size());
+
+        //TC03: Finite and infinite geometries intersect the ray
+        structure = new UniformGrid(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Plane(new Point3D(1,0,0), new Vector(1,0,0)))));
+        result = structure.findIntersections(ray);
+        assertEquals("Finite and infinite geometries intersect with ray", 3, result.size());
+
+        //TC04: A big geometry held by many cells is intersected once
+        structure = new UniformGrid(row(new Geometries(
+                new Triangle(new Point3D(0,-1,-20), new Point3D(0,-1,20), new Point3D(120,1,0)))));
+        ray = new Ray(new Point3D(62,-5,0), new Vector(0,1,0));
+        result = structure.findIntersections(ray);
+        assertEquals("Big geometry intersects with ray", 1, result.size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC05: The ray starts inside the structure
+        ray = new Ray(new Point3D(20,0,1), new Vector(1,0,0));
+        structure = new UniformGrid(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Sphere(1, new Point3D(-20,0,1)))));
+        result = structure.findIntersections(ray);
+        assertEquals("Ray starts inside the structure", 1, result.size());
+    }
+
+    /**
+     * Test method for {@link UniformGrid#findClosestIntersection(Ray)}.
+     */
+    @Test
+    public void findClosestIntersection() {
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Sphere close = new Sphere(1, new Point3D(30,0,1));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray",
+                new UniformGrid(row(new Geometries())).findClosestIntersection(ray));
+
+        //TC02: The closest geometry is found before the farther cells
+        UniformGrid structure = new UniformGrid(row(new Geometries(new Sphere(1, new Point3D(90,0,1)),
+                close, new Sphere(1, new Point3D(-30,0,1)))));
+        assertEquals("Closest geometry is found", new Point3D(29,0,1),
+                structure.findClosestIntersection(ray).point);
+
+        //TC03: The ray goes against the axis
+        ray = new Ray(new Point3D(100,0,1), new Vector(-1,0,0));
+        assertEquals("Ray goes against the axis", new Point3D(91,0,1),
+                structure.findClosestIntersection(ray).point);
+
+        //TC04: An infinite geometry is closer than the finite geometries
+        ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        structure = new UniformGrid(row(new Geometries(close, new Plane(new Point3D(1,0,0), new Vector(1,0,0)))));
+        assertEquals("Closest geometry is infinite", new Point3D(1,0,1),
+                structure.findClosestIntersection(ray).point);
+
+        //TC05: A big geometry starts in a cell before the closest geometry, and is intersected behind it
+        structure = new UniformGrid(row(new Geometries(close,
+                new Triangle(new Point3D(0,-20,-20), new Point3D(0,20,-20), new Point3D(100,0,20)))));
+        assertEquals("Big geometry behind the closest geometry", new Point3D(29,0,1),
+                structure.findClosestIntersection(ray).point);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC06: The ray starts on a geometry
+        ray = new Ray(new Point3D(29,0,1), new Vector(1,0,0));
+        structure = new UniformGrid(row(new Geometries(close)));
+        assertEquals("Ray starts on a geometry", new Point3D(31,0,1),
+                structure.findClosestIntersection(ray).point);
+    }
+
+    /**
+     * Test method for {@link UniformGrid#findTransparency(Ray, double, double)}.
+     */
+    @Test
+    public void findTransparency() {
+        UniformGrid structure;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Material glass = new Material(0, 0, 0, 0.5, 0);
+        Material wall = new Material(0, 0, 0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry blocks the ray
+        structure = new UniformGrid(row(new Geometries()));
+        assertEquals("No geometry blocks the ray", 1.0, structure.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC02: A transparent geometry held by many cells is intersected twice before the light
+        structure = new UniformGrid(row(new Geometries(new Sphere(Color.BLACK, glass, 10, new Point3D(30,0,1)))));
+        assertEquals("Transparent geometry", 0.25, structure.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC03: An opaque geometry blocks the ray
+        structure = new UniformGrid(row(new Geometries(new Sphere(Color.BLACK, glass, 1, new Point3D(30,0,1)),
+                new Sphere(Color.BLACK, wall, 1, new Point3D(60,0,1)))));
+        assertEquals("Opaque geometry", 0.0, structure.findTransparency(ray, 100, 0.001), 0.00001);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The opaque geometry is beyond the light
+        assertEquals("Opaque geometry beyond the light", 0.25,
+                structure.findTransparency(ray, 50, 0.001), 0.00001);
+    }
+}
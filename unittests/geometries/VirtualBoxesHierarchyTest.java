@@ -0,0 +1,408 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing VirtualBoxesHierarchy
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class VirtualBoxesHierarchyTest {
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        List<Intersectable.GeoPoint> result;
+        Geometries geometries;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        geometries = new Geometries(new Sphere(1, new Point3D(3,3,3)),
+                new Sphere(1, new Point3D(-3,0,1)),
+                new Triangle(new Point3D(50,50,50), new Point3D(45,40,45), new Point3D(40,40,40)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertNull("No geometry intersects with ray", geometries.getHierarchy().findIntersections(ray));
+
+        //TC02: Some geometries in different boxes intersect the ray
+        geometries = new Geometries(new Sphere(1, new Point3D(3,0,1)),
+                new Sphere(1, new Point3D(3,3,3)),
+                new Sphere(1, new Point3D(30,0,1)),
+                new Triangle(new Point3D(50,50,50), new Point3D(45,40,45), new Point3D(40,40,40)));
+        geometries.buildVirtualBoxesHierarchy();
+        result = geometries.getHierarchy().findIntersections(ray);
+        assertEquals("Some geometries intersect with ray", 4, result.size());
+
+        //TC03: Finite and infinite geometries intersect the ray
+        geometries = new Geometries(new Sphere(1, new Point3D(3,0,1)),
+                new Sphere(1, new Point3D(3,3,3)),
+                new Plane(new Point3D(1,1,0), new Point3D(1,-1,0), new Point3D(0,0,4)));
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        result = geometries.getHierarchy().findIntersections(ray);
+        assertEquals("Finite and infinite geometries intersect with ray", 3, result.size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The ray starts inside the hierarchy's boxes
+        ray = new Ray(new Point3D(3,0,1), new Vector(1,0,0));
+        geometries = new Geometries(new Sphere(1, new Point3D(3,0,1)), new Sphere(1, new Point3D(-3,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        result = geometries.getHierarchy().findIntersections(ray);
+        assertEquals("Ray starts inside a box", 1, result.size());
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#findClosestIntersection(Ray)}.
+     */
+    @Test
+    public void findClosestIntersection() {
+        Geometries geometries;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        geometries = new Geometries(new Sphere(1, new Point3D(3,3,3)),
+                new Sphere(1, new Point3D(-3,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertNull("No geometry intersects with ray", geometries.getHierarchy().findClosestIntersection(ray));
+
+        //TC02: The closest geometry is in the farther box from the root's first box
+        Sphere close = new Sphere(1, new Point3D(3,0,1));
+        geometries = new Geometries(new Sphere(1, new Point3D(30,0,1)),
+                new Sphere(1, new Point3D(20,0,1)), close, new Sphere(1, new Point3D(-3,0,1)));
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        assertEquals("Closest geometry is found", new Point3D(2,0,1),
+                geometries.getHierarchy().findClosestIntersection(ray).point);
+
+        //TC03: An infinite geometry is closer than the finite geometries
+        Plane plane = new Plane(new Point3D(1,0,0), new Vector(1,0,0));
+        geometries = new Geometries(close, plane, new Sphere(1, new Point3D(20,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("Closest geometry is infinite", new Point3D(1,0,1),
+                geometries.getHierarchy().findClosestIntersection(ray).point);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The ray starts on a geometry
+        ray = new Ray(new Point3D(2,0,1), new Vector(1,0,0));
+        geometries = new Geometries(close, new Sphere(1, new Point3D(20,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("Ray starts on a geometry", new Point3D(4,0,1),
+                geometries.getHierarchy().findClosestIntersection(ray).point);
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#findClosestIntersections(Ray[])}.
+     */
+    @Test
+    public void findClosestIntersections() {
+        Intersectable.GeoPoint[] result;
+        Sphere close = new Sphere(1, new Point3D(3,0,1));
+        Geometries geometries = new Geometries(new Sphere(1, new Point3D(30,0,1)), close,
+                new Sphere(1, new Point3D(20,3,1)), new Sphere(1, new Point3D(-3,0,1)),
+                new Plane(new Point3D(0,0,-5), new Vector(0,0,1)));
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        VirtualBoxesHierarchy hierarchy = geometries.getHierarchy();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Coherent rays hit different geometries, the infinite geometry or nothing
+        Ray[] rays = {new Ray(new Point3D(0,0,1), new Vector(1,0,0)),
+                new Ray(new Point3D(0,3,1), new Vector(1,0,0)),
+                new Ray(new Point3D(0,10,1), new Vector(1,0,-1)),
+                new Ray(new Point3D(0,10,1), new Vector(1,0,0))};
+        result = hierarchy.findClosestIntersections(rays);
+        assertEquals("Ray hits the closest geometry", new Point3D(2,0,1), result[0].point);
+        assertEquals("Ray hits a farther geometry", new Point3D(19,3,1), result[1].point);
+        assertEquals("Ray hits the infinite geometry", new Point3D(6,10,-5), result[2].point);
+        assertNull("Ray hits nothing", result[3]);
+
+        //TC02: Rays in different directions are traced alone
+        rays = new Ray[]{new Ray(new Point3D(0,0,1), new Vector(1,0,0)),
+                new Ray(new Point3D(0,0,1), new Vector(-1,0,0))};
+        result = hierarchy.findClosestIntersections(rays);
+        assertEquals("First ray", new Point3D(2,0,1), result[0].point);
+        assertEquals("Second ray", new Point3D(-2,0,1), result[1].point);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: The packet's rays give the same intersections as single rays
+        rays = new Ray[16];
+        for (int i = 0; i < 16; i++)
+            rays[i] = new Ray(new Point3D(0, i % 4 - 1.5, i / 4 - 0.5), new Vector(1, 0.01 * i, 0.02 * i));
+        result = hierarchy.findClosestIntersections(rays);
+        for (int i = 0; i < 16; i++) {
+            Intersectable.GeoPoint single = hierarchy.findClosestIntersection(rays[i]);
+            if (single == null)
+                assertNull("Packet ray " + i, result[i]);
+            else
+                assertEquals("Packet ray " + i, single.point, result[i].point);
+        }
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#cullFrustum(Point3D, Vector...)}
+     * and {@link VirtualBoxesHierarchy#findClosestIntersection(Ray, int[])}.
+     */
+    @Test
+    public void cullFrustum() {
+        // frustum from the origin around z axis, 45 degrees to every side
+        Vector[] normals = {new Vector(1,0,1), new Vector(-1,0,1), new Vector(0,1,1), new Vector(0,-1,1)};
+        Sphere far = new Sphere(1, new Point3D(3,0,20));
+        Geometries geometries = new Geometries(new Sphere(1, new Point3D(30,0,10)), far,
+                new Sphere(1, new Point3D(-30,0,10)), new Sphere(1, new Point3D(0,0,10)),
+                new Sphere(1, new Point3D(0,40,10)), new Plane(new Point3D(0,0,50), new Vector(0,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        VirtualBoxesHierarchy hierarchy = geometries.getHierarchy();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Only the boxes inside the frustum are left, the nearest first
+        int[] boxes = hierarchy.cullFrustum(Point3D.ZERO, normals);
+        assertEquals("Boxes inside the frustum", 2, boxes.length);
+        Ray ray = new Ray(Point3D.ZERO, new Vector(0,0,1));
+        assertEquals("Nearest box first", new Point3D(0,0,9), hierarchy.findClosestIntersection(ray, boxes).point);
+
+        //TC02: A ray misses the nearest box and hits a farther one
+        ray = new Ray(Point3D.ZERO, new Vector(0.15,0,1));
+        assertSame("Ray hits the farther box", far, hierarchy.findClosestIntersection(ray, boxes).geometry);
+
+        //TC03: A ray misses the boxes and hits the infinite geometry
+        ray = new Ray(Point3D.ZERO, new Vector(0.5,0.5,1));
+        assertEquals("Ray hits the infinite geometry", new Point3D(25,25,50),
+                hierarchy.findClosestIntersection(ray, boxes).point);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: No box is inside the frustum
+        boxes = hierarchy.cullFrustum(new Point3D(0,0,30), normals);
+        assertEquals("No box inside the frustum", 0, boxes.length);
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#getStatistics()}.
+     */
+    @Test
+    public void getStatistics() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Two elementary boxes that don't overlap, under the root box
+        Geometries geometries = new Geometries(new Sphere(1, new Point3D(3,0,0)), new Sphere(1, new Point3D(-3,0,0)),
+                new Plane(new Point3D(0,0,5), new Vector(0,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        String statistics = geometries.getHierarchy().getStatistics();
+        assertTrue("Wrong amount of boxes", statistics.contains("boxes: 3 (inner: 1, elementary: 2), geometries: 2, infinite: 1"));
+        assertTrue("Wrong depths", statistics.contains("elementary boxes by depth: 1:2"));
+        assertTrue("Wrong amounts of geometries", statistics.contains("elementary boxes by geometries: 1:2"));
+        assertTrue("Wrong overlap", statistics.contains("average overlap of inner boxes: 0.00%"));
+
+        //TC02: Overlapping elementary boxes
+        geometries = new Geometries(new Sphere(2, new Point3D(1,0,0)), new Sphere(2, new Point3D(-1,0,0)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertFalse("Overlap isn't found",
+                geometries.getHierarchy().getStatistics().contains("average overlap of inner boxes: 0.00%"));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: Only infinite geometries
+        geometries = new Geometries(new Plane(new Point3D(0,0,5), new Vector(0,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertTrue("Wrong statistics without boxes",
+                geometries.getHierarchy().getStatistics().startsWith("no boxes, infinite geometries: 1"));
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#getTraversalStatistics()}.
+     */
+    @Test
+    public void getTraversalStatistics() {
+        Geometries geometries = new Geometries(new Sphere(1, new Point3D(3,0,1)), new Sphere(1, new Point3D(-3,0,1)),
+                new Plane(new Point3D(0,0,5), new Vector(0,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        VirtualBoxesHierarchy hierarchy = geometries.getHierarchy();
+        TraversalStatistics statistics = hierarchy.getTraversalStatistics();
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: A reflection ray visits the root box and one elementary box
+        hierarchy.findClosestIntersection(ray, AccelerationStructure.RayType.REFLECTION);
+        assertEquals("Wrong amount of rays", 1, statistics.getRays(AccelerationStructure.RayType.REFLECTION));
+        assertEquals("Wrong amount of boxes", 2, statistics.getBoxes(AccelerationStructure.RayType.REFLECTION));
+        assertEquals("Wrong amount of tests", 2, statistics.getTests(AccelerationStructure.RayType.REFLECTION));
+        assertEquals("Other kinds of rays are counted", 0, statistics.getRays(AccelerationStructure.RayType.PRIMARY));
+
+        //TC02: A shadow ray
+        hierarchy.findTransparency(ray, 100, 0.001);
+        assertEquals("Wrong amount of shadow rays", 1, statistics.getRays(AccelerationStructure.RayType.SHADOW));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: Reset
+        statistics.reset();
+        assertEquals("Counters aren't reset", 0, statistics.getRays(AccelerationStructure.RayType.REFLECTION));
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#findTransparency(Ray, double, double)}.
+     */
+    @Test
+    public void findTransparency() {
+        Geometries geometries;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Material glass = new Material(0, 0, 0, 0.5, 0);
+        Material wall = new Material(0, 0, 0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry blocks the ray
+        geometries = new Geometries(new Sphere(1, new Point3D(3,3,3)), new Sphere(1, new Point3D(-3,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("No geometry blocks the ray", 1.0,
+                geometries.getHierarchy().findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC02: A transparent geometry is intersected twice before the light
+        geometries = new Geometries(new Sphere(Color.BLACK, glass, 1, new Point3D(3,0,1)),
+                new Sphere(1, new Point3D(3,3,3)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("Transparent geometry", 0.25,
+                geometries.getHierarchy().findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC03: An opaque geometry blocks the ray
+        geometries = new Geometries(new Sphere(Color.BLACK, glass, 1, new Point3D(3,0,1)),
+                new Sphere(Color.BLACK, wall, 1, new Point3D(10,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("Opaque geometry", 0.0,
+                geometries.getHierarchy().findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC04: An infinite opaque geometry blocks the ray
+        geometries = new Geometries(new Sphere(1, new Point3D(3,3,3)),
+                new Plane(wall, Color.BLACK, new Point3D(5,0,0), new Vector(1,0,0)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("Infinite opaque geometry", 0.0,
+                geometries.getHierarchy().findTransparency(ray, 100, 0.001), 0.00001);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC05: The opaque geometry is beyond the light
+        geometries = new Geometries(new Sphere(Color.BLACK, glass, 1, new Point3D(3,0,1)),
+                new Sphere(Color.BLACK, wall, 1, new Point3D(10,0,1)));
+        geometries.buildVirtualBoxesHierarchy();
+        assertEquals("Opaque geometry beyond the light", 0.25,
+                geometries.getHierarchy().findTransparency(ray, 8, 0.001), 0.00001);
+
+        //TC06: The light is blocked under the min transparency factor
+        assertEquals("Light is blocked by transparent geometry", 0.0,
+                geometries.getHierarchy().findTransparency(ray, 8, 0.5), 0.00001);
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#refit()}.
+     */
+    @Test
+    public void refit() {
+        Ray ray = new Ray(new Point3D(-5,0,1), new Vector(1,0,0));
+        List<Sphere> spheres = new ArrayList<>();
+        Geometries geometries = new Geometries();
+        // a 4x4 grid of spheres
+        for (int i = 0; i < 16; i++) {
+            spheres.add(new Sphere(1, new Point3D(10 * (i % 4), 10 * (i / 4), 1)));
+            geometries.add(spheres.get(i));
+        }
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        VirtualBoxesHierarchy hierarchy = geometries.getHierarchy();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry moved
+        assertEquals("Refit without moving", 1, hierarchy.refit(), 0.00001);
+
+        //TC02: A geometry moved a little out of the ray's way
+        spheres.get(0).setCenter(new Point3D(0,-3,1));
+        assertTrue("Small move is refitted", geometries.refitVirtualBoxesHierarchy());
+        assertSame("Refit keeps the hierarchy", hierarchy, geometries.getHierarchy());
+        assertEquals("Moved geometry is missed", new Point3D(9,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+        assertEquals("Root box is refitted", -4, geometries.getVirtualBox().get_lowY().get(), 0.00001);
+
+        //TC03: The geometries are shuffled, so the hierarchy has to be built again
+        for (int i = 0; i < 16; i++) {
+            int place = i * 3 % 16;
+            spheres.get(i).setCenter(new Point3D(10 * (place % 4), 10 * (place / 4), 1));
+        }
+        assertFalse("Shuffle needs a rebuild", geometries.refitVirtualBoxesHierarchy());
+        assertEquals("Refitted hierarchy still finds intersections", new Point3D(-1,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+    }
+
+    /**
+     * Test method for {@link VirtualBoxesHierarchy#setBatchLeaves(boolean)}.
+     */
+    @Test
+    public void setBatchLeaves() {
+        Random random = new Random(7);
+        Geometries geometries = new Geometries();
+        // a cloud of small spheres and triangles, so the elementary boxes hold several of them
+        for (int i = 0; i < 300; i++) {
+            Point3D center = new Point3D(random.nextDouble() * 20, random.nextDouble() * 20, random.nextDouble() * 20);
+            if (i % 3 == 0)
+                geometries.add(new Triangle(center, center.add(new Vector(1, 0.2, 0)),
+                        center.add(new Vector(0, 1, 0.3))));
+            else
+                geometries.add(new Sphere(0.2 + random.nextDouble() * 0.5, center));
+        }
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        VirtualBoxesHierarchy hierarchy = geometries.getHierarchy();
+        Ray[] rays = new Ray[200];
+        for (int i = 0; i < rays.length; i++)
+            rays[i] = new Ray(new Point3D(-5, random.nextDouble() * 20, random.nextDouble() * 20),
+                    new Vector(1, random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Testing the elementary boxes by the leaf kernel finds the same intersections
+        for (Ray ray : rays) {
+            hierarchy.setBatchLeaves(false);
+            Intersectable.GeoPoint expected = hierarchy.findClosestIntersection(ray);
+            double expectedTransparency = hierarchy.findTransparency(ray, 15, 0.001);
+            hierarchy.setBatchLeaves(true);
+            Intersectable.GeoPoint actual = hierarchy.findClosestIntersection(ray);
+            if (expected == null)
+                assertNull("Batched boxes find an intersection", actual);
+            else {
+                assertSame("Batched boxes find a different geometry", expected.geometry, actual.geometry);
+                assertEquals("Batched boxes find a different point", expected.point, actual.point);
+            }
+            assertEquals("Batched boxes find a different transparency", expectedTransparency,
+                    hierarchy.findTransparency(ray, 15, 0.001), 0);
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Rays from the intersections, like reflected rays, ignore the geometries they start on
+        for (Ray ray : rays) {
+            Intersectable.GeoPoint start = hierarchy.findClosestIntersection(ray);
+            if (start == null)
+                continue;
+            Ray reflected = new Ray(start.point, ray.getVector());
+            hierarchy.setBatchLeaves(false);
+            Intersectable.GeoPoint expected = hierarchy.findClosestIntersection(reflected);
+            hierarchy.setBatchLeaves(true);
+            Intersectable.GeoPoint actual = hierarchy.findClosestIntersection(reflected);
+            if (expected == null)
+                assertNull("Batched boxes find an intersection from a geometry", actual);
+            else
+                assertEquals("Batched boxes find a different point from a geometry", expected.point, actual.point);
+        }
+    }
+}
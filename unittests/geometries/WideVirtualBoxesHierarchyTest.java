@@ -0,0 +1,185 @@
+package geometries;
+
+import org.junit.Test;
+import primitives.*;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing WideVirtualBoxesHierarchy
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class WideVirtualBoxesHierarchyTest {
+
+    /**
+     * creates a row of small spheres along x axis, so the hierarchy has many boxes
+     * @param geometries geometries to add the spheres to
+     * @return the geometries
+     */
+    private Geometries row(Geometries geometries) {
+        for (int i = 0; i < 20; i++)
+            geometries.add(new Sphere(0.5, new Point3D(10 + 5 * i, 0, -5)));
+        return geometries;
+    }
+
+    /**
+     * builds a virtual boxes hierarchy over geometries and collapses it to a wide hierarchy
+     * @param geometries the geometries
+     * @param width amount of inner boxes of a box
+     * @return the wide hierarchy
+     */
+    private WideVirtualBoxesHierarchy wide(Geometries geometries, int width) {
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        return new WideVirtualBoxesHierarchy(geometries.getHierarchy(), width);
+    }
+
+    /**
+     * Test method for {@link WideVirtualBoxesHierarchy#WideVirtualBoxesHierarchy(VirtualBoxesHierarchy, int)}.
+     */
+    @Test
+    public void testConstructor() {
+        Geometries geometries = new Geometries();
+        for (int i = 0; i < 10; i++)
+            for (int j = 0; j < 10; j++)
+                geometries.add(new Sphere(0.5, new Point3D(3 * i, 3 * j, 0)));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Wider boxes make less boxes
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        int four = new WideVirtualBoxesHierarchy(geometries.getHierarchy(), 4).getBoxesCount();
+        int eight = new WideVirtualBoxesHierarchy(geometries.getHierarchy(), 8).getBoxesCount();
+        assertTrue("Wide boxes aren't less than binary boxes",
+                four < geometries.getHierarchy().getBoxesCount() && eight < four);
+
+        //TC02: Wrong width
+        assertThrows("Width must be 4 or 8", IllegalArgumentException.class,
+                () -> new WideVirtualBoxesHierarchy(geometries.getHierarchy(), 3));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC03: A single elementary box
+        assertEquals("Single elementary box", 1,
+                wide(new Geometries(new Sphere(1, new Point3D(0,0,0))), 4).getBoxesCount());
+    }
+
+    /**
+     * Test method for {@link WideVirtualBoxesHierarchy#findIntersections(Ray)}.
+     */
+    @Test
+    public void findIntersections() {
+        List<Intersectable.GeoPoint> result;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray", wide(row(new Geometries()), 4).findIntersections(ray));
+
+        //TC02: Some geometries in different boxes intersect the ray
+        WideVirtualBoxesHierarchy hierarchy = wide(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Sphere(1, new Point3D(80,0,1)))), 8);
+        result = hierarchy.findIntersections(ray);
+        assertEquals("Some geometries intersect with ray", 4, result.size());
+
+        //TC03: Finite and infinite geometries intersect the ray
+        hierarchy = wide(row(new Geometries(new Sphere(1, new Point3D(20,0,1)),
+                new Plane(new Point3D(1,0,0), new Vector(1,0,0)))), 4);
+        result = hierarchy.findIntersections(ray);
+        assertEquals("Finite and infinite geometries intersect with ray", 3, result.size());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: Only infinite geometries
+        hierarchy = wide(new Geometries(new Plane(new Point3D(1,0,0), new Vector(1,0,0))), 4);
+        assertEquals("Only infinite geometries", 1, hierarchy.findIntersections(ray).size());
+    }
+
+    /**
+     * Test method for {@link WideVirtualBoxesHierarchy#findClosestIntersection(Ray)}.
+     */
+    @Test
+    public void findClosestIntersection() {
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Sphere close = new Sphere(1, new Point3D(30,0,1));
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry intersects the ray
+        assertNull("No geometry intersects with ray", wide(row(new Geometries()), 4).findClosestIntersection(ray));
+
+        //TC02: The closest geometry is found before the farther boxes
+        WideVirtualBoxesHierarchy hierarchy = wide(row(new Geometries(new Sphere(1, new Point3D(90,0,1)),
+                close, new Sphere(1, new Point3D(-30,0,1)))), 4);
+        assertEquals("Closest geometry is found", new Point3D(29,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+
+        //TC03: The ray goes against the axis
+        ray = new Ray(new Point3D(100,0,1), new Vector(-1,0,0));
+        assertEquals("Ray goes against the axis", new Point3D(91,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+
+        //TC04: Random rays find the same intersections as in the binary hierarchy
+        Geometries geometries = new Geometries();
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++)
+            geometries.add(new Sphere(0.5 + random.nextDouble(), new Point3D(random.nextDouble() * 40 - 20,
+                    random.nextDouble() * 40 - 20, random.nextDouble() * 40 - 20)));
+        for (int width : new int[]{4, 8}) {
+            hierarchy = wide(geometries, width);
+            for (int i = 0; i < 200; i++) {
+                ray = new Ray(new Point3D(0,0,-50), new Vector(random.nextDouble() - 0.5,
+                        random.nextDouble() - 0.5, 1));
+                Intersectable.GeoPoint expected = geometries.getHierarchy().findClosestIntersection(ray);
+                Intersectable.GeoPoint actual = hierarchy.findClosestIntersection(ray);
+                if (expected == null)
+                    assertNull("Different closest intersection", actual);
+                else
+                    assertEquals("Different closest intersection", expected.point, actual.point);
+            }
+        }
+
+        // =============== Boundary Values Tests ==================
+
+        //TC05: The ray starts on a geometry
+        ray = new Ray(new Point3D(29,0,1), new Vector(1,0,0));
+        hierarchy = wide(row(new Geometries(close)), 8);
+        assertEquals("Ray starts on a geometry", new Point3D(31,0,1),
+                hierarchy.findClosestIntersection(ray).point);
+    }
+
+    /**
+     * Test method for {@link WideVirtualBoxesHierarchy#findTransparency(Ray, double, double)}.
+     */
+    @Test
+    public void findTransparency() {
+        WideVirtualBoxesHierarchy hierarchy;
+        Ray ray = new Ray(new Point3D(0,0,1), new Vector(1,0,0));
+        Material glass = new Material(0, 0, 0, 0.5, 0);
+        Material wall = new Material(0, 0, 0, 0, 0);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: No geometry blocks the ray
+        hierarchy = wide(row(new Geometries()), 4);
+        assertEquals("No geometry blocks the ray", 1.0, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC02: A transparent geometry is intersected twice before the light
+        hierarchy = wide(row(new Geometries(new Sphere(Color.BLACK, glass, 10, new Point3D(30,0,1)))), 4);
+        assertEquals("Transparent geometry", 0.25, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        //TC03: An opaque geometry blocks the ray
+        hierarchy = wide(row(new Geometries(new Sphere(Color.BLACK, glass, 1, new Point3D(30,0,1)),
+                new Sphere(Color.BLACK, wall, 1, new Point3D(60,0,1)))), 8);
+        assertEquals("Opaque geometry", 0.0, hierarchy.findTransparency(ray, 100, 0.001), 0.00001);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC04: The opaque geometry is beyond the light
+        assertEquals("Opaque geometry beyond the light", 0.25,
+                hierarchy.findTransparency(ray, 50, 0.001), 0.00001);
+    }
+}
@@ -0,0 +1,61 @@
+package primitives;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for primitives.ColorAccumulator class
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class ColorAccumulatorTest {
+
+    /**
+     * Test method for {@link ColorAccumulator#addScaled(Color, double)}.
+     */
+    @Test
+    public void addScaled() {
+        Color emission = new Color(10.1, 20.3, 0.7);
+        Color light = new Color(255, 128.5, 33.3).scale(0.37);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test summing scaled colors gives exactly the color of Color's operations
+        Color expected = emission.add(light.scale(0.61), light.scale(0.0731));
+        ColorAccumulator color = new ColorAccumulator().set(emission).addScaled(light, 0.61).addScaled(light, 0.0731);
+        Color actual = color.toColor();
+        assertEquals("addScaled() wrong red", expected._r, actual._r, 0);
+        assertEquals("addScaled() wrong green", expected._g, actual._g, 0);
+        assertEquals("addScaled() wrong blue", expected._b, actual._b, 0);
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test scaling by a negative number
+        try {
+            color.addScaled(light, -1);
+            fail("addScaled() with a negative scalar does not throw an exception");
+        } catch (IllegalArgumentException e) {}
+    }
+
+    /**
+     * Test method for {@link ColorAccumulator#reduce(double)}.
+     */
+    @Test
+    public void reduce() {
+        Color sample = new Color(100, 50, 25);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test the average of a sum of colors
+        ColorAccumulator total = new ColorAccumulator().add(sample).add(sample).add(Color.BLACK).reduce(3);
+        assertEquals("reduce() wrong result", sample.add(sample).reduce(3).getColor(), total.getColor());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test reducing by a number lower than 1
+        try {
+            total.reduce(0.5);
+            fail("reduce() with a number lower than 1 does not throw an exception");
+        } catch (IllegalArgumentException e) {}
+    }
+}
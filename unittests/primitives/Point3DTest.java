@@ -0,0 +1,78 @@
+package primitives;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for primitives.Point3D class
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class Point3DTest {
+
+    /**
+     * Test method for {@link Point3D#Point3D(double, double, double)}.
+     */
+    @Test
+    public void constructor() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test the values are kept, and the coordinates hold the same values
+        Point3D point = new Point3D(1.5, -2, 3);
+        assertEquals("Point3D() wrong x value", 1.5, point.getXValue(), 0);
+        assertEquals("getY() isn't the y value", point.getYValue(), point.getY().get(), 0);
+        assertEquals("Point3D(Coordinate...) wrong point", point,
+                new Point3D(new Coordinate(1.5), new Coordinate(-2), new Coordinate(3)));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test values that are almost zero are aligned to zero
+        point = new Point3D(1e-13, 1, -1e-13);
+        assertEquals("Point3D() doesn't align x to zero", 0, point.getXValue(), 0);
+        assertEquals("Point3D() doesn't align z to zero", 0, point.getZValue(), 0);
+    }
+
+    /**
+     * Test method for {@link Point3D#add(Vector)} and {@link Point3D#subtract(Point3D)}.
+     */
+    @Test
+    public void add() {
+        Point3D point = new Point3D(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test adding a vector and subtracting the point back
+        Point3D sum = point.add(new Vector(-1, 3, 0.5));
+        assertEquals("add() wrong result", new Point3D(0, 5, 3.5), sum);
+        assertEquals("subtract() wrong result", new Vector(-1, 3, 0.5), sum.subtract(point));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test a sum that is almost zero is aligned to zero
+        sum = new Point3D(0.1, 0, 0).add(new Vector(0.2, 1, 0)).add(new Vector(-0.3, 1, 0));
+        assertEquals("add() doesn't align x to zero", 0, sum.getXValue(), 0);
+
+        //TC03: Test subtracting the same point
+        assertThrows("subtract() of the same point doesn't throw an exception", IllegalArgumentException.class,
+                () -> point.subtract(new Point3D(1, 2, 3)));
+    }
+
+    /**
+     * Test method for {@link Point3D#equals(Object)}.
+     */
+    @Test
+    public void testEquals() {
+        Point3D point = new Point3D(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test points with the same values and with different values
+        assertEquals("equals() of the same values", point, new Point3D(1, 2, 3));
+        assertNotEquals("equals() of different values", point, new Point3D(1, 2.001, 3));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test values that differ by almost zero are equal
+        assertEquals("equals() of almost the same values", point, new Point3D(1, 2 - 1e-13, 3));
+    }
+}
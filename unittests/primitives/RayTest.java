@@ -0,0 +1,43 @@
+package primitives;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for primitives.Ray class
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class RayTest {
+
+    /**
+     * Test method for {@link Ray#getInverseXValue()} and {@link Ray#getSignX()}.
+     */
+    @Test
+    public void inverse() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test the inverse and the signs of a normalized direction
+        Ray ray = new Ray(new Point3D(1, 2, 3), new Vector(2, -1, 2));
+        assertEquals("getInverseXValue() wrong result", 1.5, ray.getInverseXValue(), 0.00001);
+        assertEquals("getInverseYValue() wrong result", -3, ray.getInverseYValue(), 0.00001);
+        assertEquals("getInverseZValue() wrong result", 1.5, ray.getInverseZValue(), 0.00001);
+        assertEquals("getSignX() wrong sign", 0, ray.getSignX());
+        assertEquals("getSignY() wrong sign", 1, ray.getSignY());
+        assertEquals("getSignZ() wrong sign", 0, ray.getSignZ());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test a direction value of 0 has an infinite inverse
+        ray = new Ray(new Point3D(1, 2, 3), new Vector(0, 0, -1));
+        assertEquals("getInverseXValue() of 0 is not infinity", Double.POSITIVE_INFINITY, ray.getInverseXValue(), 0);
+        assertEquals("getSignX() of 0 is not 0", 0, ray.getSignX());
+        assertEquals("getSignZ() wrong sign", 1, ray.getSignZ());
+
+        //TC03: Test a ray from a new point keeps the other ray's direction, inverse and signs
+        Ray other = new Ray(new Point3D(0, 0, 0), ray);
+        assertEquals("Ray(Point3D, Ray) wrong direction", ray.getVector(), other.getVector());
+        assertEquals("Ray(Point3D, Ray) wrong inverse", ray.getInverseZValue(), other.getInverseZValue(), 0);
+        assertEquals("Ray(Point3D, Ray) wrong sign", ray.getSignZ(), other.getSignZ());
+    }
+}
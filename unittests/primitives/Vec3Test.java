@@ -0,0 +1,86 @@
+package primitives;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static primitives.Util.isZero;
+
+/**
+ * Unit tests for primitives.Vec3 class
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class Vec3Test {
+
+    /**
+     * Test method for {@link Vec3#addScaled(Vector, double)}.
+     */
+    @Test
+    public void addScaled() {
+        Vec3 v = new Vec3(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test adding a scaled vector changes this vector
+        assertSame("addScaled() doesn't return this vector", v, v.addScaled(new Vector(1, 1, 1), 2));
+        assertEquals("addScaled() wrong result", new Vector(3, 4, 5), v.toVector());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test adding the opposite vector gives the zero vector
+        v.addScaled(new Vector(3, 4, 5), -1);
+        assertTrue("addScaled() of the opposite vector is not zero", isZero(v.lengthSquared()));
+    }
+
+    /**
+     * Test method for {@link Vec3#setCrossProduct(Vec3, Vec3)}.
+     */
+    @Test
+    public void setCrossProduct() {
+        Vec3 v1 = new Vec3(1, 2, 3);
+        Vec3 v3 = new Vec3(0, 3, -2);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test the cross product is the same as the vector's
+        Vec3 vr = new Vec3().setCrossProduct(v1, v3);
+        assertEquals("setCrossProduct() wrong result", new Vector(1, 2, 3).crossProduct(new Vector(0, 3, -2)),
+                vr.toVector());
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: Test the result may be one of the operands
+        v1.setCrossProduct(v1, v3);
+        assertEquals("setCrossProduct() wrong result into an operand", vr.toVector(), v1.toVector());
+
+        //TC03: Test cross product of parallel vectors is the zero vector
+        assertTrue("setCrossProduct() for parallel vectors is not zero",
+                isZero(new Vec3().setCrossProduct(v3, new Vec3(0, -6, 4)).lengthSquared()));
+    }
+
+    /**
+     * Test method for {@link Vec3#normalize()}.
+     */
+    @Test
+    public void normalize() {
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Test normalizing keeps the vector's direction
+        Vec3 v = new Vec3(1, 2, 3).normalize();
+        assertEquals("normalize() not in length 1", 1, v.length(), 0.00001);
+        assertEquals("normalize() wrong vector's direction", new Vector(1, 2, 3).normalized(), v.toVector());
+    }
+
+    /**
+     * Test method for {@link Vec3#toVector()}.
+     */
+    @Test
+    public void toVector() {
+        // =============== Boundary Values Tests ==================
+
+        //TC01: Test the zero vector can't be a vector
+        try {
+            new Vec3().toVector();
+            fail("toVector() for the zero vector does not throw an exception");
+        } catch (IllegalArgumentException e) {}
+    }
+}
@@ -213,4 +213,53 @@ public class VectorTest {
         Vector u = new Vector(0,1,0);
         assertEquals("normalized() wrong result for vector with length 1", u.normalized(), u);
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for {@link Vector#Vector(double, double, double)}.
+     */
+    @Test
+    public void constructor() {
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: the values are kept as they are
+        Vector v = new Vector(1.5, -2, 3);
+        assertEquals("Vector() wrong x value", 1.5, v.getXValue(), 0);
+        assertEquals("Vector() wrong y value", -2, v.getYValue(), 0);
+        assertEquals("Vector() wrong z value", 3, v.getZValue(), 0);
+
+        // =============== Boundary Values Tests ==================
+
+        // TC02: values that are almost zero are aligned to zero
+        v = new Vector(1e-13, 1, -1e-13);
+        assertEquals("Vector() doesn't align x to zero", 0, v.getXValue(), 0);
+        assertEquals("Vector() doesn't align z to zero", 0, v.getZValue(), 0);
+
+        // TC03: a vector whose values are all almost zero is the zero vector
+        assertThrows("Vector() of almost zero values doesn't throw an exception", IllegalArgumentException.class,
+                () -> new Vector(1e-13, -1e-13, 0));
+    }
+
+    /**
+     * Test method for {@link Vector#equals(Object)}.
+     */
+    @Test
+    public void testEquals() {
+        Vector v = new Vector(1, 2, 3);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        // TC01: a vector with the same values
+        assertEquals("equals() of the same values", v, new Vector(1, 2, 3));
+
+        // TC02: a different vector
+        assertNotEquals("equals() of different values", v, new Vector(1, 2, 3.001));
+
+        // =============== Boundary Values Tests ==================
+
+        // TC03: values that differ by almost zero are equal
+        assertEquals("equals() of almost the same values", v, new Vector(1, 2, 3 + 1e-13));
+
+        // TC04: a point isn't a vector
+        assertNotEquals("equals() of a point", v, new Point3D(1, 2, 3));
+    }
+}
@@ -8,6 +8,9 @@ import org.junit.Test;
 import primitives.*;
 import scene.Scene;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -125,4 +128,53 @@ public class BoundingValuesHierarchyTests {
         assertEquals("build virtual boxes hierarchy test",expected,geometries);
     }
 
+    /**
+     * test building process with the surface area heuristic
+     */
+    @Test
+    public void buildVirtualBoxesHierarchySAHTest(){
+        // TC01: a cluster of small spheres and one far sphere
+        Sphere sphere1 = new Sphere(1, new Point3D(0,0,0));
+        Sphere sphere2 = new Sphere(1, new Point3D(2,0,0));
+        Sphere sphere3 = new Sphere(1, new Point3D(0,2,0));
+        Sphere sphere4 = new Sphere(1, new Point3D(2,2,0));
+        Sphere farSphere = new Sphere(1, new Point3D(100,0,0));
+        Geometries geometries = new Geometries(sphere1, farSphere, sphere2, sphere3, sphere4);
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        Geometries expected = new Geometries(
+                new Geometries(new Geometries(sphere1, sphere3), new Geometries(sphere2, sphere4)),
+                new Geometries(farSphere));
+        assertEquals("SAH build virtual boxes hierarchy test",expected,geometries);
+
+        // TC02: geometries with the same center
+        Sphere sphere = new Sphere(4,new Point3D(0,0,0));
+        Sphere sphere5 = new Sphere(2,new Point3D(0,0,0));
+        geometries = new Geometries(sphere,sphere5);
+        geometries.buildVirtualBoxesHierarchy(Geometries.BuildMethod.SURFACE_AREA_HEURISTIC);
+        expected = new Geometries(sphere, sphere5);
+        assertEquals("SAH build virtual boxes hierarchy test",expected,geometries);
+    }
+
+    /**
+     * test that a parallel build creates the same hierarchy as a serial build
+     */
+    @Test
+    public void parallelBuildVirtualBoxesHierarchyTest(){
+        for (Geometries.BuildMethod method : Geometries.BuildMethod.values()) {
+            Geometries serial = new Geometries();
+            Geometries parallel = new Geometries();
+            List<Intersectable> spheres = new ArrayList<>();
+            // spheres spread on a twisted grid, so boxes are split on every axis
+            for (int i = 0; i < 3000; i++)
+                spheres.add(new Sphere(1 + i % 3, new Point3D((i * 37) % 101, (i * 53) % 97, (i * 71) % 89)));
+            serial.add(spheres);
+            parallel.add(spheres);
+            serial.buildVirtualBoxesHierarchy(method, false);
+            parallel.buildVirtualBoxesHierarchy(method, true);
+            assertEquals("parallel build test " + method, serial, parallel);
+            assertEquals("parallel build test " + method, serial.getHierarchy().getBoxesCount(),
+                    parallel.getHierarchy().getBoxesCount());
+        }
+    }
+
 }
@@ -0,0 +1,131 @@
+package renderer;
+
+import elements.AmbientLight;
+import elements.Camera;
+import elements.PointLight;
+import geometries.*;
+import org.junit.Test;
+import primitives.*;
+import scene.Scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Testing that the ways Render traces rays render the same image as tracing every ray alone
+ * @author Eliana Rabinowitz and Elisheva Nafha
+ */
+public class RenderTest {
+
+    /**
+     * creates a scene of small spheres over a floor, lit by a point light
+     * @return the scene
+     */
+    private Scene createScene() {
+        Scene scene = new Scene("Render test scene");
+        scene.setCamera(new Camera(new Point3D(0, 0, -1000), new Vector(0, 0, 1), new Vector(0, -1, 0)));
+        scene.setDistance(1000);
+        scene.setBackground(Color.BLACK);
+        scene.setAmbientLight(new AmbientLight(new Color(java.awt.Color.WHITE), 0.15));
+        scene.addGeometries(new Polygon(new Material(0.5, 0.5, 60), new Color(70, 50, 50),
+                new Point3D(-300, 100, -100), new Point3D(-300, 100, 2000),
+                new Point3D(300, 100, 2000), new Point3D(300, 100, -100)));
+        Random random = new Random(1);
+        for (int i = 0; i < 300; i++)
+            scene.addGeometries(new Sphere(new Color(20 + random.nextInt(100), 20 + random.nextInt(100), 50),
+                    new Material(0.5, 0.5, 30), 2 + random.nextDouble() * 4,
+                    new Point3D(random.nextGaussian() * 60, random.nextGaussian() * 40,
+                            400 + random.nextGaussian() * 200)));
+        scene.addLights(new PointLight(new Color(500, 300, 300), new Point3D(-100, -200, 0), 1, 4E-5, 2E-7));
+        return scene;
+    }
+
+    /**
+     * renders an image of a scene
+     * @param scene the scene
+     * @param packetSize amount of primary rays traced together
+     * @param tileCulling whether to cull the hierarchy for every tile
+     * @return the image
+     */
+    private ImageWriter render(Scene scene, int packetSize, boolean tileCulling) {
+        ImageWriter imageWriter = new ImageWriter("render test", 200, 200, 100, 100);
+        new Render(imageWriter, scene).setPacketSize(packetSize).setTileCulling(tileCulling).renderImage();
+        return imageWriter;
+    }
+
+    /**
+     * checks that two images have the same pixels
+     * @param message message of the assertion
+     * @param expected the expected image
+     * @param actual the actual image
+     */
+    private void assertSameImage(String message, ImageWriter expected, ImageWriter actual) {
+        for (int y = 0; y < expected.getNy(); y++)
+            for (int x = 0; x < expected.getNx(); x++)
+                assertEquals(message + " at pixel " + x + "," + y, expected.getRGB(x, y), actual.getRGB(x, y));
+    }
+
+    /**
+     * Test method for {@link Render#setPacketSize(int)}.
+     */
+    @Test
+    public void setPacketSize() {
+        Scene scene = createScene();
+        ImageWriter single = render(scene, 1, false);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Packets of rays render the same image as single rays
+        for (int packetSize : new int[]{4, 8, 16})
+            assertSameImage("Packets of " + packetSize + " rays", single, render(scene, packetSize, false));
+
+        // =============== Boundary Values Tests ==================
+
+        //TC02: A packet size that isn't supported
+        assertThrows("Packet size 3 is accepted", IllegalArgumentException.class,
+                () -> new Render(new ImageWriter("render test", 200, 200, 100, 100), scene).setPacketSize(3));
+    }
+
+    /**
+     * Test method for {@link Render#setTileCulling(boolean)}.
+     */
+    @Test
+    public void setTileCulling() {
+        Scene scene = createScene();
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: Culling the hierarchy for every tile renders the same image as single rays
+        assertSameImage("Tile culling", render(scene, 1, false), render(scene, 1, true));
+    }
+
+    /**
+     * Test method for {@link Scene#setHierarchyCache(Path)}.
+     */
+    @Test
+    public void hierarchyCache() throws IOException {
+        Path cache = Files.createTempDirectory("hierarchy");
+        ImageWriter built = render(createScene(), 1, false);
+
+        // ============ Equivalence Partitions Tests ==============
+
+        //TC01: The hierarchies written to the cache and loaded from it render the same image as a built hierarchy
+        try {
+            for (String run : new String[]{"Written", "Loaded"}) {
+                Scene scene = createScene();
+                scene.setHierarchyCache(cache);
+                assertSameImage(run + " hierarchy", built, render(scene, 1, false));
+            }
+            assertEquals("Hierarchy isn't written to the cache", 1, cache.toFile().listFiles().length);
+        } finally {
+            for (File file : cache.toFile().listFiles())
+                file.delete();
+            cache.toFile().delete();
+        }
+    }
+}